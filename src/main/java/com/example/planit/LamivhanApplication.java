@@ -2,12 +2,26 @@ package com.example.planit;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.data.mongo.MongoReactiveDataAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.mongo.MongoReactiveRepositoriesAutoConfiguration;
+import org.springframework.boot.autoconfigure.mongo.MongoReactiveAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.reactive.function.client.ClientHttpConnectorAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.reactive.function.client.WebClientAutoConfiguration;
 
-@SpringBootApplication
+import java.util.Map;
+
+// the reactive Mongo client and the shared Netty resources are created only with the reactive pipeline (see ReactiveConfig)
+@SpringBootApplication(exclude = {MongoReactiveAutoConfiguration.class, MongoReactiveDataAutoConfiguration.class, MongoReactiveRepositoriesAutoConfiguration.class,
+        ClientHttpConnectorAutoConfiguration.class, WebClientAutoConfiguration.class})
 public class LamivhanApplication {
 
     public static void main(String[] args) {
-        SpringApplication.run(LamivhanApplication.class, args);
+        SpringApplication application = new SpringApplication(LamivhanApplication.class);
+
+        // exposes the engine metrics for Prometheus (can be overridden by the environment)
+        application.setDefaultProperties(Map.of("management.endpoints.web.exposure.include", "health,metrics,prometheus"));
+
+        application.run(args);
     }
 
 }
\ No newline at end of file
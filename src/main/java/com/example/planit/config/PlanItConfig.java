@@ -0,0 +1,341 @@
+package com.example.planit.config;
+
+import com.example.planit.engine.BulkRegenerationEngine;
+import com.example.planit.engine.CalendarEngine;
+import com.example.planit.engine.CalendarEngineSettings;
+import com.example.planit.engine.EngineMetrics;
+import com.example.planit.engine.GoogleApiConcurrencyLimiter;
+import com.example.planit.engine.GoogleApiRateLimiter;
+import com.example.planit.engine.GoogleApiUsageAccounting;
+import com.example.planit.engine.GoogleIoExecutor;
+import com.example.planit.engine.HolidaysEngine;
+import com.example.planit.engine.UserCache;
+import com.example.planit.engine.UserStateWriteBuffer;
+import com.example.planit.engine.exams.ExamDetector;
+import com.example.planit.engine.exams.ExamSource;
+import com.example.planit.engine.jfr.FlightRecordingEngine;
+import com.example.planit.engine.resilience.Dependency;
+import com.example.planit.engine.resilience.DependencyGuard;
+import com.example.planit.engine.jobs.GenerationJobScheduler;
+import com.example.planit.model.mongo.bulk.BulkCheckpointRepository;
+import com.example.planit.model.mongo.course.CoursesRepository;
+import com.example.planit.model.mongo.exam.ExamIndexRepository;
+import com.example.planit.model.mongo.plan.PlanPreviewRepository;
+import com.example.planit.model.mongo.plan.PlanRepository;
+import com.example.planit.model.mongo.usage.GoogleApiUsageRepository;
+import com.example.planit.model.mongo.user.UserChangeRepository;
+import com.example.planit.model.mongo.user.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.data.mongodb.repository.config.EnableMongoRepositories;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.planit.utill.Constants.ISRAEL_HOLIDAYS_CODE;
+import static com.example.planit.utill.defaults.Defaults.*;
+
+/**
+ * creates the engines once, so the controllers and the scheduled jobs share the same instances
+ * (and the same holidays, rate budget etc.)
+ */
+@Configuration
+@EnableScheduling
+@EnableMongoRepositories(basePackages = "com.example.planit.model.mongo") // explicit, since ReactiveConfig enables the reactive repositories by itself
+public class PlanItConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(PlanItConfig.class);
+
+    @Autowired
+    private Environment env;
+
+    @Autowired
+    private CoursesRepository courseRepo;
+
+    @Autowired
+    private UserRepository userRepo;
+
+    @Autowired
+    private UserChangeRepository userChangeRepo;
+
+    @Autowired
+    private PlanRepository planRepo;
+
+    @Autowired
+    private ExamIndexRepository examIndexRepo;
+
+    @Autowired
+    private PlanPreviewRepository planPreviewRepo;
+
+    @Autowired
+    private BulkCheckpointRepository bulkCheckpointRepo;
+
+    @Autowired
+    private GoogleApiUsageRepository googleApiUsageRepo;
+
+    @Bean
+    public GoogleApiRateLimiter googleApiRateLimiter() {
+        return new GoogleApiRateLimiter(env.getProperty("planit.google.max-requests-per-second", Double.class, DEFAULT_GOOGLE_MAX_REQUESTS_PER_SECOND));
+    }
+
+    @Bean
+    public GoogleApiConcurrencyLimiter googleApiConcurrencyLimiter(EngineMetrics engineMetrics) {
+        GoogleApiConcurrencyLimiter googleApiConcurrencyLimiter = new GoogleApiConcurrencyLimiter(
+                env.getProperty("planit.google.concurrency.initial-limit", Integer.class, DEFAULT_GOOGLE_CONCURRENCY_INITIAL_LIMIT),
+                env.getProperty("planit.google.concurrency.min-limit", Integer.class, DEFAULT_GOOGLE_CONCURRENCY_MIN_LIMIT),
+                env.getProperty("planit.google.concurrency.max-limit", Integer.class, DEFAULT_GOOGLE_CONCURRENCY_MAX_LIMIT),
+                env.getProperty("planit.google.concurrency.backoff-ratio", Double.class, DEFAULT_GOOGLE_CONCURRENCY_BACKOFF_RATIO),
+                env.getProperty("planit.google.concurrency.latency-tolerance", Double.class, DEFAULT_GOOGLE_CONCURRENCY_LATENCY_TOLERANCE));
+        engineMetrics.registerGoogleConcurrencyLimiter(googleApiConcurrencyLimiter);
+
+        return googleApiConcurrencyLimiter;
+    }
+
+    /**
+     * the usage that was not flushed yet is flushed when the app shuts down
+     */
+    @Bean(destroyMethod = "flush")
+    public GoogleApiUsageAccounting googleApiUsageAccounting() {
+        return new GoogleApiUsageAccounting(googleApiUsageRepo);
+    }
+
+    /**
+     * the threads of the parallel calls to Google, the tasks that did not end are interrupted when the app shuts down
+     */
+    @Bean(destroyMethod = "shutdown")
+    public GoogleIoExecutor googleIoExecutor(GoogleApiUsageAccounting googleApiUsageAccounting) {
+        return new GoogleIoExecutor(getGoogleIoExecutorMode(),
+                env.getProperty("planit.google.io.platform-threads", Integer.class, DEFAULT_GOOGLE_IO_PLATFORM_THREADS),
+                googleApiUsageAccounting);
+    }
+
+    /**
+     * on Java 21+ Tomcat handles every request on its own virtual thread too (unless planit.google.io.executor is "platform"),
+     * so a request that waits for Google holds no platform thread
+     */
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadsProtocolHandlerCustomizer() {
+        return protocolHandler -> {
+            ExecutorService virtualThreadsExecutor = getGoogleIoExecutorMode() == GoogleIoExecutor.Mode.PLATFORM ? null : GoogleIoExecutor.newVirtualThreadPerTaskExecutor();
+            if (virtualThreadsExecutor != null) {
+                protocolHandler.setExecutor(virtualThreadsExecutor);
+            }
+        };
+    }
+
+    @Bean
+    public UserCache userCache(EngineMetrics engineMetrics) {
+        UserCache userCache = new UserCache(userRepo, userChangeRepo,
+                env.getProperty("planit.users.cache.ttl-in-millis", Long.class, DEFAULT_USER_CACHE_TTL_IN_MILLIS),
+                env.getProperty("planit.users.cache.max-size", Integer.class, DEFAULT_USER_CACHE_MAX_SIZE));
+        engineMetrics.registerUserCache(userCache);
+
+        return userCache;
+    }
+
+    /**
+     * the changes to the users that were not written yet are written when the app shuts down
+     */
+    @Bean(destroyMethod = "flush")
+    public UserStateWriteBuffer userStateWriteBuffer(UserCache userCache) {
+        return new UserStateWriteBuffer(userCache);
+    }
+
+    @Bean
+    public EngineMetrics engineMetrics(MeterRegistry meterRegistry) {
+        return new EngineMetrics(meterRegistry);
+    }
+
+    @Bean
+    public FlightRecordingEngine flightRecordingEngine() {
+        return new FlightRecordingEngine(Path.of(env.getProperty("planit.jfr.directory", System.getProperty("java.io.tmpdir"))),
+                env.getProperty("planit.jfr.max-duration-in-seconds", Long.class, DEFAULT_JFR_MAX_DURATION_IN_SECONDS),
+                env.getProperty("planit.jfr.max-size-in-mb", Long.class, DEFAULT_JFR_MAX_SIZE_IN_MB) * 1024 * 1024);
+    }
+
+    @Bean
+    public DependencyGuard googleCalendarGuard(EngineMetrics engineMetrics) {
+        return createDependencyGuard(Dependency.GOOGLE_CALENDAR, DEFAULT_GOOGLE_CALENDAR_MAX_CONCURRENT_CALLS, engineMetrics);
+    }
+
+    @Bean
+    public DependencyGuard googleOAuthGuard(EngineMetrics engineMetrics) {
+        return createDependencyGuard(Dependency.GOOGLE_OAUTH, DEFAULT_GOOGLE_OAUTH_MAX_CONCURRENT_CALLS, engineMetrics);
+    }
+
+    @Bean
+    public DependencyGuard calendarificGuard(EngineMetrics engineMetrics) {
+        return createDependencyGuard(Dependency.CALENDARIFIC, DEFAULT_CALENDARIFIC_MAX_CONCURRENT_CALLS, engineMetrics);
+    }
+
+    @Bean
+    public ExamDetector examDetector() {
+        return new ExamDetector(getExamSources());
+    }
+
+    @Bean
+    public CalendarEngine calendarEngine(GoogleApiRateLimiter googleApiRateLimiter, GoogleApiConcurrencyLimiter googleApiConcurrencyLimiter, GoogleIoExecutor googleIoExecutor,
+                                         ExamDetector examDetector, EngineMetrics engineMetrics, GoogleApiUsageAccounting googleApiUsageAccounting, UserCache userCache,
+                                         UserStateWriteBuffer userStateWriteBuffer) {
+
+        // get CLIENT_ID & CLIENT_SECRET values from environment
+        String CLIENT_ID = env.getProperty("spring.security.oauth2.client.registration.google.client-id");
+        String CLIENT_SECRET = env.getProperty("spring.security.oauth2.client.registration.google.client-secret");
+
+        // extract the holidays dates as iso format and return it in a set of string(iso format) (for current year and the next year).
+        Set<String> holidaysDatesCurrentYear = getDatesOfHolidays(ZonedDateTime.now().getYear(), engineMetrics);
+        Set<String> holidaysDatesNextYear = getDatesOfHolidays(ZonedDateTime.now().getYear() + 1, engineMetrics);
+
+        CalendarEngineSettings settings = new CalendarEngineSettings()
+                .setClientCredentials(CLIENT_ID, CLIENT_SECRET)
+                .setIncrementalRepairEnabled(env.getProperty("planit.generate.incremental-repair", Boolean.class, false))
+                .setMaxRepairedSessions(env.getProperty("planit.generate.max-repaired-sessions", Integer.class, DEFAULT_MAX_REPAIRED_SESSIONS))
+                .setGoogleUrls(env.getProperty("planit.google.root-url", DEFAULT_GOOGLE_ROOT_URL),
+                        env.getProperty("planit.google.token-server-url", DEFAULT_GOOGLE_TOKEN_SERVER_URL))
+                .setGoogleTimeouts(env.getProperty("planit.google.connect-timeout-in-millis", Integer.class, DEFAULT_GOOGLE_CONNECT_TIMEOUT_IN_MILLIS),
+                        env.getProperty("planit.google.read-timeout-in-millis", Integer.class, DEFAULT_GOOGLE_READ_TIMEOUT_IN_MILLIS))
+                .setOptionalWorkMinRemainingInMillis(env.getProperty("planit.deadline.optional-work-min-remaining-in-millis", Long.class, DEFAULT_OPTIONAL_WORK_MIN_REMAINING_IN_MILLIS))
+                .setWriteBatchSize(env.getProperty("planit.generate.write-batch-size", Integer.class, DEFAULT_WRITE_BATCH_SIZE))
+                .setRecurringEventsExpandedLocally(env.getProperty("planit.scan.expand-recurring-events", Boolean.class, false))
+                .setExamIndexMaxAgeInMillis(env.getProperty("planit.exams.index.max-age-in-millis", Long.class, DEFAULT_EXAM_INDEX_MAX_AGE_IN_MILLIS))
+                .setPlanPreviewTtlInMillis(env.getProperty("planit.generate.preview-ttl-in-millis", Long.class, DEFAULT_PLAN_PREVIEW_TTL_IN_MILLIS));
+
+        return new CalendarEngine(settings, userRepo, courseRepo, planRepo, examIndexRepo, planPreviewRepo, holidaysDatesCurrentYear, holidaysDatesNextYear,
+                googleApiRateLimiter, googleApiConcurrencyLimiter, googleCalendarGuard(engineMetrics), googleOAuthGuard(engineMetrics), googleIoExecutor,
+                examDetector, engineMetrics, googleApiUsageAccounting, userCache, userStateWriteBuffer);
+    }
+
+    /**
+     * the active run is stopped when the app shuts down, and resumed from its checkpoint by the next run
+     */
+    @Bean(destroyMethod = "shutdown")
+    public BulkRegenerationEngine bulkRegenerationEngine(CalendarEngine calendarEngine, GoogleApiUsageAccounting googleApiUsageAccounting) {
+        return new BulkRegenerationEngine(calendarEngine, googleApiUsageAccounting, userRepo, courseRepo, bulkCheckpointRepo,
+                env.getProperty("planit.bulk.parallelism", Integer.class, DEFAULT_BULK_PARALLELISM),
+                env.getProperty("planit.bulk.checkpoint-interval", Integer.class, DEFAULT_BULK_CHECKPOINT_INTERVAL),
+                env.getProperty("planit.bulk.window-in-days", Integer.class, DEFAULT_BULK_WINDOW_IN_DAYS));
+    }
+
+    /**
+     * the jobs that wait for a worker are cancelled when the app shuts down
+     */
+    @Bean(destroyMethod = "shutdown")
+    public GenerationJobScheduler generationJobScheduler(CalendarEngine calendarEngine, EngineMetrics engineMetrics) {
+        return new GenerationJobScheduler(calendarEngine, engineMetrics,
+                env.getProperty("planit.jobs.workers", Integer.class, DEFAULT_GENERATION_WORKERS),
+                env.getProperty("planit.jobs.aging-rate", Long.class, DEFAULT_GENERATION_AGING_RATE),
+                TimeUnit.DAYS.toMillis(env.getProperty("planit.jobs.unknown-exam-distance-in-days", Integer.class, DEFAULT_UNKNOWN_EXAM_DISTANCE_IN_DAYS)),
+                env.getProperty("planit.deadline.request-timeout-in-millis", Long.class, DEFAULT_REQUEST_TIMEOUT_IN_MILLIS));
+    }
+
+    /**
+     * creates the indexes of the DB that the queries rely on (e.g. the unique index on the email of the users, the index of the polls of the changes of the users).
+     * they are created in the background, so the startup does not wait for a long index build (or for the DB).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void createIndexes() {
+        Thread indexesThread = new Thread(() -> {
+            try {
+                userRepo.createIndexes();
+                userChangeRepo.createIndexes();
+            } catch (RuntimeException e) {
+                logger.warn("failed to create the indexes of the users", e);
+            }
+            try {
+                planPreviewRepo.createIndexes();
+            } catch (RuntimeException e) {
+                logger.warn("failed to create the indexes of the plan previews", e);
+            }
+        }, "mongo-indexes");
+        indexesThread.setDaemon(true);
+        indexesThread.start();
+    }
+
+    /**
+     * creates the circuit breaker and the bulkhead of a dependency, with its planit.resilience.[dependency].* properties
+     */
+    private DependencyGuard createDependencyGuard(Dependency dependency, int defaultMaxConcurrentCalls, EngineMetrics engineMetrics) {
+        String prefix = "planit.resilience." + dependency.getPropertyName() + ".";
+
+        DependencyGuard dependencyGuard = new DependencyGuard(dependency,
+                env.getProperty(prefix + "max-concurrent-calls", Integer.class, defaultMaxConcurrentCalls),
+                env.getProperty(prefix + "max-wait-in-millis", Long.class, DEFAULT_RESILIENCE_MAX_WAIT_IN_MILLIS),
+                env.getProperty(prefix + "sliding-window-size", Integer.class, DEFAULT_RESILIENCE_SLIDING_WINDOW_SIZE),
+                env.getProperty(prefix + "minimum-number-of-calls", Integer.class, DEFAULT_RESILIENCE_MINIMUM_NUMBER_OF_CALLS),
+                env.getProperty(prefix + "failure-rate-threshold", Double.class, DEFAULT_RESILIENCE_FAILURE_RATE_THRESHOLD),
+                env.getProperty(prefix + "slow-call-threshold-in-millis", Long.class, DEFAULT_RESILIENCE_SLOW_CALL_THRESHOLD_IN_MILLIS),
+                env.getProperty(prefix + "open-duration-in-millis", Long.class, DEFAULT_RESILIENCE_OPEN_DURATION_IN_MILLIS),
+                env.getProperty(prefix + "half-open-probes", Integer.class, DEFAULT_RESILIENCE_HALF_OPEN_PROBES));
+        engineMetrics.registerDependencyGuard(dependencyGuard);
+
+        return dependencyGuard;
+    }
+
+    /**
+     * the exam sources, with their planit.exams.sources[i].* properties, e.g.
+     * planit.exams.sources[0].calendar-names[0]=Exams, planit.exams.sources[0].calendar-regex=.*Exams.*,
+     * planit.exams.sources[0].keywords[0]=Exam, planit.exams.sources[0].regexes[0]=^Final (?<course>.+)$,
+     * planit.exams.sources[0].course-name-extraction=suffix|anywhere|regex_group.
+     * without any source, the exams calendar of the information station is the only source (see {@link ExamSource#DEFAULT})
+     */
+    private List<ExamSource> getExamSources() {
+        List<ExamSource> examSources = new ArrayList<>();
+        for (int i = 0; ; i++) {
+            String prefix = "planit.exams.sources[" + i + "].";
+            List<String> calendarNames = getListProperty(prefix + "calendar-names");
+            String calendarRegex = env.getProperty(prefix + "calendar-regex");
+            if (calendarNames.isEmpty() && calendarRegex == null) {
+                break;
+            }
+
+            examSources.add(new ExamSource(calendarNames, calendarRegex, getListProperty(prefix + "keywords"), getListProperty(prefix + "regexes"),
+                    ExamSource.CourseNameExtraction.valueOf(env.getProperty(prefix + "course-name-extraction", DEFAULT_EXAM_COURSE_NAME_EXTRACTION).toUpperCase(Locale.ROOT))));
+        }
+
+        return examSources.isEmpty() ? List.of(ExamSource.DEFAULT) : examSources;
+    }
+
+    /**
+     * @return the values of an indexed property (key[0], key[1], ...), they are not split by commas, since a regex can have them
+     */
+    private List<String> getListProperty(String key) {
+        List<String> values = new ArrayList<>();
+        for (int i = 0; env.containsProperty(key + "[" + i + "]"); i++) {
+            values.add(env.getProperty(key + "[" + i + "]"));
+        }
+
+        return values;
+    }
+
+    private GoogleIoExecutor.Mode getGoogleIoExecutorMode() {
+        return GoogleIoExecutor.Mode.valueOf(env.getProperty("planit.google.io.executor", DEFAULT_GOOGLE_IO_EXECUTOR).toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * the service starts without the holidays if "calendarific" is unavailable (then the holidays are handled as regular full day events)
+     */
+    private Set<String> getDatesOfHolidays(int year, EngineMetrics engineMetrics) {
+        try {
+            return HolidaysEngine.getDatesOfHolidays(env.getProperty("holidays_api_key"), ISRAEL_HOLIDAYS_CODE, year, calendarificGuard(engineMetrics));
+        } catch (RuntimeException e) {
+            logger.warn("failed to get the holidays of {}, they are handled as regular full day events", year, e);
+            return new HashSet<>();
+        }
+    }
+}
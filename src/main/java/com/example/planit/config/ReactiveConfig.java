@@ -0,0 +1,91 @@
+package com.example.planit.config;
+
+import com.example.planit.engine.CalendarEngine;
+import com.example.planit.engine.EngineMetrics;
+import com.example.planit.engine.GoogleApiConcurrencyLimiter;
+import com.example.planit.engine.GoogleApiRateLimiter;
+import com.example.planit.engine.GoogleApiUsageAccounting;
+import com.example.planit.engine.UserCache;
+import com.example.planit.engine.UserStateWriteBuffer;
+import com.example.planit.engine.reactive.ReactiveCalendarEngine;
+import com.example.planit.engine.reactive.ReactiveGoogleCalendarClient;
+import com.example.planit.engine.resilience.DependencyGuard;
+import com.example.planit.model.mongo.course.ReactiveCoursesRepository;
+import com.example.planit.model.mongo.exam.ReactiveExamIndexRepository;
+import com.example.planit.model.mongo.plan.ReactivePlanRepository;
+import com.example.planit.model.mongo.user.ReactiveUserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.data.mongo.MongoReactiveDataAutoConfiguration;
+import org.springframework.boot.autoconfigure.mongo.MongoReactiveAutoConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.env.Environment;
+import org.springframework.data.mongodb.repository.config.EnableReactiveMongoRepositories;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import static com.example.planit.utill.defaults.Defaults.*;
+
+/**
+ * creates the engines of the reactive pipeline, only when it is enabled (planit.reactive.enabled=true).
+ * the service still runs on the servlet stack. the reactive controllers return a Mono, so the request is handled asynchronously
+ * and does not hold a servlet thread while it waits.
+ * the reactive pipeline shares the limits of the requests to Google (rate budget, concurrency limit, circuit breaker) with the blocking pipeline.
+ * the reactive Mongo client and repositories are excluded from the application, and are configured here only when the pipeline is enabled.
+ */
+@Configuration
+@ConditionalOnProperty(name = "planit.reactive.enabled", havingValue = "true")
+@Import({MongoReactiveAutoConfiguration.class, MongoReactiveDataAutoConfiguration.class})
+@EnableReactiveMongoRepositories(basePackages = "com.example.planit.model.mongo")
+public class ReactiveConfig implements WebMvcConfigurer {
+
+    // the async request ends a little after the deadline of the scan, so the scan can answer 504 by itself
+    private static final long ASYNC_REQUEST_GRACE_IN_MILLIS = 1000;
+
+    @Autowired
+    private Environment env;
+
+    @Autowired
+    private ReactiveUserRepository reactiveUserRepo;
+
+    @Autowired
+    private ReactiveCoursesRepository reactiveCourseRepo;
+
+    @Autowired
+    private ReactivePlanRepository reactivePlanRepo;
+
+    @Autowired
+    private ReactiveExamIndexRepository reactiveExamIndexRepo;
+
+    @Bean
+    public ReactiveGoogleCalendarClient reactiveGoogleCalendarClient(GoogleApiRateLimiter googleApiRateLimiter, GoogleApiConcurrencyLimiter googleApiConcurrencyLimiter,
+                                                                     DependencyGuard googleCalendarGuard, EngineMetrics engineMetrics,
+                                                                     GoogleApiUsageAccounting googleApiUsageAccounting) {
+        return new ReactiveGoogleCalendarClient(env.getProperty("planit.google.root-url", DEFAULT_GOOGLE_ROOT_URL),
+                env.getProperty("planit.google.connect-timeout-in-millis", Integer.class, DEFAULT_GOOGLE_CONNECT_TIMEOUT_IN_MILLIS),
+                env.getProperty("planit.google.read-timeout-in-millis", Integer.class, DEFAULT_GOOGLE_READ_TIMEOUT_IN_MILLIS),
+                googleApiRateLimiter, googleApiConcurrencyLimiter, googleCalendarGuard, engineMetrics, googleApiUsageAccounting,
+                env.getProperty("planit.scan.expand-recurring-events", Boolean.class, false));
+    }
+
+    @Bean
+    public ReactiveCalendarEngine reactiveCalendarEngine(CalendarEngine calendarEngine, ReactiveGoogleCalendarClient reactiveGoogleCalendarClient,
+                                                         GoogleApiUsageAccounting googleApiUsageAccounting, UserCache userCache, UserStateWriteBuffer userStateWriteBuffer) {
+        return new ReactiveCalendarEngine(calendarEngine, reactiveGoogleCalendarClient, reactiveUserRepo, reactiveCourseRepo, reactivePlanRepo,
+                reactiveExamIndexRepo, googleApiUsageAccounting, userCache, userStateWriteBuffer, getRequestTimeoutInMillis());
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        long requestTimeoutInMillis = getRequestTimeoutInMillis();
+
+        // 0 means no timeout
+        configurer.setDefaultTimeout(requestTimeoutInMillis > 0 ? requestTimeoutInMillis + ASYNC_REQUEST_GRACE_IN_MILLIS : 0);
+    }
+
+    private long getRequestTimeoutInMillis() {
+        return env.getProperty("planit.deadline.request-timeout-in-millis", Long.class, DEFAULT_REQUEST_TIMEOUT_IN_MILLIS);
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.planit.config;
+
+import com.example.planit.engine.BulkRegenerationEngine;
+import com.example.planit.engine.CalendarEngine;
+import com.example.planit.engine.GoogleApiUsageAccounting;
+import com.example.planit.engine.UserCache;
+import com.example.planit.engine.UserStateWriteBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * the jobs that run periodically in the background.
+ * every cron is taken from the environment, and "-" disables the job.
+ */
+@Component
+public class ScheduledJobs {
+
+    private static final Logger logger = LoggerFactory.getLogger(ScheduledJobs.class);
+
+    @Autowired
+    private CalendarEngine calendarEngine;
+
+    @Autowired
+    private BulkRegenerationEngine bulkRegenerationEngine;
+
+    @Autowired
+    private GoogleApiUsageAccounting googleApiUsageAccounting;
+
+    @Autowired
+    private UserStateWriteBuffer userStateWriteBuffer;
+
+    @Autowired
+    private UserCache userCache;
+
+    /**
+     * starts regenerating the plans of all the users (e.g. at the start of the exams period), unless a run is already active.
+     * resumes the last run if it was stopped in the middle.
+     */
+    @Scheduled(cron = "${planit.bulk.cron:-}")
+    public void regenerateAllUsers() {
+        bulkRegenerationEngine.regenerateAllUsers(true);
+    }
+
+    /**
+     * fixes the stored plans that drifted from the actual PlanIt calendars (e.g. the user edited or deleted events in Google).
+     * it reads the PlanIt calendar of every user with a plan, so it is disabled by default (e.g. "0 0 4 * * *" runs it every night).
+     */
+    @Scheduled(cron = "${planit.plans.reconcile-cron:-}")
+    public void reconcileAllPlans() {
+        calendarEngine.reconcileAllPlans();
+    }
+
+    /**
+     * refreshes the exam indexes of the users with the changes of their exams calendars, so the scans read the exams from them.
+     * runs every minute by default.
+     */
+    @Scheduled(fixedDelayString = "${planit.exams.index.refresh-interval-in-millis:60000}")
+    public void refreshExamIndexes() {
+        calendarEngine.refreshExamIndexes();
+    }
+
+    /**
+     * adds the usage of the Google APIs that was counted in memory to the DB.
+     * runs every minute by default.
+     */
+    @Scheduled(fixedDelayString = "${planit.google.usage.flush-interval-in-millis:60000}")
+    public void flushGoogleApiUsage() {
+        googleApiUsageAccounting.flush();
+    }
+
+    /**
+     * writes the changes to the users of the flows that have no response (e.g. the bulk regeneration) to the DB, in a single bulk write.
+     * runs every second by default.
+     */
+    @Scheduled(fixedDelayString = "${planit.users.flush-interval-in-millis:1000}")
+    public void flushUserStates() {
+        userStateWriteBuffer.flush();
+    }
+
+    /**
+     * invalidates the cached users that other nodes changed.
+     * runs every second by default.
+     */
+    @Scheduled(fixedDelayString = "${planit.users.cache.poll-interval-in-millis:1000}")
+    public void pollUserChanges() {
+        try {
+            userCache.pollChanges();
+        } catch (RuntimeException e) {
+            // without the stack trace, since the poll runs every second while the DB is unavailable
+            logger.warn("failed to poll the changes of the users: {}", e.getMessage());
+        }
+    }
+}
@@ -1,62 +1,39 @@
 package com.example.planit.controller;
 
+import com.example.planit.engine.BulkRegenerationEngine;
 import com.example.planit.engine.CalendarEngine;
-import com.example.planit.engine.HolidaysEngine;
-import com.example.planit.model.mongo.course.CoursesRepository;
-import com.example.planit.model.mongo.user.UserRepository;
-import com.example.planit.utill.dto.DTOgenerateResponseToController;
-import com.example.planit.utill.dto.DTOscanResponseToClient;
-import com.example.planit.utill.dto.DTOscanResponseToController;
-import com.example.planit.utill.dto.DTOstatus;
-import jakarta.annotation.PostConstruct;
+import com.example.planit.engine.ics.ICalendarWriter;
+import com.example.planit.engine.jobs.GenerationJobScheduler;
+import com.example.planit.utill.dto.*;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.env.Environment;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
 import java.security.GeneralSecurityException;
-import java.time.ZonedDateTime;
-import java.util.Set;
 
-import static com.example.planit.utill.Constants.ISRAEL_HOLIDAYS_CODE;
+import static com.example.planit.utill.Constants.*;
 
 @CrossOrigin(origins = "http://localhost:3000")
 @RestController
 public class CalendarController {
 
     @Autowired
-    private Environment env;
+    private CalendarEngine calendarEngine;
 
     @Autowired
-    private CoursesRepository courseRepo;
+    private BulkRegenerationEngine bulkRegenerationEngine;
 
     @Autowired
-    private UserRepository userRepo;
-
-    private String CLIENT_ID;
-    private String CLIENT_SECRET;
-
-    private Set<String> holidaysDatesCurrentYear;
-    private Set<String> holidaysDatesNextYear;
-
-    private CalendarEngine calendarEngine;
+    private GenerationJobScheduler generationJobScheduler;
 
-    @PostConstruct
-    private void init() {
-
-        // get CLIENT_ID & CLIENT_SECRET values from environment
-        CLIENT_ID = env.getProperty("spring.security.oauth2.client.registration.google.client-id");
-        CLIENT_SECRET = env.getProperty("spring.security.oauth2.client.registration.google.client-secret");
-
-        // initialize CalendarEngine
-        this.calendarEngine = new CalendarEngine(CLIENT_ID, CLIENT_SECRET, userRepo, courseRepo, holidaysDatesCurrentYear, holidaysDatesNextYear);
-
-        // extract the holidays dates as iso format and return it in a set of string(iso format) (for current year and the next year).
-        holidaysDatesCurrentYear = HolidaysEngine.getDatesOfHolidays(env.getProperty("holidays_api_key"), ISRAEL_HOLIDAYS_CODE, ZonedDateTime.now().getYear());
-        holidaysDatesNextYear = HolidaysEngine.getDatesOfHolidays(env.getProperty("holidays_api_key"), ISRAEL_HOLIDAYS_CODE, ZonedDateTime.now().getYear() + 1);
-    }
+    @Autowired
+    private ObjectMapper objectMapper;
 
     /**
      * Scan the user's Calendar to get list of events and check to see if user has fullDayEvents existed.
@@ -69,12 +46,9 @@ public class CalendarController {
     @PostMapping(value = "/scan")
     public ResponseEntity<DTOscanResponseToClient> scanUserEvents(@RequestParam String email, @RequestParam String start, @RequestParam String end) throws IOException, GeneralSecurityException {
 
-        long s = System.currentTimeMillis();
-
-        DTOscanResponseToController scanResponseToController = calendarEngine.scanUserEvents(email, start, end);
-
-        long t = System.currentTimeMillis();
-        System.out.println(t - s + " ms");
+        // the scan waits in the jobs queue, users with closer exams are served first
+        DTOscanResponseToController scanResponseToController = generationJobScheduler.submitAndWait(email,
+                () -> calendarEngine.scanUserEvents(email, start, end));
 
         return ResponseEntity.status(scanResponseToController.getHttpStatus())
                 .body(new DTOscanResponseToClient(scanResponseToController.isSucceed(),
@@ -94,10 +68,171 @@ public class CalendarController {
     @PostMapping(value = "/generate", consumes = {MediaType.APPLICATION_JSON_VALUE})
     public ResponseEntity<DTOstatus> generateStudyEvents(@RequestParam String email, @RequestParam String start, @RequestParam String end, @RequestBody boolean[] userDecisions) throws IOException, GeneralSecurityException {
 
-        DTOgenerateResponseToController generateResponseToController = calendarEngine.generateStudyEvents(email, start, end, userDecisions);
+        // the generation waits in the jobs queue, users with closer exams are served first
+        DTOgenerateResponseToController generateResponseToController = generationJobScheduler.submitAndWait(email,
+                () -> calendarEngine.generateStudyEvents(email, start, end, userDecisions));
+
+        return ResponseEntity.status(generateResponseToController.getHttpStatus())
+                .body(new DTOstatus(generateResponseToController.isSucceed(),
+                        generateResponseToController.getDetails()));
+    }
+
+    /**
+     * generates the plan like /generate, without writing it to the PlanIt calendar of the user.
+     *
+     * @param email         user's email address to search the User on DB & get preferences
+     * @param userDecisions array of boolean values representing the full day events' user's decisions
+     * @return ResponseEntity<DTOpreviewResponseToClient> the sessions of the plan, and the ID to commit the preview with (see /generate/commit)
+     * @throws IOException              IOException
+     * @throws GeneralSecurityException GeneralSecurityException
+     */
+    @PostMapping(value = "/generate/preview", consumes = {MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<DTOpreviewResponseToClient> previewStudyEvents(@RequestParam String email, @RequestParam String start, @RequestParam String end, @RequestBody boolean[] userDecisions) throws IOException, GeneralSecurityException {
+
+        // the preview waits in the jobs queue, like a generation
+        DTOpreviewResponseToController previewResponseToController = generationJobScheduler.submitAndWait(email,
+                () -> calendarEngine.previewStudyEvents(email, start, end, userDecisions));
+
+        return ResponseEntity.status(previewResponseToController.getHttpStatus())
+                .body(new DTOpreviewResponseToClient(previewResponseToController.isSucceed(),
+                        previewResponseToController.getDetails(),
+                        previewResponseToController.getPreviewID(),
+                        previewResponseToController.getExpiresAtInMilliseconds(),
+                        previewResponseToController.getSessions(),
+                        previewResponseToController.getNumberOfInsertedSessions(),
+                        previewResponseToController.getNumberOfDeletedSessions()));
+    }
+
+    /**
+     * writes a previewed plan to the PlanIt calendar of the user.
+     *
+     * @param email     user's email address to search the User on DB
+     * @param previewID the ID of the preview, from /generate/preview
+     * @return ResponseEntity<DTOstatus> NOT_FOUND if the preview expired, CONFLICT if the plan of the user changed since the preview
+     * @throws IOException              IOException
+     * @throws GeneralSecurityException GeneralSecurityException
+     */
+    @PostMapping(value = "/generate/commit")
+    public ResponseEntity<DTOstatus> commitPreviewedPlan(@RequestParam String email, @RequestParam String previewID) throws IOException, GeneralSecurityException {
+
+        // the commit waits in the jobs queue, like a generation
+        DTOgenerateResponseToController generateResponseToController = generationJobScheduler.submitAndWait(email,
+                () -> calendarEngine.commitPreviewedPlan(email, previewID));
 
         return ResponseEntity.status(generateResponseToController.getHttpStatus())
                 .body(new DTOstatus(generateResponseToController.isSucceed(),
                         generateResponseToController.getDetails()));
     }
+
+    /**
+     * generates the plan like /generate, and streams it as an iCalendar (.ics) document instead of writing it to the PlanIt calendar of the user.
+     *
+     * @param email         user's email address to search the User on DB & get preferences
+     * @param userDecisions array of boolean values representing the full day events' user's decisions
+     * @return ResponseEntity<StreamingResponseBody> the .ics document, or a DTOstatus (as JSON) if the plan can not be generated
+     * @throws IOException              IOException
+     * @throws GeneralSecurityException GeneralSecurityException
+     */
+    @PostMapping(value = "/generate/ics", consumes = {MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<StreamingResponseBody> exportStudyEvents(@RequestParam String email, @RequestParam String start, @RequestParam String end, @RequestBody boolean[] userDecisions) throws IOException, GeneralSecurityException {
+
+        // the export waits in the jobs queue, like a generation
+        DTOexportResponseToController exportResponseToController = generationJobScheduler.submitAndWait(email,
+                () -> calendarEngine.exportStudyEvents(email, start, end, userDecisions));
+
+        return toICalendarResponse(exportResponseToController);
+    }
+
+    /**
+     * the subscription URL of the plan of the user: serves the stored plan as an iCalendar (.ics) document, without any request to Google.
+     * a calendar app that sends the ETag of the last download (If-None-Match) gets NOT_MODIFIED until the plan changes.
+     *
+     * @param token the secret token of the subscription URL of the user (see POST /plan.ics/token)
+     * @return ResponseEntity<StreamingResponseBody> the .ics document, NOT_MODIFIED, or a DTOstatus (as JSON) if the token is not valid or the user has no plan
+     */
+    @GetMapping(value = "/plan.ics")
+    public ResponseEntity<StreamingResponseBody> getStoredStudyEvents(@RequestParam String token, WebRequest webRequest) {
+        DTOexportResponseToController exportResponseToController = calendarEngine.getStoredStudyEvents(token);
+
+        // sets the ETag header and the NOT_MODIFIED status by itself
+        if (exportResponseToController.isSucceed() && webRequest.checkNotModified(exportResponseToController.getETag())) {
+            return null;
+        }
+
+        return toICalendarResponse(exportResponseToController);
+    }
+
+    /**
+     * creates a new token for the subscription URL of the plan of the user. the previous URL of the user stops working.
+     *
+     * @param email user's email address to search the User on DB
+     * @return ResponseEntity<DTOsubscriptionResponseToClient> the new token
+     */
+    @PostMapping(value = "/plan.ics/token")
+    public ResponseEntity<DTOsubscriptionResponseToClient> createSubscriptionToken(@RequestParam String email) {
+        return toSubscriptionResponse(calendarEngine.createSubscriptionToken(email));
+    }
+
+    /**
+     * revokes the token of the subscription URL of the plan of the user.
+     *
+     * @param email user's email address to search the User on DB
+     * @return ResponseEntity<DTOsubscriptionResponseToClient> without a token
+     */
+    @DeleteMapping(value = "/plan.ics/token")
+    public ResponseEntity<DTOsubscriptionResponseToClient> revokeSubscriptionToken(@RequestParam String email) {
+        return toSubscriptionResponse(calendarEngine.revokeSubscriptionToken(email));
+    }
+
+    private ResponseEntity<DTOsubscriptionResponseToClient> toSubscriptionResponse(DTOsubscriptionResponseToController subscriptionResponseToController) {
+        return ResponseEntity.status(subscriptionResponseToController.getHttpStatus())
+                .body(new DTOsubscriptionResponseToClient(subscriptionResponseToController.isSucceed(),
+                        subscriptionResponseToController.getDetails(),
+                        subscriptionResponseToController.getSubscriptionToken()));
+    }
+
+    /**
+     * the sessions are written straight to the response stream, after the request thread returned
+     */
+    private ResponseEntity<StreamingResponseBody> toICalendarResponse(DTOexportResponseToController exportResponseToController) {
+        if (!exportResponseToController.isSucceed()) {
+            DTOstatus status = new DTOstatus(false, exportResponseToController.getDetails());
+            return ResponseEntity.status(exportResponseToController.getHttpStatus())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(outputStream -> objectMapper.writeValue(outputStream, status));
+        }
+
+        ResponseEntity.BodyBuilder responseBuilder = ResponseEntity.status(exportResponseToController.getHttpStatus())
+                .contentType(MediaType.parseMediaType(ICalendarWriter.CONTENT_TYPE));
+        if (exportResponseToController.getETag() != null) {
+            responseBuilder.eTag(exportResponseToController.getETag());
+        }
+
+        return responseBuilder.body(outputStream -> new ICalendarWriter(outputStream).writeCalendar(PLANIT_CALENDAR_SUMMERY_NAME, ISRAEL_TIME_ZONE,
+                exportResponseToController.getGeneratedAtInMilliseconds(), exportResponseToController.getSessions()));
+    }
+
+    /**
+     * starts regenerating the PlanIt calendar of all the users in the background.
+     *
+     * @param resume true to continue the last run from its checkpoint (if it was not completed), false to start over
+     * @return ResponseEntity<DTOstatus> ACCEPTED if the run has started, CONFLICT if a run is already active
+     */
+    @PostMapping(value = "/bulk-generate")
+    public ResponseEntity<DTOstatus> bulkGenerateStudyEvents(@RequestParam(defaultValue = "true") boolean resume) {
+
+        if (!bulkRegenerationEngine.regenerateAllUsers(resume)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new DTOstatus(false, ERROR_BULK_REGENERATION_ALREADY_RUNNING));
+        }
+
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(new DTOstatus(true, BULK_REGENERATION_STARTED));
+    }
+
+    /**
+     * @return the progress of the active bulk regeneration run (or of the last run), including its throughput in users per minute
+     */
+    @GetMapping(value = "/bulk-generate/status")
+    public ResponseEntity<DTObulkRegenerationStatus> getBulkGenerateStatus() {
+        return ResponseEntity.status(HttpStatus.OK).body(bulkRegenerationEngine.getStatus());
+    }
 }
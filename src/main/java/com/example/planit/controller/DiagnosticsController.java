@@ -0,0 +1,60 @@
+package com.example.planit.controller;
+
+import com.example.planit.engine.GoogleApiUsageAccounting;
+import com.example.planit.engine.jfr.FlightRecordingEngine;
+import com.example.planit.utill.dto.DTOgoogleApiUsage;
+import com.example.planit.utill.dto.DTOstatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static com.example.planit.utill.Constants.ERROR_FLIGHT_RECORDING_ALREADY_RUNNING;
+import static com.example.planit.utill.Constants.FLIGHT_RECORDING_STARTED;
+
+@RestController
+public class DiagnosticsController {
+
+    @Autowired
+    private FlightRecordingEngine flightRecordingEngine;
+
+    @Autowired
+    private GoogleApiUsageAccounting googleApiUsageAccounting;
+
+    /**
+     * starts a bounded JDK Flight Recorder recording, with the Google API requests and the planning stages events.
+     *
+     * @param durationInSeconds the duration of the recording (bounded by planit.jfr.max-duration-in-seconds)
+     * @return the file the recording will be saved to when it ends, or 409 if another recording is already active
+     * @throws IOException IOException
+     */
+    @PostMapping(value = "/jfr/recording")
+    public ResponseEntity<DTOstatus> startFlightRecording(@RequestParam(defaultValue = "60") long durationInSeconds) throws IOException {
+
+        Optional<Path> maybeDestination = flightRecordingEngine.startRecording(durationInSeconds);
+
+        if (maybeDestination.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new DTOstatus(false, ERROR_FLIGHT_RECORDING_ALREADY_RUNNING));
+        }
+
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(new DTOstatus(true, FLIGHT_RECORDING_STARTED + maybeDestination.get()));
+    }
+
+    /**
+     * @param limit        the number of users to return
+     * @param numberOfDays the number of days to sum, including today
+     * @return the users that sent the most requests to the Google APIs, with their requests per flow and per API method
+     */
+    @GetMapping(value = "/google-api-usage/top")
+    public ResponseEntity<List<DTOgoogleApiUsage>> getTopGoogleApiConsumers(@RequestParam(defaultValue = "10") int limit, @RequestParam(defaultValue = "1") int numberOfDays) {
+        return ResponseEntity.status(HttpStatus.OK).body(googleApiUsageAccounting.getTopConsumers(limit, numberOfDays));
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.planit.controller;
+
+import com.example.planit.engine.reactive.ReactiveCalendarEngine;
+import com.example.planit.utill.dto.DTOscanResponseToClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+/**
+ * the opt-in reactive variants of the endpoints of {@link CalendarController} (planit.reactive.enabled=true)
+ */
+@CrossOrigin(origins = "http://localhost:3000")
+@RestController
+@ConditionalOnProperty(name = "planit.reactive.enabled", havingValue = "true")
+public class ReactiveCalendarController {
+
+    @Autowired
+    private ReactiveCalendarEngine reactiveCalendarEngine;
+
+    /**
+     * the same as /scan, but no thread is held while the scan waits for Google or for the DB.
+     * the scan does not wait in the jobs queue, it is bounded by the limits of the requests to Google instead.
+     *
+     * @param email user's email address to search the User on DB & get preferences.
+     * @return ResponseEntity<DTOscanResponseToClient> we return list of events in a case of full day events found, otherwise we generate the calendar.
+     */
+    @PostMapping(value = "/reactive/scan")
+    public Mono<ResponseEntity<DTOscanResponseToClient>> scanUserEvents(@RequestParam String email, @RequestParam String start, @RequestParam String end) {
+        return reactiveCalendarEngine.scanUserEvents(email, start, end)
+                .map(scanResponseToController -> ResponseEntity.status(scanResponseToController.getHttpStatus())
+                        .body(new DTOscanResponseToClient(scanResponseToController.isSucceed(),
+                                scanResponseToController.getDetails(),
+                                scanResponseToController.getFullDayEvents())));
+    }
+}
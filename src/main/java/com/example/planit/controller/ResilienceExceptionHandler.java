@@ -0,0 +1,35 @@
+package com.example.planit.controller;
+
+import com.example.planit.engine.resilience.DeadlineExceededException;
+import com.example.planit.engine.resilience.DependencyUnavailableException;
+import com.example.planit.utill.dto.DTOstatus;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import static com.example.planit.utill.Constants.ERROR_DEADLINE_EXCEEDED;
+import static com.example.planit.utill.Constants.ERROR_DEPENDENCY_UNAVAILABLE;
+
+/**
+ * answers the requests that failed fast because a dependency is unavailable (its circuit is open or its bulkhead is full)
+ * with 503, and the time the client should wait before it tries again.
+ * answers the requests that did not end before their deadline with 504.
+ */
+@RestControllerAdvice
+public class ResilienceExceptionHandler {
+
+    @ExceptionHandler(DependencyUnavailableException.class)
+    public ResponseEntity<DTOstatus> handleDependencyUnavailable(DependencyUnavailableException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(e.getRetryAfterInSeconds()))
+                .body(new DTOstatus(false, ERROR_DEPENDENCY_UNAVAILABLE + e.getDependency().getTagValue()));
+    }
+
+    @ExceptionHandler(DeadlineExceededException.class)
+    public ResponseEntity<DTOstatus> handleDeadlineExceeded(DeadlineExceededException e) {
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT)
+                .body(new DTOstatus(false, ERROR_DEADLINE_EXCEEDED));
+    }
+}
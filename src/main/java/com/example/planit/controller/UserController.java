@@ -1,5 +1,6 @@
 package com.example.planit.controller;
 
+import com.example.planit.engine.UserCache;
 import com.example.planit.model.mongo.user.User;
 import com.example.planit.model.mongo.user.UserRepository;
 import com.example.planit.utill.dto.DTOtokens;
@@ -11,6 +12,7 @@ import com.google.api.client.json.JsonFactory;
 import com.google.api.client.json.gson.GsonFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.env.Environment;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -34,6 +36,9 @@ public class UserController {
     @Autowired
     UserRepository userRepo;
 
+    @Autowired
+    UserCache userCache;
+
     /**
      * login endpoint
      */
@@ -61,10 +66,16 @@ public class UserController {
         String email = tokens.getUserEmail();
 
         // check if user is new and not already exist in DB
-        if (userRepo.findUserByEmail(email).isEmpty()) {
+        if (!userRepo.existsByEmail(email)) {
             // 1. create Java user-object
             // 2. save user to DB with userRepo
-            userRepo.save(new User(email, tokens.getAccessToken(), tokens.getExpireTimeInMilliseconds(), tokens.getRefreshToken()));
+            try {
+                userRepo.save(new User(email, tokens.getAccessToken(), tokens.getExpireTimeInMilliseconds(), tokens.getRefreshToken()));
+            } catch (DuplicateKeyException e) {
+
+                // the user signed-up twice at the same time, and the unique index on the email rejected the second one
+                return ResponseEntity.status(HttpStatus.CONFLICT).body("User already exist please log-in");
+            }
             return ResponseEntity.status(HttpStatus.OK).body("User saved successfully");
         }
         return ResponseEntity.status(HttpStatus.CONFLICT).body("User already exist please log-in");
@@ -114,7 +125,7 @@ public class UserController {
     public User getUserPreferencesFromDB(@RequestBody String email) throws Exception {
 
         // assuming user exist and email will be found when this endpoint will be called.
-        Optional<User> maybeUser = userRepo.findUserByEmail(email);
+        Optional<User> maybeUser = userCache.findUserByEmail(email);
         if (maybeUser.isPresent()) {
             return maybeUser.get();
         } else {
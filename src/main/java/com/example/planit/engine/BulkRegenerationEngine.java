@@ -0,0 +1,256 @@
+package com.example.planit.engine;
+
+import com.example.planit.model.mongo.bulk.BulkCheckpoint;
+import com.example.planit.model.mongo.bulk.BulkCheckpointRepository;
+import com.example.planit.model.mongo.course.Course;
+import com.example.planit.model.mongo.course.CoursesRepository;
+import com.example.planit.model.mongo.user.User;
+import com.example.planit.model.mongo.user.UserRepository;
+import com.example.planit.utill.dto.DTObulkRegenerationStatus;
+import com.example.planit.utill.dto.DTOscanResponseToController;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.example.planit.utill.Constants.MILLIS_TO_MINUTE;
+
+/**
+ * regenerates the PlanIt calendar of every user in the DB.
+ * the users are read from the DB a chunk at a time (by their ID, after the last user of the previous chunk), and processed by a bounded number of workers.
+ * after each chunk a checkpoint is saved, so a stopped run can be resumed from the last chunk.
+ */
+public class BulkRegenerationEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkRegenerationEngine.class);
+
+    private static final String CHECKPOINT_ID = "bulk-regeneration";
+
+    private final CalendarEngine calendarEngine;
+
+    private final GoogleApiUsageAccounting googleApiUsageAccounting;
+
+    private final UserRepository userRepo;
+
+    private final CoursesRepository courseRepo;
+
+    private final BulkCheckpointRepository checkpointRepo;
+
+    private final int parallelism;
+
+    private final int checkpointInterval;
+
+    private final int windowInDays;
+
+    private final AtomicBoolean isRunning;
+
+    // runs the active run, so the caller does not wait for it
+    private final ExecutorService runner;
+
+    // regenerate the users of a chunk in parallel
+    private final ExecutorService workers;
+
+    private volatile BulkCheckpoint currentCheckpoint;
+
+    private volatile long runStartTimeInMillis;
+
+    private volatile long processedUsersAtRunStart;
+
+    private enum BulkUserResult {SUCCEEDED, SKIPPED, FAILED}
+
+    public BulkRegenerationEngine(CalendarEngine calendarEngine, GoogleApiUsageAccounting googleApiUsageAccounting, UserRepository userRepo, CoursesRepository courseRepo,
+                                  BulkCheckpointRepository checkpointRepo, int parallelism, int checkpointInterval, int windowInDays) {
+        this.calendarEngine = calendarEngine;
+        this.googleApiUsageAccounting = googleApiUsageAccounting;
+        this.userRepo = userRepo;
+        this.courseRepo = courseRepo;
+        this.checkpointRepo = checkpointRepo;
+        this.parallelism = parallelism;
+        this.checkpointInterval = checkpointInterval;
+        this.windowInDays = windowInDays;
+        this.isRunning = new AtomicBoolean(false);
+        this.runner = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "bulk-regeneration"));
+        this.workers = Executors.newFixedThreadPool(parallelism);
+    }
+
+    /**
+     * starts regenerating the PlanIt calendar of all the users in the background.
+     * only one run can be active at a time.
+     *
+     * @param isResumed true to continue from the last checkpoint (if the last run was not completed), false to start over
+     * @return true if the run has started, false if another run is already active
+     */
+    public boolean regenerateAllUsers(boolean isResumed) {
+
+        // makes sure there is only one active run, the run releases it when it ends
+        if (!isRunning.compareAndSet(false, true)) {
+            return false;
+        }
+
+        try {
+            runner.execute(() -> runRegeneration(isResumed));
+        } catch (RejectedExecutionException e) {
+            isRunning.set(false);
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * stops the active run, it can be resumed from its last checkpoint
+     */
+    public void shutdown() {
+        runner.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    private void runRegeneration(boolean isResumed) {
+        try {
+            BulkCheckpoint checkpoint = getStartingCheckpoint(isResumed);
+            currentCheckpoint = checkpoint;
+            runStartTimeInMillis = System.currentTimeMillis();
+            processedUsersAtRunStart = checkpoint.getProcessedUsers();
+
+            regenerateUsersFromCheckpoint(checkpoint);
+
+            checkpoint.setCompleted(true);
+            checkpointRepo.save(checkpoint);
+            logger.info("bulk regeneration completed: {} users, {} users/minute", checkpoint.getProcessedUsers(), getUsersPerMinute());
+        } finally {
+            isRunning.set(false);
+        }
+    }
+
+    /**
+     * @return the progress of the active run, or of the last run if no run is active
+     */
+    public DTObulkRegenerationStatus getStatus() {
+        BulkCheckpoint checkpoint = currentCheckpoint;
+
+        if (checkpoint == null) {
+            return new DTObulkRegenerationStatus(isRunning.get(), 0, 0, 0, 0, 0, null);
+        }
+
+        return new DTObulkRegenerationStatus(isRunning.get(), checkpoint.getProcessedUsers(), checkpoint.getSucceededUsers(),
+                checkpoint.getSkippedUsers(), checkpoint.getFailedUsers(), getUsersPerMinute(), checkpoint.getLastUserID());
+    }
+
+    /**
+     * finds the checkpoint to start the run from.
+     * if the last run was not completed and the run should be resumed, continues the last run with its time interval.
+     * otherwise, creates a new checkpoint with a new time interval.
+     */
+    private BulkCheckpoint getStartingCheckpoint(boolean isResumed) {
+        Optional<BulkCheckpoint> maybeCheckpoint = checkpointRepo.findById(CHECKPOINT_ID);
+
+        if (isResumed && maybeCheckpoint.isPresent() && !maybeCheckpoint.get().isCompleted()) {
+            return maybeCheckpoint.get();
+        }
+
+        // the new run plans from now until the end of the window
+        Instant now = Instant.now();
+        String start = now.toString();
+        String end = now.plus(windowInDays, ChronoUnit.DAYS).toString();
+
+        return checkpointRepo.save(new BulkCheckpoint(CHECKPOINT_ID, start, end));
+    }
+
+    /**
+     * reads the users that come after the checkpoint a chunk at a time, and regenerates each chunk before the next one is read,
+     * so no DB cursor is held open while the chunk waits for Google.
+     */
+    private void regenerateUsersFromCheckpoint(BulkCheckpoint checkpoint) {
+
+        // one courses catalog is shared by all the users of the run
+        List<Course> courses = courseRepo.findAll();
+
+        Pageable chunkPage = PageRequest.of(0, checkpointInterval);
+        List<User> chunk = checkpoint.getLastUserID() == null
+                ? userRepo.findAllByOrderByIdAsc(chunkPage)
+                : userRepo.findAllByIdGreaterThanOrderByIdAsc(checkpoint.getLastUserID(), chunkPage);
+
+        while (!chunk.isEmpty() && !Thread.currentThread().isInterrupted()) {
+            regenerateChunk(chunk, checkpoint, courses);
+            chunk = userRepo.findAllByIdGreaterThanOrderByIdAsc(checkpoint.getLastUserID(), chunkPage);
+        }
+    }
+
+    /**
+     * regenerates a chunk of users in parallel, waits for all of them, and then saves a checkpoint.
+     */
+    private void regenerateChunk(List<User> chunk, BulkCheckpoint checkpoint, List<Course> courses) {
+        List<Callable<BulkUserResult>> tasks = new ArrayList<>();
+
+        for (User user : chunk) {
+            tasks.add(() -> regenerateUser(user, checkpoint.getStart(), checkpoint.getEnd(), courses));
+        }
+
+        List<Future<BulkUserResult>> results;
+        try {
+            results = workers.invokeAll(tasks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+
+        // counts the results of the chunk
+        for (Future<BulkUserResult> result : results) {
+            BulkUserResult userResult;
+            try {
+                userResult = result.get();
+            } catch (InterruptedException | ExecutionException e) {
+                userResult = BulkUserResult.FAILED;
+            }
+
+            switch (userResult) {
+                case SUCCEEDED -> checkpoint.setSucceededUsers(checkpoint.getSucceededUsers() + 1);
+                case SKIPPED -> checkpoint.setSkippedUsers(checkpoint.getSkippedUsers() + 1);
+                case FAILED -> checkpoint.setFailedUsers(checkpoint.getFailedUsers() + 1);
+            }
+        }
+
+        // all the users of the chunk are done, so the run can be resumed after the last one
+        checkpoint.setProcessedUsers(checkpoint.getProcessedUsers() + chunk.size());
+        checkpoint.setLastUserID(chunk.get(chunk.size() - 1).getId());
+        checkpointRepo.save(checkpoint);
+
+        logger.info("bulk regeneration: {} users processed, {} users/minute", checkpoint.getProcessedUsers(), getUsersPerMinute());
+    }
+
+    /**
+     * regenerates the PlanIt calendar of a single user.
+     * users with no exams or with unhandled full day events are skipped, since they need to make decisions first.
+     */
+    private BulkUserResult regenerateUser(User user, String start, String end, List<Course> courses) {
+        try (GoogleApiUsageAccounting.Scope usageScope = googleApiUsageAccounting.startScope(user.getEmail(), GoogleApiUsageAccounting.Flow.BULK)) {
+            DTOscanResponseToController scanResponse = calendarEngine.scanUserEvents(user, start, end, courses);
+            return scanResponse.isSucceed() ? BulkUserResult.SUCCEEDED : BulkUserResult.SKIPPED;
+        } catch (Exception e) {
+            logger.warn("bulk regeneration failed for user {}", user.getId(), e);
+            return BulkUserResult.FAILED;
+        }
+    }
+
+    /**
+     * @return the throughput of the current run, in users per minute
+     */
+    private double getUsersPerMinute() {
+        BulkCheckpoint checkpoint = currentCheckpoint;
+        double elapsedMinutes = (double) (System.currentTimeMillis() - runStartTimeInMillis) / MILLIS_TO_MINUTE;
+
+        if (checkpoint == null || elapsedMinutes <= 0) {
+            return 0;
+        }
+
+        return (checkpoint.getProcessedUsers() - processedUsersAtRunStart) / elapsedMinutes;
+    }
+}
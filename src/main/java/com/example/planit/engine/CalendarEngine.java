@@ -1,68 +1,177 @@
 package com.example.planit.engine;
 
+import com.example.planit.engine.exams.ExamDetector;
+import com.example.planit.engine.resilience.Deadline;
+import com.example.planit.engine.resilience.DeadlineExceededException;
+import com.example.planit.engine.resilience.DependencyGuard;
 import com.example.planit.model.exam.Exam;
 import com.example.planit.model.mongo.course.Course;
 import com.example.planit.model.mongo.course.CoursesRepository;
+import com.example.planit.model.mongo.exam.ExamIndex;
+import com.example.planit.model.mongo.exam.ExamIndexRepository;
+import com.example.planit.model.mongo.exam.IndexedExamEvent;
+import com.example.planit.model.mongo.plan.BusyInterval;
+import com.example.planit.model.mongo.plan.Plan;
+import com.example.planit.model.mongo.plan.PlanPreview;
+import com.example.planit.model.mongo.plan.PlanPreviewRepository;
+import com.example.planit.model.mongo.plan.PlanRepository;
+import com.example.planit.model.mongo.plan.PlannedSession;
 import com.example.planit.model.mongo.user.User;
 import com.example.planit.model.mongo.user.UserRepository;
 import com.example.planit.model.studysession.StudySession;
-import com.example.planit.model.timeslot.TimeSlot;
 import com.example.planit.utill.Constants;
 import com.example.planit.utill.EventComparator;
-import com.example.planit.utill.Utility;
+import com.example.planit.utill.PlanFingerprint;
 import com.example.planit.utill.dto.*;
 import com.google.api.client.auth.oauth2.RefreshTokenRequest;
 import com.google.api.client.auth.oauth2.TokenResponse;
 import com.google.api.client.googleapis.auth.oauth2.GoogleRefreshTokenRequest;
 import com.google.api.client.googleapis.javanet.GoogleNetHttpTransport;
 import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.HttpContent;
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.http.HttpResponseException;
+import com.google.api.client.http.HttpStatusCodes;
 import com.google.api.client.http.HttpRequestInitializer;
 import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.client.json.GenericJson;
 import com.google.api.client.json.JsonFactory;
 import com.google.api.client.json.gson.GsonFactory;
 import com.google.api.client.util.DateTime;
 import com.google.api.services.calendar.Calendar;
+import com.google.api.services.calendar.CalendarRequest;
 import com.google.api.services.calendar.model.*;
 import com.google.auth.http.HttpCredentialsAdapter;
 import com.google.auth.oauth2.AccessToken;
 import com.google.auth.oauth2.GoogleCredentials;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
 
 import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
 import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
 import java.time.Instant;
+import java.time.ZoneId;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 import static com.example.planit.utill.Constants.*;
-import static com.example.planit.utill.Utility.roundInstantMinutesTime;
 
 public class CalendarEngine {
 
+    private static final Logger logger = LoggerFactory.getLogger(CalendarEngine.class);
+
     private final CoursesRepository courseRepo;
 
     private final UserRepository userRepo;
 
-    private final String CLIENT_ID;
-    private final String CLIENT_SECRET;
+    private final PlanRepository planRepo;
+
+    private final ExamIndexRepository examIndexRepo;
+
+    private final PlanPreviewRepository planPreviewRepo;
+
+    // the credentials of PlanIt in Google, the URLs and the timeouts of Google, and the other planit.* settings of the engine
+    private final CalendarEngineSettings settings;
 
     private final Set<String> holidaysDatesCurrentYear;
     private final Set<String> holidaysDatesNextYear;
 
+    private final GoogleApiRateLimiter googleApiRateLimiter;
+
+    private final GoogleApiConcurrencyLimiter googleApiConcurrencyLimiter;
+
+    // the circuit breakers and the bulkheads of the Google Calendar API and of the Google OAuth token server
+    private final DependencyGuard googleCalendarGuard;
+
+    private final DependencyGuard googleOAuthGuard;
+
+    // the time of the first exam that was found in the last scan of each user (by email)
+    private final Map<String, Long> email2FirstExamTime;
+
+    // runs the fetch of each calendar and the writes of each batch in parallel
+    private final GoogleIoExecutor googleIoExecutor;
+
+    // finds the exams calendars of the user and the exams in their events, by the configured exam sources
+    private final ExamDetector examDetector;
+
+    // the users that were scanned without an exam index, so it is built by the next background refresh
+    private final Set<String> pendingExamIndexEmails;
+
+    // the refreshes of the access tokens, striped by the email of the user
+    private final ReentrantLock[] tokenRefreshLocks;
+
+    private final EngineMetrics engineMetrics;
+
+    private final GoogleApiUsageAccounting googleApiUsageAccounting;
+
+    // the users by email, so the requests of the same user in a row read it from the DB once
+    private final UserCache userCache;
+
+    // the changes to the users (access tokens, PlanIt calendars) that are written to the DB at the end of the request
+    private final UserStateWriteBuffer userStateWriteBuffer;
+
+    // the status of a Google request that failed without a response
+    private static final String GOOGLE_IO_ERROR_STATUS = "io_error";
+
+    // the reasons of the 403 errors Google answers when a rate limit is exceeded
+    private static final Set<String> GOOGLE_RATE_LIMIT_REASONS = Set.of("rateLimitExceeded", "userRateLimitExceeded");
+
+    // the method name of the token refreshes, in the metrics and in the usage accounting
+    private static final String OAUTH_TOKEN_METHOD_NAME = "oauth.token";
+
+    // the number of locks the refreshes of the access tokens are striped on
+    private static final int TOKEN_REFRESH_LOCK_STRIPES = 64;
+
+    // the number of random bytes of a subscription token (256 bits, so it can not be guessed)
+    private static final int SUBSCRIPTION_TOKEN_BYTES = 32;
+
+    private static final SecureRandom SECURE_RANDOM = new SecureRandom();
 
     /**
      * Global instance of the JSON factory.
      */
     private static final JsonFactory JSON_FACTORY = GsonFactory.getDefaultInstance();
 
-    public CalendarEngine(String CLIENT_ID, String CLIENT_SECRET, UserRepository userRepo, CoursesRepository courseRepo,
-                          Set<String> holidaysDatesCurrentYear, Set<String> holidaysDatesNextYear) {
-        this.CLIENT_ID = CLIENT_ID;
-        this.CLIENT_SECRET = CLIENT_SECRET;
+    public CalendarEngine(CalendarEngineSettings settings, UserRepository userRepo, CoursesRepository courseRepo, PlanRepository planRepo,
+                          ExamIndexRepository examIndexRepo, PlanPreviewRepository planPreviewRepo, Set<String> holidaysDatesCurrentYear,
+                          Set<String> holidaysDatesNextYear, GoogleApiRateLimiter googleApiRateLimiter, GoogleApiConcurrencyLimiter googleApiConcurrencyLimiter,
+                          DependencyGuard googleCalendarGuard, DependencyGuard googleOAuthGuard, GoogleIoExecutor googleIoExecutor, ExamDetector examDetector,
+                          EngineMetrics engineMetrics, GoogleApiUsageAccounting googleApiUsageAccounting, UserCache userCache,
+                          UserStateWriteBuffer userStateWriteBuffer) {
+        this.settings = settings;
         this.userRepo = userRepo;
         this.courseRepo = courseRepo;
+        this.planRepo = planRepo;
+        this.examIndexRepo = examIndexRepo;
+        this.planPreviewRepo = planPreviewRepo;
         this.holidaysDatesCurrentYear = holidaysDatesCurrentYear;
         this.holidaysDatesNextYear = holidaysDatesNextYear;
+        this.googleApiRateLimiter = googleApiRateLimiter;
+        this.googleApiConcurrencyLimiter = googleApiConcurrencyLimiter;
+        this.googleCalendarGuard = googleCalendarGuard;
+        this.googleOAuthGuard = googleOAuthGuard;
+        this.email2FirstExamTime = new ConcurrentHashMap<>();
+        this.googleIoExecutor = googleIoExecutor;
+        this.examDetector = examDetector;
+        this.pendingExamIndexEmails = ConcurrentHashMap.newKeySet();
+        this.tokenRefreshLocks = new ReentrantLock[TOKEN_REFRESH_LOCK_STRIPES];
+        for (int i = 0; i < tokenRefreshLocks.length; i++) {
+            tokenRefreshLocks[i] = new ReentrantLock();
+        }
+        this.engineMetrics = engineMetrics;
+        this.googleApiUsageAccounting = googleApiUsageAccounting;
+        this.userCache = userCache;
+        this.userStateWriteBuffer = userStateWriteBuffer;
     }
 
     /**
@@ -72,11 +181,12 @@ public class CalendarEngine {
     /**
      * Extract all the events that are in the user calendars.
      *
+     * @param courses the courses catalog that is used to detect the exams
      * @return DTOuserEvents contains all the events, full day events and the exams
      * @throws GeneralSecurityException GeneralSecurityException
      * @throws IOException              IOException
      */
-    public DTOuserCalendarsInformation getUserCalendarsInformation(User user, String start, String end) throws GeneralSecurityException, IOException {
+    public DTOuserCalendarsInformation getUserCalendarsInformation(User user, String start, String end, List<Course> courses) throws GeneralSecurityException, IOException {
 
         validateAccessToken(user);
 
@@ -84,49 +194,613 @@ public class CalendarEngine {
         Calendar calendarService = getCalendarService(user.getAccessToken(), user.getExpireTimeInMilliseconds());
 
         // get user's calendar list
-        List<CalendarListEntry> calendarList = getCalendarList(calendarService);
-
-        List<Event> fullDayEvents = new ArrayList<>();
-        List<Event> planItCalendarOldEvents = new ArrayList<>();
-        List<Exam> examsFound = new LinkedList<>();
+        List<CalendarListEntry> calendarList = engineMetrics.recordStage(EngineMetrics.Stage.CALENDAR_LIST, () -> getCalendarList(calendarService));
 
+        // the last plan of the user is the source of truth for what exists in the PlanIt calendar.
+        // the PlanIt calendar is listed from Google only if the user has no stored plan yet
+        Plan plan = planRepo.findPlanByEmail(user.getEmail()).orElseGet(() -> new Plan(user.getEmail()));
 
         // validate token
         validateAccessToken(user);
 
+        // the exams of the user are read from their exam index, if it is fresh
+        Optional<ExamIndex> maybeExamIndex = settings.getExamIndexMaxAgeInMillis() > 0 ? examIndexRepo.findById(user.getEmail()) : Optional.empty();
+        Optional<List<Exam>> maybeIndexedExams = getIndexedExams(user.getEmail(), maybeExamIndex, calendarList, courses, new DateTime(start), new DateTime(end));
+
         // get List of user's events
-        List<Event> events = getEventsFromALLCalendars(calendarService, calendarList, new DateTime(start), new DateTime(end), fullDayEvents, planItCalendarOldEvents, examsFound);
-        return new DTOuserCalendarsInformation(fullDayEvents, planItCalendarOldEvents, examsFound, events, calendarService);
+        Map<CalendarListEntry, List<Event>> calendar2Events = getEventsFromALLCalendars(calendarService, calendarList, new DateTime(start), new DateTime(end), plan, courses,
+                maybeIndexedExams);
+
+        return toUserCalendarsInformation(user, calendar2Events, courses, plan, calendarService, maybeIndexedExams);
+    }
+
+    /**
+     * the pure part of the scan, that is shared by the blocking pipeline and the reactive pipeline:
+     * sorts the events of the calendars of the user into their events, their full day events, the events of the PlanIt calendar and their exams.
+     *
+     * @param calendar2Events the events of each scanned calendar (see {@link #isCalendarScanned}), in the order of the calendar list
+     * @param courses         the courses catalog that is used to detect the exams
+     * @param plan              the last plan of the user
+     * @param calendarService   a calendar service of the user, for the generation
+     * @param maybeIndexedExams the exams of the user from their exam index (see {@link #getIndexedExams}), or empty to detect them in the exams calendar
+     * @return DTOuserEvents contains all the events, full day events and the exams
+     */
+    public DTOuserCalendarsInformation toUserCalendarsInformation(User user, Map<CalendarListEntry, List<Event>> calendar2Events, List<Course> courses,
+                                                                  Plan plan, Calendar calendarService, Optional<List<Exam>> maybeIndexedExams) {
+        List<Event> events = new ArrayList<>();
+        List<Event> fullDayEvents = new ArrayList<>();
+        List<Event> planItCalendarOldEvents = new ArrayList<>();
+        List<Exam> examsFound = new LinkedList<>(maybeIndexedExams.orElse(List.of()));
+
+        // the events of the PlanIt calendar are known from the stored plan, unless it was listed
+        if (plan.getSessions() != null) {
+            planItCalendarOldEvents.addAll(toPlanItEvents(plan.getSessions()));
+        }
+
+        calendar2Events.forEach((calendar, calendarEvents) ->
+                addEventsOfCalendar(calendar, calendarEvents, courses, events, fullDayEvents, planItCalendarOldEvents, examsFound, maybeIndexedExams.isEmpty()));
+
+        // sorts the events, so they will be ordered by start time
+        events.sort(new EventComparator());
+        fullDayEvents.sort(new EventComparator());
+        engineMetrics.recordEventsPerUser(events.size());
+
+        // remembers the first exam of the user, so their next jobs can be prioritized
+        examsFound.stream()
+                .mapToLong(exam -> exam.getDateTime().getValue())
+                .min()
+                .ifPresent(firstExamTime -> email2FirstExamTime.put(user.getEmail(), firstExamTime));
+
+        return new DTOuserCalendarsInformation(fullDayEvents, planItCalendarOldEvents, examsFound, events, calendarService, plan);
+    }
+
+    /**
+     * @param calendar a calendar of the user
+     * @param plan     the last plan of the user
+     * @return true if the events of the calendar should be fetched by the scan, false for the PlanIt calendar when its events are known from the stored plan
+     */
+    public static boolean isCalendarScanned(CalendarListEntry calendar, Plan plan) {
+        return plan.getSessions() == null || !isPlanItCalendar(calendar);
+    }
+
+    /**
+     * @param calendar a calendar of the user
+     * @return true if the calendar is the PlanIt calendar, that is fetched in the whole time interval, since its old events after the last exam should be deleted too
+     */
+    public static boolean isPlanItCalendar(CalendarListEntry calendar) {
+        return calendar.getSummary().equals(PLANIT_CALENDAR_SUMMERY_NAME);
+    }
+
+    /**
+     * @param calendar a calendar of the user
+     * @return true if the calendar is the exams calendar, that is fetched before the other calendars (see {@link #getScanEnd})
+     */
+    public boolean isExamsCalendar(CalendarListEntry calendar) {
+        return examDetector.isExamsCalendar(calendar);
+    }
+
+    /**
+     * the plan ends at the start of the last exam (see {@link PlanningEngine#getFreeSlots}), so the events of the other calendars after it are not needed.
+     * the events that start at the same time as the last exam are still fetched, so the order of the events around it does not change.
+     *
+     * @param exams the exams of the user in the whole time interval
+     * @param end   the time to end scan of events
+     * @return the time to end the fetch of the other calendars, the start of the last exam or end if it is earlier (or if no exam was found)
+     */
+    public static DateTime getScanEnd(List<Exam> exams, DateTime end) {
+        long scanEndInMillis = exams.stream()
+                .mapToLong(exam -> exam.getDateTime().getValue() + 1)
+                .max()
+                .orElse(end.getValue());
+
+        return scanEndInMillis < end.getValue() ? new DateTime(scanEndInMillis) : end;
     }
 
     /**
      * @param allEvents list of the user events we found during the initial scan
      * @param exams     list of the user exams to determine when to stop embed free slots and division of study time.
+     * @param plan      the last plan of the user, updated with the new plan when it is written to the PlanIt calendar
+     * @return true if a new plan was generated, false if the inputs did not change since the last plan, so it is still up-to-date
      */
-    public void generatePlanItCalendar(List<Event> allEvents, List<Exam> exams, User user, Calendar service, String start, List<Event> planItCalendarOldEvents)
+    public boolean generatePlanItCalendar(List<Event> allEvents, List<Exam> exams, User user, Calendar service, String start, List<Event> planItCalendarOldEvents, Plan plan)
             throws GeneralSecurityException {
 
-        // gets the list of free slots
-        DTOfreetime dtofreetime = getFreeSlots(allEvents, user, exams, start);
+        // checks if anything changed since the last generated plan
+        List<BusyInterval> busyIntervals = toBusyIntervals(allEvents);
+        String baseInputsFingerprint = calculateBaseInputsFingerprint(exams, user, start);
+        String inputsFingerprint = calculatePlanInputsFingerprint(baseInputsFingerprint, busyIntervals, planItCalendarOldEvents);
+        if (inputsFingerprint.equals(plan.getInputsFingerprint())) {
+            return false;
+        }
+
+        // if only the busy intervals changed, tries to move only the sessions that conflict with them
+        if (settings.isIncrementalRepairEnabled() && baseInputsFingerprint.equals(plan.getBaseInputsFingerprint())
+                && plan.getSessions() != null && plan.getBusyIntervals() != null
+                && Objects.equals(plan.getPlanItCalendarID(), user.getPlanItCalendarID())) {
+
+            boolean isRepaired;
+            try {
+                isRepaired = repairPlanItCalendar(allEvents, exams, user, service, start, busyIntervals, plan);
+            } catch (RuntimeException e) {
+                invalidatePlan(plan);
+                throw e;
+            }
+
+            if (isRepaired) {
+                savePlan(plan, plan.getPlanItCalendarID(), plan.getSessions(), baseInputsFingerprint, busyIntervals);
+                return true;
+            }
+        }
+
+        List<StudySession> sessionsList = planStudySessions(allEvents, exams, user, start);
 
         // creates PlanIt calendar if not yet exists
         String planItCalendarID = createPlanItCalendar(service, user);
 
-        // finds the proportions of each exam from 100% study time
-        Map<Exam, Double> exam2Proportions = getExamsProportions(exams);
+        // the PlanIt calendar was created again (e.g. the user deleted it), so the events of the last plan don't exist anymore
+        if (plan.getSessions() != null && !planItCalendarID.equals(plan.getPlanItCalendarID())) {
+            planItCalendarOldEvents = new ArrayList<>();
+        }
+
+        // #5 - updates the planIt calendar
+        Deadline.checkCurrent("the write to the PlanIt calendar");
+        List<Event> planItCalendarEvents;
+        try {
+            planItCalendarEvents = updatePlanItCalendar(sessionsList, service, planItCalendarID, planItCalendarOldEvents, user);
+        } catch (RuntimeException e) {
+            invalidatePlan(plan);
+            throw e;
+        }
+
+        // saves the new plan, only after the PlanIt calendar is fully updated
+        savePlan(plan, planItCalendarID, toPlannedSessions(planItCalendarEvents), baseInputsFingerprint, busyIntervals);
+
+        return true;
+    }
+
+    /**
+     * the pure part of the generation: places the study sessions in the free time of the user, and embeds the courses in them.
+     * it makes no request to Google, so it is shared by the generation and the preview.
+     *
+     * @param allEvents list of the user events we found during the initial scan
+     * @param exams     list of the user exams to determine when to stop embed free slots and division of study time.
+     * @return the study sessions of the new plan, sorted by start time
+     */
+    private List<StudySession> planStudySessions(List<Event> allEvents, List<Exam> exams, User user, String start) {
+
+        // gets the list of free slots
+        EngineMetrics.StageTimer stageTimer = engineMetrics.startStage(EngineMetrics.Stage.FREE_SLOTS);
+        DTOfreetime dtofreetime = PlanningEngine.getFreeSlots(allEvents, user, exams, start);
+        stageTimer.stop(allEvents.size());
 
         // separates each slot in the free slots list, to a few study sessions and inserts breaks
-        List<StudySession> sessionsList = separateSlotsToSessions(user, dtofreetime.getFreeTimeSlots());
+        stageTimer = engineMetrics.startStage(EngineMetrics.Stage.SESSIONS_SLICING);
+        List<StudySession> sessionsList = PlanningEngine.separateSlotsToSessions(user, dtofreetime.getFreeTimeSlots());
+        stageTimer.stop(dtofreetime.getFreeTimeSlots().size());
+
+        // finds the proportions of each exam from 100% study time
+        stageTimer = engineMetrics.startStage(EngineMetrics.Stage.EMBEDDING);
+        Map<Exam, Double> exam2Proportions = PlanningEngine.getExamsProportions(exams);
 
         // calculates how many sessions belong to each course
-        Map<Exam, Integer> exams2numberOfSessions = distributeNumberOfSessionsToCourses(exam2Proportions, sessionsList.size());
+        Map<Exam, Integer> exams2numberOfSessions = PlanningEngine.distributeNumberOfSessionsToCourses(exam2Proportions, sessionsList.size());
 
         // goes from the end to the start and embed courses to sessions
-        embedCoursesInSessions(exams2numberOfSessions, sessionsList, exams);
+        PlanningEngine.embedCoursesInSessions(exams2numberOfSessions, sessionsList, exams);
+        stageTimer.stop(sessionsList.size());
 
-        // #5 - updates the planIt calendar
-        updatePlanItCalendar(sessionsList, service, planItCalendarID, planItCalendarOldEvents, user);
+        return sessionsList;
+    }
 
+    /**
+     * marks the stored plan as unknown, after a write to the PlanIt calendar was aborted in the middle (e.g. its deadline expired).
+     * the next scan reads the PlanIt calendar from Google again, and continues from what was actually written.
+     */
+    private void invalidatePlan(Plan plan) {
+        plan.setSessions(null);
+        plan.setInputsFingerprint(null);
+        planRepo.save(plan);
+    }
+
+    /**
+     * saves the new plan of the user, with the fingerprints of its inputs.
+     * the fingerprint is calculated with the sessions of the new plan, since they will be the PlanIt calendar events of the next generation.
+     */
+    private void savePlan(Plan plan, String planItCalendarID, List<PlannedSession> sessions, String baseInputsFingerprint, List<BusyInterval> busyIntervals) {
+        plan.setPlanItCalendarID(planItCalendarID);
+        plan.setSessions(sessions);
+        plan.setBusyIntervals(busyIntervals);
+        engineMetrics.recordSessionsPerPlan(sessions.size());
+        plan.setBaseInputsFingerprint(baseInputsFingerprint);
+        plan.setInputsFingerprint(calculatePlanInputsFingerprint(baseInputsFingerprint, busyIntervals, toPlanItEvents(sessions)));
+        plan.setGeneratedAtInMilliseconds(System.currentTimeMillis());
+        planRepo.save(plan);
+    }
+
+    /**
+     * calculates the fingerprint of the inputs that the generated plan depends on, except for the user's events.
+     * when only the user's events change, the plan can be repaired instead of generated from scratch.
+     * the start is usually the time of the request, so only its day is included (another request on the same day does not generate the plan again).
+     *
+     * @return the fingerprint of the base inputs
+     */
+    private String calculateBaseInputsFingerprint(List<Exam> exams, User user, String start) {
+        long startOfDay = Instant.ofEpochMilli(new DateTime(start).getValue())
+                .atZone(ZoneId.of(ISRAEL_TIME_ZONE))
+                .truncatedTo(ChronoUnit.DAYS)
+                .toInstant()
+                .toEpochMilli();
+
+        return new PlanFingerprint()
+                .add(startOfDay)
+                .addExams(exams)
+                .addPreferences(user.getUserPreferences())
+                .addUnordered(holidaysDatesCurrentYear)
+                .addUnordered(holidaysDatesNextYear)
+                .calculate();
+    }
+
+    /**
+     * calculates the fingerprint of all the inputs that the generated plan depends on.
+     * the events of the PlanIt calendar are included, so a plan that was changed since (e.g. fixed by the reconcile job) is generated again.
+     *
+     * @return the fingerprint of the inputs
+     */
+    private static String calculatePlanInputsFingerprint(String baseInputsFingerprint, List<BusyInterval> busyIntervals, List<Event> planItCalendarEvents) {
+        return new PlanFingerprint()
+                .add(baseInputsFingerprint)
+                .addBusyIntervals(busyIntervals)
+                .addPlanItEvents(planItCalendarEvents)
+                .calculate();
+    }
+
+    /**
+     * repairs the last plan, instead of generating a new plan from scratch.
+     * only the sessions that conflict with busy intervals that were added since the last plan are moved,
+     * each one to the nearest free slot before its exam. the number of sessions of each course (the courses proportions) stays the same,
+     * and the writes to Google are proportional to the change and not to the size of the plan.
+     * busy intervals that were removed since the last plan are ignored (their time stays free until the next full generation).
+     *
+     * @param busyIntervals the current busy intervals of the user
+     * @param plan          the last plan of the user, its sessions are updated when the repair succeeds
+     * @return true if the plan was repaired, false if it can not be repaired and has to be generated from scratch
+     */
+    private boolean repairPlanItCalendar(List<Event> allEvents, List<Exam> exams, User user, Calendar service, String start,
+                                         List<BusyInterval> busyIntervals, Plan plan) throws GeneralSecurityException {
+
+        // finds the busy intervals that were added since the last plan
+        Set<BusyInterval> oldBusyIntervals = new HashSet<>(plan.getBusyIntervals());
+        List<BusyInterval> addedBusyIntervals = busyIntervals.stream()
+                .filter(busyInterval -> !oldBusyIntervals.contains(busyInterval))
+                .toList();
+
+        // finds the sessions (from the start of the plan) that conflict with the added busy intervals
+        long startOfPlan = new DateTime(start).getValue();
+        List<PlannedSession> conflictingSessions = new ArrayList<>();
+        List<PlannedSession> keptSessions = new ArrayList<>();
+        for (PlannedSession session : plan.getSessions()) {
+            if (session.getStartInMilliseconds() >= startOfPlan && isOverlapping(session.getStartInMilliseconds(), session.getEndInMilliseconds(), addedBusyIntervals, 0)) {
+                conflictingSessions.add(session);
+            } else {
+                keptSessions.add(session);
+            }
+        }
+
+        // too many changes, a full generation will make a better plan
+        if (conflictingSessions.size() > settings.getMaxRepairedSessions()) {
+            return false;
+        }
+
+        // nothing to move, the new busy intervals don't touch the plan
+        if (conflictingSessions.isEmpty()) {
+            return true;
+        }
+
+        // the candidates for the moved sessions are the free sessions that don't touch the kept sessions (including a break between them).
+        // the free slots are found between consecutive events only, so a slot inside a longer event is excluded by the busy intervals too
+        long breakTimeInMillis = user.getUserPreferences().getUserBreakTime() * MINUTES_TO_MILLIS;
+        List<BusyInterval> keptIntervals = keptSessions.stream()
+                .map(session -> new BusyInterval(session.getStartInMilliseconds(), session.getEndInMilliseconds()))
+                .toList();
+        List<StudySession> candidateSessions = new ArrayList<>();
+        for (StudySession candidateSession : PlanningEngine.separateSlotsToSessions(user, PlanningEngine.getFreeSlots(allEvents, user, exams, start).getFreeTimeSlots())) {
+            if (!isOverlapping(candidateSession.getStart().getValue(), candidateSession.getEnd().getValue(), keptIntervals, breakTimeInMillis)
+                    && !isOverlapping(candidateSession.getStart().getValue(), candidateSession.getEnd().getValue(), busyIntervals, 0)) {
+                candidateSessions.add(candidateSession);
+            }
+        }
+
+        // moves each conflicting session to the nearest candidate that still ends before its exam
+        List<Event> movedEvents = new ArrayList<>();
+        for (PlannedSession conflictingSession : conflictingSessions) {
+            Optional<Exam> maybeExam = findExamOfSession(conflictingSession, exams);
+            if (maybeExam.isEmpty()) {
+                return false;
+            }
+
+            long examTime = maybeExam.get().getDateTime().getValue();
+            Optional<StudySession> maybeNearestCandidate = candidateSessions.stream()
+                    .filter(candidateSession -> candidateSession.getEnd().getValue() <= examTime)
+                    .min(Comparator.comparingLong(candidateSession -> Math.abs(candidateSession.getStart().getValue() - conflictingSession.getStartInMilliseconds())));
+            if (maybeNearestCandidate.isEmpty()) {
+                return false;
+            }
+
+            candidateSessions.remove(maybeNearestCandidate.get());
+            movedEvents.add(createPlanItEvent(conflictingSession.getSummary(), conflictingSession.getDescription(),
+                    maybeNearestCandidate.get().getStart(), maybeNearestCandidate.get().getEnd()));
+        }
+
+        // the write set: deletes the conflicting sessions and inserts them in their new time
+        List<Event> insertedEvents = new ArrayList<>();
+        EngineMetrics.StageTimer stageTimer = engineMetrics.startStage(EngineMetrics.Stage.WRITE);
+        try {
+            for (PlannedSession conflictingSession : conflictingSessions) {
+                validateAccessToken(user);
+                executeGoogleRequest(service.events().delete(plan.getPlanItCalendarID(), conflictingSession.getEventID()));
+            }
+            for (Event movedEvent : movedEvents) {
+                validateAccessToken(user);
+                insertedEvents.add(executeGoogleRequest(service.events().insert(plan.getPlanItCalendarID(), movedEvent)));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            stageTimer.stop(conflictingSessions.size() + movedEvents.size());
+        }
+
+        List<PlannedSession> repairedSessions = new ArrayList<>(keptSessions);
+        repairedSessions.addAll(toPlannedSessions(insertedEvents));
+        repairedSessions.sort(Comparator.comparingLong(PlannedSession::getStartInMilliseconds));
+        plan.setSessions(repairedSessions);
+
+        return true;
+    }
+
+    /**
+     * finds the exam a session was planned for: the first exam, after the session, of the session's course
+     */
+    private static Optional<Exam> findExamOfSession(PlannedSession session, List<Exam> exams) {
+        return exams.stream()
+                .filter(exam -> (EVENT_SUMMERY_PREFIX + exam.getCourse().getCourseName()).equals(session.getSummary()))
+                .filter(exam -> exam.getDateTime().getValue() >= session.getEndInMilliseconds())
+                .min(Comparator.comparingLong(exam -> exam.getDateTime().getValue()));
+    }
+
+    /**
+     * checks if the time between start and end overlaps any of the intervals, when each interval is extended by a margin from both sides
+     */
+    private static boolean isOverlapping(long start, long end, List<BusyInterval> intervals, long marginInMillis) {
+        for (BusyInterval interval : intervals) {
+            if (interval.isOverlapping(start - marginInMillis, end + marginInMillis)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * converts the user's events to busy intervals
+     */
+    private static List<BusyInterval> toBusyIntervals(List<Event> events) {
+        List<BusyInterval> busyIntervals = new ArrayList<>();
+
+        for (Event event : events) {
+            // full day events have a date, and other events have a date-time
+            DateTime startOfEvent = event.getStart().getDateTime() != null ? event.getStart().getDateTime() : event.getStart().getDate();
+            DateTime endOfEvent = event.getEnd().getDateTime() != null ? event.getEnd().getDateTime() : event.getEnd().getDate();
+            busyIntervals.add(new BusyInterval(startOfEvent.getValue(), endOfEvent.getValue()));
+        }
+
+        return busyIntervals;
+    }
+
+    /**
+     * reconciles the stored plans with the actual PlanIt calendars in Google.
+     * the diffs run against the stored plans, so changes that were made directly in Google (drift) are fixed here.
+     */
+    public void reconcileAllPlans() {
+        try (Stream<Plan> plans = planRepo.streamAllBy()) {
+            plans.filter(plan -> plan.getSessions() != null).forEach(plan -> {
+                try (GoogleApiUsageAccounting.Scope usageScope = googleApiUsageAccounting.startScope(plan.getEmail(), GoogleApiUsageAccounting.Flow.RECONCILE)) {
+                    reconcilePlan(plan);
+                } catch (IOException | GeneralSecurityException | RuntimeException e) {
+                    logger.warn("failed to reconcile the plan of {}", plan.getEmail(), e);
+                }
+            });
+        }
+    }
+
+    /**
+     * reads the exams of a scan from the exam index of the user, instead of detecting them in the exams calendar.
+     * if the index can not be used, the user is remembered, so the index is built (or refreshed) by the next background refresh.
+     *
+     * @param maybeExamIndex the exam index of the user, empty if there is none
+     * @param calendarList   the calendar list of the user, the index is used only if it is of the current exams calendar
+     * @param courses        the courses catalog
+     * @param start          the time to start scan of events
+     * @param end            the time to end scan of events
+     * @return the exams in the time interval, ordered by start time, or empty if the index is disabled, missing, too old or of another calendar
+     */
+    public Optional<List<Exam>> getIndexedExams(String email, Optional<ExamIndex> maybeExamIndex, List<CalendarListEntry> calendarList, List<Course> courses,
+                                                DateTime start, DateTime end) {
+        if (settings.getExamIndexMaxAgeInMillis() <= 0) {
+            return Optional.empty();
+        }
+
+        // the index is of a single exams calendar, so the exams of a user with a few exams calendars are always detected in the scan
+        List<CalendarListEntry> examsCalendars = calendarList.stream().filter(this::isExamsCalendar).toList();
+        if (examsCalendars.size() > 1) {
+            return Optional.empty();
+        }
+
+        List<String> examsCalendarIDs = examsCalendars.stream().map(CalendarListEntry::getId).toList();
+        boolean isExamIndexUsable = maybeExamIndex.isPresent()
+                && maybeExamIndex.get().getEvents() != null
+                && System.currentTimeMillis() - maybeExamIndex.get().getRefreshedAtInMilliseconds() <= settings.getExamIndexMaxAgeInMillis()
+                && (maybeExamIndex.get().getExamsCalendarID() == null ? examsCalendarIDs.isEmpty() : examsCalendarIDs.equals(List.of(maybeExamIndex.get().getExamsCalendarID())));
+        if (!isExamIndexUsable) {
+            pendingExamIndexEmails.add(email);
+            return Optional.empty();
+        }
+
+        // the same exams the scan would detect: the events of the exams calendar that overlap the time interval, of a course in the catalog
+        List<Event> events = new ArrayList<>();
+        for (IndexedExamEvent indexedEvent : maybeExamIndex.get().getEvents()) {
+            if (indexedEvent.getEndInMilliseconds() > start.getValue() && indexedEvent.getStartInMilliseconds() < end.getValue()) {
+                events.add(new Event()
+                        .setId(indexedEvent.getEventID())
+                        .setSummary(indexedEvent.getSummary())
+                        .setStart(new EventDateTime().setDateTime(new DateTime(indexedEvent.getStartInMilliseconds())))
+                        .setEnd(new EventDateTime().setDateTime(new DateTime(indexedEvent.getEndInMilliseconds()))));
+            }
+        }
+
+        return Optional.of(events.isEmpty() ? new ArrayList<>() : examDetector.findExams(maybeExamIndex.get().getExamsCalendarSummary(), events, courses));
+    }
+
+    /**
+     * refreshes the exam indexes in the background: first the indexes of the users that were scanned without a usable index,
+     * and then every index that is older than half of the max age, so the scans find them fresh.
+     * only the events of the exams calendar that changed since the last refresh are listed (with its sync token).
+     */
+    public void refreshExamIndexes() {
+        if (settings.getExamIndexMaxAgeInMillis() <= 0) {
+            return;
+        }
+
+        for (String email : new ArrayList<>(pendingExamIndexEmails)) {
+            pendingExamIndexEmails.remove(email);
+            refreshExamIndex(examIndexRepo.findById(email).orElseGet(() -> new ExamIndex(email)));
+        }
+
+        try (Stream<ExamIndex> examIndexes = examIndexRepo.streamAllByRefreshedAtInMillisecondsLessThan(System.currentTimeMillis() - settings.getExamIndexMaxAgeInMillis() / 2)) {
+            examIndexes.forEach(this::refreshExamIndex);
+        }
+    }
+
+    private void refreshExamIndex(ExamIndex examIndex) {
+        try (GoogleApiUsageAccounting.Scope usageScope = googleApiUsageAccounting.startScope(examIndex.getEmail(), GoogleApiUsageAccounting.Flow.EXAM_INDEX)) {
+
+            // only the tokens of the user are needed to read the exams calendar
+            Optional<User> maybeUser = userRepo.findTokensByEmail(examIndex.getEmail()).map(userStateWriteBuffer::applyTo);
+            if (maybeUser.isEmpty()) {
+                examIndexRepo.deleteById(examIndex.getEmail());
+                return;
+            }
+
+            User user = maybeUser.get();
+            validateAccessToken(user);
+            syncExamIndex(getCalendarService(user), examIndex);
+            examIndexRepo.save(examIndex);
+        } catch (IOException | GeneralSecurityException | RuntimeException e) {
+            logger.warn("failed to refresh the exam index of {}", examIndex.getEmail(), e);
+        }
+    }
+
+    /**
+     * updates the exam index with the events of the exams calendar that changed since its sync token (all of them, if it has no sync token).
+     * a deleted exams calendar, or a sync token that expired, is handled by listing all the events again.
+     */
+    private void syncExamIndex(Calendar calendarService, ExamIndex examIndex) throws IOException {
+        // an index that was stored with its exams only is listed again, with all the events
+        if (examIndex.getEvents() == null) {
+            examIndex.setSyncToken(null);
+        }
+
+        if (examIndex.getExamsCalendarID() == null || examIndex.getExamsCalendarSummary() == null) {
+            Optional<CalendarListEntry> maybeExamsCalendar = getCalendarList(calendarService).stream().filter(this::isExamsCalendar).findFirst();
+            examIndex.setExamsCalendarID(maybeExamsCalendar.map(CalendarListEntry::getId).orElse(null));
+            examIndex.setExamsCalendarSummary(maybeExamsCalendar.map(CalendarListEntry::getSummary).orElse(null));
+            examIndex.setSyncToken(null);
+        }
+
+        // the user has no exams calendar
+        if (examIndex.getExamsCalendarID() == null) {
+            examIndex.setEvents(new ArrayList<>());
+            examIndex.setRefreshedAtInMilliseconds(System.currentTimeMillis());
+            return;
+        }
+
+        // the events by their ID, all of them are listed again without a sync token
+        Map<String, IndexedExamEvent> eventID2Event = new HashMap<>();
+        if (examIndex.getSyncToken() != null) {
+            examIndex.getEvents().forEach(event -> eventID2Event.put(event.getEventID(), event));
+        }
+
+        String pageToken = null;
+        Events events;
+        try {
+            do {
+                events = executeGoogleRequest(calendarService.events().list(examIndex.getExamsCalendarID())
+                        .setSingleEvents(true)
+                        .setSyncToken(examIndex.getSyncToken())
+                        .setPageToken(pageToken)
+                        .setFields("nextPageToken,nextSyncToken,items(id,etag,status,summary,start,end)"));
+
+                for (Event event : events.getItems()) {
+
+                    // the event did not change since it was indexed
+                    IndexedExamEvent indexedEvent = eventID2Event.get(event.getId());
+                    if (indexedEvent != null && event.getEtag() != null && event.getEtag().equals(indexedEvent.getEtag()) && !"cancelled".equals(event.getStatus())) {
+                        continue;
+                    }
+
+                    eventID2Event.remove(event.getId());
+                    if (!"cancelled".equals(event.getStatus())) {
+                        toIndexedExamEvent(event).ifPresent(newIndexedEvent -> eventID2Event.put(event.getId(), newIndexedEvent));
+                    }
+                }
+
+                pageToken = events.getNextPageToken();
+            } while (pageToken != null);
+        } catch (GoogleJsonResponseException e) {
+            if (e.getStatusCode() != HttpStatus.NOT_FOUND.value() && e.getStatusCode() != HttpStatus.GONE.value()) {
+                throw e;
+            }
+
+            // the sync token expired, so all the events are listed again
+            if (e.getStatusCode() == HttpStatus.GONE.value() && examIndex.getSyncToken() != null) {
+                examIndex.setSyncToken(null);
+                syncExamIndex(calendarService, examIndex);
+                return;
+            }
+
+            // the exams calendar was deleted by the user, so the next refresh looks for it again in the calendar list
+            examIndex.setExamsCalendarID(null);
+            examIndex.setExamsCalendarSummary(null);
+            examIndex.setSyncToken(null);
+            examIndex.setEvents(new ArrayList<>());
+            examIndex.setRefreshedAtInMilliseconds(System.currentTimeMillis());
+            return;
+        }
+
+        List<IndexedExamEvent> indexedEvents = new ArrayList<>(eventID2Event.values());
+        indexedEvents.sort(Comparator.comparingLong(IndexedExamEvent::getStartInMilliseconds));
+        examIndex.setEvents(indexedEvents);
+        examIndex.setSyncToken(events.getNextSyncToken());
+        examIndex.setRefreshedAtInMilliseconds(System.currentTimeMillis());
+    }
+
+    /**
+     * @return the event as it is kept in the exam index, or empty if it can not be an exam (e.g. a full day event, see {@link #findExams})
+     */
+    private Optional<IndexedExamEvent> toIndexedExamEvent(Event event) {
+        if (event.getSummary() == null || event.getStart() == null || event.getStart().getDateTime() == null || event.getEnd() == null) {
+            return Optional.empty();
+        }
+
+        long startInMilliseconds = event.getStart().getDateTime().getValue();
+        long endInMilliseconds = event.getEnd().getDateTime() != null ? event.getEnd().getDateTime().getValue() : startInMilliseconds;
+        return Optional.of(new IndexedExamEvent(event.getId(), event.getEtag(), event.getSummary(), startInMilliseconds, endInMilliseconds));
+    }
+
+    /**
+     * @param email the user's email
+     * @return the time (in milliseconds) of the first exam that was found in the last scan of the user, empty if the user was not scanned yet
+     */
+    public Optional<Long> getFirstExamTimeOfLastScan(String email) {
+        return Optional.ofNullable(email2FirstExamTime.get(email));
     }
 
     /**
@@ -152,12 +826,14 @@ public class CalendarEngine {
      * @param refreshToken the refreshToken
      * @param clientId     client id string
      * @param clientSecret client secret string
+     * @param tokenServerUrl the URL of the token server
+     * @param requestInitializer initializes the HTTP request to the token server (e.g. its timeouts)
      * @return TokenResponse contains new accessToken
      * @throws IOException              IOException
      * @throws GeneralSecurityException GeneralSecurityException
      */
-    public static TokenResponse refreshAccessToken(String refreshToken, String clientId, String clientSecret)
-            throws IOException, GeneralSecurityException {
+    public static TokenResponse refreshAccessToken(String refreshToken, String clientId, String clientSecret, String tokenServerUrl,
+                                                   HttpRequestInitializer requestInitializer) throws IOException, GeneralSecurityException {
 
         // Create a RefreshTokenRequest to get a new access token using the refresh token
         RefreshTokenRequest refreshTokenRequest = new GoogleRefreshTokenRequest(
@@ -165,7 +841,9 @@ public class CalendarEngine {
                 JSON_FACTORY,
                 refreshToken,
                 clientId,
-                clientSecret);
+                clientSecret)
+                .setTokenServerUrl(new GenericUrl(tokenServerUrl))
+                .setRequestInitializer(requestInitializer);
 
         // Execute the RefreshTokenRequest to get a new Credential object with the updated access token
         return refreshTokenRequest.execute();
@@ -181,25 +859,231 @@ public class CalendarEngine {
      * @throws GeneralSecurityException GeneralSecurityException
      */
     public void validateAccessToken(User user) throws IOException, GeneralSecurityException {
+        engineMetrics.recordStage(EngineMetrics.Stage.TOKEN_VALIDATION, () -> {
+            refreshAccessTokenIfExpired(user);
+            return null;
+        });
+    }
+
+    /**
+     * refreshes the access token of the user, if it is not valid, and updates it in the DB
+     */
+    private void refreshAccessTokenIfExpired(User user) throws IOException, GeneralSecurityException {
 
         // checks if the access token is not valid yet
-        if (!CalendarEngine.isAccessTokenValid(user.getExpireTimeInMilliseconds())) {
+        if (CalendarEngine.isAccessTokenValid(user.getExpireTimeInMilliseconds())) {
+            return;
+        }
 
-            // refresh the accessToken
-            TokenResponse tokensResponse = CalendarEngine.refreshAccessToken(user.getRefreshToken(), CLIENT_ID, CLIENT_SECRET);
-            long expireTimeInMilliseconds = Instant.now().plusMillis(((tokensResponse.getExpiresInSeconds() - 100) * 1000)).toEpochMilli();
+        // the write batches of a user can find the expired token at the same time, only one of them refreshes it.
+        // (a lock and not a monitor, since a virtual thread that waits for Google inside a monitor pins its carrier thread)
+        ReentrantLock tokenRefreshLock = tokenRefreshLocks[Math.floorMod(user.getEmail().hashCode(), tokenRefreshLocks.length)];
+        tokenRefreshLock.lock();
+        try {
+            if (!CalendarEngine.isAccessTokenValid(user.getExpireTimeInMilliseconds())) {
+                refreshAccessToken(user);
+            }
+        } finally {
+            tokenRefreshLock.unlock();
+        }
+    }
 
-            // updates the access token of the user in the DB
-            user.setAccessToken(tokensResponse.getAccessToken());
-            user.setExpireTimeInMilliseconds(expireTimeInMilliseconds);
-            userRepo.save(user);
+    /**
+     * refreshes the access token of the user, and updates it in the DB
+     */
+    private void refreshAccessToken(User user) throws IOException, GeneralSecurityException {
+
+        // refresh the accessToken
+        Deadline.checkCurrent(OAUTH_TOKEN_METHOD_NAME);
+        DependencyGuard.Permit guardPermit = googleOAuthGuard.acquire();
+        GoogleApiConcurrencyLimiter.Permit permit = waitForGoogleBudget(guardPermit);
+        guardPermit.startCall();
+        EngineMetrics.GoogleRequestTimer googleRequestTimer = engineMetrics.startGoogleRequest();
+        String status = GOOGLE_IO_ERROR_STATUS;
+        long responseBytes = 0;
+        boolean isOverloaded = true;
+        TokenResponse tokensResponse;
+        try {
+            tokensResponse = CalendarEngine.refreshAccessToken(user.getRefreshToken(), settings.getClientID(), settings.getClientSecret(), settings.getGoogleTokenServerUrl(), this::setGoogleTimeouts);
+            status = Integer.toString(HttpStatusCodes.STATUS_CODE_OK);
+            responseBytes = getResponseBytes(null, tokensResponse);
+            isOverloaded = false;
+        } catch (HttpResponseException e) {
+            status = Integer.toString(e.getStatusCode());
+            responseBytes = getResponseBytes(e.getHeaders(), e.getContent());
+            isOverloaded = isGoogleOverloaded(e);
+            throw e;
+        } catch (SocketTimeoutException e) {
+
+            // the timeout was cut to the deadline of the request, so Google is not to blame
+            if (isCurrentDeadlineExpired()) {
+                isOverloaded = false;
+                throw new DeadlineExceededException(OAUTH_TOKEN_METHOD_NAME, e);
+            }
+            throw e;
+        } finally {
+            permit.release(isOverloaded);
+            guardPermit.release(isOverloaded);
+            googleRequestTimer.stop(OAUTH_TOKEN_METHOD_NAME, null, status, responseBytes);
+            googleApiUsageAccounting.record(OAUTH_TOKEN_METHOD_NAME, 0, responseBytes);
         }
+        long expireTimeInMilliseconds = Instant.now().plusMillis(((tokensResponse.getExpiresInSeconds() - 100) * 1000)).toEpochMilli();
+
+        // the access token is written to the DB once, at the end of the request
+        user.setAccessToken(tokensResponse.getAccessToken());
+        user.setExpireTimeInMilliseconds(expireTimeInMilliseconds);
+        userStateWriteBuffer.setAccessToken(user.getEmail(), user.getAccessToken(), expireTimeInMilliseconds);
     }
 
     /**
      * Private methods
      */
 
+    /**
+     * executes a request to the Google Calendar API.
+     * every request to Google goes through here, so it respects the global rate budget and the circuit breaker of Google Calendar, and it is counted by its method and status.
+     *
+     * @param request the request to execute
+     * @return the response of the request
+     * @throws IOException IOException
+     */
+    private <T> T executeGoogleRequest(CalendarRequest<T> request) throws IOException {
+
+        // aborts if the request has no time left for another call
+        Deadline.checkCurrent(getGoogleMethodName(request));
+
+        // fails fast if Google Calendar is down, before waiting for the rate budget
+        DependencyGuard.Permit guardPermit = googleCalendarGuard.acquire();
+        GoogleApiConcurrencyLimiter.Permit permit = waitForGoogleBudget(guardPermit);
+        guardPermit.startCall();
+
+        EngineMetrics.GoogleRequestTimer googleRequestTimer = engineMetrics.startGoogleRequest();
+        String status = GOOGLE_IO_ERROR_STATUS;
+        long responseBytes = 0;
+        boolean isOverloaded = true;
+        try {
+            T response = request.execute();
+            status = Integer.toString(request.getLastStatusCode());
+            responseBytes = getResponseBytes(request.getLastResponseHeaders(), response);
+            isOverloaded = false;
+            return response;
+        } catch (HttpResponseException e) {
+            status = Integer.toString(e.getStatusCode());
+            responseBytes = getResponseBytes(e.getHeaders(), e.getContent());
+            isOverloaded = isGoogleOverloaded(e);
+            throw e;
+        } catch (SocketTimeoutException e) {
+
+            // the timeout was cut to the deadline of the request, so Google is not to blame
+            if (isCurrentDeadlineExpired()) {
+                isOverloaded = false;
+                throw new DeadlineExceededException(getGoogleMethodName(request), e);
+            }
+            throw e;
+        } finally {
+            permit.release(isOverloaded);
+            guardPermit.release(isOverloaded);
+            String methodName = getGoogleMethodName(request);
+
+            // the calendar ID is a parameter of most of the Calendar API requests
+            Object calendarID = request.get("calendarId");
+            googleRequestTimer.stop(methodName, calendarID == null ? null : calendarID.toString(), status, responseBytes);
+            googleApiUsageAccounting.record(methodName, getRequestBytes(request), responseBytes);
+        }
+    }
+
+    private static boolean isCurrentDeadlineExpired() {
+        Deadline deadline = Deadline.current();
+        return deadline != null && deadline.isExpired();
+    }
+
+    /**
+     * waits for the rate budget and for the adaptive concurrency limit, after the guard of the dependency let the request in.
+     * if the wait is aborted (e.g. by the deadline), the guard permit is given back without counting as a call.
+     *
+     * @return the permit of the concurrency limit
+     */
+    private GoogleApiConcurrencyLimiter.Permit waitForGoogleBudget(DependencyGuard.Permit guardPermit) {
+        try {
+            googleApiRateLimiter.acquire();
+            return googleApiConcurrencyLimiter.acquire();
+        } catch (RuntimeException e) {
+            guardPermit.cancel();
+            throw e;
+        }
+    }
+
+    /**
+     * @return true if Google answered that it is overloaded: 429, 5xx, or 403 because a rate limit was exceeded
+     */
+    public static boolean isGoogleOverloaded(HttpResponseException e) {
+        int statusCode = e.getStatusCode();
+        if (statusCode == HttpStatus.TOO_MANY_REQUESTS.value() || statusCode >= HttpStatus.INTERNAL_SERVER_ERROR.value()) {
+            return true;
+        }
+
+        return statusCode == HttpStatus.FORBIDDEN.value()
+                && e instanceof GoogleJsonResponseException jsonException
+                && jsonException.getDetails() != null
+                && jsonException.getDetails().getErrors() != null
+                && jsonException.getDetails().getErrors().stream().anyMatch(error -> GOOGLE_RATE_LIMIT_REASONS.contains(error.getReason()));
+    }
+
+    /**
+     * @return the size of the content of the request (e.g. the inserted event), 0 if it has no content
+     */
+    private static long getRequestBytes(CalendarRequest<?> request) {
+        HttpContent content = request.getHttpContent();
+        if (content == null) {
+            return 0;
+        }
+
+        try {
+            return Math.max(content.getLength(), 0);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * @param responseHeaders the headers of the response
+     * @param response        the parsed response, or the content of an error response
+     * @return the size of the response as it was sent by Google, or the size of the response itself if Google did not send its length
+     */
+    private static long getResponseBytes(HttpHeaders responseHeaders, Object response) {
+        if (responseHeaders != null && responseHeaders.getContentLength() != null) {
+            return responseHeaders.getContentLength();
+        }
+
+        if (response instanceof GenericJson json) {
+            return json.toString().getBytes(StandardCharsets.UTF_8).length;
+        }
+
+        return response instanceof String content ? content.getBytes(StandardCharsets.UTF_8).length : 0;
+    }
+
+    /**
+     * @return the API method of the request, e.g. "events.list" for Calendar.Events.List
+     */
+    private static String getGoogleMethodName(CalendarRequest<?> request) {
+        Class<?> requestClass = request.getClass();
+        Class<?> resourceClass = requestClass.getEnclosingClass();
+        String methodName = requestClass.getSimpleName().toLowerCase();
+
+        return resourceClass != null ? resourceClass.getSimpleName().toLowerCase() + "." + methodName : methodName;
+    }
+
+    /**
+     * get Google Calendar service provider of the user (with their current access token).
+     *
+     * @return Google Calendar service provider.
+     * @throws GeneralSecurityException GeneralSecurityException
+     * @throws IOException              IOException
+     */
+    public Calendar getCalendarService(User user) throws GeneralSecurityException, IOException {
+        return getCalendarService(user.getAccessToken(), user.getExpireTimeInMilliseconds());
+    }
+
     /**
      * get Google Calendar service provider.
      *
@@ -208,7 +1092,7 @@ public class CalendarEngine {
      * @throws GeneralSecurityException GeneralSecurityException
      * @throws IOException              IOException
      */
-    private static Calendar getCalendarService(String access_token, long expireTimeInMilliSeconds) throws GeneralSecurityException, IOException {
+    private Calendar getCalendarService(String access_token, long expireTimeInMilliSeconds) throws GeneralSecurityException, IOException {
 
         // Build a new authorized API client service.
         final NetHttpTransport HTTP_TRANSPORT = GoogleNetHttpTransport.newTrustedTransport();
@@ -216,26 +1100,102 @@ public class CalendarEngine {
 
         AccessToken accessToken = new AccessToken(access_token, expireDate);
         GoogleCredentials credential = new GoogleCredentials(accessToken);
-        HttpRequestInitializer httpRequestInitializer = new HttpCredentialsAdapter(credential);
+        HttpCredentialsAdapter credentialsAdapter = new HttpCredentialsAdapter(credential);
+        HttpRequestInitializer httpRequestInitializer = httpRequest -> {
+            credentialsAdapter.initialize(httpRequest);
+            setGoogleTimeouts(httpRequest);
+        };
 
         return new Calendar.Builder(HTTP_TRANSPORT, JSON_FACTORY, httpRequestInitializer)
                 .setApplicationName(Constants.APPLICATION_NAME)
+                .setRootUrl(settings.getGoogleRootUrl())
                 .build();
     }
 
+    /**
+     * sets the timeouts of a request to Google, cut to the time that is left to the deadline of the current request
+     */
+    private void setGoogleTimeouts(HttpRequest httpRequest) {
+        httpRequest.setConnectTimeout(Deadline.capTimeout(settings.getGoogleConnectTimeoutInMillis()));
+        httpRequest.setReadTimeout(Deadline.capTimeout(settings.getGoogleReadTimeoutInMillis()));
+    }
+
+    /**
+     * replaces the sessions of a stored plan with the actual events of the PlanIt calendar.
+     * if the plan has drifted, its fingerprint is cleared, so the next generation will not be skipped.
+     *
+     * @param plan the stored plan to reconcile
+     * @throws IOException              IOException
+     * @throws GeneralSecurityException GeneralSecurityException
+     */
+    private void reconcilePlan(Plan plan) throws IOException, GeneralSecurityException {
+
+        // only the tokens of the user are needed to read their PlanIt calendar
+        Optional<User> maybeUser = userRepo.findTokensByEmail(plan.getEmail()).map(userStateWriteBuffer::applyTo);
+        if (maybeUser.isEmpty()) {
+            return;
+        }
+
+        User user = maybeUser.get();
+        validateAccessToken(user);
+        Calendar calendarService = getCalendarService(user.getAccessToken(), user.getExpireTimeInMilliseconds());
+
+        List<PlannedSession> actualSessions;
+        try {
+            actualSessions = toPlannedSessions(getAllEventsOfCalendar(calendarService, plan.getPlanItCalendarID()));
+        } catch (GoogleJsonResponseException e) {
+            if (e.getStatusCode() != HttpStatus.NOT_FOUND.value() && e.getStatusCode() != HttpStatus.GONE.value()) {
+                throw e;
+            }
+
+            // the PlanIt calendar was deleted by the user, so the next generation starts from scratch
+            actualSessions = null;
+        }
+
+        if (actualSessions != null && new HashSet<>(actualSessions).equals(new HashSet<>(plan.getSessions()))) {
+            return;
+        }
+
+        // the plan is updated only if it was not generated again while we were reading the PlanIt calendar
+        planRepo.updateReconciledSessions(plan.getId(), plan.getGeneratedAtInMilliseconds(), actualSessions);
+    }
+
+    /**
+     * get a List of all the events in a calendar, with no time limits
+     *
+     * @param calendarService Google Calendar service provider.
+     * @param calendarID      the calendar to read
+     * @return List of all the events in the calendar
+     * @throws IOException IOException
+     */
+    private List<Event> getAllEventsOfCalendar(Calendar calendarService, String calendarID) throws IOException {
+        String pageToken = null;
+        List<Event> allEvents = new ArrayList<>();
+        do {
+            Events events = executeGoogleRequest(calendarService.events().list(calendarID)
+                    .setSingleEvents(true)
+                    .setPageToken(pageToken));
+            allEvents.addAll(events.getItems());
+
+            pageToken = events.getNextPageToken();
+        } while (pageToken != null);
+
+        return allEvents;
+    }
+
     /**
      * get a List of all the User Google Calendars
      *
      * @param calendarService Google Calendar service provider.
      * @return List of all the User Google Calendars
      */
-    private static List<CalendarListEntry> getCalendarList(Calendar calendarService) {
+    private List<CalendarListEntry> getCalendarList(Calendar calendarService) {
         String pageToken = null;
         List<CalendarListEntry> calendars = new ArrayList<>();
         do {
             CalendarList calendarList;
             try {
-                calendarList = calendarService.calendarList().list().setPageToken(pageToken).execute();
+                calendarList = executeGoogleRequest(calendarService.calendarList().list().setPageToken(pageToken));
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
@@ -248,212 +1208,181 @@ public class CalendarEngine {
     }
 
     /**
-     * 1# get List of all the event's user has
+     * 1# get List of all the event's user has.
+     * the other calendars are fetched only until the last exam (see {@link #getScanEnd}). if the exams are known from the exam index,
+     * all the calendars are fetched at once, otherwise the exams calendar is fetched first to detect them.
      *
-     * @param calendarService Google Calendar service provider.
-     * @param calendarList    List of all the User Google Calendars
-     * @param start           the time to start scan of events
-     * @param end             the time to end scan of events
-     * @param fullDayEvents   list of full day events found
-     * @return List of all the event's user has
+     * @param calendarService   Google Calendar service provider.
+     * @param calendarList      List of all the User Google Calendars
+     * @param start             the time to start scan of events
+     * @param end               the time to end scan of events
+     * @param plan              the last plan of the user, the PlanIt calendar is skipped if its events are known from it
+     * @param courses           the courses catalog that is used to detect the exams
+     * @param maybeIndexedExams the exams of the user from their exam index, or empty to detect them in the exams calendar
+     * @return the events of each scanned calendar, in the order of the calendar list
      */
-    private List<Event> getEventsFromALLCalendars(Calendar calendarService, List<CalendarListEntry> calendarList, DateTime start, DateTime end,
-                                                  List<Event> fullDayEvents, List<Event> planItCalendarOldEvents, List<Exam> examsFound) {
-        List<Event> allEventsFromCalendars = new ArrayList<>();
+    private Map<CalendarListEntry, List<Event>> getEventsFromALLCalendars(Calendar calendarService, List<CalendarListEntry> calendarList, DateTime start, DateTime end,
+                                                                     Plan plan, List<Course> courses, Optional<List<Exam>> maybeIndexedExams) {
+        // the events of the PlanIt calendar are already known from the stored plan
+        List<CalendarListEntry> scannedCalendars = calendarList.stream().filter(calendar -> isCalendarScanned(calendar, plan)).toList();
 
-        List<Course> courses = courseRepo.findAll(); // get all courses from DB
+        Map<CalendarListEntry, List<Event>> fetchedCalendar2Events = new HashMap<>();
+        try {
+            if (maybeIndexedExams.isPresent()) {
+                DateTime scanEnd = getScanEnd(maybeIndexedExams.get(), end);
+                fetchedCalendar2Events.putAll(getEventsOfCalendars(calendarService, scannedCalendars, start,
+                        calendar -> isPlanItCalendar(calendar) ? end : scanEnd));
+            } else {
 
-        for (CalendarListEntry calendar : calendarList) {
-            Events events;
-            try {
-                events = calendarService.events().list(calendar.getId())
-                        .setTimeMin(start)
-                        .setOrderBy("startTime")
-                        .setTimeMax(end)
-                        .setSingleEvents(true)
-                        .execute();
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
-            // check if calendar is the exams calendar
-            if (calendar.getSummary().equals("יומן אישי מתחנת המידע")) {
-                // scan events to find exams
-                for (Event event : events.getItems()) {
-                    // check if event is an exam
-                    if (event.getSummary().contains("מבחן")) {
-                        // get exam/course name
-                        Optional<Course> maybeFoundCourse = extractCourseFromExam(event.getSummary(), courses);
+                // the exams calendar is fetched in the whole time interval (and so is the PlanIt calendar), and the other calendars until the last exam
+                List<CalendarListEntry> wholeIntervalCalendars = scannedCalendars.stream()
+                        .filter(calendar -> isExamsCalendar(calendar) || isPlanItCalendar(calendar))
+                        .toList();
+                fetchedCalendar2Events.putAll(getEventsOfCalendars(calendarService, wholeIntervalCalendars, start, calendar -> end));
 
-                        // add to list of found exams
-                        maybeFoundCourse.ifPresent(course -> examsFound.add(new Exam(course, event.getStart().getDateTime())));
+                List<Exam> exams = new ArrayList<>();
+                fetchedCalendar2Events.forEach((calendar, calendarEvents) -> {
+                    if (isExamsCalendar(calendar)) {
+                        exams.addAll(findExams(calendar, calendarEvents, courses));
                     }
-                }
-
-            }
+                });
 
-            // checks if calendar is the PlanIt calendar
-            // ignores the PlanIt calendar in order to generate new study time slots
-            if (calendar.getSummary().equals(PLANIT_CALENDAR_SUMMERY_NAME)) {
-                planItCalendarOldEvents.addAll(events.getItems());
-                continue;
+                DateTime scanEnd = getScanEnd(exams, end);
+                List<CalendarListEntry> boundedCalendars = scannedCalendars.stream().filter(calendar -> !wholeIntervalCalendars.contains(calendar)).toList();
+                fetchedCalendar2Events.putAll(getEventsOfCalendars(calendarService, boundedCalendars, start, calendar -> scanEnd));
             }
+        } catch (IOException | GeneralSecurityException e) {
+            throw new RuntimeException(e);
+        }
 
-            // adds the events, including the full day events, from the calendar to the list
-            allEventsFromCalendars.addAll(events.getItems());
-            // adds the full day events to the fullDayEvents list
-            fullDayEvents.addAll(events.getItems().stream().filter(event -> event.getStart().getDate() != null).toList());
+        Map<CalendarListEntry, List<Event>> calendar2Events = new LinkedHashMap<>();
+        for (CalendarListEntry calendar : scannedCalendars) {
+            calendar2Events.put(calendar, fetchedCalendar2Events.get(calendar));
         }
 
-        // sorts the events, so they will be ordered by start time
-        allEventsFromCalendars.sort(new EventComparator());
-        fullDayEvents.sort(new EventComparator());
-        return allEventsFromCalendars;
+        return calendar2Events;
     }
 
     /**
-     * find the name of the course, from the String that contains the event summery of an exam event.
-     * e.g מבחן מועד 1 ציון בחינה - פרונטלי גב' אריאן שלומית חישוביות
-     * return "חישוביות"
+     * fetches the events of the calendars in parallel
+     *
+     * @param endOfCalendar the time to end scan of events of each calendar
+     * @return the events of each calendar
      */
-    private static Optional<Course> extractCourseFromExam(String summary, List<Course> courses) { // TO DO
-        String[] courseName = {""}; // init empty array
-
-        // find course name from the string of the exam
-        String[] summeryInWords = summary.split(" ");
-        Optional<Course> maybeFoundCourse = Optional.empty();
-
-        // scan through the String array to add words that finally will add up to a course name from the DB
-        for (int i = summeryInWords.length - 1; i >= 0; i--) {
-
-            // assign the new word to the start of the current course-name concatenation
-            courseName[0] = (summeryInWords[i] + " " + courseName[0]).trim();
-
-            // try to get a Course from the list of courses in the DB
-            maybeFoundCourse = courses.stream().filter(Course -> Course.getCourseName().equals(courseName[0])).findFirst();
+    private Map<CalendarListEntry, List<Event>> getEventsOfCalendars(Calendar calendarService, List<CalendarListEntry> calendars, DateTime start,
+                                                                     Function<CalendarListEntry, DateTime> endOfCalendar) throws IOException, GeneralSecurityException {
+        List<GoogleIoExecutor.Task<List<Event>>> fetchTasks = new ArrayList<>();
+        for (CalendarListEntry calendar : calendars) {
+            DateTime end = endOfCalendar.apply(calendar);
+            fetchTasks.add(() -> engineMetrics.recordStage(EngineMetrics.Stage.EVENTS_FETCH, () -> settings.isRecurringEventsExpandedLocally()
+                    ? getExpandedEventsOfCalendar(calendarService, calendar, start, end)
+                    : getSingleEventsOfCalendar(calendarService, calendar.getId(), start, end)));
+        }
 
-            // check if found course is not a null
-            if (maybeFoundCourse.isPresent()) {
-                break;
-            }
+        List<List<Event>> eventsOfCalendars = googleIoExecutor.invokeAll(fetchTasks);
+        Map<CalendarListEntry, List<Event>> calendar2Events = new HashMap<>();
+        for (int i = 0; i < calendars.size(); i++) {
+            calendar2Events.put(calendars.get(i), eventsOfCalendars.get(i));
         }
 
-        return maybeFoundCourse;
+        return calendar2Events;
     }
 
+    /**
+     * @return the events of the calendar in the time interval, with the instances of the recurring events listed by Google, ordered by start time
+     */
+    private List<Event> getSingleEventsOfCalendar(Calendar calendarService, String calendarID, DateTime start, DateTime end) throws IOException {
+        return executeGoogleRequest(calendarService.events().list(calendarID)
+                .setTimeMin(start)
+                .setOrderBy("startTime")
+                .setTimeMax(end)
+                .setSingleEvents(true))
+                .getItems();
+    }
 
     /**
-     * 2# Takes out all the free time slots that can be taken out of the user events.
+     * lists the masters of the recurring events of the calendar (and the exceptions of their instances), and expands them locally,
+     * so a weekly lecture is a single event in the response of Google instead of an event for each week (see {@link RecurringEventsExpander}).
+     * if a recurring event has a rule that is not supported, the instances of the calendar are listed from Google instead.
      *
-     * @param userEvents is an array with all the events the user had.
-     * @param user       is containing user preferences.
-     * @return DTOfreetime object the return from the function adjustFreeSlotsList.
-     */
-    private static DTOfreetime getFreeSlots(List<Event> userEvents, User user, List<Exam> examsFound, String start) {
-
-        Exam lastExam = examsFound.get(examsFound.size() - 1);
-        long startTimeOfLastExam = lastExam.getDateTime().getValue();
-        List<TimeSlot> userFreeTimeSlots = new ArrayList<>();
-
-        // get the free slot before the first event
-        if (userEvents.size() > 0) {
-            long startOfFirstEvent = userEvents.get(0).getStart().getDateTime().getValue();
-            userFreeTimeSlots.add(new TimeSlot(new DateTime(start), new DateTime(startOfFirstEvent)));
-        }
-
-        // get all free time slots in the event
-        for (int i = 0; i < userEvents.size() - 1; i++) {
-            // get start of event in (i+1) place
-            long startOfNextEvent = userEvents.get(i + 1).getStart().getDateTime().getValue();
-            // get the end of event in (i) place
-            long endOfCurrentEvent = userEvents.get(i).getEnd().getDateTime().getValue();
-            if (endOfCurrentEvent < startOfNextEvent) {
-                //check if we have time to add, add to list of free time.
-                userFreeTimeSlots.add(new TimeSlot(new DateTime(endOfCurrentEvent), new DateTime(startOfNextEvent)));
-                if (startTimeOfLastExam == startOfNextEvent) {
-                    break;
-                }
+     * @return the events of the calendar in the time interval, with the instances of the recurring events, ordered by start time
+     */
+    private List<Event> getExpandedEventsOfCalendar(Calendar calendarService, CalendarListEntry calendar, DateTime start, DateTime end) throws IOException {
+        // Google does not order the events by start time without singleEvents, so they are ordered by the expansion
+        List<Event> events = new ArrayList<>();
+        String calendarTimeZone = calendar.getTimeZone();
+        String pageToken = null;
+        do {
+            Events eventsPage = executeGoogleRequest(calendarService.events().list(calendar.getId())
+                    .setTimeMin(start)
+                    .setTimeMax(end)
+                    .setSingleEvents(false)
+                    .setPageToken(pageToken)
+                    .setFields(RecurringEventsExpander.EVENTS_FIELDS));
+
+            if (eventsPage.getItems() != null) {
+                events.addAll(eventsPage.getItems());
+            }
+            if (eventsPage.getTimeZone() != null) {
+                calendarTimeZone = eventsPage.getTimeZone();
             }
+            pageToken = eventsPage.getNextPageToken();
+        } while (pageToken != null);
+
+        Optional<List<Event>> maybeExpandedEvents = RecurringEventsExpander.expand(events, start, end, calendarTimeZone);
+        if (maybeExpandedEvents.isPresent()) {
+            return maybeExpandedEvents.get();
         }
 
-        return adjustFreeSlotsList(userFreeTimeSlots, user);
+        return getSingleEventsOfCalendar(calendarService, calendar.getId(), start, end);
     }
 
     /**
-     * adjusts the free slots to the user's preferences
+     * sorts the events of a single calendar of the user
      *
-     * @param userFreeTimeSlots a list of {@link TimeSlot} that contains the free time slots without user's preferences
-     * @param user              a {@link User} that represents the user related to the slot list
-     * @return a {@link DTOfreetime} that represents an adjusted free time slots
-     */
-    private static DTOfreetime adjustFreeSlotsList(List<TimeSlot> userFreeTimeSlots, User user) {
-        int totalFreeTime = 0;
-        List<TimeSlot> adjustedUserFreeSlots = new ArrayList<>();
-
-        // gets user's preferences
-        int userStudyStartTime = user.getUserPreferences().getUserStudyStartTime();
-        int userStudyEndTime = user.getUserPreferences().getUserStudyEndTime();
-        int userStudySessionTime = user.getUserPreferences().getStudySessionTime();
-
-        // goes through the raw time slots
-        for (TimeSlot userFreeTimeSlot : userFreeTimeSlots) {
-
-            // gets current slot end and start
-            Instant startOfCurrentSlot = Instant.ofEpochMilli(userFreeTimeSlot.getStart().getValue());
-            Instant endOfCurrentSlot = Instant.ofEpochMilli(userFreeTimeSlot.getEnd().getValue());
-
-            // finds the first place of user study start time (e.g. first 8:00)
-            // finds the first place of user study end time (e.g. first 22:00)
-            DTOstartAndEndOfInterval currentInterval = Utility.getCurrentInterval(startOfCurrentSlot, userStudyStartTime, userStudyEndTime);
-            Instant userStudyStartFirst = currentInterval.getStartOfInterval();
-            Instant userStudyEndFirst = currentInterval.getEndOfInterval();
-
-            Instant selectedStart;
-            Instant selectedEnd;
-
-            // we take the min(userStudyEndFirst,endOfCurrentSlot)
-            if (userStudyEndFirst.isAfter(endOfCurrentSlot)) { // the first 22:00 is after the end of slot
-                selectedEnd = endOfCurrentSlot;
-            } else {
-                selectedEnd = userStudyEndFirst;
-            }
+     * @param calendar                the calendar
+     * @param calendarEvents          the events of the calendar
+     * @param courses                 the courses catalog that is used to detect the exams
+     * @param allEventsFromCalendars  the events of the user, the events of the calendar are added to it (except for the PlanIt calendar)
+     * @param fullDayEvents           list of full day events found
+     * @param planItCalendarOldEvents the events of the PlanIt calendar
+     * @param examsFound              the exams found (in the exams calendar)
+     * @param isDetectingExams        false if the exams are known from the exam index, so they are not detected in the exams calendar
+     */
+    private void addEventsOfCalendar(CalendarListEntry calendar, List<Event> calendarEvents, List<Course> courses, List<Event> allEventsFromCalendars,
+                                     List<Event> fullDayEvents, List<Event> planItCalendarOldEvents, List<Exam> examsFound, boolean isDetectingExams) {
 
-            // we take the max(userStudyStartFirst, startOfCurrentSlot)
-            if (userStudyStartFirst.isBefore(startOfCurrentSlot)) { // the first 08:00 is before the start of slot
-                selectedStart = startOfCurrentSlot;
-            } else {
-                selectedStart = userStudyStartFirst;
-            }
+        // check if calendar is the exams calendar
+        if (isDetectingExams && isExamsCalendar(calendar)) {
+            EngineMetrics.StageTimer stageTimer = engineMetrics.startStage(EngineMetrics.Stage.EXAM_DETECTION);
 
-            if (selectedStart.until(selectedEnd, ChronoUnit.MINUTES) >= userStudySessionTime) {
-                // adds the study time of the first day
-                adjustedUserFreeSlots.add(new TimeSlot(new DateTime(selectedStart.toEpochMilli()), new DateTime(selectedEnd.toEpochMilli())));
-                totalFreeTime += (selectedEnd.toEpochMilli() - selectedStart.toEpochMilli()) / Constants.MILLIS_TO_HOUR;
-            }
+            // scan events to find exams
+            examsFound.addAll(findExams(calendar, calendarEvents, courses));
+            stageTimer.stop(calendarEvents.size());
 
-            // finds the next place of user study start time (e.g. next 8:00)
-            // finds the next place of user study end time (e.g. next 22:00)
-            Instant userStudyStartNext = Utility.addDayToCurrentInstant(userStudyStartFirst);
-            Instant userStudyEndNext = Utility.addDayToCurrentInstant(userStudyEndFirst);
+        }
 
-            while (userStudyEndNext.isBefore(endOfCurrentSlot)) {
-                // adds a full day study for the next day
-                adjustedUserFreeSlots.add(new TimeSlot(new DateTime(userStudyStartNext.toEpochMilli()), new DateTime(userStudyEndNext.toEpochMilli())));
-                totalFreeTime += (userStudyEndNext.toEpochMilli() - userStudyStartNext.toEpochMilli()) / Constants.MILLIS_TO_HOUR;
+        // checks if calendar is the PlanIt calendar
+        // ignores the PlanIt calendar in order to generate new study time slots
+        if (isPlanItCalendar(calendar)) {
+            planItCalendarOldEvents.addAll(calendarEvents);
+            return;
+        }
 
-                // finds the next place of user study start time (e.g. next 8:00)
-                // finds the next place of user study end time (e.g. next 22:00)
-                userStudyStartNext = Utility.addDayToCurrentInstant(userStudyStartNext);
-                userStudyEndNext = Utility.addDayToCurrentInstant(userStudyEndNext);
-            }
+        // adds the events, including the full day events, from the calendar to the list
+        allEventsFromCalendars.addAll(calendarEvents);
+        // adds the full day events to the fullDayEvents list
+        fullDayEvents.addAll(calendarEvents.stream().filter(event -> event.getStart().getDate() != null).toList());
+    }
 
-            if ((userStudyStartNext.isBefore(endOfCurrentSlot))
-                    && (userStudyStartNext.until(endOfCurrentSlot, ChronoUnit.MINUTES) >= userStudySessionTime)) {
-                // adds the study time of the last day
-                adjustedUserFreeSlots.add(new TimeSlot(new DateTime(userStudyStartNext.toEpochMilli()), new DateTime(endOfCurrentSlot.toEpochMilli())));
-                totalFreeTime += (endOfCurrentSlot.toEpochMilli() - userStudyStartNext.toEpochMilli()) / Constants.MILLIS_TO_HOUR;
-            }
-        }
-        return new DTOfreetime(adjustedUserFreeSlots, totalFreeTime);
+    /**
+     * @param calendar       an exams calendar
+     * @param calendarEvents the events of the exams calendar
+     * @param courses        the courses catalog that is used to detect the exams
+     * @return the exams found in the events by the rules of the exam sources of the calendar, in the order of the events
+     */
+    public List<Exam> findExams(CalendarListEntry calendar, List<Event> calendarEvents, List<Course> courses) {
+        return examDetector.findExams(calendar.getSummary(), calendarEvents, courses);
     }
 
     /**
@@ -466,14 +1395,25 @@ public class CalendarEngine {
         String planItCalendarID;
         String planItCalendarIdFromDB = user.getPlanItCalendarID();
 
+        // the re-check in Google is optional work, when the request is low on time the calendar from the DB is trusted
+        if (planItCalendarIdFromDB != null && Deadline.isCurrentLowOnTime(settings.getOptionalWorkMinRemainingInMillis())) {
+            return planItCalendarIdFromDB;
+        }
+
         // checks if the calendar already exists in DB
         try {
             validateAccessToken(user);
-            if (planItCalendarIdFromDB != null && calendarService.calendars().get(planItCalendarIdFromDB).execute() != null) {
+            if (planItCalendarIdFromDB != null && executeGoogleRequest(calendarService.calendars().get(planItCalendarIdFromDB)) != null) {
                 return planItCalendarIdFromDB;
             }
-        } catch (IOException | GeneralSecurityException ignored) {
-            // if we end up in here, then calendar was deleted by the user...
+        } catch (GoogleJsonResponseException e) {
+            // if we end up in here with 404/410, then calendar was deleted by the user...
+            if (e.getStatusCode() != HttpStatus.NOT_FOUND.value() && e.getStatusCode() != HttpStatus.GONE.value()) {
+                throw new RuntimeException(e);
+            }
+        } catch (IOException | GeneralSecurityException e) {
+            // a timeout does not mean the calendar was deleted, so a second PlanIt calendar is not created
+            throw new RuntimeException(e);
         }
 
         // else {
@@ -486,418 +1426,208 @@ public class CalendarEngine {
         com.google.api.services.calendar.model.Calendar createdCalendar;
         try {
             validateAccessToken(user);
-            createdCalendar = calendarService.calendars().insert(calendar).execute();
+            createdCalendar = executeGoogleRequest(calendarService.calendars().insert(calendar));
         } catch (IOException | GeneralSecurityException e) {
             throw new RuntimeException(e);
         }
 
         planItCalendarID = createdCalendar.getId();
         user.setPlanItCalendarID(planItCalendarID);
-        userRepo.save(user);
+        userStateWriteBuffer.setPlanItCalendarID(user.getEmail(), planItCalendarID);
 
         return planItCalendarID;
     }
 
 
     /**
-     * calculates the proportions of the courses that the user has.
-     * for each course, the proportion is determined by a double (e.g. 0.995 is 99.5%)
+     * updates the PlanIt calendar with the new sessions list.
+     * clears the calendar and create new Google {@link Event} for each study session
      *
-     * @param exams a list of {@link Exam} that represents the exams that the user have
-     * @return a map of string to double that represents the course names and their proportion
+     * @param sessionsList     a list of {@link StudySession} that represents the user's study sessions
+     * @param service          the Google's {@link Calendar} service
+     * @param planItCalendarID the calendar ID of the PlanIt calendar in the user's calendar list
+     * @return the events of the PlanIt calendar after the update (the old events that were kept + the inserted events)
      */
-    private static Map<Exam, Double> getExamsProportions(List<Exam> exams) {
-
-        Map<Exam, Integer> exam2TotalValue = new HashMap<>();
-        int sumTotalValues = 0;
-        Map<Exam, Double> exam2Proportion = new HashMap<>();
-
-        for (Exam exam : exams) {
-
-            Course currentCourse = exam.getCourse();
+    private List<Event> updatePlanItCalendar(List<StudySession> sessionsList, Calendar service, String planItCalendarID, List<Event> planItCalendarOldEvents, User user) throws GeneralSecurityException {
 
-            // gets the total value of the course ( credits + difficulty level + recommended study time)
-            int currentCourseTotalValue = currentCourse.getCredits() + currentCourse.getDifficultyLevel() + currentCourse.getRecommendedStudyTime();
+        // the diff removes the unchanged sessions from the sessions list
+        List<Event> overlapsOldEvents = diffPlanItCalendar(sessionsList, planItCalendarOldEvents);
 
-            // adds the exam to the map of total values
-            exam2TotalValue.put(exam, currentCourseTotalValue);
-            sumTotalValues += currentCourseTotalValue;
-        }
-
-        for (Map.Entry<Exam, Integer> examTotalValueMapEntry : exam2TotalValue.entrySet()) {
-            Exam currentExam = examTotalValueMapEntry.getKey();
-            int currentExamTotalValue = examTotalValueMapEntry.getValue();
-
-            // calculates the percentage of the exam's value
-            double currentExamProportion = ((double) currentExamTotalValue / (double) sumTotalValues);
-
-            // adds the exam to the map of proportions
-            exam2Proportion.put(currentExam, currentExamProportion);
-        }
+        // the old events that are not deleted stay in the PlanIt calendar
+        List<Event> planItCalendarEvents = getKeptEvents(planItCalendarOldEvents, overlapsOldEvents);
 
-        return exam2Proportion;
+        planItCalendarEvents.addAll(writePlanItCalendar(service, planItCalendarID, overlapsOldEvents, toNewPlanItEvents(sessionsList), user));
+        return planItCalendarEvents;
     }
 
     /**
-     * separate the free time slots to study sessions.
+     * finds the writes that turn the old events of the PlanIt calendar into the new sessions.
+     * the sessions that are already in the PlanIt calendar (the same time, course and description) are removed from the sessions list.
      *
-     * @param user          use for get user preferences.
-     * @param freeTimeSlots have all the free time slots.
-     * @return list of study session
-     */
-    private static List<StudySession> separateSlotsToSessions(User user, List<TimeSlot> freeTimeSlots) {
-
-        List<StudySession> listOfStudySessions = new ArrayList<>();
-        long breakTime = user.getUserPreferences().getUserBreakTime();
-        int studyTimeInMinutes = user.getUserPreferences().getStudySessionTime();
-
-        // go through the slots list
-        for (TimeSlot timeSlot : freeTimeSlots) {
-            // initial the startOfSession and endOfSession.
-            // the sessions are rounded to 15 minutes intervals
-            Instant startOfSession = roundInstantMinutesTime(Instant.ofEpochMilli(timeSlot.getStart().getValue()), true);
-            Instant endOfSession = startOfSession.plus(studyTimeInMinutes, ChronoUnit.MINUTES);
-
-            // while "endOfSession" is in the range of the slot
-            while (endOfSession.toEpochMilli() <= timeSlot.getEnd().getValue()) {
-                // add the current study session to the list
-                listOfStudySessions.add(new StudySession(new DateTime(startOfSession.toEpochMilli()), new DateTime(endOfSession.toEpochMilli())));
-                // add to the endOfSession the break time
-                endOfSession = endOfSession.plus(breakTime, ChronoUnit.MINUTES);
-                // initial the new startOfSession and endOfSession.
-                startOfSession = endOfSession;
-                endOfSession = startOfSession.plus(studyTimeInMinutes, ChronoUnit.MINUTES);
-            }
+     * @return the old events to delete from the PlanIt calendar
+     */
+    private List<Event> diffPlanItCalendar(List<StudySession> sessionsList, List<Event> planItCalendarOldEvents) {
 
-            // if the "startOfSession" is in the range and the "endOfSession" is out of range,
-            // adds the session from "startOfSession" to the end of range.
-            if (startOfSession.toEpochMilli() < timeSlot.getEnd().getValue()
-                    && timeSlot.getEnd().getValue() - startOfSession.toEpochMilli() >= (long) studyTimeInMinutes * MINUTES_TO_MILLIS) {
-                Instant endOfSlot = roundInstantMinutesTime(Instant.ofEpochMilli(timeSlot.getEnd().getValue()), false);
-                listOfStudySessions.add(new StudySession(new DateTime(startOfSession.toEpochMilli()), new DateTime(endOfSlot.toEpochMilli())));
-            }
-        }
+        // the diff removes the unchanged sessions from the sessions list, so its input size is taken before it
+        EngineMetrics.StageTimer stageTimer = engineMetrics.startStage(EngineMetrics.Stage.DIFF);
+        int diffInputSize = sessionsList.size() + planItCalendarOldEvents.size();
+        List<Event> overlapsOldEvents = PlanningEngine.getOverlapOldEventsPlanItCalendar(sessionsList, planItCalendarOldEvents);
+        stageTimer.stop(diffInputSize);
 
-        return listOfStudySessions;
+        return overlapsOldEvents;
     }
 
     /**
-     * for every session, calculates the number of sessions, considering the proportions and the number of total sessions.
-     * for each course X, the number of sessions is calculated as a rounded value of: (number of sessions * proportions of course X)
-     *
-     * @param exam2Proportions a map that contains values of proportions for each exam
-     * @param numOfSessions    the number of sessions available
-     * @return a map of string to int that represents, for each course name, the number of sessions
+     * @return the old events of the PlanIt calendar, without the deleted events
      */
-    private static Map<Exam, Integer> distributeNumberOfSessionsToCourses(Map<Exam, Double> exam2Proportions, int numOfSessions) {
-        Map<Exam, Integer> exams2numberOfSessions = new HashMap<>();
-
-        for (Map.Entry<Exam, Double> examProportionMapEntry : exam2Proportions.entrySet()) {
-            Exam exam = examProportionMapEntry.getKey();
-            Double proportion = examProportionMapEntry.getValue();
-
-            // gets the number of sessions for the current exam
-            Integer numberOfSessionForCurrentExam = (int) Math.round(numOfSessions * proportion);
-
-            // adds the number of sessions to the map
-            exams2numberOfSessions.put(exam, numberOfSessionForCurrentExam);
-        }
-
-        return exams2numberOfSessions;
+    private static List<Event> getKeptEvents(List<Event> planItCalendarOldEvents, List<Event> deletedEvents) {
+        Set<Event> deletedEventsSet = Collections.newSetFromMap(new IdentityHashMap<>());
+        deletedEventsSet.addAll(deletedEvents);
+        List<Event> keptEvents = new ArrayList<>(planItCalendarOldEvents);
+        keptEvents.removeIf(deletedEventsSet::contains);
 
+        return keptEvents;
     }
 
     /**
-     * embeds the details (courses' names and subjects) in the user's sessions list.
-     * embeds the courses considering exams' dates, courses' proportions, and information about courses subjects
+     * deletes the old events and inserts the new events to the PlanIt calendar, in batches that run in parallel
      *
-     * @param exams2numberOfSessions a map of string to int that represents, for each course name, the required number of sessions
-     * @param sessionsList           a list of {@link StudySession} that represents the user's created study sessions
-     * @param exams                  a list of {@link Exam} that represents the user's exams
+     * @param eventsToDelete the events to delete (only their IDs are used)
+     * @param eventsToInsert the events to insert
+     * @return the inserted events, with their IDs
      */
-    private static void embedCoursesInSessions(Map<Exam, Integer> exams2numberOfSessions, List<StudySession> sessionsList, List<Exam> exams) {
+    private List<Event> writePlanItCalendar(Calendar service, String planItCalendarID, List<Event> eventsToDelete, List<Event> eventsToInsert, User user) throws GeneralSecurityException {
+        EngineMetrics.StageTimer stageTimer = engineMetrics.startStage(EngineMetrics.Stage.WRITE);
 
-        // represents each exam with a unique index identifier.
-        Map<Exam, Integer> exam2Index = new HashMap<>();
-        for (int i = 0; i < exams.size(); i++) {
-            exam2Index.put(exams.get(i), i);
+        // the writes are sent in batches, that run in parallel
+        List<GoogleIoExecutor.Task<List<Event>>> deleteTasks = new ArrayList<>();
+        for (List<Event> batch : toBatches(eventsToDelete)) {
+            deleteTasks.add(() -> {
+                validateAccessToken(user);
+                for (Event eventToBeDeleted : batch) {
+                    // removes overlap events in the PlanIt calendar
+                    executeGoogleRequest(service.events().delete(planItCalendarID, eventToBeDeleted.getId()));
+                }
+                return batch;
+            });
         }
 
-        // embeds the courses' names in the sessions list
-        embedCoursesNamesInSessions(exams2numberOfSessions, sessionsList, exams);
-        // embeds the courses' subjects in the sessions list.
-        embedCoursesSubjectsInSessions(exam2Index, sessionsList, exams);
+        // add updated events to the PlanIt calendar
+        // each task goes through a batch of the events and adds them to the PlanIt calendar
+        List<GoogleIoExecutor.Task<List<Event>>> insertTasks = new ArrayList<>();
+        for (List<Event> batch : toBatches(eventsToInsert)) {
+            insertTasks.add(() -> {
+                validateAccessToken(user);
+                List<Event> insertedEvents = new ArrayList<>();
+                for (Event event : batch) {
+
+                    // inserts the new Google Event to the PlanIt calendar
+                    try {
+                        insertedEvents.add(executeGoogleRequest(service.events().insert(planItCalendarID, event)));
+                    } catch (GoogleJsonResponseException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+                return insertedEvents;
+            });
+        }
 
+        List<Event> insertedEvents = new ArrayList<>();
+        try {
+            googleIoExecutor.invokeAll(deleteTasks);
+            googleIoExecutor.invokeAll(insertTasks).forEach(insertedEvents::addAll);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        stageTimer.stop(eventsToDelete.size() + eventsToInsert.size());
 
+        return insertedEvents;
     }
 
     /**
-     * embeds the courses names in the sessions, considering the exams dates and the number of sessions required for each course.
-     *
-     * @param exams2numberOfSessions a map of string to int that represents, for each course name, the required number of sessions
-     * @param sessionsList           a list of {@link StudySession} that represents the user's created study sessions
-     * @param exams                  a list of {@link Exam} that represents the user's exams
+     * @return the Google {@link Event}s of the study sessions, as they are written to the PlanIt calendar (without IDs)
      */
-    private static void embedCoursesNamesInSessions(Map<Exam, Integer> exams2numberOfSessions, List<StudySession> sessionsList, List<Exam> exams) {
-
-        Stack<Exam> nextExams = new Stack<>();
-        int currentExamIndex = exams.size() - 1;
-
-        // initiate the set with the last dated exam in the exams period
-        nextExams.push(exams.get(currentExamIndex));
-        currentExamIndex--;
-
-        // goes through the sessions from the end to the start
-        for (int i = sessionsList.size() - 1; i >= 0; i--) {
-
-            // if the current session starts before the following exam to be seen
-            // e.g. if 08:00-10:00 of 09/07 is before the 10/07
-            if (currentExamIndex > -1 && sessionsList.get(i).getStart().getValue() < exams.get(currentExamIndex).getDateTime().getValue()) {
-                nextExams.push(exams.get(currentExamIndex));
-                currentExamIndex--;
-            }
-
-            /* checks if the nextExams stack is empty.
-               if empty, removes the next sessions from the sessionsList,
-               until we reach the next exam */
-            if (nextExams.isEmpty()) {
-                sessionsList.remove(i);
-                continue;
-            }
-
-            // sets the session to be associated with the exam that is the closest to the session
-            sessionsList.get(i).setCourseName(nextExams.peek().getCourse().getCourseName());
-            sessionsList.get(i).setExamToStudyFor(nextExams.peek());
-
-            // extract course name and sessions-count values
-            Exam exam = nextExams.peek();
-            int numOfSessionsPerExam = exams2numberOfSessions.get(nextExams.peek());
+    private static List<Event> toNewPlanItEvents(List<StudySession> sessionsList) {
+        List<Event> planItEvents = new ArrayList<>();
 
-            // update session count value and save new value to the map
-            numOfSessionsPerExam -= 1;
-
-            if (numOfSessionsPerExam != 0) { // if there are more session left to insert, updates the value in the map
-                exams2numberOfSessions.put(exam, numOfSessionsPerExam);
-            } else { // if no more sessions left to insert, removes exam from stack
-                nextExams.pop();
-            }
+        for (StudySession session : sessionsList) {
+            planItEvents.add(createPlanItEvent(Constants.EVENT_SUMMERY_PREFIX + session.getCourseName(), session.getDescription(), session.getStart(), session.getEnd()));
         }
+
+        return planItEvents;
     }
 
     /**
-     * embeds the courses subjects in the sessions, assuming all the sessions have been embedded with courses names.
-     *
-     * @param exams2IndexInListOfExams a map of string to int, representing for each course name, a unique index that is helpful for identifying the course in an internal array
-     * @param sessionsList             a list of {@link StudySession} that represent the user's created study sessions
-     * @param exams                    a list of a {@link Exam} that represents the user's exams
+     * @return the list, split into batches of writeBatchSize elements (the last batch may be smaller)
      */
-    private static void embedCoursesSubjectsInSessions(Map<Exam, Integer> exams2IndexInListOfExams, List<StudySession> sessionsList, List<Exam> exams) {
-
-        // create list of a list of study-sessions to make insertion of subjects easier later.
-        List<List<StudySession>> listOfListOfStudySessions = new ArrayList<>();
-        for (Exam ignored : exams) {
-            listOfListOfStudySessions.add(new ArrayList<>());
-        }
-
-        // run through the sessions list and initialize the list of lists
-        for (StudySession session : sessionsList) {
-
-            int examIndexInListOfLists = exams2IndexInListOfExams.get(session.getExamToStudyFor());
-            listOfListOfStudySessions.get(examIndexInListOfLists).add(session);
+    private <T> List<List<T>> toBatches(List<T> list) {
+        List<List<T>> batches = new ArrayList<>();
+        for (int i = 0; i < list.size(); i += settings.getWriteBatchSize()) {
+            batches.add(list.subList(i, Math.min(i + settings.getWriteBatchSize(), list.size())));
         }
 
+        return batches;
+    }
 
-        //  run through the list of lists and embed the subjects, for each session
-        for (int i = 0; i < exams.size(); i++) {
-
-            Exam currentExam = exams.get(i);
-
-            String[] subjects = currentExam.getCourse().getCourseSubjects(); // e.g ["עוצמות" ,"פונקציות"]
-            int numberOfSubjectsInCurrentExam = subjects.length;
-            int indexOfCurrentSubject = 0;
-
-            // presents the percentage for study the subject for the current exam.
-            double subjectsToExamsPracticeProportions = (currentExam.getCourse().getSubjectsPracticePercentage()) * 0.01; // e.g - 60% of 100%
-
-            List<StudySession> sessionsListOfCurrentExam = listOfListOfStudySessions.get(i);
-            int numberOfSessions = sessionsListOfCurrentExam.size();
-            int numberOfSessionsForSubjects = (int) Math.ceil(numberOfSessions * subjectsToExamsPracticeProportions);
-
-            double subjectsPerSession = (double) subjects.length / (double) numberOfSessionsForSubjects;
-            double subjectsPerSessionCounter = 0;
-            int nextSubjectsPerSessionInteger = 1;
-
-            // makes the subjectsPerSession an integer
-            if (subjectsPerSession >= 1) {
-                subjectsPerSession = Math.ceil(subjectsPerSession);
-            }
-
-
-            for (int j = 0; j < numberOfSessions; j++) {
-
-                if (numberOfSessionsForSubjects <= j) {
-                    // set "test" Description in the current session
-                    sessionsListOfCurrentExam.get(j).setDescription(EVENT_DESCRIPTION_PRACTISE_PREV_EXAMS);
-                } else {
-
-                    if (subjectsPerSession < 1) {
-                        // numOfSubjects < numOfSessions
-                        // each subject get more than one session.
-                        sessionsListOfCurrentExam.get(j).setDescription(subjects[indexOfCurrentSubject]);
-                        subjectsPerSessionCounter += subjectsPerSession;
-                        // we pass to the need subject.
-                        if ((int) subjectsPerSessionCounter == nextSubjectsPerSessionInteger) {
-                            indexOfCurrentSubject++;
-                            nextSubjectsPerSessionInteger++;
-                        }
-
-
-                    } else if (subjectsPerSession == 1) {
-                        // numOfSubjects = numOfSessions
-                        // each subject gets one session
-                        sessionsListOfCurrentExam.get(j).setDescription(subjects[indexOfCurrentSubject]);
-                        indexOfCurrentSubject++;
-
-                    } else if (subjectsPerSession > 1) {
-                        // numOfSubjects > numOfSessions
-                        // each session get more than one subject.
-                        int k;
-                        StringBuilder subjectsToStudyBuilder = new StringBuilder();
-
-                        // inserts the next few subjects in the new session
-                        for (k = 0; k < subjectsPerSession && indexOfCurrentSubject + k < subjects.length; k++) {
-                            if (k != 0) {
-                                subjectsToStudyBuilder.append(" , ");
-                            }
-                            subjectsToStudyBuilder.append(subjects[indexOfCurrentSubject + k]);
-                        }
-                        sessionsListOfCurrentExam.get(j).setDescription(subjectsToStudyBuilder.toString());
-                        indexOfCurrentSubject += k;
-                    }
-                }
-
-
-                /*
-
-                sessions      subjects            Math.ceil( subjects/sessions )        ordering
-                  3              5                             2                        2, 2, 1
-                  2              10                            5                        5, 5
-                  4              15                            4                        4, 4, 4, 3
-                  5              5                             1                        1,1,1,1,1
-                  10             2                             0.2                      0.5, 0.5 0.5, 0.5 0.5, 0.5 0.5, 0.5 0.5, 0.5
-
-                 */
-
-
-            }
-        }
+    /**
+     * creates a Google {@link Event} of a study session, as it is written to the PlanIt calendar
+     */
+    private static Event createPlanItEvent(String summary, String description, DateTime start, DateTime end) {
+        return new Event()
+                .setSummary(summary)
+                .setDescription(description)
+                .setStart(new EventDateTime()
+                        .setDateTime(start)
+                        .setTimeZone(ISRAEL_TIME_ZONE))
+                .setEnd(new EventDateTime()
+                        .setDateTime(end)
+                        .setTimeZone(ISRAEL_TIME_ZONE));
     }
 
     /**
-     * updates the PlanIt calendar with the new sessions list.
-     * clears the calendar and create new Google {@link Event} for each study session
+     * converts the sessions of a stored plan to the Google {@link Event}s they were written as
      *
-     * @param sessionsList     a list of {@link StudySession} that represents the user's study sessions
-     * @param service          the Google's {@link Calendar} service
-     * @param planItCalendarID the calendar ID of the PlanIt calendar in the user's calendar list
+     * @param plannedSessions the sessions of the stored plan
+     * @return a list of {@link Event} that represents the events of the PlanIt calendar
      */
-    private void updatePlanItCalendar(List<StudySession> sessionsList, Calendar service, String planItCalendarID, List<Event> planItCalendarOldEvents, User user) throws GeneralSecurityException {
-
-        List<Event> overlapsOldEvents = getOverlapOldEventsPlanItCalendar(sessionsList, planItCalendarOldEvents);
-
-        for (Event eventToBeDeleted : overlapsOldEvents) {
-            try {
-                validateAccessToken(user);
-                // removes overlap events in the PlanIt calendar
-                service.events().delete(planItCalendarID, eventToBeDeleted.getId()).execute();
+    private static List<Event> toPlanItEvents(List<PlannedSession> plannedSessions) {
+        List<Event> planItEvents = new ArrayList<>();
 
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
+        for (PlannedSession plannedSession : plannedSessions) {
+            planItEvents.add(createPlanItEvent(plannedSession.getSummary(), plannedSession.getDescription(),
+                    new DateTime(plannedSession.getStartInMilliseconds()), new DateTime(plannedSession.getEndInMilliseconds()))
+                    .setId(plannedSession.getEventID()));
         }
 
-        // add updated events to the PlanIt calendar
-        // this loop goes through the sessions and adds them to the PlanIt calendar
-        for (StudySession session : sessionsList) {
-
-            // creates a new Google Event
-            Event event = new Event()
-                    .setSummary(Constants.EVENT_SUMMERY_PREFIX + session.getCourseName())
-                    .setDescription(session.getDescription())
-                    .setStart(new EventDateTime()
-                            .setDateTime(session.getStart())
-                            .setTimeZone(ISRAEL_TIME_ZONE))
-                    .setEnd(new EventDateTime()
-                            .setDateTime(session.getEnd())
-                            .setTimeZone(ISRAEL_TIME_ZONE));
-
-            // inserts the new Google Event to the PlanIt calendar
-            try {
-                validateAccessToken(user);
-                service.events().insert(planItCalendarID, event).execute();
-
-            } catch (GoogleJsonResponseException e) {
-                System.out.println(e.getDetails());
-                System.out.println(e.getStatusCode());
-                System.out.println(e.getMessage());
-                throw new RuntimeException();
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
-        }
+        return planItEvents;
     }
 
     /**
-     * finds all the overlapping events from the old PlanIt calendar (from previous generating processes).
-     * the new generated sessions are compared to the old generated events.
+     * converts the events of the PlanIt calendar to sessions that can be stored in a plan
      *
-     * @param sessionsList            the new list of {@link StudySession} that about to be created as an events
-     * @param planItCalendarOldEvents the old list of {@link Event} that been created and to be checked if causing an overlap anywhere
-     * @return list of old {@link Event} from the PlanIt calendar that will later be deleted from the calendar.
-     */
-    private static List<Event> getOverlapOldEventsPlanItCalendar(List<StudySession> sessionsList, List<Event> planItCalendarOldEvents) {
-        List<Event> overlappingEvents = new ArrayList<>();
-        List<Integer> newSessionsIndicesToBeRemoved = new ArrayList<>();
-
-        int newSessionIndex = 0;
-        int oldEventIndex = 0;
-
-        while (newSessionIndex < sessionsList.size() && oldEventIndex < planItCalendarOldEvents.size()) {
-            StudySession newSession = sessionsList.get(newSessionIndex);
-            Event oldEvent = planItCalendarOldEvents.get(oldEventIndex);
-
-            if (newSession.getEnd().getValue() < (oldEvent.getStart().getDateTime().getValue())) {
-                // new event ends before old event starts, move to next new event
-                newSessionIndex++;
-            } else if (newSession.getStart().getValue() > (oldEvent.getEnd().getDateTime().getValue())) {
-                // new event starts after old event ends, move to next old event
-                oldEventIndex++;
-            } else if (newSession.getStart().equals(oldEvent.getStart().getDateTime())
-                    && newSession.getEnd().equals(oldEvent.getEnd().getDateTime())
-                    && (Constants.EVENT_SUMMERY_PREFIX + newSession.getCourseName()).equals(oldEvent.getSummary())
-                    && newSession.getDescription().equals(oldEvent.getDescription())) {
-                // overlap detected, but the new session is exactly the same as the old event,
-                // so add the index to the list of indices to be removed later
-                newSessionsIndicesToBeRemoved.add(newSessionIndex);
-                newSessionIndex++;
-                oldEventIndex++;
+     * @param planItEvents the events of the PlanIt calendar
+     * @return a list of {@link PlannedSession} to store in the plan, sorted by start time
+     */
+    private static List<PlannedSession> toPlannedSessions(List<Event> planItEvents) {
+        List<PlannedSession> plannedSessions = new ArrayList<>();
 
-            } else {
-                // overlap detected, add old event to list of overlapping events
-                overlappingEvents.add(oldEvent);
-                oldEventIndex++;
+        for (Event planItEvent : planItEvents) {
+            // ignores events that are not timed (e.g. a full day event the user added by himself)
+            if (planItEvent.getStart().getDateTime() == null) {
+                continue;
             }
 
-        }
-        // removes all the events that are duplicates from the sessions list
-        for (int i = newSessionsIndicesToBeRemoved.size() - 1; i >= 0; i--) {
-            sessionsList.remove(newSessionsIndicesToBeRemoved.get(i).intValue());
+            plannedSessions.add(new PlannedSession(planItEvent.getId(),
+                    planItEvent.getStart().getDateTime().getValue(),
+                    planItEvent.getEnd().getDateTime().getValue(),
+                    planItEvent.getSummary(),
+                    planItEvent.getDescription()));
         }
 
-        return overlappingEvents;
+        plannedSessions.sort(Comparator.comparingLong(PlannedSession::getStartInMilliseconds));
+        return plannedSessions;
     }
 
-
     /**
      * performs a scan on the user events and gather some information.
      * if no full day events found, performs generate PlanIt calendar
@@ -910,20 +1640,72 @@ public class CalendarEngine {
      * @throws GeneralSecurityException
      */
     public DTOscanResponseToController scanUserEvents(String email, String start, String end) throws IOException, GeneralSecurityException {
+        return withUser(email, GoogleApiUsageAccounting.Flow.SCAN, user -> scanUserEvents(user, start, end, courseRepo.findAll()))
+                .orElseGet(() -> new DTOscanResponseToController(false, Constants.ERROR_USER_NOT_FOUND, HttpStatus.UNAUTHORIZED, new ArrayList<>()));
+    }
 
+    /**
+     * runs a flow of a user: the user is read from the cache (with the changes that are not in the DB yet),
+     * the requests to Google are accounted to the user, and the changes to the user are in the DB before the response is sent.
+     *
+     * @param email the user's email
+     * @param flow  the flow the requests to Google are accounted to
+     * @param work  the flow on the user
+     * @return the result of the flow, or empty if the user is not found
+     * @throws IOException
+     * @throws GeneralSecurityException
+     */
+    private <T> Optional<T> withUser(String email, GoogleApiUsageAccounting.Flow flow, UserFlow<T> work) throws IOException, GeneralSecurityException {
 
         // check if user exist in DB
-        Optional<User> maybeUser = userRepo.findUserByEmail(email);
+        Optional<User> maybeUser = userCache.findUserByEmail(email).map(userStateWriteBuffer::applyTo);
         if (maybeUser.isEmpty()) {
-            return new DTOscanResponseToController(false, Constants.ERROR_USER_NOT_FOUND, HttpStatus.UNAUTHORIZED, new ArrayList<>());
+            return Optional.empty();
         }
 
-        // get instance of the user
-        User user = maybeUser.get();
+        try (GoogleApiUsageAccounting.Scope usageScope = googleApiUsageAccounting.startScope(email, flow)) {
+            return Optional.of(work.run(maybeUser.get()));
+        } finally {
+            userStateWriteBuffer.flush(email);
+        }
+    }
+
+    /**
+     * performs a scan on the events of a user that was already loaded from the DB.
+     * if no full day events found, performs generate PlanIt calendar.
+     * used by the bulk regeneration, which streams the users and shares one courses catalog between all of them.
+     *
+     * @param user    the user to scan
+     * @param start   the user's preferred start time to generate from (in ISO format)
+     * @param end     the user's preferred end time to generate to (in ISO format)
+     * @param courses the courses catalog that is used to detect the exams
+     * @return a {@link DTOscanResponseToController} represents the information that should be returned to the scan controller
+     * @throws IOException
+     * @throws GeneralSecurityException
+     */
+    public DTOscanResponseToController scanUserEvents(User user, String start, String end, List<Course> courses) throws IOException, GeneralSecurityException {
+
+        // the user was streamed from the DB, so it may miss changes that were not written yet
+        userStateWriteBuffer.applyTo(user);
 
         // 1# get List of user's events
         // perform a scan on the user's Calendar to get all of his events at the time interval
-        DTOuserCalendarsInformation userEvents = getUserCalendarsInformation(user, start, end);
+        DTOuserCalendarsInformation userEvents = getUserCalendarsInformation(user, start, end, courses);
+
+        return scanUserEvents(user, start, userEvents);
+    }
+
+    /**
+     * the part of the scan that comes after the events of the user were fetched (handles the full day events and generates the PlanIt calendar).
+     * shared by the blocking pipeline and the reactive pipeline.
+     *
+     * @param user       the user to scan
+     * @param start      the user's preferred start time to generate from (in ISO format)
+     * @param userEvents the events of the user, see {@link #toUserCalendarsInformation}
+     * @return a {@link DTOscanResponseToController} represents the information that should be returned to the scan controller
+     * @throws GeneralSecurityException
+     */
+    public DTOscanResponseToController scanUserEvents(User user, String start, DTOuserCalendarsInformation userEvents) throws GeneralSecurityException {
 
         // fullDayEvents - a list of events that represents the user's full day events
         List<Event> fullDayEvents = userEvents.getFullDayEvents();
@@ -942,8 +1724,11 @@ public class CalendarEngine {
 
         if (fullDayEvents.size() != 0) {
 
+            EngineMetrics.StageTimer stageTimer = engineMetrics.startStage(EngineMetrics.Stage.HOLIDAYS_HANDLING);
+            int numberOfFullDayEvents = fullDayEvents.size();
             fullDayEvents = HolidaysEngine.handleHolidaysInFullDaysEvents(fullDayEvents, events
                     , user.getUserPreferences().isStudyOnHolyDays(), holidaysDatesCurrentYear, holidaysDatesNextYear);
+            stageTimer.stop(numberOfFullDayEvents);
 
             // after we delete all the event we can. we send the rest of the fullDayEvents we don`t know how to handle.
             if (fullDayEvents.size() != 0) {
@@ -954,8 +1739,11 @@ public class CalendarEngine {
 
         }
 
-        generatePlanItCalendar(events, userEvents.getExamsFound(), maybeUser.get(), userEvents.getCalendarService(), start, planItCalendarOldEvents);
+        boolean isPlanGenerated = generatePlanItCalendar(events, userEvents.getExamsFound(), user, userEvents.getCalendarService(), start, planItCalendarOldEvents, userEvents.getPlan());
 
+        if (!isPlanGenerated) {
+            return new DTOscanResponseToController(true, Constants.PLAN_IS_UP_TO_DATE, HttpStatus.OK, new ArrayList<>());
+        }
 
         return new DTOscanResponseToController(true, Constants.NO_PROBLEM, HttpStatus.CREATED, new ArrayList<>());
 
@@ -974,35 +1762,60 @@ public class CalendarEngine {
      * @throws GeneralSecurityException
      */
     public DTOgenerateResponseToController generateStudyEvents(String email, String start, String end, boolean[] userDecisions) throws IOException, GeneralSecurityException {
+        return withUser(email, GoogleApiUsageAccounting.Flow.GENERATE, user -> generateStudyEvents(user, start, end, userDecisions))
+                .orElseGet(() -> new DTOgenerateResponseToController(false, ERROR_USER_NOT_FOUND, HttpStatus.UNAUTHORIZED));
+    }
 
+    /**
+     * performs a scan on the events of a user that was already loaded from the DB, and then generates the PlanIt calendar
+     * after handling full days events' user's decisions
+     */
+    private DTOgenerateResponseToController generateStudyEvents(User user, String start, String end, boolean[] userDecisions) throws IOException, GeneralSecurityException {
 
-        // check if user exist in DB
-        Optional<User> maybeUser = userRepo.findUserByEmail(email);
-        if (maybeUser.isEmpty()) {
-            return new DTOgenerateResponseToController(false, ERROR_USER_NOT_FOUND, HttpStatus.UNAUTHORIZED);
+        // 1# get List of user's events
+        // perform a scan on the user's Calendar to get all of his events at the time interval
+        DTOuserCalendarsInformation userEvents = getUserCalendarsInformation(user, start, end, courseRepo.findAll());
+
+        // planItCalendarOldEvents - a list of PlanIt calendar old events
+        List<Event> planItCalendarOldEvents = userEvents.getPlanItCalendarOldEvents();
+
+        // events - a list of events that represents all the user's events, without the full day events the user wants to study at
+        List<Event> events = getEventsWithUserDecisions(user, userEvents, userDecisions);
+
+        // 2# 3# 4# 5#
+        boolean isPlanGenerated = generatePlanItCalendar(events, userEvents.getExamsFound(), user, userEvents.getCalendarService(), start, planItCalendarOldEvents, userEvents.getPlan());
+
+        if (!isPlanGenerated) {
+            return new DTOgenerateResponseToController(true, Constants.PLAN_IS_UP_TO_DATE, HttpStatus.OK);
         }
 
-        // get instance of the user
-        User user = maybeUser.get();
+        return new DTOgenerateResponseToController(true, Constants.NO_PROBLEM, HttpStatus.CREATED);
 
-        // 1# get List of user's events
-        // perform a scan on the user's Calendar to get all of his events at the time interval
-        DTOuserCalendarsInformation userEvents = getUserCalendarsInformation(user, start, end);
+    }
+
+    /**
+     * handles the full day events of the user: the holidays by the user's preferences, and the rest by the user's decisions
+     *
+     * @param userEvents    the events of the user, see {@link #toUserCalendarsInformation}
+     * @param userDecisions an array of boolean that represents the full day events' user's decisions
+     * @return the events of the user, without the full day events that the user wants to study at
+     */
+    private List<Event> getEventsWithUserDecisions(User user, DTOuserCalendarsInformation userEvents, boolean[] userDecisions) {
 
         // fullDayEvents - a list of events that represents the user's full day events
         List<Event> fullDayEvents = userEvents.getFullDayEvents();
 
-        // planItCalendarOldEvents - a list of PlanIt calendar old events
-        List<Event> planItCalendarOldEvents = userEvents.getPlanItCalendarOldEvents();
-
         // events - a list of events that represents all the user's events
         List<Event> events = userEvents.getEvents();
 
         // check if fullDayEvents List is empty (which doesn't suppose to be)
         if (fullDayEvents.size() != 0) {
 
+            EngineMetrics.StageTimer stageTimer = engineMetrics.startStage(EngineMetrics.Stage.HOLIDAYS_HANDLING);
+            int numberOfFullDayEvents = fullDayEvents.size();
             fullDayEvents = HolidaysEngine.handleHolidaysInFullDaysEvents(fullDayEvents, events
                     , user.getUserPreferences().isStudyOnHolyDays(), holidaysDatesCurrentYear, holidaysDatesNextYear);
+            stageTimer.stop(numberOfFullDayEvents);
 
             // go through the list
             for (int i = 0; i < fullDayEvents.size(); i++) {
@@ -1017,74 +1830,221 @@ public class CalendarEngine {
             }
         }
 
-        // 2# 3# 4# 5#
-        generatePlanItCalendar(events, userEvents.getExamsFound(), maybeUser.get(), userEvents.getCalendarService(), start, planItCalendarOldEvents);
-
-        return new DTOgenerateResponseToController(true, Constants.NO_PROBLEM, HttpStatus.CREATED);
+        return events;
+    }
 
+    /**
+     * generates a plan like {@link #generateStudyEvents} does, but only reads from Google: the plan and its diff from the PlanIt calendar
+     * are stored as a preview, that can be committed (see {@link #commitPreviewedPlan}) until it expires.
+     * so the user can try a few preferences without the writes (and the write quota) of a generation for each of them.
+     *
+     * @param email         the user's email
+     * @param start         the user's preferred start time to generate from (in ISO format)
+     * @param end           the user's preferred end time to generate to (in ISO format)
+     * @param userDecisions an array of boolean that represents the full day events' user's decisions
+     * @return a {@link DTOpreviewResponseToController} with the sessions of the plan, and the number of sessions the commit inserts and deletes
+     * @throws IOException
+     * @throws GeneralSecurityException
+     */
+    public DTOpreviewResponseToController previewStudyEvents(String email, String start, String end, boolean[] userDecisions) throws IOException, GeneralSecurityException {
+        return withUser(email, GoogleApiUsageAccounting.Flow.PREVIEW, user -> previewStudyEvents(user, start, end, userDecisions))
+                .orElseGet(() -> new DTOpreviewResponseToController(false, ERROR_USER_NOT_FOUND, HttpStatus.UNAUTHORIZED, null, 0, new ArrayList<>(), 0, 0));
     }
-}
 
-/*
+    private DTOpreviewResponseToController previewStudyEvents(User user, String start, String end, boolean[] userDecisions) throws IOException, GeneralSecurityException {
+        DTOuserCalendarsInformation userEvents = getUserCalendarsInformation(user, start, end, courseRepo.findAll());
+        List<Event> events = getEventsWithUserDecisions(user, userEvents, userDecisions);
+        List<Exam> exams = userEvents.getExamsFound();
+        Plan plan = userEvents.getPlan();
+        List<Event> planItCalendarOldEvents = userEvents.getPlanItCalendarOldEvents();
+
+        // nothing changed since the last plan, so there is nothing to commit
+        List<BusyInterval> busyIntervals = toBusyIntervals(events);
+        String baseInputsFingerprint = calculateBaseInputsFingerprint(exams, user, start);
+        if (calculatePlanInputsFingerprint(baseInputsFingerprint, busyIntervals, planItCalendarOldEvents).equals(plan.getInputsFingerprint())) {
+            return new DTOpreviewResponseToController(true, Constants.PLAN_IS_UP_TO_DATE, HttpStatus.OK, null, 0,
+                    Objects.requireNonNullElse(plan.getSessions(), new ArrayList<>()), 0, 0);
+        }
+
+        // the preview is always of a full generation (the commit does not repair the plan incrementally)
+        List<StudySession> sessionsList = planStudySessions(events, exams, user, start);
+
+        // the PlanIt calendar is not created by the preview, the diff is from the PlanIt calendar the user has now
+        String planItCalendarID = user.getPlanItCalendarID();
+        if (plan.getSessions() != null && !Objects.equals(planItCalendarID, plan.getPlanItCalendarID())) {
+            planItCalendarOldEvents = new ArrayList<>();
+        }
+
+        List<Event> overlapsOldEvents = diffPlanItCalendar(sessionsList, planItCalendarOldEvents);
+        List<Event> planItCalendarEvents = getKeptEvents(planItCalendarOldEvents, overlapsOldEvents);
+        planItCalendarEvents.addAll(toNewPlanItEvents(sessionsList));
 
-<string, int>
-<name, show>
+        long expiresAtInMilliseconds = System.currentTimeMillis() + settings.getPlanPreviewTtlInMillis();
+        PlanPreview planPreview = planPreviewRepo.save(new PlanPreview(user.getEmail(), plan, planItCalendarID, baseInputsFingerprint, busyIntervals,
+                toPlannedSessions(planItCalendarEvents), overlapsOldEvents.stream().map(Event::getId).toList(), new Date(expiresAtInMilliseconds)));
+
+        return new DTOpreviewResponseToController(true, Constants.PLAN_PREVIEWED, HttpStatus.OK, planPreview.getId(), expiresAtInMilliseconds,
+                planPreview.getSessions(), sessionsList.size(), overlapsOldEvents.size());
+    }
 
+    /**
+     * writes a previewed plan to the PlanIt calendar: exactly the inserts and deletes of the preview, the events of the user are not read again.
+     * the preview is rejected if it expired, or if the plan of the user changed since it (e.g. another generation or commit).
+     *
+     * @param email     the user's email
+     * @param previewID the ID of the preview, see {@link #previewStudyEvents}
+     * @return a {@link DTOgenerateResponseToController} represents the information that should be returned to the controller
+     * @throws IOException
+     * @throws GeneralSecurityException
+     */
+    public DTOgenerateResponseToController commitPreviewedPlan(String email, String previewID) throws IOException, GeneralSecurityException {
+        return withUser(email, GoogleApiUsageAccounting.Flow.GENERATE, user -> {
+
+            // the expired previews are deleted by the DB only once a minute, so the expiration is checked here too
+            Optional<PlanPreview> maybePlanPreview = planPreviewRepo.findById(previewID)
+                    .filter(planPreview -> planPreview.getEmail().equals(email) && planPreview.getExpiresAt().getTime() > System.currentTimeMillis());
+            if (maybePlanPreview.isEmpty()) {
+                return new DTOgenerateResponseToController(false, ERROR_PREVIEW_NOT_FOUND, HttpStatus.NOT_FOUND);
+            }
 
-Priority Queue:    [           B   C           ]
+            return commitPreviewedPlan(user, maybePlanPreview.get());
+        }).orElseGet(() -> new DTOgenerateResponseToController(false, ERROR_USER_NOT_FOUND, HttpStatus.UNAUTHORIZED));
+    }
 
-name      show     priority
-C          5       First
+    /**
+     * generates a plan like {@link #generateStudyEvents} does, but only reads from Google, for the users that import the plan
+     * into another calendar app (see {@link com.example.planit.engine.ics.ICalendarWriter}) instead of a PlanIt calendar.
+     * the plan is not stored, since it was not written to the PlanIt calendar.
+     *
+     * @param email         the user's email
+     * @param start         the user's preferred start time to generate from (in ISO format)
+     * @param end           the user's preferred end time to generate to (in ISO format)
+     * @param userDecisions an array of boolean that represents the full day events' user's decisions
+     * @return a {@link DTOexportResponseToController} with the sessions of the plan
+     * @throws IOException
+     * @throws GeneralSecurityException
+     */
+    public DTOexportResponseToController exportStudyEvents(String email, String start, String end, boolean[] userDecisions) throws IOException, GeneralSecurityException {
+        return withUser(email, GoogleApiUsageAccounting.Flow.EXPORT, user -> {
+            DTOuserCalendarsInformation userEvents = getUserCalendarsInformation(user, start, end, courseRepo.findAll());
+            List<Event> events = getEventsWithUserDecisions(user, userEvents, userDecisions);
+            List<StudySession> sessionsList = planStudySessions(events, userEvents.getExamsFound(), user, start);
+
+            return new DTOexportResponseToController(true, Constants.PLAN_EXPORTED, HttpStatus.OK,
+                    toPlannedSessions(toNewPlanItEvents(sessionsList)), System.currentTimeMillis(), null);
+        }).orElseGet(() -> new DTOexportResponseToController(false, ERROR_USER_NOT_FOUND, HttpStatus.UNAUTHORIZED, new ArrayList<>(), 0, null));
+    }
 
+    /**
+     * creates a new token for the subscription URL of the plan of the user. the previous token of the user (if any) stops working.
+     *
+     * @param email the user's email
+     * @return a {@link DTOsubscriptionResponseToController} with the new token, UNAUTHORIZED if the user is not found
+     */
+    public DTOsubscriptionResponseToController createSubscriptionToken(String email) {
+        byte[] randomBytes = new byte[SUBSCRIPTION_TOKEN_BYTES];
+        SECURE_RANDOM.nextBytes(randomBytes);
+        String subscriptionToken = Base64.getUrlEncoder().withoutPadding().encodeToString(randomBytes);
 
-[A][A][A][ ][ ][ ][ ][ ][ ][ ][ ][ ][ ][ ][ ]testA[C][B][B][B]testB[C][C][C][C]testC
-               {A,B,C}
-                1 2 3
+        if (!userRepo.setSubscriptionToken(email, subscriptionToken)) {
+            return new DTOsubscriptionResponseToController(false, ERROR_USER_NOT_FOUND, HttpStatus.UNAUTHORIZED, null);
+        }
 
+        return new DTOsubscriptionResponseToController(true, SUBSCRIPTION_TOKEN_CREATED, HttpStatus.OK, subscriptionToken);
+    }
 
+    /**
+     * revokes the token of the subscription URL of the plan of the user, so the plan is not served by any URL until a new token is created.
+     *
+     * @param email the user's email
+     * @return a {@link DTOsubscriptionResponseToController} without a token, UNAUTHORIZED if the user is not found
+     */
+    public DTOsubscriptionResponseToController revokeSubscriptionToken(String email) {
+        if (!userRepo.setSubscriptionToken(email, null)) {
+            return new DTOsubscriptionResponseToController(false, ERROR_USER_NOT_FOUND, HttpStatus.UNAUTHORIZED, null);
+        }
 
-[ ][ ][ ][ ][ ]testA[ ][ ][ ][ ][ ][ ][ ][ ][ ][ ][ ][ ][ ][ ][ ]testB
+        return new DTOsubscriptionResponseToController(true, SUBSCRIPTION_TOKEN_REVOKED, HttpStatus.OK, null);
+    }
 
-after embed the exam's course names we know, for each course:
- numOfSessions
- numOfSubjects
+    /**
+     * gets the stored plan of the user, to serve it to calendar apps that subscribed to it. it makes no request to Google.
+     * the ETag of the plan changes with every new plan, so a calendar app that polls gets the sessions only when the plan changed.
+     *
+     * @param subscriptionToken the token of the subscription URL of the user (see {@link #createSubscriptionToken(String)})
+     * @return a {@link DTOexportResponseToController} with the sessions of the stored plan, UNAUTHORIZED if the token is unknown or revoked,
+     * NOT_FOUND if the user has no plan yet
+     */
+    public DTOexportResponseToController getStoredStudyEvents(String subscriptionToken) {
 
- case1: numOfSessions > numOfSubjects
- - more than one subjects for each session.
+        // the token is looked up in the DB (and not in the cache of the users), so a revoked token stops working at once
+        Optional<User> maybeUser = userRepo.findEmailBySubscriptionToken(subscriptionToken);
+        if (maybeUser.isEmpty()) {
+            return new DTOexportResponseToController(false, ERROR_SUBSCRIPTION_TOKEN_NOT_FOUND, HttpStatus.UNAUTHORIZED, new ArrayList<>(), 0, null);
+        }
 
- case2: numOfSubjects < numOfSessions
- - each subject for more than one session.
+        Optional<Plan> maybePlan = planRepo.findPlanByEmail(maybeUser.get().getEmail()).filter(plan -> plan.getSessions() != null);
+        if (maybePlan.isEmpty()) {
+            return new DTOexportResponseToController(false, ERROR_PLAN_NOT_FOUND, HttpStatus.NOT_FOUND, new ArrayList<>(), 0, null);
+        }
 
- case3: numOfSubjects = numOfSessions
- - each subject gets one session
+        Plan plan = maybePlan.get();
+        String eTag = "\"" + plan.getInputsFingerprint() + "-" + Long.toHexString(plan.getGeneratedAtInMilliseconds()) + "\"";
 
+        return new DTOexportResponseToController(true, Constants.PLAN_EXPORTED, HttpStatus.OK, plan.getSessions(), plan.getGeneratedAtInMilliseconds(), eTag);
+    }
 
+    private DTOgenerateResponseToController commitPreviewedPlan(User user, PlanPreview planPreview) throws IOException, GeneralSecurityException {
+        Plan plan = planRepo.findPlanByEmail(user.getEmail()).orElseGet(() -> new Plan(user.getEmail()));
+        if (!planPreview.isOf(plan)) {
+            return new DTOgenerateResponseToController(false, ERROR_PREVIEW_IS_STALE, HttpStatus.CONFLICT);
+        }
 
+        validateAccessToken(user);
+        Calendar service = getCalendarService(user);
 
+        // creates PlanIt calendar if not yet exists
+        String planItCalendarID = createPlanItCalendar(service, user);
 
- CCCBBAAAAAAA testA - testB CCCCC testC
-    {A,B,C}               {B,C}          {C}
+        List<Event> keptEvents = new ArrayList<>();
+        List<Event> eventsToInsert = new ArrayList<>();
+        List<Event> eventsToDelete = new ArrayList<>();
+        for (PlannedSession session : planPreview.getSessions()) {
+            Event event = createPlanItEvent(session.getSummary(), session.getDescription(),
+                    new DateTime(session.getStartInMilliseconds()), new DateTime(session.getEndInMilliseconds()));
+            if (session.getEventID() != null && planItCalendarID.equals(planPreview.getPlanItCalendarID())) {
+                keptEvents.add(event.setId(session.getEventID()));
+            } else {
+                eventsToInsert.add(event);
+            }
+        }
 
-<<String, int>,       int>
-<<name,   difficult>, show>
-<-----------------------------------------------
-A   B   C
-3   3   5                Coman              OS &LINUX
-[A][A][A]testA[C][B][B][B]testB[C][C][C][C]testC
+        // the PlanIt calendar of the preview does not exist anymore (e.g. the user deleted it), so all the sessions are inserted to the new one
+        if (planItCalendarID.equals(planPreview.getPlanItCalendarID())) {
+            planPreview.getDeletedEventIDs().forEach(eventID -> eventsToDelete.add(new Event().setId(eventID)));
+        }
 
-A   B   C
-3   4   5
-[A][A][A]testA[B/C][B][B][B]testB[C][C][C][C]testC ?
+        Deadline.checkCurrent("the write to the PlanIt calendar");
+        List<Event> planItCalendarEvents = new ArrayList<>(keptEvents);
+        try {
+            planItCalendarEvents.addAll(writePlanItCalendar(service, planItCalendarID, eventsToDelete, eventsToInsert, user));
+        } catch (RuntimeException e) {
+            invalidatePlan(plan);
+            throw e;
+        }
 
-A   B   C
-4   2   6
-[A][A][A]testA[C][C][B][B]testB[C][C][C][C]testC
+        // saves the new plan, only after the PlanIt calendar is fully updated, and the preview can not be committed again
+        savePlan(plan, planItCalendarID, toPlannedSessions(planItCalendarEvents), planPreview.getBaseInputsFingerprint(), planPreview.getBusyIntervals());
+        planPreviewRepo.deleteById(planPreview.getId());
 
-A   B   C
-4   2   5
-[A][A][A]testA[ ][C][B][B]testB[C][C][C][C]testC ?
+        return new DTOgenerateResponseToController(true, Constants.NO_PROBLEM, HttpStatus.CREATED);
+    }
 
-A   B   C
-4   5   3
-[A][A][A]testA[B][B][B][B]testB[ ][C][C][C]testC
-* */
\ No newline at end of file
+    /**
+     * a flow of a user that was read by {@link #withUser}
+     */
+    @FunctionalInterface
+    private interface UserFlow<T> {
+        T run(User user) throws IOException, GeneralSecurityException;
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.planit.engine;
+
+import static com.example.planit.utill.defaults.Defaults.*;
+
+/**
+ * the settings of the {@link CalendarEngine}, each of them starts with its default (see Defaults) and is set by its planit.* property.
+ * <p>
+ * e.g. new CalendarEngineSettings().setClientCredentials(clientID, clientSecret).setWriteBatchSize(50)
+ */
+public class CalendarEngineSettings {
+
+    private String clientID;
+
+    private String clientSecret;
+
+    // true to move only the sessions that conflict with new busy time, instead of generating the plan from scratch
+    private boolean isIncrementalRepairEnabled = false;
+
+    private int maxRepairedSessions = DEFAULT_MAX_REPAIRED_SESSIONS;
+
+    // the root URL of the Google APIs, and the URL of the Google OAuth token server (can point to a fake Google for load tests)
+    private String googleRootUrl = DEFAULT_GOOGLE_ROOT_URL;
+
+    private String googleTokenServerUrl = DEFAULT_GOOGLE_TOKEN_SERVER_URL;
+
+    // the timeouts of each request to Google, a request with a deadline gets less if less time is left
+    private int googleConnectTimeoutInMillis = DEFAULT_GOOGLE_CONNECT_TIMEOUT_IN_MILLIS;
+
+    private int googleReadTimeoutInMillis = DEFAULT_GOOGLE_READ_TIMEOUT_IN_MILLIS;
+
+    // optional work (e.g. checking the PlanIt calendar still exists) is skipped when less time is left to the deadline
+    private long optionalWorkMinRemainingInMillis = DEFAULT_OPTIONAL_WORK_MIN_REMAINING_IN_MILLIS;
+
+    // the number of events that a single task writes to the PlanIt calendar
+    private int writeBatchSize = DEFAULT_WRITE_BATCH_SIZE;
+
+    // true to list the masters of the recurring events and expand them locally, false to list their instances from Google
+    private boolean isRecurringEventsExpandedLocally = false;
+
+    // an older exam index is not used by the scans, 0 disables the exam indexes
+    private long examIndexMaxAgeInMillis = DEFAULT_EXAM_INDEX_MAX_AGE_IN_MILLIS;
+
+    // a preview of a plan can be committed only until it expires
+    private long planPreviewTtlInMillis = DEFAULT_PLAN_PREVIEW_TTL_IN_MILLIS;
+
+    public String getClientID() {
+        return clientID;
+    }
+
+    public String getClientSecret() {
+        return clientSecret;
+    }
+
+    public CalendarEngineSettings setClientCredentials(String clientID, String clientSecret) {
+        this.clientID = clientID;
+        this.clientSecret = clientSecret;
+        return this;
+    }
+
+    public boolean isIncrementalRepairEnabled() {
+        return isIncrementalRepairEnabled;
+    }
+
+    public CalendarEngineSettings setIncrementalRepairEnabled(boolean isIncrementalRepairEnabled) {
+        this.isIncrementalRepairEnabled = isIncrementalRepairEnabled;
+        return this;
+    }
+
+    public int getMaxRepairedSessions() {
+        return maxRepairedSessions;
+    }
+
+    public CalendarEngineSettings setMaxRepairedSessions(int maxRepairedSessions) {
+        this.maxRepairedSessions = maxRepairedSessions;
+        return this;
+    }
+
+    public String getGoogleRootUrl() {
+        return googleRootUrl;
+    }
+
+    public String getGoogleTokenServerUrl() {
+        return googleTokenServerUrl;
+    }
+
+    public CalendarEngineSettings setGoogleUrls(String googleRootUrl, String googleTokenServerUrl) {
+        this.googleRootUrl = googleRootUrl;
+        this.googleTokenServerUrl = googleTokenServerUrl;
+        return this;
+    }
+
+    public int getGoogleConnectTimeoutInMillis() {
+        return googleConnectTimeoutInMillis;
+    }
+
+    public int getGoogleReadTimeoutInMillis() {
+        return googleReadTimeoutInMillis;
+    }
+
+    public CalendarEngineSettings setGoogleTimeouts(int googleConnectTimeoutInMillis, int googleReadTimeoutInMillis) {
+        this.googleConnectTimeoutInMillis = googleConnectTimeoutInMillis;
+        this.googleReadTimeoutInMillis = googleReadTimeoutInMillis;
+        return this;
+    }
+
+    public long getOptionalWorkMinRemainingInMillis() {
+        return optionalWorkMinRemainingInMillis;
+    }
+
+    public CalendarEngineSettings setOptionalWorkMinRemainingInMillis(long optionalWorkMinRemainingInMillis) {
+        this.optionalWorkMinRemainingInMillis = optionalWorkMinRemainingInMillis;
+        return this;
+    }
+
+    public int getWriteBatchSize() {
+        return writeBatchSize;
+    }
+
+    public CalendarEngineSettings setWriteBatchSize(int writeBatchSize) {
+        this.writeBatchSize = Math.max(writeBatchSize, 1);
+        return this;
+    }
+
+    public boolean isRecurringEventsExpandedLocally() {
+        return isRecurringEventsExpandedLocally;
+    }
+
+    public CalendarEngineSettings setRecurringEventsExpandedLocally(boolean isRecurringEventsExpandedLocally) {
+        this.isRecurringEventsExpandedLocally = isRecurringEventsExpandedLocally;
+        return this;
+    }
+
+    public long getExamIndexMaxAgeInMillis() {
+        return examIndexMaxAgeInMillis;
+    }
+
+    public CalendarEngineSettings setExamIndexMaxAgeInMillis(long examIndexMaxAgeInMillis) {
+        this.examIndexMaxAgeInMillis = examIndexMaxAgeInMillis;
+        return this;
+    }
+
+    public long getPlanPreviewTtlInMillis() {
+        return planPreviewTtlInMillis;
+    }
+
+    public CalendarEngineSettings setPlanPreviewTtlInMillis(long planPreviewTtlInMillis) {
+        this.planPreviewTtlInMillis = planPreviewTtlInMillis;
+        return this;
+    }
+}
@@ -0,0 +1,302 @@
+package com.example.planit.engine;
+
+import com.example.planit.engine.jfr.FlightRecordingEngine;
+import com.example.planit.engine.jobs.JobPriority;
+import com.example.planit.engine.jfr.GoogleApiRequestEvent;
+import com.example.planit.engine.jfr.PlanningStageEvent;
+import com.example.planit.engine.resilience.DependencyGuard;
+import com.example.planit.utill.PlanFingerprint;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * the Micrometer meters of the {@link CalendarEngine} pipeline (exposed by Actuator at /actuator/prometheus).
+ * every stage of the pipeline has a timer and an errors counter,
+ * every request to Google has a timer by its method and its HTTP status (and the adaptive concurrency limit is a gauge),
+ * every external dependency has the state of its circuit breaker and its bulkhead,
+ * the scan/generate jobs have timers of their time in the queue and of their total time by their priority,
+ * and the sizes of the users' calendars and plans have histograms.
+ * the stages and the requests are also emitted as JFR events, for flight recordings (see {@link FlightRecordingEngine}).
+ */
+public class EngineMetrics {
+
+    public enum Stage {
+        TOKEN_VALIDATION("token_validation"),
+        CALENDAR_LIST("calendar_list"),
+        EVENTS_FETCH("events_fetch"),
+        EXAM_DETECTION("exam_detection"),
+        HOLIDAYS_HANDLING("holidays_handling"),
+        FREE_SLOTS("free_slots"),
+        SESSIONS_SLICING("sessions_slicing"),
+        EMBEDDING("embedding"),
+        DIFF("diff"),
+        WRITE("write");
+
+        private final String tagValue;
+
+        Stage(String tagValue) {
+            this.tagValue = tagValue;
+        }
+
+        public String getTagValue() {
+            return tagValue;
+        }
+    }
+
+    /**
+     * the work of a single stage
+     */
+    @FunctionalInterface
+    public interface StageWork<T> {
+        T run() throws IOException, GeneralSecurityException;
+    }
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<Stage, Timer> stage2Timer;
+
+    private final Map<Stage, Counter> stage2ErrorsCounter;
+
+    private final Map<JobPriority, Timer> priority2JobQueueTimer;
+
+    private final Map<JobPriority, Timer> priority2JobTimer;
+
+    private final DistributionSummary eventsPerUser;
+
+    private final DistributionSummary sessionsPerPlan;
+
+    public EngineMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.stage2Timer = new EnumMap<>(Stage.class);
+        this.stage2ErrorsCounter = new EnumMap<>(Stage.class);
+
+        for (Stage stage : Stage.values()) {
+            stage2Timer.put(stage, Timer.builder("planit.pipeline.stage")
+                    .description("the duration of a stage of the scan/generate pipeline")
+                    .tag("stage", stage.getTagValue())
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+            stage2ErrorsCounter.put(stage, Counter.builder("planit.pipeline.stage.errors")
+                    .description("the number of stages that ended with an exception")
+                    .tag("stage", stage.getTagValue())
+                    .register(meterRegistry));
+        }
+
+        this.priority2JobQueueTimer = new EnumMap<>(JobPriority.class);
+        this.priority2JobTimer = new EnumMap<>(JobPriority.class);
+        for (JobPriority priority : JobPriority.values()) {
+            priority2JobQueueTimer.put(priority, Timer.builder("planit.jobs.queue")
+                    .description("the time a scan/generate job waited in the queue for a worker")
+                    .tag("priority", priority.getTagValue())
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+            priority2JobTimer.put(priority, Timer.builder("planit.jobs.duration")
+                    .description("the time from the submission of a scan/generate job until it ended (including the time in the queue)")
+                    .tag("priority", priority.getTagValue())
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+
+        this.eventsPerUser = DistributionSummary.builder("planit.user.events")
+                .description("the number of events in the calendars of a scanned user")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.sessionsPerPlan = DistributionSummary.builder("planit.plan.sessions")
+                .description("the number of study sessions in a saved plan")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * runs the work of a stage and records its duration (and its error, if it throws)
+     *
+     * @param stage the stage of the pipeline
+     * @param work  the work of the stage
+     * @return the result of the work
+     */
+    public <T> T recordStage(Stage stage, StageWork<T> work) throws IOException, GeneralSecurityException {
+        StageTimer stageTimer = startStage(stage);
+        try {
+            return work.run();
+        } catch (IOException | GeneralSecurityException | RuntimeException e) {
+            stage2ErrorsCounter.get(stage).increment();
+            throw e;
+        } finally {
+            stageTimer.stop(0);
+        }
+    }
+
+    /**
+     * starts to time a stage, for stages that are not a single call
+     *
+     * @param stage the stage of the pipeline
+     * @return the timer of the stage, that should be stopped when the stage ends
+     */
+    public StageTimer startStage(Stage stage) {
+        return new StageTimer(stage);
+    }
+
+    /**
+     * starts to time a request to Google (after the wait for the rate limiter)
+     *
+     * @return the timer of the request, that should be stopped when the response arrives (or the request fails)
+     */
+    public GoogleRequestTimer startGoogleRequest() {
+        return new GoogleRequestTimer();
+    }
+
+    /**
+     * exposes the current limit of the requests to Google in flight, and the number of requests in flight
+     */
+    public void registerGoogleConcurrencyLimiter(GoogleApiConcurrencyLimiter googleApiConcurrencyLimiter) {
+        Gauge.builder("planit.google.concurrency.limit", googleApiConcurrencyLimiter, GoogleApiConcurrencyLimiter::getLimit)
+                .description("the adaptive limit of the requests to the Google APIs in flight")
+                .register(meterRegistry);
+        Gauge.builder("planit.google.concurrency.inflight", googleApiConcurrencyLimiter, GoogleApiConcurrencyLimiter::getInFlight)
+                .description("the requests to the Google APIs in flight")
+                .register(meterRegistry);
+    }
+
+    /**
+     * exposes the state of the circuit breaker of a dependency (0 closed, 1 open, 2 half-open), its free bulkhead calls and its rejected calls
+     */
+    public void registerDependencyGuard(DependencyGuard dependencyGuard) {
+        String dependency = dependencyGuard.getDependency().getTagValue();
+
+        Gauge.builder("planit.dependency.circuit.state", dependencyGuard, guard -> guard.getState().getGaugeValue())
+                .description("the state of the circuit breaker of the dependency: 0 closed, 1 open, 2 half-open")
+                .tag("dependency", dependency)
+                .register(meterRegistry);
+        Gauge.builder("planit.dependency.bulkhead.available", dependencyGuard, DependencyGuard::getAvailableConcurrentCalls)
+                .description("the calls that can still enter the bulkhead of the dependency")
+                .tag("dependency", dependency)
+                .register(meterRegistry);
+        FunctionCounter.builder("planit.dependency.rejected", dependencyGuard, DependencyGuard::getRejectedCalls)
+                .description("the calls that failed fast, since the circuit was open or the bulkhead was full")
+                .tag("dependency", dependency)
+                .register(meterRegistry);
+    }
+
+    /**
+     * exposes the hits and the misses of the cache of the users, and its size
+     */
+    public void registerUserCache(UserCache userCache) {
+        FunctionCounter.builder("planit.users.cache.requests", userCache, UserCache::getHits)
+                .description("the reads of users by email, by whether the user was found in the cache")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("planit.users.cache.requests", userCache, UserCache::getMisses)
+                .description("the reads of users by email, by whether the user was found in the cache")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("planit.users.cache.size", userCache, UserCache::getSize)
+                .description("the users in the cache")
+                .register(meterRegistry);
+    }
+
+    /**
+     * records the latency of a single scan/generate job, so it can be verified that the urgent users are served first
+     *
+     * @param priority         the priority of the job
+     * @param queueTimeInNanos the time the job waited for a worker
+     * @param totalTimeInNanos the time from the submission of the job until it ended
+     */
+    public void recordGenerationJob(JobPriority priority, long queueTimeInNanos, long totalTimeInNanos) {
+        priority2JobQueueTimer.get(priority).record(queueTimeInNanos, TimeUnit.NANOSECONDS);
+        priority2JobTimer.get(priority).record(totalTimeInNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordEventsPerUser(int numberOfEvents) {
+        eventsPerUser.record(numberOfEvents);
+    }
+
+    public void recordSessionsPerPlan(int numberOfSessions) {
+        sessionsPerPlan.record(numberOfSessions);
+    }
+
+    /**
+     * the timer of a single run of a stage
+     */
+    public class StageTimer {
+
+        private final Stage stage;
+
+        private final long startTimeInNanos;
+
+        private final PlanningStageEvent event;
+
+        private StageTimer(Stage stage) {
+            this.stage = stage;
+            this.event = new PlanningStageEvent();
+            this.event.begin();
+            this.startTimeInNanos = System.nanoTime();
+        }
+
+        /**
+         * @param inputSize the number of items the stage worked on (e.g. events, free slots or sessions)
+         */
+        public void stop(int inputSize) {
+            stage2Timer.get(stage).record(System.nanoTime() - startTimeInNanos, TimeUnit.NANOSECONDS);
+
+            // the fields of the JFR event are set only when it is recorded
+            event.end();
+            if (event.shouldCommit()) {
+                event.setStage(stage.getTagValue());
+                event.setInputSize(inputSize);
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * the timer of a single request to Google
+     */
+    public class GoogleRequestTimer {
+
+        private final long startTimeInNanos;
+
+        private final GoogleApiRequestEvent event;
+
+        private GoogleRequestTimer() {
+            this.event = new GoogleApiRequestEvent();
+            this.event.begin();
+            this.startTimeInNanos = System.nanoTime();
+        }
+
+        /**
+         * @param method        the API method, e.g. "events.list"
+         * @param calendarID    the calendar of the request, or null if the request is not of a single calendar
+         * @param status        the HTTP status of the response, or "io_error" if there was no response
+         * @param responseBytes the size of the response
+         */
+        public void stop(String method, String calendarID, String status, long responseBytes) {
+            Timer.builder("planit.google.requests")
+                    .description("the requests to the Google APIs")
+                    .tag("method", method)
+                    .tag("status", status)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - startTimeInNanos, TimeUnit.NANOSECONDS);
+
+            // the fields of the JFR event are calculated only when it is recorded, since the calendar ID has to be hashed
+            event.end();
+            if (event.shouldCommit()) {
+                event.setMethod(method);
+                event.setCalendarIDHash(calendarID == null ? null : new PlanFingerprint().add(calendarID).calculate().substring(0, 16));
+                event.setStatus(status);
+                event.setResponseBytes(responseBytes);
+                event.commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package com.example.planit.engine;
+
+import com.example.planit.engine.resilience.Deadline;
+import com.example.planit.engine.resilience.DeadlineExceededException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * an adaptive limit on the number of requests to the Google APIs that are in flight at the same time (AIMD).
+ * while Google answers in a stable latency and the limit is in use, the limit grows by about 1 per round trip.
+ * when Google is overloaded (429/5xx, rate limit errors, no response) or the latency spikes, the limit is cut by a ratio.
+ * so every node finds by itself the most requests it can send, instead of a fixed number of workers.
+ * (the {@link GoogleApiRateLimiter} still bounds the requests per second, this bounds the requests in flight)
+ * <p>
+ * the waiting threads wait on a lock rather than on a monitor, since a virtual thread that waits on a monitor pins its carrier thread.
+ */
+public class GoogleApiConcurrencyLimiter {
+
+    // the weight of a new sample in the short-term latency, and in the long-term (baseline) latency
+    private static final double SHORT_LATENCY_WEIGHT = 0.1;
+
+    private static final double LONG_LATENCY_WEIGHT = 0.01;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final double backoffRatio;
+
+    private final double latencyTolerance;
+
+    private final ReentrantLock lock;
+
+    // signalled when requests end (or the limit grows)
+    private final Condition roomAvailable;
+
+    private double limit;
+
+    private int inFlight;
+
+    private double shortLatencyInNanos;
+
+    private double longLatencyInNanos;
+
+    // the start time of the requests that were sent after the last cut, only they can cut the limit again
+    private long lastCutTimeInNanos;
+
+    // the requests of the reactive pipeline that wait for the limit, they are let in (in order) when requests end
+    private final Queue<CompletableFuture<Permit>> asyncWaiters;
+
+    /**
+     * @param initialLimit     the limit before any response arrives
+     * @param minLimit         the limit is never cut below it
+     * @param maxLimit         the limit never grows above it
+     * @param backoffRatio     the limit is multiplied by it when Google is overloaded, e.g. 0.9
+     * @param latencyTolerance a short-term latency above the baseline latency times the tolerance is a spike, e.g. 2
+     */
+    public GoogleApiConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double backoffRatio, double latencyTolerance) {
+        this.minLimit = Math.max(minLimit, 1);
+        this.maxLimit = Math.max(maxLimit, this.minLimit);
+        this.backoffRatio = backoffRatio;
+        this.latencyTolerance = latencyTolerance;
+        this.limit = Math.min(Math.max(initialLimit, this.minLimit), this.maxLimit);
+        this.lastCutTimeInNanos = System.nanoTime();
+        this.asyncWaiters = new ArrayDeque<>();
+        this.lock = new ReentrantLock();
+        this.roomAvailable = lock.newCondition();
+    }
+
+    /**
+     * blocks the current thread until a request may be sent without exceeding the limit (or until the deadline of the current thread).
+     *
+     * @return the permit of the request, that should be released when the response arrives (or the request fails)
+     * @throws DeadlineExceededException if the deadline of the current thread expires while waiting
+     */
+    public Permit acquire() {
+        Deadline deadline = Deadline.current();
+        lock.lock();
+        try {
+            while (inFlight >= (int) limit) {
+                if (deadline == null) {
+                    roomAvailable.await();
+                } else if (deadline.isExpired()) {
+                    throw new DeadlineExceededException("a request to Google was let in");
+                } else {
+                    roomAvailable.await(Math.max(1, deadline.getRemainingInMillis()), TimeUnit.MILLISECONDS);
+                }
+            }
+
+            inFlight++;
+            return new Permit(inFlight);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * waits for the limit without blocking the current thread (used by the reactive pipeline).
+     * a waiter that gives up should cancel the future, then it is skipped (and a permit that was already given to it is cancelled).
+     *
+     * @return a future of the permit of the request, completed when the request may be sent
+     */
+    public CompletableFuture<Permit> acquireAsync() {
+        CompletableFuture<Permit> futurePermit = new CompletableFuture<>();
+        Permit permit = null;
+        lock.lock();
+        try {
+            if (asyncWaiters.isEmpty() && inFlight < (int) limit) {
+                inFlight++;
+                permit = new Permit(inFlight);
+            } else {
+                asyncWaiters.add(futurePermit);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (permit != null) {
+            futurePermit.complete(permit);
+        }
+
+        return futurePermit;
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * updates the limit by the result of a single request, and lets the waiting requests in
+     */
+    private void release(Permit permit, long latencyInNanos, boolean isOverloaded) {
+        lock.lock();
+        try {
+            updateLimit(permit, latencyInNanos, isOverloaded);
+        } finally {
+            lock.unlock();
+        }
+
+        letAsyncWaitersIn();
+    }
+
+    private void updateLimit(Permit permit, long latencyInNanos, boolean isOverloaded) {
+        inFlight--;
+
+        // the first sample is the baseline
+        if (longLatencyInNanos == 0) {
+            shortLatencyInNanos = latencyInNanos;
+            longLatencyInNanos = latencyInNanos;
+        }
+        shortLatencyInNanos += SHORT_LATENCY_WEIGHT * (latencyInNanos - shortLatencyInNanos);
+        longLatencyInNanos += LONG_LATENCY_WEIGHT * (latencyInNanos - longLatencyInNanos);
+
+        boolean isLatencySpike = shortLatencyInNanos > longLatencyInNanos * latencyTolerance;
+
+        if (isOverloaded || isLatencySpike) {
+
+            // the requests that were sent before the last cut were sent with the old limit, so they do not cut it again
+            if (permit.startTimeInNanos - lastCutTimeInNanos > 0) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+                lastCutTimeInNanos = System.nanoTime();
+
+                // after a spike, the new latency is the baseline (otherwise the limit would be cut until the latency recovers)
+                longLatencyInNanos = shortLatencyInNanos;
+            }
+        } else if (permit.inFlightAtStart * 2 >= limit) {
+
+            // grows only while the limit is in use, about 1 per round trip of all the requests in flight
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+
+    /**
+     * gives a permit back without a sample (the request was not sent), and lets the waiting requests in
+     */
+    private void cancel() {
+        lock.lock();
+        try {
+            inFlight--;
+        } finally {
+            lock.unlock();
+        }
+
+        letAsyncWaitersIn();
+    }
+
+    /**
+     * lets in the async waiters that fit under the limit, and wakes the blocked threads for the rest of the room.
+     * the futures are completed outside the lock, since their continuations run in the current thread.
+     */
+    private void letAsyncWaitersIn() {
+        List<CompletableFuture<Permit>> letInWaiters = new ArrayList<>();
+        List<Permit> permits = new ArrayList<>();
+        lock.lock();
+        try {
+            while (inFlight < (int) limit && !asyncWaiters.isEmpty()) {
+                CompletableFuture<Permit> waiter = asyncWaiters.poll();
+                if (waiter.isDone()) {
+                    continue;
+                }
+
+                inFlight++;
+                letInWaiters.add(waiter);
+                permits.add(new Permit(inFlight));
+            }
+
+            roomAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        for (int i = 0; i < letInWaiters.size(); i++) {
+
+            // the waiter gave up in the meantime
+            if (!letInWaiters.get(i).complete(permits.get(i))) {
+                permits.get(i).cancel();
+            }
+        }
+    }
+
+    /**
+     * the permit of a single request in flight
+     */
+    public class Permit {
+
+        private final long startTimeInNanos;
+
+        private final int inFlightAtStart;
+
+        private boolean isReleased;
+
+        private Permit(int inFlightAtStart) {
+            this.inFlightAtStart = inFlightAtStart;
+            this.startTimeInNanos = System.nanoTime();
+        }
+
+        /**
+         * @param isOverloaded true if Google answered that it is overloaded (429/5xx, rate limit errors) or did not answer at all
+         */
+        public void release(boolean isOverloaded) {
+            if (isReleased) {
+                return;
+            }
+
+            isReleased = true;
+            GoogleApiConcurrencyLimiter.this.release(this, System.nanoTime() - startTimeInNanos, isOverloaded);
+        }
+
+        /**
+         * gives the permit back without a request to Google (e.g. the waiter gave up before it was sent)
+         */
+        public void cancel() {
+            if (isReleased) {
+                return;
+            }
+
+            isReleased = true;
+            GoogleApiConcurrencyLimiter.this.cancel();
+        }
+    }
+}
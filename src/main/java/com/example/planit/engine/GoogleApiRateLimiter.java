@@ -0,0 +1,87 @@
+package com.example.planit.engine;
+
+import com.example.planit.engine.resilience.Deadline;
+import com.example.planit.engine.resilience.DeadlineExceededException;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * a global rate budget for the requests we send to the Google Calendar API.
+ * the budget is shared by every thread that uses the same {@link CalendarEngine},
+ * so a bulk run with many workers can not exceed the project's quota.
+ */
+public class GoogleApiRateLimiter {
+
+    private final long intervalBetweenRequestsInNanos;
+
+    private long nextFreeSlotInNanos;
+
+    /**
+     * @param maxRequestsPerSecond the maximum number of requests per second, 0 or less means unlimited
+     */
+    public GoogleApiRateLimiter(double maxRequestsPerSecond) {
+        this.intervalBetweenRequestsInNanos = maxRequestsPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / maxRequestsPerSecond) : 0;
+        this.nextFreeSlotInNanos = System.nanoTime();
+    }
+
+    /**
+     * blocks the current thread until a request may be sent without exceeding the budget.
+     *
+     * @throws DeadlineExceededException if the request would be sent after the deadline of the current thread (then it does not take a slot)
+     */
+    public void acquire() {
+        long waitTimeInNanos = reserve(Deadline.current());
+
+        // waits (outside the lock) until the reserved slot arrives
+        if (waitTimeInNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitTimeInNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /**
+     * reserves the next free slot for a request, without waiting for it (used by the reactive pipeline, that delays the request instead).
+     *
+     * @return the time until the reserved slot arrives, 0 if the request may be sent now
+     */
+    public long reserve() {
+        return reserve(null);
+    }
+
+    /**
+     * reserves the next free slot for a request, unless the request would wait for it beyond its deadline.
+     * the deadline is checked before the slot is taken, so a request that is not sent does not push the later requests back.
+     *
+     * @param deadline the deadline of the request, or null if it has no deadline
+     * @return the time until the reserved slot arrives, 0 if the request may be sent now
+     */
+    private long reserve(Deadline deadline) {
+
+        // unlimited budget, nothing to wait for
+        if (intervalBetweenRequestsInNanos == 0) {
+            checkDeadline(deadline, 0);
+            return 0;
+        }
+
+        synchronized (this) {
+            long now = System.nanoTime();
+            long reservedSlot = Math.max(now, nextFreeSlotInNanos);
+            checkDeadline(deadline, reservedSlot - now);
+            nextFreeSlotInNanos = reservedSlot + intervalBetweenRequestsInNanos;
+            return reservedSlot - now;
+        }
+    }
+
+    /**
+     * a request that would be sent after its deadline is not sent at all
+     */
+    private static void checkDeadline(Deadline deadline, long waitTimeInNanos) {
+        if (deadline != null && TimeUnit.NANOSECONDS.toMillis(waitTimeInNanos) >= deadline.getRemainingInMillis()) {
+            throw DeadlineExceededException.beyondDeadline("the Google rate budget");
+        }
+    }
+}
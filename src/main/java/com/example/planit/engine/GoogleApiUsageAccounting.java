@@ -0,0 +1,237 @@
+package com.example.planit.engine;
+
+import com.example.planit.model.mongo.usage.GoogleApiUsage;
+import com.example.planit.model.mongo.usage.GoogleApiUsageRepository;
+import com.example.planit.utill.dto.DTOgoogleApiUsage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * counts the requests to the Google APIs (and their bytes) per user, per flow and per API method,
+ * so we can see who and what consumes the project's quota.
+ * the counters are aggregated in memory, and they are added to the DB periodically by {@link #flush()}.
+ * the user and the flow of a request are taken from the scope of the current thread (see {@link #startScope(String, Flow)}).
+ */
+public class GoogleApiUsageAccounting {
+
+    private static final Logger logger = LoggerFactory.getLogger(GoogleApiUsageAccounting.class);
+
+    public enum Flow {
+        SCAN("scan"),
+        GENERATE("generate"),
+        PREVIEW("preview"),
+        EXPORT("export"),
+        BULK("bulk"),
+        RECONCILE("reconcile"),
+        EXAM_INDEX("exam_index"),
+        OTHER("other"); // a request that was sent outside of any scope
+
+        private final String tagValue;
+
+        Flow(String tagValue) {
+            this.tagValue = tagValue;
+        }
+
+        public String getTagValue() {
+            return tagValue;
+        }
+    }
+
+    // the email of requests that were sent outside of any scope
+    private static final String UNKNOWN_EMAIL = "unknown";
+
+    /**
+     * the user and the flow that the requests of a scope are attributed to
+     */
+    public record Caller(String email, Flow flow) {
+    }
+
+    private record UsageKey(String day, String email, String flow, String method) {
+    }
+
+    private record UsageCounters(long requests, long requestBytes, long responseBytes) {
+
+        private UsageCounters plus(UsageCounters other) {
+            return new UsageCounters(requests + other.requests, requestBytes + other.requestBytes, responseBytes + other.responseBytes);
+        }
+    }
+
+    private final GoogleApiUsageRepository usageRepo;
+
+    private final ThreadLocal<Caller> currentCaller;
+
+    // the counters that were not flushed to the DB yet
+    private final Map<UsageKey, UsageCounters> pendingUsage;
+
+    public GoogleApiUsageAccounting(GoogleApiUsageRepository usageRepo) {
+        this.usageRepo = usageRepo;
+        this.currentCaller = new ThreadLocal<>();
+        this.pendingUsage = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * attributes the requests that the current thread sends to the given user and flow, until the scope is closed.
+     * the scopes can be nested, closing a scope restores the outer one.
+     *
+     * @param email the user the requests are sent for
+     * @param flow  the flow that sends the requests
+     * @return the scope, that should be closed (in the same thread) when the flow ends
+     */
+    public Scope startScope(String email, Flow flow) {
+        Scope scope = new Scope(currentCaller.get());
+        currentCaller.set(new Caller(email, flow));
+        return scope;
+    }
+
+    /**
+     * continues the scope of another thread in the current thread (e.g. in the tasks a flow runs in parallel)
+     *
+     * @param caller the caller of the other thread, see {@link #getCurrentCaller()}, null to attribute the requests to no one
+     * @return the scope, that should be closed (in the same thread) when the task ends
+     */
+    public Scope startScope(Caller caller) {
+        Scope scope = new Scope(currentCaller.get());
+        if (caller == null) {
+            currentCaller.remove();
+        } else {
+            currentCaller.set(caller);
+        }
+        return scope;
+    }
+
+    /**
+     * @return the caller of the scope of the current thread, or null if the thread is not in a scope
+     */
+    public Caller getCurrentCaller() {
+        return currentCaller.get();
+    }
+
+    /**
+     * counts a single request of the current scope
+     *
+     * @param method        the API method, e.g. "events.list"
+     * @param requestBytes  the size of the request content
+     * @param responseBytes the size of the response content
+     */
+    public void record(String method, long requestBytes, long responseBytes) {
+        Caller caller = currentCaller.get();
+        String email = caller != null ? caller.email() : UNKNOWN_EMAIL;
+        Flow flow = caller != null ? caller.flow() : Flow.OTHER;
+
+        // the counters are immutable, so a flush always removes a complete value
+        pendingUsage.merge(new UsageKey(today(), email, flow.getTagValue(), method),
+                new UsageCounters(1, requestBytes, responseBytes), UsageCounters::plus);
+    }
+
+    /**
+     * adds the counters that were collected since the last flush to the DB.
+     * if the DB fails, the counters are kept for the next flush.
+     */
+    public synchronized void flush() {
+        Map<UsageKey, UsageCounters> flushedUsage = new HashMap<>();
+        for (UsageKey key : pendingUsage.keySet()) {
+            UsageCounters counters = pendingUsage.remove(key);
+            if (counters != null) {
+                flushedUsage.put(key, counters);
+            }
+        }
+
+        if (flushedUsage.isEmpty()) {
+            return;
+        }
+
+        try {
+            List<String> ids = flushedUsage.keySet().stream()
+                    .map(key -> GoogleApiUsage.toId(key.day(), key.email(), key.flow(), key.method()))
+                    .toList();
+            Map<String, GoogleApiUsage> id2Usage = new HashMap<>();
+            usageRepo.findAllById(ids).forEach(usage -> id2Usage.put(usage.getId(), usage));
+
+            flushedUsage.forEach((key, counters) -> id2Usage
+                    .computeIfAbsent(GoogleApiUsage.toId(key.day(), key.email(), key.flow(), key.method()),
+                            id -> new GoogleApiUsage(key.day(), key.email(), key.flow(), key.method()))
+                    .add(counters.requests(), counters.requestBytes(), counters.responseBytes()));
+
+            usageRepo.saveAll(id2Usage.values());
+        } catch (RuntimeException e) {
+            logger.warn("failed to flush the Google API usage, it is kept for the next flush", e);
+            flushedUsage.forEach((key, counters) -> pendingUsage.merge(key, counters, UsageCounters::plus));
+        }
+    }
+
+    /**
+     * @param limit          the maximum number of users to return
+     * @param numberOfDays   the number of days to sum, including today
+     * @return the users that sent the most requests in the last days, with the most requesting user first
+     */
+    public List<DTOgoogleApiUsage> getTopConsumers(int limit, int numberOfDays) {
+        String firstDay = LocalDate.now(ZoneOffset.UTC).minusDays(Math.max(numberOfDays, 1) - 1).toString();
+
+        // the usage that was already flushed, and the usage that was not flushed yet
+        List<GoogleApiUsage> usages;
+        try (Stream<GoogleApiUsage> flushedUsages = usageRepo.streamAllByDayGreaterThanEqual(firstDay)) {
+            usages = new ArrayList<>(flushedUsages.toList());
+        }
+        pendingUsage.forEach((key, counters) -> {
+            if (key.day().compareTo(firstDay) >= 0) {
+                GoogleApiUsage usage = new GoogleApiUsage(key.day(), key.email(), key.flow(), key.method());
+                usage.add(counters.requests(), counters.requestBytes(), counters.responseBytes());
+                usages.add(usage);
+            }
+        });
+
+        return usages.stream()
+                .collect(Collectors.groupingBy(GoogleApiUsage::getEmail))
+                .entrySet().stream()
+                .map(email2Usages -> toDTOgoogleApiUsage(email2Usages.getKey(), email2Usages.getValue()))
+                .sorted(Comparator.comparingLong(DTOgoogleApiUsage::getRequests).reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    private static DTOgoogleApiUsage toDTOgoogleApiUsage(String email, List<GoogleApiUsage> usages) {
+        return new DTOgoogleApiUsage(email,
+                usages.stream().mapToLong(GoogleApiUsage::getRequests).sum(),
+                usages.stream().mapToLong(GoogleApiUsage::getRequestBytes).sum(),
+                usages.stream().mapToLong(GoogleApiUsage::getResponseBytes).sum(),
+                sumRequestsBy(usages, GoogleApiUsage::getFlow),
+                sumRequestsBy(usages, GoogleApiUsage::getMethod));
+    }
+
+    private static Map<String, Long> sumRequestsBy(List<GoogleApiUsage> usages, Function<GoogleApiUsage, String> classifier) {
+        return usages.stream().collect(Collectors.groupingBy(classifier, TreeMap::new, Collectors.summingLong(GoogleApiUsage::getRequests)));
+    }
+
+    private static String today() {
+        return LocalDate.now(ZoneOffset.UTC).toString();
+    }
+
+    /**
+     * the scope of a flow in the current thread
+     */
+    public class Scope implements AutoCloseable {
+
+        private final Caller outerCaller;
+
+        private Scope(Caller outerCaller) {
+            this.outerCaller = outerCaller;
+        }
+
+        @Override
+        public void close() {
+            if (outerCaller == null) {
+                currentCaller.remove();
+            } else {
+                currentCaller.set(outerCaller);
+            }
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.planit.engine;
+
+import com.example.planit.engine.resilience.Deadline;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * runs the blocking calls of a flow to Google in parallel (e.g. the events fetch of each calendar, the writes of each batch of events).
+ * on Java 21+ every task runs on its own virtual thread, so a task that is blocked on Google holds no platform thread.
+ * on older Java (the baseline is 17) the tasks run on a bounded pool of platform threads.
+ * the requests still go through the limits of {@link CalendarEngine} (rate budget, concurrency limit, circuit breaker),
+ * the executor only decides on which threads they wait.
+ * the deadline and the usage scope of the calling thread are carried to its tasks.
+ */
+public class GoogleIoExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(GoogleIoExecutor.class);
+
+    public enum Mode {
+
+        // virtual threads if the JVM supports them, otherwise platform threads
+        AUTO,
+        VIRTUAL,
+        PLATFORM
+    }
+
+    /**
+     * a blocking call to Google
+     */
+    @FunctionalInterface
+    public interface Task<T> {
+        T call() throws IOException, GeneralSecurityException;
+    }
+
+    private final ExecutorService executor;
+
+    private final boolean isVirtual;
+
+    private final GoogleApiUsageAccounting googleApiUsageAccounting;
+
+    /**
+     * @param mode                     the threads of the tasks
+     * @param numberOfPlatformThreads  the size of the pool of platform threads, when virtual threads are not used
+     * @param googleApiUsageAccounting the accounting, whose scope is carried to the tasks
+     * @throws IllegalStateException if the mode is VIRTUAL and the JVM does not support virtual threads
+     */
+    public GoogleIoExecutor(Mode mode, int numberOfPlatformThreads, GoogleApiUsageAccounting googleApiUsageAccounting) {
+        ExecutorService virtualThreadsExecutor = mode == Mode.PLATFORM ? null : newVirtualThreadPerTaskExecutor();
+        if (mode == Mode.VIRTUAL && virtualThreadsExecutor == null) {
+            throw new IllegalStateException("virtual threads need Java 21 or later, the JVM is " + Runtime.version());
+        }
+
+        this.isVirtual = virtualThreadsExecutor != null;
+        this.executor = isVirtual ? virtualThreadsExecutor : newPlatformThreadsExecutor(numberOfPlatformThreads);
+        this.googleApiUsageAccounting = googleApiUsageAccounting;
+        logger.info("the calls to Google run on {}", isVirtual ? "virtual threads" : numberOfPlatformThreads + " platform threads");
+    }
+
+    /**
+     * runs the tasks in parallel and waits for all of them.
+     * if a task fails, the tasks that did not end yet are cancelled, and its exception is thrown.
+     *
+     * @param tasks the tasks to run
+     * @return the results of the tasks, in the order of the tasks
+     */
+    public <T> List<T> invokeAll(List<Task<T>> tasks) throws IOException, GeneralSecurityException {
+        List<T> results = new ArrayList<>(tasks.size());
+
+        // a single task is not worth the switch of threads
+        if (tasks.size() == 1) {
+            results.add(tasks.get(0).call());
+            return results;
+        }
+
+        Deadline deadline = Deadline.current();
+        GoogleApiUsageAccounting.Caller caller = googleApiUsageAccounting.getCurrentCaller();
+        List<Future<T>> futures = new ArrayList<>(tasks.size());
+        try {
+            for (Task<T> task : tasks) {
+                futures.add(executor.submit(() -> {
+                    try (Deadline.Scope deadlineScope = deadline != null ? deadline.bind() : null;
+                         GoogleApiUsageAccounting.Scope usageScope = googleApiUsageAccounting.startScope(caller)) {
+                        return task.call();
+                    }
+                }));
+            }
+
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+
+            return results;
+        } catch (ExecutionException e) {
+            throw rethrow(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } finally {
+
+            // after a failure, the other tasks are not needed anymore
+            for (Future<T> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    public boolean isVirtual() {
+        return isVirtual;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return true if the JVM supports virtual threads (Java 21+)
+     */
+    public static boolean isVirtualThreadsSupported() {
+        return Runtime.version().feature() >= 21;
+    }
+
+    /**
+     * @return an executor that starts a virtual thread for each task, or null if the JVM does not support virtual threads.
+     * it is created by reflection, since the baseline of the service (Java 17) has no virtual threads.
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor() {
+        if (!isVirtualThreadsSupported()) {
+            return null;
+        }
+
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static ExecutorService newPlatformThreadsExecutor(int numberOfThreads) {
+        AtomicInteger threadNumbers = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "google-io-" + threadNumbers.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+
+        return Executors.newFixedThreadPool(numberOfThreads, threadFactory);
+    }
+
+    private static RuntimeException rethrow(Throwable cause) throws IOException, GeneralSecurityException {
+        if (cause instanceof IOException ioException) {
+            throw ioException;
+        }
+        if (cause instanceof GeneralSecurityException generalSecurityException) {
+            throw generalSecurityException;
+        }
+        if (cause instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+
+        return new RuntimeException(cause);
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.planit.engine;
 
+import com.example.planit.engine.resilience.DependencyGuard;
 import com.example.planit.holidays.Holiday;
 import com.example.planit.holidays.HolidaysResponse;
 import com.google.api.services.calendar.model.Event;
@@ -20,17 +21,23 @@ public class HolidaysEngine {
     //static final String apiKey = env.get //"c2c659ee-3ac3-4699-b5fa-ff45ea405d7e";
     private static final String UrlRequest = "https://calendarific.com/api/v2/holidays";
 
+    // the timeouts of the requests to "calendarific", so a slow "calendarific" can not hang the startup
+    private static final long CONNECTION_TIMEOUT_IN_MILLIS = 10000;
+
+    private static final long SOCKET_TIMEOUT_IN_MILLIS = 30000;
+
     /**
      * get api key, country, year and return a set of holidays days for the current country in the requested year.
      *
-     * @param holidaysApiKey api key form "calendarific"
-     * @param country        country (ISO-3166) from "calendarific"
-     * @param year           the requested year
+     * @param holidaysApiKey    api key form "calendarific"
+     * @param country           country (ISO-3166) from "calendarific"
+     * @param year              the requested year
+     * @param calendarificGuard the circuit breaker and the bulkhead of "calendarific"
      * @return set of string that present the dates of the holidays.
      */
-    public static Set<String> getDatesOfHolidays(String holidaysApiKey, String country, int year) {
+    public static Set<String> getDatesOfHolidays(String holidaysApiKey, String country, int year, DependencyGuard calendarificGuard) {
 
-        Unirest.setTimeouts(0, 0);
+        Unirest.setTimeouts(CONNECTION_TIMEOUT_IN_MILLIS, SOCKET_TIMEOUT_IN_MILLIS);
 
         String url = "";
 
@@ -38,6 +45,8 @@ public class HolidaysEngine {
         // create the url with query parameters
         url = createUrlForCurrentCountryAndYear(holidaysApiKey, country, year);
 
+        DependencyGuard.Permit permit = calendarificGuard.acquire();
+        boolean isFailure = true;
         try {
             // send get request to "calendarific" server with the url that require to get all jews holidays
             HttpResponse<String> response = Unirest.get(url).asString();
@@ -45,6 +54,9 @@ public class HolidaysEngine {
             // parse the response to holidaysResponse object
             HolidaysResponse holidaysResponse = gson.fromJson(response.getBody(), HolidaysResponse.class);
 
+            // only server errors are failures of "calendarific", e.g. a wrong api key is not
+            isFailure = response.getStatus() >= 500 || response.getStatus() == 429;
+
             // check if we got 200 in code response
             if (holidaysResponse.getMeta().getCode() != 200) {
                 // if not we throw exceptions with the code we got
@@ -62,6 +74,8 @@ public class HolidaysEngine {
 
         } catch (UnirestException e) {
             throw new RuntimeException(e);
+        } finally {
+            permit.release(isFailure);
         }
         return allHolidays;
     }
@@ -0,0 +1,551 @@
+package com.example.planit.engine;
+
+import com.example.planit.model.exam.Exam;
+import com.example.planit.model.mongo.course.Course;
+import com.example.planit.model.mongo.user.User;
+import com.example.planit.model.studysession.StudySession;
+import com.example.planit.model.timeslot.TimeSlot;
+import com.example.planit.utill.Constants;
+import com.example.planit.utill.Utility;
+import com.example.planit.utill.dto.DTOfreetime;
+import com.example.planit.utill.dto.DTOstartAndEndOfInterval;
+import com.google.api.client.util.DateTime;
+import com.google.api.services.calendar.model.Event;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+import static com.example.planit.utill.Constants.EVENT_DESCRIPTION_PRACTISE_PREV_EXAMS;
+import static com.example.planit.utill.Constants.MINUTES_TO_MILLIS;
+import static com.example.planit.utill.Utility.roundInstantMinutesTime;
+
+/**
+ * the pure planning stages of the PlanIt calendar generation.
+ * the stages only compute (no Google or DB calls), so they can be shared by every pipeline, and measured on their own.
+ */
+public class PlanningEngine {
+
+    /**
+     * 2# Takes out all the free time slots that can be taken out of the user events.
+     *
+     * @param userEvents is an array with all the events the user had.
+     * @param user       is containing user preferences.
+     * @return DTOfreetime object the return from the function adjustFreeSlotsList.
+     */
+    public static DTOfreetime getFreeSlots(List<Event> userEvents, User user, List<Exam> examsFound, String start) {
+
+        Exam lastExam = examsFound.get(examsFound.size() - 1);
+        long startTimeOfLastExam = lastExam.getDateTime().getValue();
+        List<TimeSlot> userFreeTimeSlots = new ArrayList<>();
+
+        // get the free slot before the first event
+        if (userEvents.size() > 0) {
+            long startOfFirstEvent = userEvents.get(0).getStart().getDateTime().getValue();
+            userFreeTimeSlots.add(new TimeSlot(new DateTime(start), new DateTime(startOfFirstEvent)));
+        }
+
+        // get all free time slots in the event
+        for (int i = 0; i < userEvents.size() - 1; i++) {
+            // get start of event in (i+1) place
+            long startOfNextEvent = userEvents.get(i + 1).getStart().getDateTime().getValue();
+            // get the end of event in (i) place
+            long endOfCurrentEvent = userEvents.get(i).getEnd().getDateTime().getValue();
+            if (endOfCurrentEvent < startOfNextEvent) {
+                //check if we have time to add, add to list of free time.
+                userFreeTimeSlots.add(new TimeSlot(new DateTime(endOfCurrentEvent), new DateTime(startOfNextEvent)));
+                if (startTimeOfLastExam == startOfNextEvent) {
+                    break;
+                }
+            }
+        }
+
+        return adjustFreeSlotsList(userFreeTimeSlots, user);
+    }
+
+    /**
+     * adjusts the free slots to the user's preferences
+     *
+     * @param userFreeTimeSlots a list of {@link TimeSlot} that contains the free time slots without user's preferences
+     * @param user              a {@link User} that represents the user related to the slot list
+     * @return a {@link DTOfreetime} that represents an adjusted free time slots
+     */
+    public static DTOfreetime adjustFreeSlotsList(List<TimeSlot> userFreeTimeSlots, User user) {
+        int totalFreeTime = 0;
+        List<TimeSlot> adjustedUserFreeSlots = new ArrayList<>();
+
+        // gets user's preferences
+        int userStudyStartTime = user.getUserPreferences().getUserStudyStartTime();
+        int userStudyEndTime = user.getUserPreferences().getUserStudyEndTime();
+        int userStudySessionTime = user.getUserPreferences().getStudySessionTime();
+
+        // goes through the raw time slots
+        for (TimeSlot userFreeTimeSlot : userFreeTimeSlots) {
+
+            // gets current slot end and start
+            Instant startOfCurrentSlot = Instant.ofEpochMilli(userFreeTimeSlot.getStart().getValue());
+            Instant endOfCurrentSlot = Instant.ofEpochMilli(userFreeTimeSlot.getEnd().getValue());
+
+            // finds the first place of user study start time (e.g. first 8:00)
+            // finds the first place of user study end time (e.g. first 22:00)
+            DTOstartAndEndOfInterval currentInterval = Utility.getCurrentInterval(startOfCurrentSlot, userStudyStartTime, userStudyEndTime);
+            Instant userStudyStartFirst = currentInterval.getStartOfInterval();
+            Instant userStudyEndFirst = currentInterval.getEndOfInterval();
+
+            Instant selectedStart;
+            Instant selectedEnd;
+
+            // we take the min(userStudyEndFirst,endOfCurrentSlot)
+            if (userStudyEndFirst.isAfter(endOfCurrentSlot)) { // the first 22:00 is after the end of slot
+                selectedEnd = endOfCurrentSlot;
+            } else {
+                selectedEnd = userStudyEndFirst;
+            }
+
+            // we take the max(userStudyStartFirst, startOfCurrentSlot)
+            if (userStudyStartFirst.isBefore(startOfCurrentSlot)) { // the first 08:00 is before the start of slot
+                selectedStart = startOfCurrentSlot;
+            } else {
+                selectedStart = userStudyStartFirst;
+            }
+
+            if (selectedStart.until(selectedEnd, ChronoUnit.MINUTES) >= userStudySessionTime) {
+                // adds the study time of the first day
+                adjustedUserFreeSlots.add(new TimeSlot(new DateTime(selectedStart.toEpochMilli()), new DateTime(selectedEnd.toEpochMilli())));
+                totalFreeTime += (selectedEnd.toEpochMilli() - selectedStart.toEpochMilli()) / Constants.MILLIS_TO_HOUR;
+            }
+
+            // finds the next place of user study start time (e.g. next 8:00)
+            // finds the next place of user study end time (e.g. next 22:00)
+            Instant userStudyStartNext = Utility.addDayToCurrentInstant(userStudyStartFirst);
+            Instant userStudyEndNext = Utility.addDayToCurrentInstant(userStudyEndFirst);
+
+            while (userStudyEndNext.isBefore(endOfCurrentSlot)) {
+                // adds a full day study for the next day
+                adjustedUserFreeSlots.add(new TimeSlot(new DateTime(userStudyStartNext.toEpochMilli()), new DateTime(userStudyEndNext.toEpochMilli())));
+                totalFreeTime += (userStudyEndNext.toEpochMilli() - userStudyStartNext.toEpochMilli()) / Constants.MILLIS_TO_HOUR;
+
+                // finds the next place of user study start time (e.g. next 8:00)
+                // finds the next place of user study end time (e.g. next 22:00)
+                userStudyStartNext = Utility.addDayToCurrentInstant(userStudyStartNext);
+                userStudyEndNext = Utility.addDayToCurrentInstant(userStudyEndNext);
+            }
+
+            if ((userStudyStartNext.isBefore(endOfCurrentSlot))
+                    && (userStudyStartNext.until(endOfCurrentSlot, ChronoUnit.MINUTES) >= userStudySessionTime)) {
+                // adds the study time of the last day
+                adjustedUserFreeSlots.add(new TimeSlot(new DateTime(userStudyStartNext.toEpochMilli()), new DateTime(endOfCurrentSlot.toEpochMilli())));
+                totalFreeTime += (endOfCurrentSlot.toEpochMilli() - userStudyStartNext.toEpochMilli()) / Constants.MILLIS_TO_HOUR;
+            }
+        }
+        return new DTOfreetime(adjustedUserFreeSlots, totalFreeTime);
+    }
+
+    /**
+     * calculates the proportions of the courses that the user has.
+     * for each course, the proportion is determined by a double (e.g. 0.995 is 99.5%)
+     *
+     * @param exams a list of {@link Exam} that represents the exams that the user have
+     * @return a map of string to double that represents the course names and their proportion
+     */
+    public static Map<Exam, Double> getExamsProportions(List<Exam> exams) {
+
+        Map<Exam, Integer> exam2TotalValue = new HashMap<>();
+        int sumTotalValues = 0;
+        Map<Exam, Double> exam2Proportion = new HashMap<>();
+
+        for (Exam exam : exams) {
+
+            Course currentCourse = exam.getCourse();
+
+            // gets the total value of the course ( credits + difficulty level + recommended study time)
+            int currentCourseTotalValue = currentCourse.getCredits() + currentCourse.getDifficultyLevel() + currentCourse.getRecommendedStudyTime();
+
+            // adds the exam to the map of total values
+            exam2TotalValue.put(exam, currentCourseTotalValue);
+            sumTotalValues += currentCourseTotalValue;
+        }
+
+        for (Map.Entry<Exam, Integer> examTotalValueMapEntry : exam2TotalValue.entrySet()) {
+            Exam currentExam = examTotalValueMapEntry.getKey();
+            int currentExamTotalValue = examTotalValueMapEntry.getValue();
+
+            // calculates the percentage of the exam's value
+            double currentExamProportion = ((double) currentExamTotalValue / (double) sumTotalValues);
+
+            // adds the exam to the map of proportions
+            exam2Proportion.put(currentExam, currentExamProportion);
+        }
+
+        return exam2Proportion;
+    }
+
+    /**
+     * separate the free time slots to study sessions.
+     *
+     * @param user          use for get user preferences.
+     * @param freeTimeSlots have all the free time slots.
+     * @return list of study session
+     */
+    public static List<StudySession> separateSlotsToSessions(User user, List<TimeSlot> freeTimeSlots) {
+
+        List<StudySession> listOfStudySessions = new ArrayList<>();
+        long breakTime = user.getUserPreferences().getUserBreakTime();
+        int studyTimeInMinutes = user.getUserPreferences().getStudySessionTime();
+
+        // go through the slots list
+        for (TimeSlot timeSlot : freeTimeSlots) {
+            // initial the startOfSession and endOfSession.
+            // the sessions are rounded to 15 minutes intervals
+            Instant startOfSession = roundInstantMinutesTime(Instant.ofEpochMilli(timeSlot.getStart().getValue()), true);
+            Instant endOfSession = startOfSession.plus(studyTimeInMinutes, ChronoUnit.MINUTES);
+
+            // while "endOfSession" is in the range of the slot
+            while (endOfSession.toEpochMilli() <= timeSlot.getEnd().getValue()) {
+                // add the current study session to the list
+                listOfStudySessions.add(new StudySession(new DateTime(startOfSession.toEpochMilli()), new DateTime(endOfSession.toEpochMilli())));
+                // add to the endOfSession the break time
+                endOfSession = endOfSession.plus(breakTime, ChronoUnit.MINUTES);
+                // initial the new startOfSession and endOfSession.
+                startOfSession = endOfSession;
+                endOfSession = startOfSession.plus(studyTimeInMinutes, ChronoUnit.MINUTES);
+            }
+
+            // if the "startOfSession" is in the range and the "endOfSession" is out of range,
+            // adds the session from "startOfSession" to the end of range.
+            if (startOfSession.toEpochMilli() < timeSlot.getEnd().getValue()
+                    && timeSlot.getEnd().getValue() - startOfSession.toEpochMilli() >= (long) studyTimeInMinutes * MINUTES_TO_MILLIS) {
+                Instant endOfSlot = roundInstantMinutesTime(Instant.ofEpochMilli(timeSlot.getEnd().getValue()), false);
+                listOfStudySessions.add(new StudySession(new DateTime(startOfSession.toEpochMilli()), new DateTime(endOfSlot.toEpochMilli())));
+            }
+        }
+
+        return listOfStudySessions;
+    }
+
+    /**
+     * for every session, calculates the number of sessions, considering the proportions and the number of total sessions.
+     * for each course X, the number of sessions is calculated as a rounded value of: (number of sessions * proportions of course X)
+     *
+     * @param exam2Proportions a map that contains values of proportions for each exam
+     * @param numOfSessions    the number of sessions available
+     * @return a map of string to int that represents, for each course name, the number of sessions
+     */
+    public static Map<Exam, Integer> distributeNumberOfSessionsToCourses(Map<Exam, Double> exam2Proportions, int numOfSessions) {
+        Map<Exam, Integer> exams2numberOfSessions = new HashMap<>();
+
+        for (Map.Entry<Exam, Double> examProportionMapEntry : exam2Proportions.entrySet()) {
+            Exam exam = examProportionMapEntry.getKey();
+            Double proportion = examProportionMapEntry.getValue();
+
+            // gets the number of sessions for the current exam
+            Integer numberOfSessionForCurrentExam = (int) Math.round(numOfSessions * proportion);
+
+            // adds the number of sessions to the map
+            exams2numberOfSessions.put(exam, numberOfSessionForCurrentExam);
+        }
+
+        return exams2numberOfSessions;
+
+    }
+
+    /**
+     * embeds the details (courses' names and subjects) in the user's sessions list.
+     * embeds the courses considering exams' dates, courses' proportions, and information about courses subjects
+     *
+     * @param exams2numberOfSessions a map of string to int that represents, for each course name, the required number of sessions
+     * @param sessionsList           a list of {@link StudySession} that represents the user's created study sessions
+     * @param exams                  a list of {@link Exam} that represents the user's exams
+     */
+    public static void embedCoursesInSessions(Map<Exam, Integer> exams2numberOfSessions, List<StudySession> sessionsList, List<Exam> exams) {
+
+        // represents each exam with a unique index identifier.
+        Map<Exam, Integer> exam2Index = new HashMap<>();
+        for (int i = 0; i < exams.size(); i++) {
+            exam2Index.put(exams.get(i), i);
+        }
+
+        // embeds the courses' names in the sessions list
+        embedCoursesNamesInSessions(exams2numberOfSessions, sessionsList, exams);
+        // embeds the courses' subjects in the sessions list.
+        embedCoursesSubjectsInSessions(exam2Index, sessionsList, exams);
+
+
+    }
+
+    /**
+     * embeds the courses names in the sessions, considering the exams dates and the number of sessions required for each course.
+     *
+     * @param exams2numberOfSessions a map of string to int that represents, for each course name, the required number of sessions
+     * @param sessionsList           a list of {@link StudySession} that represents the user's created study sessions
+     * @param exams                  a list of {@link Exam} that represents the user's exams
+     */
+    public static void embedCoursesNamesInSessions(Map<Exam, Integer> exams2numberOfSessions, List<StudySession> sessionsList, List<Exam> exams) {
+
+        Stack<Exam> nextExams = new Stack<>();
+        int currentExamIndex = exams.size() - 1;
+
+        // initiate the set with the last dated exam in the exams period
+        nextExams.push(exams.get(currentExamIndex));
+        currentExamIndex--;
+
+        // goes through the sessions from the end to the start
+        for (int i = sessionsList.size() - 1; i >= 0; i--) {
+
+            // if the current session starts before the following exam to be seen
+            // e.g. if 08:00-10:00 of 09/07 is before the 10/07
+            if (currentExamIndex > -1 && sessionsList.get(i).getStart().getValue() < exams.get(currentExamIndex).getDateTime().getValue()) {
+                nextExams.push(exams.get(currentExamIndex));
+                currentExamIndex--;
+            }
+
+            /* checks if the nextExams stack is empty.
+               if empty, removes the next sessions from the sessionsList,
+               until we reach the next exam */
+            if (nextExams.isEmpty()) {
+                sessionsList.remove(i);
+                continue;
+            }
+
+            // sets the session to be associated with the exam that is the closest to the session
+            sessionsList.get(i).setCourseName(nextExams.peek().getCourse().getCourseName());
+            sessionsList.get(i).setExamToStudyFor(nextExams.peek());
+
+            // extract course name and sessions-count values
+            Exam exam = nextExams.peek();
+            int numOfSessionsPerExam = exams2numberOfSessions.get(nextExams.peek());
+
+            // update session count value and save new value to the map
+            numOfSessionsPerExam -= 1;
+
+            if (numOfSessionsPerExam != 0) { // if there are more session left to insert, updates the value in the map
+                exams2numberOfSessions.put(exam, numOfSessionsPerExam);
+            } else { // if no more sessions left to insert, removes exam from stack
+                nextExams.pop();
+            }
+        }
+    }
+
+    /**
+     * embeds the courses subjects in the sessions, assuming all the sessions have been embedded with courses names.
+     *
+     * @param exams2IndexInListOfExams a map of string to int, representing for each course name, a unique index that is helpful for identifying the course in an internal array
+     * @param sessionsList             a list of {@link StudySession} that represent the user's created study sessions
+     * @param exams                    a list of a {@link Exam} that represents the user's exams
+     */
+    public static void embedCoursesSubjectsInSessions(Map<Exam, Integer> exams2IndexInListOfExams, List<StudySession> sessionsList, List<Exam> exams) {
+
+        // create list of a list of study-sessions to make insertion of subjects easier later.
+        List<List<StudySession>> listOfListOfStudySessions = new ArrayList<>();
+        for (Exam ignored : exams) {
+            listOfListOfStudySessions.add(new ArrayList<>());
+        }
+
+        // run through the sessions list and initialize the list of lists
+        for (StudySession session : sessionsList) {
+
+            int examIndexInListOfLists = exams2IndexInListOfExams.get(session.getExamToStudyFor());
+            listOfListOfStudySessions.get(examIndexInListOfLists).add(session);
+        }
+
+
+        //  run through the list of lists and embed the subjects, for each session
+        for (int i = 0; i < exams.size(); i++) {
+
+            Exam currentExam = exams.get(i);
+
+            String[] subjects = currentExam.getCourse().getCourseSubjects(); // e.g ["עוצמות" ,"פונקציות"]
+            int numberOfSubjectsInCurrentExam = subjects.length;
+            int indexOfCurrentSubject = 0;
+
+            // presents the percentage for study the subject for the current exam.
+            double subjectsToExamsPracticeProportions = (currentExam.getCourse().getSubjectsPracticePercentage()) * 0.01; // e.g - 60% of 100%
+
+            List<StudySession> sessionsListOfCurrentExam = listOfListOfStudySessions.get(i);
+            int numberOfSessions = sessionsListOfCurrentExam.size();
+            int numberOfSessionsForSubjects = (int) Math.ceil(numberOfSessions * subjectsToExamsPracticeProportions);
+
+            double subjectsPerSession = (double) subjects.length / (double) numberOfSessionsForSubjects;
+            double subjectsPerSessionCounter = 0;
+            int nextSubjectsPerSessionInteger = 1;
+
+            // makes the subjectsPerSession an integer
+            if (subjectsPerSession >= 1) {
+                subjectsPerSession = Math.ceil(subjectsPerSession);
+            }
+
+
+            for (int j = 0; j < numberOfSessions; j++) {
+
+                if (numberOfSessionsForSubjects <= j) {
+                    // set "test" Description in the current session
+                    sessionsListOfCurrentExam.get(j).setDescription(EVENT_DESCRIPTION_PRACTISE_PREV_EXAMS);
+                } else {
+
+                    if (subjectsPerSession < 1) {
+                        // numOfSubjects < numOfSessions
+                        // each subject get more than one session.
+                        sessionsListOfCurrentExam.get(j).setDescription(subjects[indexOfCurrentSubject]);
+                        subjectsPerSessionCounter += subjectsPerSession;
+                        // we pass to the need subject.
+                        if ((int) subjectsPerSessionCounter == nextSubjectsPerSessionInteger) {
+                            indexOfCurrentSubject++;
+                            nextSubjectsPerSessionInteger++;
+                        }
+
+
+                    } else if (subjectsPerSession == 1) {
+                        // numOfSubjects = numOfSessions
+                        // each subject gets one session
+                        sessionsListOfCurrentExam.get(j).setDescription(subjects[indexOfCurrentSubject]);
+                        indexOfCurrentSubject++;
+
+                    } else if (subjectsPerSession > 1) {
+                        // numOfSubjects > numOfSessions
+                        // each session get more than one subject.
+                        int k;
+                        StringBuilder subjectsToStudyBuilder = new StringBuilder();
+
+                        // inserts the next few subjects in the new session
+                        for (k = 0; k < subjectsPerSession && indexOfCurrentSubject + k < subjects.length; k++) {
+                            if (k != 0) {
+                                subjectsToStudyBuilder.append(" , ");
+                            }
+                            subjectsToStudyBuilder.append(subjects[indexOfCurrentSubject + k]);
+                        }
+                        sessionsListOfCurrentExam.get(j).setDescription(subjectsToStudyBuilder.toString());
+                        indexOfCurrentSubject += k;
+                    }
+                }
+
+
+                /*
+
+                sessions      subjects            Math.ceil( subjects/sessions )        ordering
+                  3              5                             2                        2, 2, 1
+                  2              10                            5                        5, 5
+                  4              15                            4                        4, 4, 4, 3
+                  5              5                             1                        1,1,1,1,1
+                  10             2                             0.2                      0.5, 0.5 0.5, 0.5 0.5, 0.5 0.5, 0.5 0.5, 0.5
+
+                 */
+
+
+            }
+        }
+    }
+
+    /**
+     * finds all the overlapping events from the old PlanIt calendar (from previous generating processes).
+     * the new generated sessions are compared to the old generated events.
+     *
+     * @param sessionsList            the new list of {@link StudySession} that about to be created as an events
+     * @param planItCalendarOldEvents the old list of {@link Event} that been created and to be checked if causing an overlap anywhere
+     * @return list of old {@link Event} from the PlanIt calendar that will later be deleted from the calendar.
+     */
+    public static List<Event> getOverlapOldEventsPlanItCalendar(List<StudySession> sessionsList, List<Event> planItCalendarOldEvents) {
+        List<Event> overlappingEvents = new ArrayList<>();
+        List<Integer> newSessionsIndicesToBeRemoved = new ArrayList<>();
+
+        int newSessionIndex = 0;
+        int oldEventIndex = 0;
+
+        while (newSessionIndex < sessionsList.size() && oldEventIndex < planItCalendarOldEvents.size()) {
+            StudySession newSession = sessionsList.get(newSessionIndex);
+            Event oldEvent = planItCalendarOldEvents.get(oldEventIndex);
+
+            if (newSession.getEnd().getValue() < (oldEvent.getStart().getDateTime().getValue())) {
+                // new event ends before old event starts, move to next new event
+                newSessionIndex++;
+            } else if (newSession.getStart().getValue() > (oldEvent.getEnd().getDateTime().getValue())) {
+                // new event starts after old event ends, move to next old event
+                oldEventIndex++;
+            } else if (newSession.getStart().equals(oldEvent.getStart().getDateTime())
+                    && newSession.getEnd().equals(oldEvent.getEnd().getDateTime())
+                    && (Constants.EVENT_SUMMERY_PREFIX + newSession.getCourseName()).equals(oldEvent.getSummary())
+                    && newSession.getDescription().equals(oldEvent.getDescription())) {
+                // overlap detected, but the new session is exactly the same as the old event,
+                // so add the index to the list of indices to be removed later
+                newSessionsIndicesToBeRemoved.add(newSessionIndex);
+                newSessionIndex++;
+                oldEventIndex++;
+
+            } else {
+                // overlap detected, add old event to list of overlapping events
+                overlappingEvents.add(oldEvent);
+                oldEventIndex++;
+            }
+
+        }
+        // removes all the events that are duplicates from the sessions list
+        for (int i = newSessionsIndicesToBeRemoved.size() - 1; i >= 0; i--) {
+            sessionsList.remove(newSessionsIndicesToBeRemoved.get(i).intValue());
+        }
+
+        return overlappingEvents;
+    }
+}
+
+/*
+
+<string, int>
+<name, show>
+
+
+Priority Queue:    [           B   C           ]
+
+name      show     priority
+C          5       First
+
+
+[A][A][A][ ][ ][ ][ ][ ][ ][ ][ ][ ][ ][ ][ ]testA[C][B][B][B]testB[C][C][C][C]testC
+               {A,B,C}
+                1 2 3
+
+
+
+[ ][ ][ ][ ][ ]testA[ ][ ][ ][ ][ ][ ][ ][ ][ ][ ][ ][ ][ ][ ][ ]testB
+
+after embed the exam's course names we know, for each course:
+ numOfSessions
+ numOfSubjects
+
+ case1: numOfSessions > numOfSubjects
+ - more than one subjects for each session.
+
+ case2: numOfSubjects < numOfSessions
+ - each subject for more than one session.
+
+ case3: numOfSubjects = numOfSessions
+ - each subject gets one session
+
+
+
+
+
+ CCCBBAAAAAAA testA - testB CCCCC testC
+    {A,B,C}               {B,C}          {C}
+
+<<String, int>,       int>
+<<name,   difficult>, show>
+<-----------------------------------------------
+A   B   C
+3   3   5                Coman              OS &LINUX
+[A][A][A]testA[C][B][B][B]testB[C][C][C][C]testC
+
+A   B   C
+3   4   5
+[A][A][A]testA[B/C][B][B][B]testB[C][C][C][C]testC ?
+
+A   B   C
+4   2   6
+[A][A][A]testA[C][C][B][B]testB[C][C][C][C]testC
+
+A   B   C
+4   2   5
+[A][A][A]testA[ ][C][B][B]testB[C][C][C][C]testC ?
+
+A   B   C
+4   5   3
+[A][A][A]testA[B][B][B][B]testB[ ][C][C][C]testC
+* */
\ No newline at end of file
@@ -0,0 +1,432 @@
+package com.example.planit.engine;
+
+import com.google.api.client.util.DateTime;
+import com.google.api.services.calendar.model.Event;
+import com.google.api.services.calendar.model.EventDateTime;
+
+import java.time.*;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.TemporalAdjusters;
+import java.util.*;
+
+/**
+ * expands the recurring events of a calendar locally, instead of asking Google for their instances (singleEvents=true).
+ * Google then sends a single master event for each recurring event (e.g. a weekly lecture) with its RRULE,
+ * and the exceptions of its instances (a moved or a cancelled lecture), instead of an event for every week of the scan.
+ * the instances are created with the start, the end and the summary of the master only, which is all the planning needs.
+ * the rules Google creates for the recurring events of a student are supported (DAILY and WEEKLY, with INTERVAL, COUNT, UNTIL, BYDAY and WKST, and EXDATE),
+ * for any other rule the calendar should be fetched with its instances.
+ */
+public class RecurringEventsExpander {
+
+    // the fields of the list of events that the scan reads, so Google does not send the rest of them (e.g. the attendees of each event).
+    // the description is read too, since the diff of the PlanIt calendar compares the descriptions of the sessions
+    public static final String EVENTS_FIELDS = "timeZone,nextPageToken,items(id,status,summary,description,start,end,recurrence,recurringEventId,originalStartTime)";
+
+    private static final String CANCELLED_STATUS = "cancelled";
+
+    // a guard against a rule that never reaches the scanned time (e.g. a daily event that started many years ago)
+    private static final int MAX_CANDIDATES_PER_EVENT = 50_000;
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private static final DateTimeFormatter LOCAL_DATE_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+
+    // the same format as the IDs of the instances that Google creates, e.g. "abc_20230105T060000Z"
+    private static final DateTimeFormatter INSTANCE_ID_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+
+    private static final Map<String, DayOfWeek> DAYS_OF_WEEK = Map.of("MO", DayOfWeek.MONDAY, "TU", DayOfWeek.TUESDAY, "WE", DayOfWeek.WEDNESDAY,
+            "TH", DayOfWeek.THURSDAY, "FR", DayOfWeek.FRIDAY, "SA", DayOfWeek.SATURDAY, "SU", DayOfWeek.SUNDAY);
+
+    /**
+     * @param events           the events of a calendar, as listed with singleEvents=false (the masters of the recurring events and their exceptions)
+     * @param start            the time to start scan of events
+     * @param end              the time to end scan of events
+     * @param calendarTimeZone the time zone of the calendar, for the masters that have no time zone of their own
+     * @return the events in the time interval, with the instances of the recurring events instead of their masters, ordered by start time.
+     * or empty if the rule of a recurring event is not supported
+     */
+    public static Optional<List<Event>> expand(List<Event> events, DateTime start, DateTime end, String calendarTimeZone) {
+        long startInMillis = start.getValue();
+        long endInMillis = end.getValue();
+
+        // the instances that Google already sent (moved or cancelled), so they are not created from the rule
+        Map<String, Set<Long>> masterID2Exceptions = new HashMap<>();
+        for (Event event : events) {
+            if (event.getRecurringEventId() != null && event.getOriginalStartTime() != null) {
+                masterID2Exceptions.computeIfAbsent(event.getRecurringEventId(), masterID -> new HashSet<>()).add(toMillis(event.getOriginalStartTime()));
+            }
+        }
+
+        List<Event> expandedEvents = new ArrayList<>();
+        for (Event event : events) {
+            if (CANCELLED_STATUS.equals(event.getStatus())) {
+                continue;
+            }
+
+            if (event.getRecurrence() == null || event.getRecurrence().isEmpty()) {
+                if (isOverlapping(event, startInMillis, endInMillis)) {
+                    expandedEvents.add(event);
+                }
+                continue;
+            }
+
+            Optional<List<Event>> maybeInstances = expandMaster(event, startInMillis, endInMillis, calendarTimeZone,
+                    masterID2Exceptions.getOrDefault(event.getId(), Set.of()));
+            if (maybeInstances.isEmpty()) {
+                return Optional.empty();
+            }
+            expandedEvents.addAll(maybeInstances.get());
+        }
+
+        expandedEvents.sort(Comparator.comparingLong(event -> toMillis(event.getStart())));
+        return Optional.of(expandedEvents);
+    }
+
+    /**
+     * @param exceptions the original start times of the instances that are not created from the rule
+     * @return the instances of the recurring event in the time interval, or empty if its rule is not supported
+     */
+    private static Optional<List<Event>> expandMaster(Event master, long startInMillis, long endInMillis, String calendarTimeZone, Set<Long> exceptions) {
+        if (master.getStart() == null || master.getEnd() == null) {
+            return Optional.empty();
+        }
+
+        boolean isFullDay = master.getStart().getDate() != null;
+        String timeZone = master.getStart().getTimeZone() != null ? master.getStart().getTimeZone() : calendarTimeZone;
+        ZoneId zone;
+        try {
+            zone = timeZone != null ? ZoneId.of(timeZone) : ZoneOffset.UTC;
+        } catch (DateTimeException e) {
+            return Optional.empty();
+        }
+
+        // the first instance, and the length of each instance
+        ZonedDateTime firstStart;
+        Duration duration = null;
+        Period fullDayDuration = null;
+        if (isFullDay) {
+            LocalDate firstDate = toLocalDate(master.getStart().getDate());
+            firstStart = firstDate.atStartOfDay(zone);
+            fullDayDuration = Period.between(firstDate, toLocalDate(master.getEnd().getDate()));
+        } else {
+            firstStart = Instant.ofEpochMilli(master.getStart().getDateTime().getValue()).atZone(zone);
+            duration = Duration.ofMillis(master.getEnd().getDateTime().getValue() - master.getStart().getDateTime().getValue());
+        }
+
+        Optional<RecurrenceRule> maybeRule = RecurrenceRule.parse(master.getRecurrence(), firstStart, isFullDay);
+        if (maybeRule.isEmpty()) {
+            return Optional.empty();
+        }
+        RecurrenceRule rule = maybeRule.get();
+
+        List<Event> instances = new ArrayList<>();
+        LocalDate firstDate = firstStart.toLocalDate();
+        int numberOfInstances = 0;
+        int candidates = 0;
+        for (LocalDate date : rule.candidateDates(firstDate)) {
+            if (++candidates > MAX_CANDIDATES_PER_EVENT) {
+                return Optional.empty();
+            }
+
+            ZonedDateTime instanceStart = isFullDay ? date.atStartOfDay(zone) : ZonedDateTime.of(date, firstStart.toLocalTime(), zone);
+
+            // by the RFC the first instance is the start of the master, so a rule that does not match it is not supported
+            if (numberOfInstances == 0 && !date.equals(firstDate)) {
+                return Optional.empty();
+            }
+
+            if ((rule.count != null && numberOfInstances >= rule.count) || (rule.untilInMillis != null && instanceStart.toInstant().toEpochMilli() > rule.untilInMillis)) {
+                break;
+            }
+            numberOfInstances++;
+
+            Event instance = isFullDay ? createFullDayInstance(master, date, date.plus(fullDayDuration)) : createInstance(master, instanceStart, duration);
+            long instanceStartInMillis = toMillis(instance.getStart());
+            if (instanceStartInMillis >= endInMillis) {
+                break;
+            }
+            if (!rule.excludedDates.contains(instanceStartInMillis) && !exceptions.contains(instanceStartInMillis) && isOverlapping(instance, startInMillis, endInMillis)) {
+                instances.add(instance);
+            }
+        }
+
+        return Optional.of(instances);
+    }
+
+    private static Event createInstance(Event master, ZonedDateTime start, Duration duration) {
+        long startInMillis = start.toInstant().toEpochMilli();
+        return new Event()
+                .setId(master.getId() + "_" + INSTANCE_ID_FORMAT.format(start))
+                .setRecurringEventId(master.getId())
+                .setSummary(master.getSummary())
+                .setStart(new EventDateTime().setDateTime(new DateTime(startInMillis)).setTimeZone(master.getStart().getTimeZone()))
+                .setEnd(new EventDateTime().setDateTime(new DateTime(startInMillis + duration.toMillis())).setTimeZone(master.getEnd().getTimeZone()));
+    }
+
+    private static Event createFullDayInstance(Event master, LocalDate startDate, LocalDate endDate) {
+        return new Event()
+                .setId(master.getId() + "_" + DATE_FORMAT.format(startDate))
+                .setRecurringEventId(master.getId())
+                .setSummary(master.getSummary())
+                .setStart(new EventDateTime().setDate(new DateTime(startDate.toString())))
+                .setEnd(new EventDateTime().setDate(new DateTime(endDate.toString())));
+    }
+
+    private static boolean isOverlapping(Event event, long startInMillis, long endInMillis) {
+        return event.getStart() != null && event.getEnd() != null && toMillis(event.getEnd()) > startInMillis && toMillis(event.getStart()) < endInMillis;
+    }
+
+    private static long toMillis(EventDateTime eventDateTime) {
+        return eventDateTime.getDateTime() != null ? eventDateTime.getDateTime().getValue() : eventDateTime.getDate().getValue();
+    }
+
+    private static LocalDate toLocalDate(DateTime date) {
+        return LocalDate.parse(date.toStringRfc3339());
+    }
+
+    /**
+     * the supported part of RFC 5545: a single RRULE and its EXDATEs
+     */
+    private static class RecurrenceRule {
+
+        private final boolean isWeekly;
+
+        private final int interval;
+
+        private final Integer count;
+
+        // the last start time of an instance, inclusive
+        private final Long untilInMillis;
+
+        // empty is the day of the week of the first instance
+        private final List<DayOfWeek> byDay;
+
+        private final DayOfWeek weekStart;
+
+        // the start times of the excluded instances, the same as the start of their events (see toMillis)
+        private final Set<Long> excludedDates;
+
+        private RecurrenceRule(boolean isWeekly, int interval, Integer count, Long untilInMillis, List<DayOfWeek> byDay, DayOfWeek weekStart, Set<Long> excludedDates) {
+            this.isWeekly = isWeekly;
+            this.interval = interval;
+            this.count = count;
+            this.untilInMillis = untilInMillis;
+            this.byDay = byDay;
+            this.weekStart = weekStart;
+            this.excludedDates = excludedDates;
+        }
+
+        /**
+         * @param recurrence the recurrence of the master, e.g. ["RRULE:FREQ=WEEKLY;UNTIL=20230630T210000Z", "EXDATE;TZID=Asia/Jerusalem:20230413T100000"]
+         * @return the rule, or empty if it is not supported
+         */
+        static Optional<RecurrenceRule> parse(List<String> recurrence, ZonedDateTime firstStart, boolean isFullDay) {
+            String rrule = null;
+            Set<Long> excludedDates = new HashSet<>();
+
+            for (String line : recurrence) {
+                if (line.startsWith("RRULE:") && rrule == null) {
+                    rrule = line.substring("RRULE:".length());
+                } else if (line.startsWith("EXDATE")) {
+                    if (!parseExcludedDates(line, firstStart.getZone(), isFullDay, excludedDates)) {
+                        return Optional.empty();
+                    }
+                } else {
+                    // RDATE, EXRULE or a second RRULE
+                    return Optional.empty();
+                }
+            }
+            if (rrule == null) {
+                return Optional.empty();
+            }
+
+            String frequency = null;
+            int interval = 1;
+            Integer count = null;
+            Long untilInMillis = null;
+            List<DayOfWeek> byDay = new ArrayList<>();
+            DayOfWeek weekStart = DayOfWeek.MONDAY;
+
+            try {
+                for (String part : rrule.split(";")) {
+                    String[] keyAndValue = part.split("=", 2);
+                    if (keyAndValue.length != 2) {
+                        return Optional.empty();
+                    }
+
+                    String value = keyAndValue[1];
+                    switch (keyAndValue[0]) {
+                        case "FREQ" -> frequency = value;
+                        case "INTERVAL" -> interval = Integer.parseInt(value);
+                        case "COUNT" -> count = Integer.parseInt(value);
+                        case "UNTIL" -> untilInMillis = parseUntil(value, firstStart.getZone());
+                        case "BYDAY" -> {
+                            for (String day : value.split(",")) {
+
+                                // an ordinal day (e.g. 2MO, the second Monday) is of the monthly rules
+                                DayOfWeek dayOfWeek = DAYS_OF_WEEK.get(day);
+                                if (dayOfWeek == null) {
+                                    return Optional.empty();
+                                }
+                                byDay.add(dayOfWeek);
+                            }
+                        }
+                        case "WKST" -> {
+                            weekStart = DAYS_OF_WEEK.get(value);
+                            if (weekStart == null) {
+                                return Optional.empty();
+                            }
+                        }
+                        default -> {
+                            return Optional.empty();
+                        }
+                    }
+                }
+            } catch (NumberFormatException | DateTimeParseException e) {
+                return Optional.empty();
+            }
+
+            if ((!"DAILY".equals(frequency) && !"WEEKLY".equals(frequency)) || interval < 1 || (count != null && count < 1)) {
+                return Optional.empty();
+            }
+
+            // a daily rule that steps over whole weeks may never reach the days of BYDAY
+            if ("DAILY".equals(frequency) && !byDay.isEmpty() && interval % 7 == 0) {
+                return Optional.empty();
+            }
+
+            return Optional.of(new RecurrenceRule("WEEKLY".equals(frequency), interval, count, untilInMillis, byDay, weekStart, excludedDates));
+        }
+
+        /**
+         * @return the dates that match the rule from the week (or the day) of the first instance, without an end (the caller stops)
+         */
+        Iterable<LocalDate> candidateDates(LocalDate firstDate) {
+            if (!isWeekly) {
+                return () -> new Iterator<>() {
+
+                    private LocalDate next = findNext(firstDate);
+
+                    @Override
+                    public boolean hasNext() {
+                        return true;
+                    }
+
+                    @Override
+                    public LocalDate next() {
+                        LocalDate current = next;
+                        next = findNext(current.plusDays(interval));
+                        return current;
+                    }
+
+                    private LocalDate findNext(LocalDate date) {
+
+                        // BYDAY filters the days of a daily rule
+                        while (!byDay.isEmpty() && !byDay.contains(date.getDayOfWeek())) {
+                            date = date.plusDays(interval);
+                        }
+                        return date;
+                    }
+                };
+            }
+
+            // the days of the week, ordered from the start of the week
+            List<DayOfWeek> daysOfWeek = new ArrayList<>(byDay.isEmpty() ? List.of(firstDate.getDayOfWeek()) : byDay);
+            daysOfWeek.sort(Comparator.comparingInt(day -> Math.floorMod(day.getValue() - weekStart.getValue(), 7)));
+            LocalDate firstWeek = firstDate.with(TemporalAdjusters.previousOrSame(weekStart));
+
+            return () -> new Iterator<>() {
+
+                private long weeks = 0;
+
+                private int dayIndex = 0;
+
+                private LocalDate next = findNext();
+
+                @Override
+                public boolean hasNext() {
+                    return true;
+                }
+
+                @Override
+                public LocalDate next() {
+                    LocalDate current = next;
+                    next = findNext();
+                    return current;
+                }
+
+                private LocalDate findNext() {
+                    while (true) {
+                        if (dayIndex == daysOfWeek.size()) {
+                            dayIndex = 0;
+                            weeks += interval;
+                        }
+
+                        DayOfWeek day = daysOfWeek.get(dayIndex++);
+                        LocalDate date = firstWeek.plusWeeks(weeks).plusDays(Math.floorMod(day.getValue() - weekStart.getValue(), 7));
+
+                        // the days of the first week before the first instance
+                        if (!date.isBefore(firstDate)) {
+                            return date;
+                        }
+                    }
+                }
+            };
+        }
+
+        /**
+         * @return the last start time of an instance, an UNTIL of a date includes all of its day
+         */
+        private static long parseUntil(String until, ZoneId zone) {
+            if (until.endsWith("Z")) {
+                return LocalDateTime.parse(until.substring(0, until.length() - 1), LOCAL_DATE_TIME_FORMAT).toInstant(ZoneOffset.UTC).toEpochMilli();
+            }
+            if (until.contains("T")) {
+                return LocalDateTime.parse(until, LOCAL_DATE_TIME_FORMAT).atZone(zone).toInstant().toEpochMilli();
+            }
+
+            return LocalDate.parse(until, DATE_FORMAT).plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli() - 1;
+        }
+
+        /**
+         * parses e.g. "EXDATE;TZID=Asia/Jerusalem:20230413T100000,20230420T100000" or "EXDATE;VALUE=DATE:20230413"
+         *
+         * @return false if the dates could not be parsed
+         */
+        private static boolean parseExcludedDates(String line, ZoneId zone, boolean isFullDay, Set<Long> excludedDates) {
+            int startOfDates = line.indexOf(':');
+            if (startOfDates < 0) {
+                return false;
+            }
+
+            ZoneId datesZone = zone;
+            for (String parameter : line.substring(0, startOfDates).split(";")) {
+                if (parameter.startsWith("TZID=")) {
+                    try {
+                        datesZone = ZoneId.of(parameter.substring("TZID=".length()));
+                    } catch (DateTimeException e) {
+                        return false;
+                    }
+                }
+            }
+
+            try {
+                for (String date : line.substring(startOfDates + 1).split(",")) {
+                    if (isFullDay) {
+                        excludedDates.add(new DateTime(LocalDate.parse(date.substring(0, 8), DATE_FORMAT).toString()).getValue());
+                    } else if (date.endsWith("Z")) {
+                        excludedDates.add(LocalDateTime.parse(date.substring(0, date.length() - 1), LOCAL_DATE_TIME_FORMAT).toInstant(ZoneOffset.UTC).toEpochMilli());
+                    } else {
+                        excludedDates.add(LocalDateTime.parse(date, LOCAL_DATE_TIME_FORMAT).atZone(datesZone).toInstant().toEpochMilli());
+                    }
+                }
+            } catch (DateTimeParseException | StringIndexOutOfBoundsException e) {
+                return false;
+            }
+
+            return true;
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.example.planit.engine;
+
+import com.example.planit.model.mongo.user.User;
+import com.example.planit.model.mongo.user.UserChange;
+import com.example.planit.model.mongo.user.UserChangeRepository;
+import com.example.planit.model.mongo.user.UserRepository;
+import com.example.planit.model.mongo.user.UserStateUpdate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * a cache of the users by their email, so the requests of the same user in a row (e.g. scan -> generate -> profile) read it from the DB once.
+ * the cache is bounded (the least recently used users are evicted) and every user expires after a TTL.
+ * the changes of this node are written through the cache ({@link #updateStates(Collection)}).
+ * the changes of other nodes are found by polling the versions of the users that changed recently ({@link #pollChanges()}),
+ * and their cached users are invalidated.
+ * the users are returned as copies, so a flow can change its user without changing the cached one.
+ */
+public class UserCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserCache.class);
+
+    // the changes are polled a bit before the last seen change, so a change that was committed late is not missed
+    private static final long POLL_OVERLAP_IN_MILLIS = 5000;
+
+    private record CachedUser(User user, long loadTimeInNanos) {
+    }
+
+    private final UserRepository userRepo;
+
+    private final UserChangeRepository userChangeRepo;
+
+    // the changes of this node are not invalidated by the polls of this node
+    private final String nodeID;
+
+    private final long ttlInNanos;
+
+    private final int maxSize;
+
+    // in access order, so the eldest is the least recently used
+    private final LinkedHashMap<String, CachedUser> email2CachedUser;
+
+    // incremented by every invalidation, so a user that was read from the DB before an invalidation is not cached
+    private long invalidations;
+
+    // the time (of the DB server) of the last change that was polled, null until the first poll
+    private Date lastChangedAt;
+
+    // the versions of the changes that were polled in the last overlap, so they are not invalidated twice
+    private Map<String, Long> email2PolledVersion;
+
+    // the polls do not run at the same time
+    private final Object pollLock;
+
+    private final AtomicLong hits;
+
+    private final AtomicLong misses;
+
+    /**
+     * @param ttlInMillis the time a user stays in the cache, 0 disables the cache
+     * @param maxSize     the maximum number of users in the cache
+     */
+    public UserCache(UserRepository userRepo, UserChangeRepository userChangeRepo, long ttlInMillis, int maxSize) {
+        this.userRepo = userRepo;
+        this.userChangeRepo = userChangeRepo;
+        this.nodeID = UUID.randomUUID().toString();
+        this.ttlInNanos = TimeUnit.MILLISECONDS.toNanos(ttlInMillis);
+        this.maxSize = maxSize;
+        this.email2CachedUser = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedUser> eldest) {
+                return size() > UserCache.this.maxSize;
+            }
+        };
+        this.email2PolledVersion = new HashMap<>();
+        this.pollLock = new Object();
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+    }
+
+    /**
+     * @param email the user's email
+     * @return a copy of the user, from the cache or from the DB
+     */
+    public Optional<User> findUserByEmail(String email) {
+        Optional<User> cachedUser = getIfPresent(email);
+        if (cachedUser.isPresent()) {
+            return cachedUser;
+        }
+
+        long invalidationsBeforeLoad = getInvalidations();
+        Optional<User> maybeUser = userRepo.findUserByEmail(email);
+        maybeUser.ifPresent(user -> put(user, invalidationsBeforeLoad));
+
+        return maybeUser.map(User::new);
+    }
+
+    /**
+     * @param email the user's email
+     * @return a copy of the cached user, or empty if it is not cached (then the caller reads it from the DB and {@link #put}s it)
+     */
+    public Optional<User> getIfPresent(String email) {
+        if (!isEnabled()) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+
+        synchronized (this) {
+            CachedUser cachedUser = email2CachedUser.get(email);
+            if (cachedUser != null && System.nanoTime() - cachedUser.loadTimeInNanos() < ttlInNanos) {
+                hits.incrementAndGet();
+                return Optional.of(new User(cachedUser.user()));
+            }
+
+            if (cachedUser != null) {
+                email2CachedUser.remove(email);
+            }
+        }
+
+        misses.incrementAndGet();
+        return Optional.empty();
+    }
+
+    /**
+     * caches a user that was read from the DB
+     *
+     * @param user                    the user, a copy of it is cached
+     * @param invalidationsBeforeLoad {@link #getInvalidations()} before the user was read, if users were invalidated since then it may be stale
+     */
+    public void put(User user, long invalidationsBeforeLoad) {
+        if (!isEnabled()) {
+            return;
+        }
+
+        synchronized (this) {
+            if (invalidations == invalidationsBeforeLoad) {
+                email2CachedUser.put(user.getEmail(), new CachedUser(new User(user), System.nanoTime()));
+            }
+        }
+    }
+
+    public synchronized long getInvalidations() {
+        return invalidations;
+    }
+
+    /**
+     * writes the changes of the users to the DB, and to the cached users.
+     * then the other nodes are told the users changed.
+     */
+    public void updateStates(Collection<UserStateUpdate> updates) {
+        userRepo.updateStates(updates);
+
+        synchronized (this) {
+            for (UserStateUpdate update : updates) {
+                CachedUser cachedUser = email2CachedUser.get(update.email());
+                if (cachedUser != null) {
+                    update.applyTo(cachedUser.user());
+                }
+            }
+        }
+
+        // the users are already in the DB, so if this fails the other nodes see the changes after the TTL
+        try {
+            userChangeRepo.bumpVersions(updates.stream().map(UserStateUpdate::email).toList(), nodeID);
+        } catch (RuntimeException e) {
+            logger.warn("failed to bump the versions of {} users, the other nodes see their changes after the TTL", updates.size(), e);
+        }
+    }
+
+    public synchronized void invalidate(String email) {
+        invalidations++;
+        email2CachedUser.remove(email);
+    }
+
+    /**
+     * invalidates the cached users that were changed by other nodes since the last poll.
+     * nothing is read while the cache is empty.
+     */
+    public void pollChanges() {
+        if (!isEnabled()) {
+            return;
+        }
+
+        synchronized (pollLock) {
+            if (getSize() == 0) {
+
+                // the next poll starts from the last change in the DB again, the users that will be cached until then are up-to-date
+                lastChangedAt = null;
+                return;
+            }
+
+            // the first poll only finds where the changes end
+            if (lastChangedAt == null) {
+                lastChangedAt = userChangeRepo.findFirstByOrderByChangedAtDesc().map(UserChange::getChangedAt).orElse(new Date(0));
+                email2PolledVersion = new HashMap<>();
+                return;
+            }
+
+            List<UserChange> changes = userChangeRepo.findAllByChangedAtGreaterThanEqual(new Date(lastChangedAt.getTime() - POLL_OVERLAP_IN_MILLIS));
+            Map<String, Long> polledVersions = new HashMap<>();
+            for (UserChange change : changes) {
+                polledVersions.put(change.getEmail(), change.getVersion());
+                if (change.getChangedAt().after(lastChangedAt)) {
+                    lastChangedAt = change.getChangedAt();
+                }
+
+                boolean isPolledBefore = Objects.equals(email2PolledVersion.get(change.getEmail()), change.getVersion());
+                if (!isPolledBefore && !nodeID.equals(change.getNode())) {
+                    invalidate(change.getEmail());
+                }
+            }
+            email2PolledVersion = polledVersions;
+        }
+    }
+
+    public synchronized int getSize() {
+        return email2CachedUser.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private boolean isEnabled() {
+        return ttlInNanos > 0 && maxSize > 0;
+    }
+}
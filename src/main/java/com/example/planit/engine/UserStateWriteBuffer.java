@@ -0,0 +1,114 @@
+package com.example.planit.engine;
+
+import com.example.planit.model.mongo.user.User;
+import com.example.planit.model.mongo.user.UserStateUpdate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * a write-behind buffer of the changes to the users during the flows (a refreshed access token, a new PlanIt calendar).
+ * the changes of a user are coalesced in memory, and written once at the end of the request ({@link #flush(String)}),
+ * so the response is sent only after they are in the DB.
+ * the changes of the flows that have no response (e.g. the bulk regeneration) are written periodically, for all the users in a single bulk write ({@link #flush()}).
+ * the users that are read from the DB before their changes were written get the changes with {@link #applyTo(User)}.
+ */
+public class UserStateWriteBuffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserStateWriteBuffer.class);
+
+    // the changes are written through the cache of the users
+    private final UserCache userCache;
+
+    // the changes that were not written to the DB yet, by the email of the user
+    private final Map<String, UserStateUpdate> pendingUpdates;
+
+    public UserStateWriteBuffer(UserCache userCache) {
+        this.userCache = userCache;
+        this.pendingUpdates = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * buffers a new access token of the user
+     */
+    public void setAccessToken(String email, String accessToken, long expireTimeInMilliseconds) {
+        pendingUpdates.merge(email, UserStateUpdate.ofAccessToken(email, accessToken, expireTimeInMilliseconds), UserStateUpdate::merge);
+    }
+
+    /**
+     * buffers a new PlanIt calendar of the user
+     */
+    public void setPlanItCalendarID(String email, String planItCalendarID) {
+        pendingUpdates.merge(email, UserStateUpdate.ofPlanItCalendarID(email, planItCalendarID), UserStateUpdate::merge);
+    }
+
+    /**
+     * sets the changes that were not written yet on a user that was read from the DB
+     *
+     * @return the same user
+     */
+    public User applyTo(User user) {
+        UserStateUpdate update = pendingUpdates.get(user.getEmail());
+        if (update != null) {
+            update.applyTo(user);
+        }
+
+        return user;
+    }
+
+    /**
+     * writes the changes of a single user to the DB (e.g. at the end of their request).
+     * if the DB fails, the changes are kept for the next flush.
+     */
+    public void flush(String email) {
+        UserStateUpdate update = pendingUpdates.get(email);
+        if (update == null) {
+            return;
+        }
+
+        try {
+            userCache.updateStates(List.of(update));
+        } catch (RuntimeException e) {
+            logger.warn("failed to flush the changes of {}, they are kept for the next flush", email, e);
+            return;
+        }
+
+        removeWrittenUpdate(update);
+    }
+
+    /**
+     * writes the changes of all the users to the DB, in a single bulk write.
+     * if the DB fails, the changes are kept for the next flush.
+     */
+    public synchronized void flush() {
+        List<UserStateUpdate> updates = new ArrayList<>(pendingUpdates.values());
+        if (updates.isEmpty()) {
+            return;
+        }
+
+        try {
+            userCache.updateStates(updates);
+        } catch (RuntimeException e) {
+            logger.warn("failed to flush the changes of {} users, they are kept for the next flush", updates.size(), e);
+            return;
+        }
+
+        updates.forEach(this::removeWrittenUpdate);
+    }
+
+    public int getNumberOfPendingUsers() {
+        return pendingUpdates.size();
+    }
+
+    /**
+     * the changes are removed only after they were written, so the users that are read from the DB in the meantime still get them.
+     * if the user changed again during the write, their later changes are kept (and the written fields are written again, which is harmless).
+     */
+    private void removeWrittenUpdate(UserStateUpdate update) {
+        pendingUpdates.remove(update.email(), update);
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.planit.engine.exams;
+
+import java.util.*;
+
+/**
+ * finds all the occurrences of many patterns in a text in a single pass over the text (Aho–Corasick),
+ * so the time of a match does not grow with the number of patterns.
+ * the automaton is immutable after it is built, and can be used by many threads at the same time.
+ */
+public class AhoCorasickAutomaton {
+
+    /**
+     * receives each occurrence of a pattern in the text
+     */
+    @FunctionalInterface
+    public interface MatchListener {
+
+        /**
+         * @param patternIndex the index of the pattern, in the list the automaton was built with
+         * @param start        the index of the first char of the occurrence in the text
+         * @param end          the index after the last char of the occurrence in the text
+         */
+        void onMatch(int patternIndex, int start, int end);
+    }
+
+    private static final int[] NO_PATTERNS = new int[0];
+
+    // the chars of the transitions of each state, sorted (for a binary search), and the state each of them goes to
+    private final char[][] transitionChars;
+    private final int[][] transitionStates;
+
+    // the state to continue from when the next char has no transition (the longest proper suffix that is a prefix of a pattern)
+    private final int[] failStates;
+
+    // the patterns that end at each state, including the patterns that end at its fail states
+    private final int[][] outputs;
+
+    private final int[] patternLengths;
+
+    /**
+     * @param patterns the patterns to find, an empty pattern is never found
+     */
+    public AhoCorasickAutomaton(List<String> patterns) {
+        List<Map<Character, Integer>> trie = new ArrayList<>();
+        List<List<Integer>> trieOutputs = new ArrayList<>();
+        trie.add(new HashMap<>());
+        trieOutputs.add(new ArrayList<>());
+
+        patternLengths = new int[patterns.size()];
+        for (int patternIndex = 0; patternIndex < patterns.size(); patternIndex++) {
+            String pattern = patterns.get(patternIndex);
+            patternLengths[patternIndex] = pattern.length();
+            if (pattern.isEmpty()) {
+                continue;
+            }
+
+            int state = 0;
+            for (int i = 0; i < pattern.length(); i++) {
+                Integer nextState = trie.get(state).get(pattern.charAt(i));
+                if (nextState == null) {
+                    nextState = trie.size();
+                    trie.add(new HashMap<>());
+                    trieOutputs.add(new ArrayList<>());
+                    trie.get(state).put(pattern.charAt(i), nextState);
+                }
+                state = nextState;
+            }
+            trieOutputs.get(state).add(patternIndex);
+        }
+
+        int numberOfStates = trie.size();
+        transitionChars = new char[numberOfStates][];
+        transitionStates = new int[numberOfStates][];
+        for (int state = 0; state < numberOfStates; state++) {
+            List<Map.Entry<Character, Integer>> transitions = new ArrayList<>(trie.get(state).entrySet());
+            transitions.sort(Map.Entry.comparingByKey());
+            transitionChars[state] = new char[transitions.size()];
+            transitionStates[state] = new int[transitions.size()];
+            for (int i = 0; i < transitions.size(); i++) {
+                transitionChars[state][i] = transitions.get(i).getKey();
+                transitionStates[state][i] = transitions.get(i).getValue();
+            }
+        }
+
+        // the fail states are set in breadth-first order, so the fail state of a parent is known before its children
+        failStates = new int[numberOfStates];
+        outputs = new int[numberOfStates][];
+        outputs[0] = NO_PATTERNS;
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int child : transitionStates[0]) {
+            failStates[child] = 0;
+            outputs[child] = toArray(trieOutputs.get(child), NO_PATTERNS);
+            queue.add(child);
+        }
+
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int i = 0; i < transitionChars[state].length; i++) {
+                char c = transitionChars[state][i];
+                int child = transitionStates[state][i];
+
+                int failState = failStates[state];
+                while (failState != 0 && getNextState(failState, c) < 0) {
+                    failState = failStates[failState];
+                }
+                int nextState = getNextState(failState, c);
+                failStates[child] = nextState >= 0 ? nextState : 0;
+                outputs[child] = toArray(trieOutputs.get(child), outputs[failStates[child]]);
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * reports every occurrence of every pattern in the text (overlapping occurrences too), in the order of their end
+     */
+    public void match(CharSequence text, MatchListener listener) {
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+
+            int nextState = getNextState(state, c);
+            while (nextState < 0 && state != 0) {
+                state = failStates[state];
+                nextState = getNextState(state, c);
+            }
+            state = Math.max(nextState, 0);
+
+            for (int patternIndex : outputs[state]) {
+                listener.onMatch(patternIndex, i + 1 - patternLengths[patternIndex], i + 1);
+            }
+        }
+    }
+
+    /**
+     * @return the state of the transition of the char, or -1 if the state has no such transition
+     */
+    private int getNextState(int state, char c) {
+        int i = Arrays.binarySearch(transitionChars[state], c);
+        return i >= 0 ? transitionStates[state][i] : -1;
+    }
+
+    /**
+     * @return the patterns of the state followed by the patterns of its fail state
+     */
+    private static int[] toArray(List<Integer> patternIndexes, int[] failStateOutputs) {
+        if (patternIndexes.isEmpty()) {
+            return failStateOutputs;
+        }
+
+        int[] stateOutputs = new int[patternIndexes.size() + failStateOutputs.length];
+        for (int i = 0; i < patternIndexes.size(); i++) {
+            stateOutputs[i] = patternIndexes.get(i);
+        }
+        System.arraycopy(failStateOutputs, 0, stateOutputs, patternIndexes.size(), failStateOutputs.length);
+        return stateOutputs;
+    }
+}
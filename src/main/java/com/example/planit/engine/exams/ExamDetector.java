@@ -0,0 +1,239 @@
+package com.example.planit.engine.exams;
+
+import com.example.planit.model.exam.Exam;
+import com.example.planit.model.mongo.course.Course;
+import com.google.api.services.calendar.model.CalendarListEntry;
+import com.google.api.services.calendar.model.Event;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * finds the exams in the events of the exams calendars, by the rules of the configured exam sources (see {@link ExamSource}).
+ * the keywords of all the sources and the names of all the courses are compiled into a single {@link AhoCorasickAutomaton},
+ * so the summary of an event is scanned once, whatever the number of sources, keywords and courses.
+ * the automaton is compiled again only when the names of the courses in the catalog change.
+ */
+public class ExamDetector {
+
+    /**
+     * the automaton of the keywords of the sources and of the names of the courses of a catalog.
+     * the patterns are the keywords, followed by the course names.
+     */
+    private record CompiledRules(List<Course> courses, List<String> allCourseNames, AhoCorasickAutomaton automaton, Course[] coursesOfNames,
+                                 Map<String, Course> name2Course) {
+    }
+
+    /**
+     * what a single pass of the automaton found in the summary of an event
+     */
+    private static class SummaryMatches {
+
+        // the sources that one of their keywords is in the summary
+        private final BitSet sourcesOfKeywords = new BitSet();
+
+        // the course name at the end of the summary, that starts last (see ExamSource.CourseNameExtraction.SUFFIX)
+        private int suffixNameIndex = -1;
+        private int suffixStart = -1;
+
+        // the longest course name in the summary (see ExamSource.CourseNameExtraction.ANYWHERE)
+        private int longestNameIndex = -1;
+        private int longestLength = -1;
+    }
+
+    private final List<ExamSource> sources;
+
+    // the distinct keywords of all the sources, and the sources of each of them
+    private final List<String> keywords;
+    private final List<BitSet> sourcesOfKeywords;
+
+    private volatile CompiledRules compiledRules;
+
+    /**
+     * @param sources the exam sources, the first source whose rules find an exam in an event decides its course
+     */
+    public ExamDetector(List<ExamSource> sources) {
+        this.sources = List.copyOf(sources);
+
+        Map<String, BitSet> keyword2Sources = new LinkedHashMap<>();
+        for (int sourceIndex = 0; sourceIndex < this.sources.size(); sourceIndex++) {
+            for (String keyword : this.sources.get(sourceIndex).getKeywords()) {
+                keyword2Sources.computeIfAbsent(keyword, k -> new BitSet()).set(sourceIndex);
+            }
+        }
+        this.keywords = new ArrayList<>(keyword2Sources.keySet());
+        this.sourcesOfKeywords = new ArrayList<>(keyword2Sources.values());
+    }
+
+    /**
+     * @param calendar a calendar of the user
+     * @return true if the calendar is an exams calendar of one of the sources
+     */
+    public boolean isExamsCalendar(CalendarListEntry calendar) {
+        return isExamsCalendar(calendar.getSummary());
+    }
+
+    /**
+     * @param calendarSummary the summary of a calendar of the user
+     * @return true if the calendar is an exams calendar of one of the sources
+     */
+    public boolean isExamsCalendar(String calendarSummary) {
+        return sources.stream().anyMatch(source -> source.isSourceCalendar(calendarSummary));
+    }
+
+    /**
+     * @param calendarSummary the summary of the calendar of the events, only the rules of its sources are used
+     * @param calendarEvents  the events of the calendar
+     * @param courses         the courses catalog
+     * @return the exams found in the events, in the order of the events
+     */
+    public List<Exam> findExams(String calendarSummary, List<Event> calendarEvents, List<Course> courses) {
+        BitSet sourcesOfCalendar = new BitSet();
+        for (int sourceIndex = 0; sourceIndex < sources.size(); sourceIndex++) {
+            if (sources.get(sourceIndex).isSourceCalendar(calendarSummary)) {
+                sourcesOfCalendar.set(sourceIndex);
+            }
+        }
+        if (sourcesOfCalendar.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        CompiledRules rules = getCompiledRules(courses);
+        List<Exam> exams = new ArrayList<>();
+        for (Event event : calendarEvents) {
+            if (event.getSummary() == null) {
+                continue;
+            }
+
+            findCourseOfExam(event.getSummary(), sourcesOfCalendar, rules)
+                    .ifPresent(course -> exams.add(new Exam(course, event.getStart().getDateTime())));
+        }
+
+        return exams;
+    }
+
+    /**
+     * @return the course of the exam, or empty if the summary is not of an exam of a course in the catalog
+     */
+    private Optional<Course> findCourseOfExam(String summary, BitSet sourcesOfCalendar, CompiledRules rules) {
+        SummaryMatches summaryMatches = matchSummary(summary, rules);
+
+        for (int sourceIndex = sourcesOfCalendar.nextSetBit(0); sourceIndex >= 0; sourceIndex = sourcesOfCalendar.nextSetBit(sourceIndex + 1)) {
+            ExamSource source = sources.get(sourceIndex);
+            Matcher matchedRegex = findMatchingRegex(source, summary);
+            if (!summaryMatches.sourcesOfKeywords.get(sourceIndex) && matchedRegex == null) {
+                continue;
+            }
+
+            Optional<Course> maybeCourse = switch (source.getCourseNameExtraction()) {
+                case SUFFIX -> getCourse(rules, summaryMatches.suffixNameIndex);
+                case ANYWHERE -> getCourse(rules, summaryMatches.longestNameIndex);
+                case REGEX_GROUP -> matchedRegex != null && matchedRegex.group(ExamSource.COURSE_GROUP_NAME) != null
+                        ? Optional.ofNullable(rules.name2Course.get(matchedRegex.group(ExamSource.COURSE_GROUP_NAME).trim()))
+                        : Optional.empty();
+            };
+            if (maybeCourse.isPresent()) {
+                return maybeCourse;
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    /**
+     * scans the summary once, for the keywords of all the sources and for the names of all the courses.
+     * a course name is found only if it is made of whole words of the summary.
+     */
+    private SummaryMatches matchSummary(String summary, CompiledRules rules) {
+        SummaryMatches summaryMatches = new SummaryMatches();
+
+        int endOfLastWord = getEndOfLastWord(summary);
+
+        rules.automaton.match(summary, (patternIndex, start, end) -> {
+            if (patternIndex < keywords.size()) {
+                summaryMatches.sourcesOfKeywords.or(sourcesOfKeywords.get(patternIndex));
+                return;
+            }
+
+            boolean isWholeWords = (start == 0 || summary.charAt(start - 1) <= ' ') && (end == summary.length() || summary.charAt(end) <= ' ');
+            if (!isWholeWords) {
+                return;
+            }
+
+            int nameIndex = patternIndex - keywords.size();
+            if (end == endOfLastWord && start > summaryMatches.suffixStart) {
+                summaryMatches.suffixNameIndex = nameIndex;
+                summaryMatches.suffixStart = start;
+            }
+            if (end - start > summaryMatches.longestLength) {
+                summaryMatches.longestNameIndex = nameIndex;
+                summaryMatches.longestLength = end - start;
+            }
+        });
+
+        return summaryMatches;
+    }
+
+    /**
+     * @return the end of the summary, without the white spaces after its last word
+     */
+    private static int getEndOfLastWord(String summary) {
+        int endOfLastWord = summary.length();
+        while (endOfLastWord > 0 && summary.charAt(endOfLastWord - 1) <= ' ') {
+            endOfLastWord--;
+        }
+
+        return endOfLastWord;
+    }
+
+    /**
+     * @return the first regex of the source that is found in the summary, or null if none of them is found
+     */
+    private static Matcher findMatchingRegex(ExamSource source, String summary) {
+        for (Pattern pattern : source.getPatterns()) {
+            Matcher matcher = pattern.matcher(summary);
+            if (matcher.find()) {
+                return matcher;
+            }
+        }
+
+        return null;
+    }
+
+    private static Optional<Course> getCourse(CompiledRules rules, int nameIndex) {
+        return nameIndex >= 0 ? Optional.ofNullable(rules.coursesOfNames[nameIndex]) : Optional.empty();
+    }
+
+    /**
+     * @return the rules of the courses catalog, the automaton of the last catalog is used again if the names of its courses did not change
+     */
+    private CompiledRules getCompiledRules(List<Course> courses) {
+        CompiledRules rules = compiledRules;
+        if (rules != null && rules.courses == courses) {
+            return rules;
+        }
+
+        // the names of the courses that can be found, a name with white spaces around it is never a sequence of whole words
+        Map<String, Course> name2Course = new LinkedHashMap<>();
+        for (Course course : courses) {
+            String courseName = course.getCourseName();
+            if (courseName != null && !courseName.isEmpty() && courseName.equals(courseName.trim())) {
+                name2Course.putIfAbsent(courseName, course);
+            }
+        }
+
+        List<String> allCourseNames = new ArrayList<>(name2Course.keySet());
+        Course[] coursesOfNames = name2Course.values().toArray(new Course[0]);
+        if (rules != null && rules.allCourseNames.equals(allCourseNames)) {
+            rules = new CompiledRules(courses, allCourseNames, rules.automaton, coursesOfNames, name2Course);
+        } else {
+            List<String> patterns = new ArrayList<>(keywords);
+            patterns.addAll(allCourseNames);
+            rules = new CompiledRules(courses, allCourseNames, new AhoCorasickAutomaton(patterns), coursesOfNames, name2Course);
+        }
+
+        compiledRules = rules;
+        return rules;
+    }
+}
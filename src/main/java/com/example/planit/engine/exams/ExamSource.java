@@ -0,0 +1,87 @@
+package com.example.planit.engine.exams;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static com.example.planit.utill.Constants.EXAMS_CALENDAR_SUMMERY_NAME;
+import static com.example.planit.utill.Constants.EXAM_SUMMERY_KEYWORD;
+
+/**
+ * a calendar that the exams of an institution are published in, and the rules to find the exams in its events.
+ * an event of a matching calendar is an exam if its summary contains one of the keywords or matches one of the regexes,
+ * and the course of the exam is extracted from the summary with the course name extraction of the source.
+ */
+public class ExamSource {
+
+    public enum CourseNameExtraction {
+
+        // the shortest sequence of words at the end of the summary that is a course name
+        // e.g. "מבחן מועד 1 ציון בחינה - פרונטלי גב' אריאן שלומית חישוביות" -> "חישוביות"
+        SUFFIX,
+
+        // the longest sequence of words anywhere in the summary that is a course name
+        ANYWHERE,
+
+        // the "course" named group of the regex that matched the summary
+        REGEX_GROUP
+    }
+
+    public static final String COURSE_GROUP_NAME = "course";
+
+    // the exams calendar of the information station ("תחנת המידע"), that PlanIt was built for
+    public static final ExamSource DEFAULT = new ExamSource(List.of(EXAMS_CALENDAR_SUMMERY_NAME), null,
+            List.of(EXAM_SUMMERY_KEYWORD), List.of(), CourseNameExtraction.SUFFIX);
+
+    private final List<String> calendarNames;
+
+    private final Pattern calendarPattern;
+
+    private final List<String> keywords;
+
+    private final List<Pattern> patterns;
+
+    private final CourseNameExtraction courseNameExtraction;
+
+    /**
+     * @param calendarNames        the summaries of the calendars of the source
+     * @param calendarRegex        a regex that matches the whole summary of the calendars of the source, null if only the names are used
+     * @param keywords             the summary of an exam contains one of them
+     * @param regexes              or the summary of an exam matches one of them
+     * @param courseNameExtraction how to extract the course name from the summary of an exam
+     * @throws IllegalArgumentException if a regex is not valid, or the course is extracted from a regex group and a regex has no such group
+     */
+    public ExamSource(List<String> calendarNames, String calendarRegex, List<String> keywords, List<String> regexes, CourseNameExtraction courseNameExtraction) {
+        this.calendarNames = List.copyOf(calendarNames);
+        this.calendarPattern = calendarRegex != null ? Pattern.compile(calendarRegex) : null;
+        this.keywords = List.copyOf(keywords);
+        this.patterns = regexes.stream().map(Pattern::compile).toList();
+        this.courseNameExtraction = courseNameExtraction;
+
+        if (courseNameExtraction == CourseNameExtraction.REGEX_GROUP
+                && (!this.keywords.isEmpty() || patterns.stream().anyMatch(pattern -> !pattern.pattern().contains("(?<" + COURSE_GROUP_NAME + ">")))) {
+            throw new IllegalArgumentException("the course of an exam is extracted from the \"" + COURSE_GROUP_NAME
+                    + "\" group, so every rule must be a regex with this group");
+        }
+    }
+
+    /**
+     * @param calendarSummary the summary of a calendar of the user
+     * @return true if the exams of the source are published in the calendar
+     */
+    public boolean isSourceCalendar(String calendarSummary) {
+        return calendarSummary != null
+                && (calendarNames.contains(calendarSummary) || (calendarPattern != null && calendarPattern.matcher(calendarSummary).matches()));
+    }
+
+    public List<String> getKeywords() {
+        return keywords;
+    }
+
+    public List<Pattern> getPatterns() {
+        return patterns;
+    }
+
+    public CourseNameExtraction getCourseNameExtraction() {
+        return courseNameExtraction;
+    }
+}
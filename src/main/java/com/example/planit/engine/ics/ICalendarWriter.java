@@ -0,0 +1,159 @@
+package com.example.planit.engine.ics;
+
+import com.example.planit.model.mongo.plan.PlannedSession;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * writes the sessions of a plan as an iCalendar document (RFC 5545), so the plan can be imported into any calendar app, without Google.
+ * the document is written line by line to the output stream, it is never built as a whole in memory.
+ * the times are written in UTC, so the document needs no VTIMEZONE component.
+ */
+public class ICalendarWriter implements Flushable {
+
+    public static final String CONTENT_TYPE = "text/calendar;charset=UTF-8";
+
+    private static final String PRODUCT_ID = "-//PlanIt//PlanIt Calendar//EN";
+
+    private static final String UID_DOMAIN = "@planit";
+
+    // the max length of a content line in octets, without the line break (a longer line is folded)
+    private static final int MAX_LINE_OCTETS = 75;
+
+    private static final DateTimeFormatter UTC_DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+
+    private final Writer writer;
+
+    /**
+     * @param outputStream the stream to write the document to, it is not closed by the writer
+     */
+    public ICalendarWriter(OutputStream outputStream) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * writes a whole calendar of the sessions, and flushes it to the output stream
+     *
+     * @param calendarName        the name the calendar app shows for the calendar
+     * @param timeZone            the time zone the calendar app shows the calendar in
+     * @param stampInMilliseconds the time the plan was generated at
+     * @param sessions            the sessions of the plan
+     * @throws IOException if the output stream failed (e.g. the client disconnected)
+     */
+    public void writeCalendar(String calendarName, String timeZone, long stampInMilliseconds, List<PlannedSession> sessions) throws IOException {
+        writeLine("BEGIN:VCALENDAR");
+        writeLine("VERSION:2.0");
+        writeLine("PRODID:" + PRODUCT_ID);
+        writeLine("CALSCALE:GREGORIAN");
+        writeLine("METHOD:PUBLISH");
+        writeLine("X-WR-CALNAME:" + escapeText(calendarName));
+        writeLine("X-WR-TIMEZONE:" + timeZone);
+
+        String stamp = formatDateTime(stampInMilliseconds);
+        for (PlannedSession session : sessions) {
+            writeEvent(session, stamp);
+        }
+
+        writeLine("END:VCALENDAR");
+        flush();
+    }
+
+    private void writeEvent(PlannedSession session, String stamp) throws IOException {
+        writeLine("BEGIN:VEVENT");
+        writeLine("UID:" + getUid(session));
+        writeLine("DTSTAMP:" + stamp);
+        writeLine("DTSTART:" + formatDateTime(session.getStartInMilliseconds()));
+        writeLine("DTEND:" + formatDateTime(session.getEndInMilliseconds()));
+        if (session.getSummary() != null) {
+            writeLine("SUMMARY:" + escapeText(session.getSummary()));
+        }
+        if (session.getDescription() != null) {
+            writeLine("DESCRIPTION:" + escapeText(session.getDescription()));
+        }
+        writeLine("TRANSP:OPAQUE");
+        writeLine("END:VEVENT");
+    }
+
+    /**
+     * the UID of a session must stay the same between two downloads of the same plan, so the calendar app updates the event instead of adding another.
+     * a session that was written to the PlanIt calendar has the ID of its Google event, otherwise the UID is made of its time and summary.
+     */
+    private static String getUid(PlannedSession session) {
+        if (session.getEventID() != null) {
+            return session.getEventID() + UID_DOMAIN;
+        }
+
+        return session.getStartInMilliseconds() + "-" + session.getEndInMilliseconds() + "-"
+                + Integer.toHexString(String.valueOf(session.getSummary()).hashCode()) + UID_DOMAIN;
+    }
+
+    private static String formatDateTime(long timeInMilliseconds) {
+        return UTC_DATE_TIME_FORMATTER.format(Instant.ofEpochMilli(timeInMilliseconds));
+    }
+
+    /**
+     * escapes a TEXT value (RFC 5545, 3.3.11)
+     */
+    private static String escapeText(String text) {
+        StringBuilder escapedText = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '\\', ';', ',' -> escapedText.append('\\').append(c);
+                case '\n' -> escapedText.append("\\n");
+                case '\r' -> {
+                    // a line break is written as a single \n
+                }
+                default -> escapedText.append(c);
+            }
+        }
+
+        return escapedText.toString();
+    }
+
+    /**
+     * writes a content line, folded into lines of at most 75 octets (RFC 5545, 3.1).
+     * a line is never folded inside a multi-octet UTF-8 char (e.g. the Hebrew names of the courses).
+     */
+    private void writeLine(String line) throws IOException {
+        int lineOctets = 0;
+        for (int i = 0; i < line.length(); ) {
+            int codePoint = line.codePointAt(i);
+            int charCount = Character.charCount(codePoint);
+            int codePointOctets = getUtf8Octets(codePoint);
+
+            if (lineOctets + codePointOctets > MAX_LINE_OCTETS) {
+                writer.write("\r\n ");
+                lineOctets = 1; // the space that starts the continuation line
+            }
+
+            writer.write(line, i, charCount);
+            lineOctets += codePointOctets;
+            i += charCount;
+        }
+
+        writer.write("\r\n");
+    }
+
+    private static int getUtf8Octets(int codePoint) {
+        if (codePoint < 0x80) {
+            return 1;
+        } else if (codePoint < 0x800) {
+            return 2;
+        } else if (codePoint < 0x10000) {
+            return 3;
+        }
+
+        return 4;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.planit.engine.jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+
+/**
+ * starts bounded JDK Flight Recorder recordings of the running app.
+ * a recording uses the JDK "profile" settings with the PlanIt events, and it is saved to a file when it ends.
+ * when there is no active recording the PlanIt events are disabled, so they cost almost nothing.
+ */
+public class FlightRecordingEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(FlightRecordingEngine.class);
+
+    private final Path directory;
+
+    private final long maxDurationInSeconds;
+
+    private final long maxSizeInBytes;
+
+    private Recording activeRecording;
+
+    /**
+     * @param directory            the directory the recordings are saved to
+     * @param maxDurationInSeconds the maximum duration of a recording
+     * @param maxSizeInBytes       the maximum size of a recording, the oldest data is dropped above it
+     */
+    public FlightRecordingEngine(Path directory, long maxDurationInSeconds, long maxSizeInBytes) {
+        this.directory = directory;
+        this.maxDurationInSeconds = maxDurationInSeconds;
+        this.maxSizeInBytes = maxSizeInBytes;
+    }
+
+    /**
+     * starts a recording that stops by itself after the given duration (bounded by the maximum duration).
+     * only one recording can be active at a time.
+     *
+     * @param durationInSeconds the duration of the recording
+     * @return the file the recording will be saved to, or empty if another recording is already active
+     * @throws IOException IOException
+     */
+    public synchronized Optional<Path> startRecording(long durationInSeconds) throws IOException {
+        if (activeRecording != null && activeRecording.getState() != RecordingState.STOPPED && activeRecording.getState() != RecordingState.CLOSED) {
+            return Optional.empty();
+        }
+
+        Configuration profile;
+        try {
+            profile = Configuration.getConfiguration("profile");
+        } catch (ParseException e) {
+            throw new IOException(e);
+        }
+
+        String name = "planit-" + Instant.now().truncatedTo(ChronoUnit.SECONDS).toString().replace(":", "-");
+        Path destination = directory.resolve(name + ".jfr");
+
+        Recording recording = new Recording(profile);
+        recording.setName(name);
+        recording.enable(GoogleApiRequestEvent.class);
+        recording.enable(PlanningStageEvent.class);
+        recording.setDuration(Duration.ofSeconds(Math.max(1, Math.min(durationInSeconds, maxDurationInSeconds))));
+        recording.setMaxSize(maxSizeInBytes);
+        recording.setToDisk(true);
+
+        // the recording is written to the destination when it stops, and then it is closed
+        recording.setDestination(destination);
+        recording.start();
+        activeRecording = recording;
+
+        logger.info("flight recording started: {}", destination);
+        return Optional.of(destination);
+    }
+}
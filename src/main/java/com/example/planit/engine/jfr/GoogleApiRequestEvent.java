@@ -0,0 +1,44 @@
+package com.example.planit.engine.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * a JFR event of a single request to the Google APIs.
+ * the calendar ID is hashed, since it is usually the email of the user.
+ */
+@Name("planit.GoogleApiRequest")
+@Label("Google API Request")
+@Category({"PlanIt", "Google"})
+@Description("A request to the Google Calendar API or to the Google OAuth token server")
+@StackTrace(false)
+public class GoogleApiRequestEvent extends Event {
+
+    @Label("Method")
+    String method;
+
+    @Label("Calendar ID Hash")
+    String calendarIDHash;
+
+    @Label("Status")
+    String status;
+
+    @Label("Response Size")
+    @DataAmount
+    long responseBytes;
+
+    public void setMethod(String method) {
+        this.method = method;
+    }
+
+    public void setCalendarIDHash(String calendarIDHash) {
+        this.calendarIDHash = calendarIDHash;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public void setResponseBytes(long responseBytes) {
+        this.responseBytes = responseBytes;
+    }
+}
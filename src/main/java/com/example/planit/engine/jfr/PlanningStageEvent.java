@@ -0,0 +1,29 @@
+package com.example.planit.engine.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * a JFR event of a single stage of the scan/generate pipeline, with the size of its input.
+ */
+@Name("planit.PlanningStage")
+@Label("Planning Stage")
+@Category({"PlanIt", "Pipeline"})
+@Description("A stage of the scan/generate pipeline of a user")
+@StackTrace(false)
+public class PlanningStageEvent extends Event {
+
+    @Label("Stage")
+    String stage;
+
+    @Label("Input Size")
+    @Description("The number of items the stage works on, e.g. events, free slots or sessions (0 if the stage has no input)")
+    int inputSize;
+
+    public void setStage(String stage) {
+        this.stage = stage;
+    }
+
+    public void setInputSize(int inputSize) {
+        this.inputSize = inputSize;
+    }
+}
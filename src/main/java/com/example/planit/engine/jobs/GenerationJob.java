@@ -0,0 +1,81 @@
+package com.example.planit.engine.jobs;
+
+import com.example.planit.engine.resilience.Deadline;
+import com.example.planit.engine.resilience.DeadlineExceededException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * a scan/generate work of a single user that waits in the queue of the {@link GenerationJobScheduler}.
+ * jobs are ordered by their aged deadline, the smallest (most urgent) job runs first.
+ */
+class GenerationJob<T> implements Runnable, Comparable<GenerationJob<?>> {
+
+    private final GenerationWork<T> work;
+    private final Deadline deadline; // null if the job has no deadline
+    private final JobPriority priority;
+    private final long agedDeadline;
+    private final long sequenceNumber;
+    private final long enqueueTimeInNanos;
+    private final CompletableFuture<T> result;
+    private final GenerationJobScheduler scheduler;
+
+    GenerationJob(GenerationWork<T> work, Deadline deadline, JobPriority priority, long agedDeadline, long sequenceNumber, GenerationJobScheduler scheduler) {
+        this.work = work;
+        this.deadline = deadline;
+        this.priority = priority;
+        this.agedDeadline = agedDeadline;
+        this.sequenceNumber = sequenceNumber;
+        this.enqueueTimeInNanos = System.nanoTime();
+        this.result = new CompletableFuture<>();
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public void run() {
+        long startTimeInNanos = System.nanoTime();
+
+        // the caller has already given up on a job that waited in the queue beyond its deadline
+        if (deadline != null && deadline.isExpired()) {
+            scheduler.recordLatency(priority, startTimeInNanos - enqueueTimeInNanos, System.nanoTime() - enqueueTimeInNanos);
+            result.completeExceptionally(new DeadlineExceededException("the job started"));
+            return;
+        }
+
+        T value = null;
+        Throwable failure = null;
+        try (Deadline.Scope deadlineScope = deadline != null ? deadline.bind() : null) {
+            value = work.run();
+        } catch (Throwable e) {
+            failure = e;
+        }
+
+        // the latency is recorded before the caller gets the result, so the caller sees it in the metrics
+        scheduler.recordLatency(priority, startTimeInNanos - enqueueTimeInNanos, System.nanoTime() - enqueueTimeInNanos);
+        if (failure != null) {
+            result.completeExceptionally(failure);
+        } else {
+            result.complete(value);
+        }
+    }
+
+    /**
+     * fails a job that has not started, e.g. when the scheduler shuts down
+     */
+    void cancel() {
+        result.completeExceptionally(new RejectedExecutionException("the job was cancelled before it started"));
+    }
+
+    @Override
+    public int compareTo(GenerationJob<?> other) {
+        int compareDeadlines = Long.compare(agedDeadline, other.agedDeadline);
+
+        // jobs with the same deadline keep their FIFO order
+        return compareDeadlines != 0 ? compareDeadlines : Long.compare(sequenceNumber, other.sequenceNumber);
+    }
+
+    CompletableFuture<T> getResult() {
+        return result;
+    }
+}
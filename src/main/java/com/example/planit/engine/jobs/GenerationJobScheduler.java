@@ -0,0 +1,132 @@
+package com.example.planit.engine.jobs;
+
+import com.example.planit.engine.CalendarEngine;
+import com.example.planit.engine.EngineMetrics;
+import com.example.planit.engine.resilience.Deadline;
+import com.example.planit.engine.resilience.DeadlineExceededException;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * runs the scan/generate jobs of the users on a bounded pool of workers.
+ * instead of FIFO, the jobs are prioritized by the first exam that was found in the user's last scan,
+ * so users with close exams get their plans first when the service is saturated.
+ * <p>
+ * to prevent starvation, a waiting job ages: every millisecond in the queue brings its deadline closer by agingRate milliseconds.
+ * since all the jobs age at the same rate, the aged deadline can be calculated once, when the job is submitted:
+ * firstExamTime - agingRate * (now - enqueueTime) is ordered the same as firstExamTime + agingRate * enqueueTime
+ */
+public class GenerationJobScheduler {
+
+    private final CalendarEngine calendarEngine;
+
+    private final ThreadPoolExecutor workers;
+
+    private final long agingRate;
+
+    private final long unknownExamDistanceInMillis;
+
+    private final long requestTimeoutInMillis;
+
+    // the time the caller waits beyond the deadline, for the job to abort by itself
+    private static final long ABORT_GRACE_IN_MILLIS = 1000;
+
+    private final AtomicLong sequenceNumbers;
+
+    // the latency of the jobs by their priority
+    private final EngineMetrics engineMetrics;
+
+    /**
+     * @param calendarEngine              the engine that remembers the first exam of each user's last scan
+     * @param engineMetrics               the metrics the latency of the jobs is recorded to
+     * @param numberOfWorkers             the number of jobs that run at the same time
+     * @param agingRate                   how many milliseconds the deadline of a job gets closer, for every millisecond it waits
+     * @param unknownExamDistanceInMillis the assumed time until the first exam, for users that were not scanned yet
+     * @param requestTimeoutInMillis      the time budget of a job, from its submission (including the time in the queue), 0 means no deadline
+     */
+    public GenerationJobScheduler(CalendarEngine calendarEngine, EngineMetrics engineMetrics, int numberOfWorkers, long agingRate, long unknownExamDistanceInMillis, long requestTimeoutInMillis) {
+        this.calendarEngine = calendarEngine;
+        this.engineMetrics = engineMetrics;
+        this.agingRate = agingRate;
+        this.unknownExamDistanceInMillis = unknownExamDistanceInMillis;
+        this.requestTimeoutInMillis = requestTimeoutInMillis;
+        this.sequenceNumbers = new AtomicLong();
+
+        // the queue is unbounded, so the pool never grows beyond its core size
+        this.workers = new ThreadPoolExecutor(numberOfWorkers, numberOfWorkers, 0L, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>());
+    }
+
+    /**
+     * submits a job of a user and waits for its result.
+     * the job gets a deadline, that every call to Google it makes respects. the caller does not wait (much) beyond it.
+     *
+     * @param email the user's email, used to find the first exam of their last scan
+     * @param work  the work to run
+     * @return the result of the work
+     * @throws IOException              IOException
+     * @throws GeneralSecurityException GeneralSecurityException
+     * @throws DeadlineExceededException if the job did not end before its deadline
+     */
+    public <T> T submitAndWait(String email, GenerationWork<T> work) throws IOException, GeneralSecurityException {
+        Deadline deadline = requestTimeoutInMillis > 0 ? Deadline.after(requestTimeoutInMillis) : null;
+        GenerationJob<T> job = createJob(email, work, deadline);
+        workers.execute(job);
+
+        try {
+            if (deadline == null) {
+                return job.getResult().get();
+            }
+            return job.getResult().get(Math.max(0, deadline.getRemainingInMillis()) + ABORT_GRACE_IN_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new DeadlineExceededException("the job ended");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+
+            // throws the original exception of the work
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            } else if (cause instanceof GeneralSecurityException generalSecurityException) {
+                throw generalSecurityException;
+            } else if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+
+    /**
+     * stops the workers when the app shuts down: the running jobs are interrupted, and the jobs in the queue are cancelled,
+     * so their callers get a {@link RejectedExecutionException} instead of waiting for a worker that never comes.
+     */
+    public void shutdown() {
+        for (Runnable waitingJob : workers.shutdownNow()) {
+            ((GenerationJob<?>) waitingJob).cancel();
+        }
+    }
+
+    /**
+     * creates a job with its aged deadline, according to the first exam of the user's last scan.
+     */
+    private <T> GenerationJob<T> createJob(String email, GenerationWork<T> work, Deadline deadline) {
+        long now = System.currentTimeMillis();
+        Optional<Long> maybeFirstExamTime = calendarEngine.getFirstExamTimeOfLastScan(email);
+
+        long firstExamTime = maybeFirstExamTime.orElse(now + unknownExamDistanceInMillis);
+        JobPriority priority = JobPriority.of(maybeFirstExamTime.map(examTime -> examTime - now).orElse(null));
+
+        long agedDeadline = firstExamTime + agingRate * now;
+
+        return new GenerationJob<>(work, deadline, priority, agedDeadline, sequenceNumbers.getAndIncrement(), this);
+    }
+
+    void recordLatency(JobPriority priority, long queueTimeInNanos, long totalTimeInNanos) {
+        engineMetrics.recordGenerationJob(priority, queueTimeInNanos, totalTimeInNanos);
+    }
+}
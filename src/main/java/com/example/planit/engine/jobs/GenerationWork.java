@@ -0,0 +1,12 @@
+package com.example.planit.engine.jobs;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+
+/**
+ * the actual work of a generation job (e.g. scan the user's calendars and generate the plan)
+ */
+@FunctionalInterface
+public interface GenerationWork<T> {
+    T run() throws IOException, GeneralSecurityException;
+}
@@ -0,0 +1,39 @@
+package com.example.planit.engine.jobs;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * the priority class of a generation job, determined by the time left until the user's first exam.
+ * used to report latency per priority.
+ */
+public enum JobPriority {
+    URGENT("urgent"), // the first exam is in 3 days or less
+    SOON("soon"), // the first exam is in 14 days or less
+    LATER("later"), // the first exam is in more than 14 days
+    UNKNOWN("unknown"); // the user has not been scanned yet, so we don't know their exams
+
+    private final String tagValue;
+
+    JobPriority(String tagValue) {
+        this.tagValue = tagValue;
+    }
+
+    public String getTagValue() {
+        return tagValue;
+    }
+
+    /**
+     * @param timeUntilFirstExamInMillis the time left until the user's first exam, null if unknown
+     * @return the priority class of the job
+     */
+    public static JobPriority of(Long timeUntilFirstExamInMillis) {
+        if (timeUntilFirstExamInMillis == null) {
+            return UNKNOWN;
+        } else if (timeUntilFirstExamInMillis <= TimeUnit.DAYS.toMillis(3)) {
+            return URGENT;
+        } else if (timeUntilFirstExamInMillis <= TimeUnit.DAYS.toMillis(14)) {
+            return SOON;
+        }
+        return LATER;
+    }
+}
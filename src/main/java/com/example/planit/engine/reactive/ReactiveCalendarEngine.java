@@ -0,0 +1,242 @@
+package com.example.planit.engine.reactive;
+
+import com.example.planit.engine.CalendarEngine;
+import com.example.planit.engine.GoogleApiUsageAccounting;
+import com.example.planit.engine.UserCache;
+import com.example.planit.engine.UserStateWriteBuffer;
+import com.example.planit.engine.resilience.Deadline;
+import com.example.planit.engine.resilience.DeadlineExceededException;
+import com.example.planit.model.exam.Exam;
+import com.example.planit.model.mongo.course.Course;
+import com.example.planit.model.mongo.course.ReactiveCoursesRepository;
+import com.example.planit.model.mongo.exam.ExamIndex;
+import com.example.planit.model.mongo.exam.ReactiveExamIndexRepository;
+import com.example.planit.model.mongo.plan.Plan;
+import com.example.planit.model.mongo.plan.ReactivePlanRepository;
+import com.example.planit.model.mongo.user.ReactiveUserRepository;
+import com.example.planit.model.mongo.user.User;
+import com.example.planit.utill.Constants;
+import com.example.planit.utill.dto.DTOscanResponseToController;
+import com.google.api.client.util.DateTime;
+import com.google.api.services.calendar.model.CalendarListEntry;
+import com.google.api.services.calendar.model.Event;
+import org.springframework.http.HttpStatus;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.function.Function;
+
+/**
+ * the reactive variant of the scan: the user, the courses, the last plan and the events of all the calendars are read without blocking,
+ * and the events of the calendars are fetched in parallel. so a node can serve many concurrent scans with a few threads.
+ * the planning core (sorting the events, the holidays and the generation) is shared with the blocking pipeline of {@link CalendarEngine}.
+ * the generation writes to the PlanIt calendar with the blocking client of Google, so it runs on the bounded elastic scheduler
+ * (it writes only when the plan changed, and so does the rare refresh of an access token).
+ */
+public class ReactiveCalendarEngine {
+
+    private final CalendarEngine calendarEngine;
+
+    private final ReactiveGoogleCalendarClient googleCalendarClient;
+
+    private final ReactiveUserRepository userRepo;
+
+    private final ReactiveCoursesRepository courseRepo;
+
+    private final ReactivePlanRepository planRepo;
+
+    private final ReactiveExamIndexRepository examIndexRepo;
+
+    private final GoogleApiUsageAccounting googleApiUsageAccounting;
+
+    private final UserCache userCache;
+
+    private final UserStateWriteBuffer userStateWriteBuffer;
+
+    // the deadline of a scan, 0 means no deadline
+    private final long requestTimeoutInMillis;
+
+    public ReactiveCalendarEngine(CalendarEngine calendarEngine, ReactiveGoogleCalendarClient googleCalendarClient, ReactiveUserRepository userRepo,
+                                  ReactiveCoursesRepository courseRepo, ReactivePlanRepository planRepo, ReactiveExamIndexRepository examIndexRepo,
+                                  GoogleApiUsageAccounting googleApiUsageAccounting,
+                                  UserCache userCache, UserStateWriteBuffer userStateWriteBuffer, long requestTimeoutInMillis) {
+        this.calendarEngine = calendarEngine;
+        this.googleCalendarClient = googleCalendarClient;
+        this.userRepo = userRepo;
+        this.courseRepo = courseRepo;
+        this.planRepo = planRepo;
+        this.examIndexRepo = examIndexRepo;
+        this.googleApiUsageAccounting = googleApiUsageAccounting;
+        this.userCache = userCache;
+        this.userStateWriteBuffer = userStateWriteBuffer;
+        this.requestTimeoutInMillis = requestTimeoutInMillis;
+    }
+
+    /**
+     * performs a scan on the user events, see {@link CalendarEngine#scanUserEvents(String, String, String)}
+     *
+     * @param email the user's email
+     * @param start the user's preferred start time to generate from (in ISO format)
+     * @param end   the user's preferred end time to generate to (in ISO format)
+     * @return a {@link DTOscanResponseToController} represents the information that should be returned to the scan controller,
+     * or a {@link DeadlineExceededException} if the scan did not end before its deadline
+     */
+    public Mono<DTOscanResponseToController> scanUserEvents(String email, String start, String end) {
+
+        // the deadline is also bound to the blocking parts of the scan, so their calls to Google respect it
+        Deadline deadline = requestTimeoutInMillis > 0 ? Deadline.after(requestTimeoutInMillis) : null;
+
+        Mono<DTOscanResponseToController> scan = findUserByEmail(email)
+                .map(userStateWriteBuffer::applyTo)
+                .flatMap(user -> scanUserEvents(user, start, end, deadline))
+                .switchIfEmpty(Mono.fromSupplier(() ->
+                        new DTOscanResponseToController(false, Constants.ERROR_USER_NOT_FOUND, HttpStatus.UNAUTHORIZED, new ArrayList<>())));
+
+        if (deadline == null) {
+            return scan;
+        }
+
+        // cancels the requests to Google that are still in flight
+        return scan.timeout(Duration.ofMillis(requestTimeoutInMillis), Mono.error(() -> new DeadlineExceededException("the scan ended")));
+    }
+
+    private Mono<DTOscanResponseToController> scanUserEvents(User user, String start, String end, Deadline deadline) {
+
+        // a valid access token, the courses catalog, the last plan and the exam index of the user are read at the same time
+        return Mono.zip(validateAccessToken(user, deadline),
+                        courseRepo.findAll().collectList(),
+                        planRepo.findPlanByEmail(user.getEmail()).defaultIfEmpty(new Plan(user.getEmail())),
+                        examIndexRepo.findById(user.getEmail()).map(Optional::of).defaultIfEmpty(Optional.empty()))
+                .flatMap(userCoursesPlanAndExamIndex -> {
+                    List<Course> courses = userCoursesPlanAndExamIndex.getT2();
+                    Plan plan = userCoursesPlanAndExamIndex.getT3();
+                    Optional<ExamIndex> maybeExamIndex = userCoursesPlanAndExamIndex.getT4();
+
+                    return getEventsFromALLCalendars(user, plan, courses, maybeExamIndex, new DateTime(start), new DateTime(end))
+                            .flatMap(calendar2EventsAndExams -> callBlocking(user, deadline, () -> {
+                                try {
+                                    return calendarEngine.scanUserEvents(user, start, calendarEngine.toUserCalendarsInformation(user, calendar2EventsAndExams.getKey(),
+                                            courses, plan, calendarEngine.getCalendarService(user), calendar2EventsAndExams.getValue()));
+                                } finally {
+
+                                    // the changes to the user are in the DB before the response is sent
+                                    userStateWriteBuffer.flush(user.getEmail());
+                                }
+                            }));
+                });
+    }
+
+    /**
+     * @return the user from the cache, or from the DB (and then it is cached)
+     */
+    private Mono<User> findUserByEmail(String email) {
+        return Mono.defer(() -> {
+            Optional<User> cachedUser = userCache.getIfPresent(email);
+            if (cachedUser.isPresent()) {
+                return Mono.just(cachedUser.get());
+            }
+
+            long invalidationsBeforeLoad = userCache.getInvalidations();
+            return userRepo.findUserByEmail(email)
+                    .doOnNext(user -> userCache.put(user, invalidationsBeforeLoad));
+        });
+    }
+
+    /**
+     * @return the user, after their access token was refreshed if it has expired
+     */
+    private Mono<User> validateAccessToken(User user, Deadline deadline) {
+        if (CalendarEngine.isAccessTokenValid(user.getExpireTimeInMilliseconds())) {
+            return Mono.just(user);
+        }
+
+        return callBlocking(user, deadline, () -> {
+            calendarEngine.validateAccessToken(user);
+            return user;
+        });
+    }
+
+    /**
+     * fetches the events of all the scanned calendars of the user in parallel, as the blocking pipeline does:
+     * the other calendars are fetched until the last exam (see {@link CalendarEngine#getScanEnd}). the exams are read from the exam index if it is fresh,
+     * otherwise the exams calendar (and the PlanIt calendar) is fetched first to detect them.
+     *
+     * @return the events of each scanned calendar, in the order of the calendar list, and the exams from the exam index (empty if it was not used)
+     */
+    private Mono<Map.Entry<Map<CalendarListEntry, List<Event>>, Optional<List<Exam>>>> getEventsFromALLCalendars(User user, Plan plan, List<Course> courses,
+                                                                                                           Optional<ExamIndex> maybeExamIndex, DateTime start, DateTime end) {
+        return googleCalendarClient.getCalendarList(user, GoogleApiUsageAccounting.Flow.SCAN)
+                .flatMap(calendarList -> {
+                    List<CalendarListEntry> scannedCalendars = calendarList.stream().filter(calendar -> CalendarEngine.isCalendarScanned(calendar, plan)).toList();
+                    Optional<List<Exam>> maybeIndexedExams = calendarEngine.getIndexedExams(user.getEmail(), maybeExamIndex, calendarList, courses, start, end);
+
+                    Mono<Map<CalendarListEntry, List<Event>>> fetchedCalendar2Events;
+                    if (maybeIndexedExams.isPresent()) {
+                        DateTime scanEnd = CalendarEngine.getScanEnd(maybeIndexedExams.get(), end);
+                        fetchedCalendar2Events = getEventsOfCalendars(user, scannedCalendars, start, calendar -> CalendarEngine.isPlanItCalendar(calendar) ? end : scanEnd);
+                    } else {
+                        List<CalendarListEntry> wholeIntervalCalendars = scannedCalendars.stream()
+                                .filter(calendar -> calendarEngine.isExamsCalendar(calendar) || CalendarEngine.isPlanItCalendar(calendar))
+                                .toList();
+                        List<CalendarListEntry> boundedCalendars = scannedCalendars.stream().filter(calendar -> !wholeIntervalCalendars.contains(calendar)).toList();
+
+                        fetchedCalendar2Events = getEventsOfCalendars(user, wholeIntervalCalendars, start, calendar -> end)
+                                .flatMap(wholeIntervalCalendar2Events -> {
+                                    List<Exam> exams = new ArrayList<>();
+                                    wholeIntervalCalendar2Events.forEach((calendar, calendarEvents) -> {
+                                        if (calendarEngine.isExamsCalendar(calendar)) {
+                                            exams.addAll(calendarEngine.findExams(calendar, calendarEvents, courses));
+                                        }
+                                    });
+                                    DateTime scanEnd = CalendarEngine.getScanEnd(exams, end);
+
+                                    return getEventsOfCalendars(user, boundedCalendars, start, calendar -> scanEnd)
+                                            .map(boundedCalendar2Events -> {
+                                                boundedCalendar2Events.putAll(wholeIntervalCalendar2Events);
+                                                return boundedCalendar2Events;
+                                            });
+                                });
+                    }
+
+                    return fetchedCalendar2Events.map(calendar2Events -> {
+                        Map<CalendarListEntry, List<Event>> orderedCalendar2Events = new LinkedHashMap<>();
+                        for (CalendarListEntry calendar : scannedCalendars) {
+                            orderedCalendar2Events.put(calendar, calendar2Events.get(calendar));
+                        }
+                        return Map.entry(orderedCalendar2Events, maybeIndexedExams);
+                    });
+                });
+    }
+
+    /**
+     * @param endOfCalendar the time to end scan of events of each calendar
+     * @return the events of each calendar, fetched in parallel
+     */
+    private Mono<Map<CalendarListEntry, List<Event>>> getEventsOfCalendars(User user, List<CalendarListEntry> calendars, DateTime start,
+                                                                           Function<CalendarListEntry, DateTime> endOfCalendar) {
+        return Flux.fromIterable(calendars)
+                .flatMapSequential(calendar -> googleCalendarClient.getEvents(user, GoogleApiUsageAccounting.Flow.SCAN, calendar.getId(), start, endOfCalendar.apply(calendar))
+                        .map(events -> Map.entry(calendar, events)))
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue, LinkedHashMap::new);
+    }
+
+    /**
+     * runs a blocking part of the scan on the bounded elastic scheduler, with the deadline of the scan and its usage accounting bound to the thread
+     */
+    private <T> Mono<T> callBlocking(User user, Deadline deadline, Callable<T> work) {
+        return Mono.fromCallable(() -> {
+            try (Deadline.Scope deadlineScope = deadline != null ? deadline.bind() : null;
+                 GoogleApiUsageAccounting.Scope usageScope = googleApiUsageAccounting.startScope(user.getEmail(), GoogleApiUsageAccounting.Flow.SCAN)) {
+                return work.call();
+            }
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+}
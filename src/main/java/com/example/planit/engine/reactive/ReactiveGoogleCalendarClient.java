@@ -0,0 +1,291 @@
+package com.example.planit.engine.reactive;
+
+import com.example.planit.engine.CalendarEngine;
+import com.example.planit.engine.EngineMetrics;
+import com.example.planit.engine.GoogleApiConcurrencyLimiter;
+import com.example.planit.engine.GoogleApiRateLimiter;
+import com.example.planit.engine.GoogleApiUsageAccounting;
+import com.example.planit.engine.RecurringEventsExpander;
+import com.example.planit.engine.resilience.DependencyGuard;
+import com.example.planit.model.mongo.user.User;
+import com.google.api.client.googleapis.json.GoogleJsonError;
+import com.google.api.client.googleapis.json.GoogleJsonErrorContainer;
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.client.http.HttpResponseException;
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.client.util.DateTime;
+import com.google.api.services.calendar.Calendar;
+import com.google.api.services.calendar.model.CalendarList;
+import com.google.api.services.calendar.model.CalendarListEntry;
+import com.google.api.services.calendar.model.Event;
+import com.google.api.services.calendar.model.Events;
+import io.netty.channel.ChannelOption;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.UriBuilder;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.core.publisher.SynchronousSink;
+import reactor.netty.http.client.HttpClient;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * a non-blocking client of the Google Calendar API, for the reactive pipeline.
+ * it reads the responses into the same model classes as the blocking client, so the planning core is shared by both pipelines.
+ * every request respects the same rate budget, adaptive concurrency limit and circuit breaker as the blocking requests,
+ * but waits for them without holding a thread.
+ */
+public class ReactiveGoogleCalendarClient {
+
+    private static final String CALENDAR_LIST_METHOD_NAME = "calendarlist.list";
+
+    private static final String EVENTS_LIST_METHOD_NAME = "events.list";
+
+    // the status of a request that got no response (e.g. a timeout)
+    private static final String GOOGLE_IO_ERROR_STATUS = "io_error";
+
+    // the events of a busy calendar can be larger than the default buffer of the web client
+    private static final int MAX_RESPONSE_SIZE_IN_BYTES = 16 * 1024 * 1024;
+
+    private static final JsonFactory JSON_FACTORY = GsonFactory.getDefaultInstance();
+
+    private final WebClient webClient;
+
+    private final GoogleApiRateLimiter googleApiRateLimiter;
+
+    private final GoogleApiConcurrencyLimiter googleApiConcurrencyLimiter;
+
+    private final DependencyGuard googleCalendarGuard;
+
+    private final EngineMetrics engineMetrics;
+
+    private final GoogleApiUsageAccounting googleApiUsageAccounting;
+
+    // true to list the masters of the recurring events and expand them locally, see {@link RecurringEventsExpander}
+    private final boolean isRecurringEventsExpandedLocally;
+
+    public ReactiveGoogleCalendarClient(String googleRootUrl, int googleConnectTimeoutInMillis, int googleReadTimeoutInMillis,
+                                        GoogleApiRateLimiter googleApiRateLimiter, GoogleApiConcurrencyLimiter googleApiConcurrencyLimiter,
+                                        DependencyGuard googleCalendarGuard, EngineMetrics engineMetrics, GoogleApiUsageAccounting googleApiUsageAccounting,
+                                        boolean isRecurringEventsExpandedLocally) {
+        HttpClient httpClient = HttpClient.create()
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, googleConnectTimeoutInMillis)
+                .responseTimeout(Duration.ofMillis(googleReadTimeoutInMillis));
+
+        this.webClient = WebClient.builder()
+                .baseUrl(googleRootUrl + Calendar.DEFAULT_SERVICE_PATH)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(MAX_RESPONSE_SIZE_IN_BYTES))
+                .build();
+        this.googleApiRateLimiter = googleApiRateLimiter;
+        this.googleApiConcurrencyLimiter = googleApiConcurrencyLimiter;
+        this.googleCalendarGuard = googleCalendarGuard;
+        this.engineMetrics = engineMetrics;
+        this.googleApiUsageAccounting = googleApiUsageAccounting;
+        this.isRecurringEventsExpandedLocally = isRecurringEventsExpandedLocally;
+    }
+
+    /**
+     * @param user the user, with a valid access token
+     * @param flow the flow the requests are accounted to
+     * @return all the Google Calendars of the user (all the pages of the list)
+     */
+    public Mono<List<CalendarListEntry>> getCalendarList(User user, GoogleApiUsageAccounting.Flow flow) {
+        return getCalendarListPage(user, flow, null)
+                .expand(calendarList -> calendarList.getNextPageToken() == null ? Mono.empty() : getCalendarListPage(user, flow, calendarList.getNextPageToken()))
+                .concatMapIterable(calendarList -> calendarList.getItems() == null ? List.<CalendarListEntry>of() : calendarList.getItems())
+                .collectList();
+    }
+
+    /**
+     * the events of a calendar, ordered by start time, as the scan of the blocking pipeline reads them
+     *
+     * @param user       the user, with a valid access token
+     * @param flow       the flow the request is accounted to
+     * @param calendarID the calendar to read
+     * @param start      the time to start scan of events
+     * @param end        the time to end scan of events
+     * @return the events of the calendar in the time interval
+     */
+    public Mono<List<Event>> getEvents(User user, GoogleApiUsageAccounting.Flow flow, String calendarID, DateTime start, DateTime end) {
+        if (isRecurringEventsExpandedLocally) {
+            return getExpandedEvents(user, flow, calendarID, start, end);
+        }
+
+        return getSingleEvents(user, flow, calendarID, start, end);
+    }
+
+    private Mono<List<Event>> getSingleEvents(User user, GoogleApiUsageAccounting.Flow flow, String calendarID, DateTime start, DateTime end) {
+        return execute(user, flow, EVENTS_LIST_METHOD_NAME, calendarID, uriBuilder -> uriBuilder.path("calendars/{calendarId}/events")
+                        .queryParam("orderBy", "startTime")
+                        .queryParam("singleEvents", "true")
+                        .queryParam("timeMax", "{timeMax}")
+                        .queryParam("timeMin", "{timeMin}")
+                        .build(Map.of("calendarId", calendarID, "timeMax", end.toStringRfc3339(), "timeMin", start.toStringRfc3339())),
+                Events.class)
+                .map(events -> events.getItems() == null ? new ArrayList<>() : events.getItems());
+    }
+
+    /**
+     * the same as the blocking pipeline: the masters of the recurring events are listed, and expanded locally.
+     * if a recurring event has a rule that is not supported, or the masters do not fit in a single page,
+     * the single events of the calendar are listed instead.
+     */
+    private Mono<List<Event>> getExpandedEvents(User user, GoogleApiUsageAccounting.Flow flow, String calendarID, DateTime start, DateTime end) {
+        return execute(user, flow, EVENTS_LIST_METHOD_NAME, calendarID, uriBuilder -> uriBuilder.path("calendars/{calendarId}/events")
+                        .queryParam("singleEvents", "false")
+                        .queryParam("timeMax", "{timeMax}")
+                        .queryParam("timeMin", "{timeMin}")
+                        .queryParam("fields", "{fields}")
+                        .build(Map.of("calendarId", calendarID, "timeMax", end.toStringRfc3339(), "timeMin", start.toStringRfc3339(),
+                                "fields", RecurringEventsExpander.EVENTS_FIELDS)),
+                Events.class)
+                .flatMap(events -> (events.getNextPageToken() == null
+                        ? RecurringEventsExpander.expand(events.getItems() == null ? List.of() : events.getItems(), start, end, events.getTimeZone())
+                        : Optional.<List<Event>>empty())
+                        .map(Mono::just)
+                        .orElseGet(() -> getSingleEvents(user, flow, calendarID, start, end)));
+    }
+
+    private Mono<CalendarList> getCalendarListPage(User user, GoogleApiUsageAccounting.Flow flow, String pageToken) {
+        return execute(user, flow, CALENDAR_LIST_METHOD_NAME, null, uriBuilder -> {
+            uriBuilder.path("users/me/calendarList");
+            if (pageToken == null) {
+                return uriBuilder.build();
+            }
+
+            return uriBuilder.queryParam("pageToken", "{pageToken}").build(pageToken);
+        }, CalendarList.class);
+    }
+
+    /**
+     * sends a request to the Google Calendar API, when the guard of Google Calendar, the rate budget and the concurrency limit let it in
+     *
+     * @param methodName    the API method, e.g. "events.list"
+     * @param calendarID    the calendar of the request, or null if the request is not of a single calendar
+     * @param uriFunction   builds the URI of the request, relative to the Calendar API
+     * @param responseClass the model class of the response
+     * @return the parsed response, or a {@link GoogleJsonResponseException} if Google answered with an error
+     */
+    private <T> Mono<T> execute(User user, GoogleApiUsageAccounting.Flow flow, String methodName, String calendarID,
+                                Function<UriBuilder, URI> uriFunction, Class<T> responseClass) {
+        return Mono.defer(() -> {
+
+            // fails fast if Google Calendar is down, before waiting for the rate budget
+            DependencyGuard.Permit guardPermit = googleCalendarGuard.acquireWithoutBulkhead();
+
+            return waitForGoogleBudget(guardPermit)
+                    .flatMap(permit -> send(user, flow, methodName, calendarID, uriFunction, responseClass, guardPermit, permit));
+        });
+    }
+
+    /**
+     * delays the request until its slot in the rate budget, and then waits for the adaptive concurrency limit.
+     * if the wait is aborted (e.g. the scan was cancelled by its deadline), the permits are given back without counting as a call.
+     *
+     * @return the permit of the concurrency limit
+     */
+    private Mono<GoogleApiConcurrencyLimiter.Permit> waitForGoogleBudget(DependencyGuard.Permit guardPermit) {
+        return Mono.delay(Duration.ofNanos(googleApiRateLimiter.reserve()))
+                .then(Mono.defer(() -> {
+                    CompletableFuture<GoogleApiConcurrencyLimiter.Permit> futurePermit = googleApiConcurrencyLimiter.acquireAsync();
+                    return Mono.fromFuture(futurePermit)
+                            .doOnCancel(() -> {
+
+                                // the permit may have been given just before the cancel
+                                if (!futurePermit.cancel(false)) {
+                                    futurePermit.thenAccept(GoogleApiConcurrencyLimiter.Permit::cancel);
+                                }
+                            });
+                }))
+                .doOnCancel(guardPermit::cancel)
+                .doOnError(e -> guardPermit.cancel());
+    }
+
+    private <T> Mono<T> send(User user, GoogleApiUsageAccounting.Flow flow, String methodName, String calendarID, Function<UriBuilder, URI> uriFunction,
+                             Class<T> responseClass, DependencyGuard.Permit guardPermit, GoogleApiConcurrencyLimiter.Permit permit) {
+        guardPermit.startCall();
+        EngineMetrics.GoogleRequestTimer googleRequestTimer = engineMetrics.startGoogleRequest();
+        RequestOutcome outcome = new RequestOutcome();
+
+        return webClient.get()
+                .uri(uriFunction)
+                .headers(headers -> headers.setBearerAuth(user.getAccessToken()))
+                .exchangeToMono(response -> response.bodyToMono(String.class)
+                        .defaultIfEmpty("")
+                        .<T>handle((body, sink) -> readResponse(response, body, responseClass, outcome, sink)))
+                .doFinally(signalType -> {
+
+                    // a request that was cancelled (e.g. by the deadline of the scan) is not the fault of Google
+                    boolean isOverloaded = signalType != SignalType.CANCEL && outcome.isOverloaded;
+                    permit.release(isOverloaded);
+                    guardPermit.release(isOverloaded);
+                    googleRequestTimer.stop(methodName, calendarID, outcome.status, outcome.responseBytes);
+
+                    // the request ends in another thread than it started, so the usage is accounted to the user explicitly
+                    try (GoogleApiUsageAccounting.Scope usageScope = googleApiUsageAccounting.startScope(user.getEmail(), flow)) {
+                        googleApiUsageAccounting.record(methodName, 0, outcome.responseBytes);
+                    }
+                });
+    }
+
+    /**
+     * parses the response of Google into the model class, or into the same exception the blocking client throws
+     */
+    private static <T> void readResponse(ClientResponse response, String body, Class<T> responseClass, RequestOutcome outcome, SynchronousSink<T> sink) {
+        int statusCode = response.statusCode().value();
+        outcome.status = Integer.toString(statusCode);
+        outcome.responseBytes = response.headers().contentLength().orElse(body.getBytes(StandardCharsets.UTF_8).length);
+
+        if (response.statusCode().is2xxSuccessful()) {
+            outcome.isOverloaded = false;
+            try {
+                sink.next(JSON_FACTORY.fromString(body, responseClass));
+            } catch (IOException | IllegalArgumentException e) {
+                sink.error(e);
+            }
+            return;
+        }
+
+        GoogleJsonResponseException exception = toGoogleJsonResponseException(statusCode, body);
+        outcome.isOverloaded = CalendarEngine.isGoogleOverloaded(exception);
+        sink.error(exception);
+    }
+
+    private static GoogleJsonResponseException toGoogleJsonResponseException(int statusCode, String body) {
+        GoogleJsonError details = null;
+        try {
+            details = JSON_FACTORY.fromString(body, GoogleJsonErrorContainer.class).getError();
+        } catch (IOException | IllegalArgumentException e) {
+            // the error is not a JSON error of Google, so it has no details
+        }
+
+        HttpResponseException.Builder builder = new HttpResponseException.Builder(statusCode, null, new com.google.api.client.http.HttpHeaders())
+                .setContent(body);
+        return new GoogleJsonResponseException(builder, details);
+    }
+
+    /**
+     * what is known about a request when it ends, for the metrics and the limits
+     */
+    private static class RequestOutcome {
+
+        private String status = GOOGLE_IO_ERROR_STATUS;
+
+        private long responseBytes;
+
+        private boolean isOverloaded = true;
+    }
+}
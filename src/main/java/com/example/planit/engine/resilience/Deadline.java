@@ -0,0 +1,109 @@
+package com.example.planit.engine.resilience;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * the time budget of a single request (e.g. a /scan), that every downstream call to Google respects.
+ * the deadline is bound to the thread that does the work, so the calls find it without passing it through every method.
+ * a thread with no deadline (e.g. the bulk regeneration) is bounded only by the timeouts of each call.
+ */
+public class Deadline {
+
+    private static final ThreadLocal<Deadline> currentDeadline = new ThreadLocal<>();
+
+    private final long expirationTimeInNanos;
+
+    private Deadline(long expirationTimeInNanos) {
+        this.expirationTimeInNanos = expirationTimeInNanos;
+    }
+
+    /**
+     * @param budgetInMillis the time budget, from now
+     * @return a deadline that expires after the budget
+     */
+    public static Deadline after(long budgetInMillis) {
+        return new Deadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetInMillis));
+    }
+
+    /**
+     * @return the deadline of the current thread, or null if it has no deadline
+     */
+    public static Deadline current() {
+        return currentDeadline.get();
+    }
+
+    /**
+     * @param timeoutInMillis the timeout of a call
+     * @return the timeout, cut to the time that is left to the deadline of the current thread (at least 1 millisecond)
+     */
+    public static int capTimeout(int timeoutInMillis) {
+        Deadline deadline = current();
+        if (deadline == null) {
+            return timeoutInMillis;
+        }
+
+        return (int) Math.max(1, Math.min(timeoutInMillis, deadline.getRemainingInMillis()));
+    }
+
+    /**
+     * aborts the work of the current thread if its deadline has expired
+     *
+     * @param work the work that is about to start, for the message of the exception
+     * @throws DeadlineExceededException if the deadline has expired
+     */
+    public static void checkCurrent(String work) {
+        Deadline deadline = current();
+        if (deadline != null && deadline.isExpired()) {
+            throw new DeadlineExceededException(work);
+        }
+    }
+
+    /**
+     * @param minimumRemainingInMillis the time that optional work needs
+     * @return true if the current thread has a deadline, and less time than the minimum is left to it
+     */
+    public static boolean isCurrentLowOnTime(long minimumRemainingInMillis) {
+        Deadline deadline = current();
+        return deadline != null && deadline.getRemainingInMillis() < minimumRemainingInMillis;
+    }
+
+    public long getRemainingInMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(expirationTimeInNanos - System.nanoTime());
+    }
+
+    public boolean isExpired() {
+        return expirationTimeInNanos - System.nanoTime() <= 0;
+    }
+
+    /**
+     * binds the deadline to the current thread, until the scope is closed
+     *
+     * @return the scope, that should be closed (in the same thread) when the work ends
+     */
+    public Scope bind() {
+        Scope scope = new Scope(currentDeadline.get());
+        currentDeadline.set(this);
+        return scope;
+    }
+
+    /**
+     * the scope of a deadline in the current thread
+     */
+    public static class Scope implements AutoCloseable {
+
+        private final Deadline outerDeadline;
+
+        private Scope(Deadline outerDeadline) {
+            this.outerDeadline = outerDeadline;
+        }
+
+        @Override
+        public void close() {
+            if (outerDeadline == null) {
+                currentDeadline.remove();
+            } else {
+                currentDeadline.set(outerDeadline);
+            }
+        }
+    }
+}
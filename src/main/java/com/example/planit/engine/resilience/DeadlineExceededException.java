@@ -0,0 +1,29 @@
+package com.example.planit.engine.resilience;
+
+/**
+ * thrown instead of starting work that the time budget of the request has no room for (see {@link Deadline}),
+ * or when a call timed out because its timeout was cut to the deadline.
+ * the controllers answer it with 504.
+ */
+public class DeadlineExceededException extends RuntimeException {
+
+    public DeadlineExceededException(String work) {
+        super("the deadline of the request has expired before: " + work);
+    }
+
+    public DeadlineExceededException(String work, Throwable cause) {
+        super("the deadline of the request has expired during: " + work, cause);
+    }
+
+    private DeadlineExceededException(String message, Throwable cause, boolean enableSuppression, boolean writableStackTrace) {
+        super(message, cause, enableSuppression, writableStackTrace);
+    }
+
+    /**
+     * @param wait what the request would wait for, e.g. a rate budget
+     * @return the exception of a request that was not sent at all, since it would wait beyond its deadline
+     */
+    public static DeadlineExceededException beyondDeadline(String wait) {
+        return new DeadlineExceededException("the request would wait for " + wait + " beyond its deadline", null, true, true);
+    }
+}
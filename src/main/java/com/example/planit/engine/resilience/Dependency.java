@@ -0,0 +1,30 @@
+package com.example.planit.engine.resilience;
+
+/**
+ * the external services PlanIt depends on, each one is guarded by its own {@link DependencyGuard}
+ */
+public enum Dependency {
+    GOOGLE_CALENDAR("google_calendar", "google-calendar"),
+    GOOGLE_OAUTH("google_oauth", "google-oauth"),
+    CALENDARIFIC("calendarific", "calendarific");
+
+    private final String tagValue;
+
+    private final String propertyName;
+
+    Dependency(String tagValue, String propertyName) {
+        this.tagValue = tagValue;
+        this.propertyName = propertyName;
+    }
+
+    public String getTagValue() {
+        return tagValue;
+    }
+
+    /**
+     * @return the name of the dependency in the properties, e.g. planit.resilience.google-calendar.max-concurrent-calls
+     */
+    public String getPropertyName() {
+        return propertyName;
+    }
+}
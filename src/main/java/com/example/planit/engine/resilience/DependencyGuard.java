@@ -0,0 +1,307 @@
+package com.example.planit.engine.resilience;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * a circuit breaker and a bulkhead around the calls to a single dependency.
+ * the bulkhead bounds the number of threads that can be inside the dependency at the same time,
+ * so when it hangs it can not take all the threads of the service with it.
+ * the circuit breaker opens when too many of the last calls failed (or were too slow), and then the calls fail fast.
+ * after the open duration a few probe calls are let in (half-open), and if they succeed the circuit is closed again.
+ */
+public class DependencyGuard {
+
+    public enum State {
+        CLOSED(0),
+        OPEN(1),
+        HALF_OPEN(2);
+
+        private final int gaugeValue;
+
+        State(int gaugeValue) {
+            this.gaugeValue = gaugeValue;
+        }
+
+        public int getGaugeValue() {
+            return gaugeValue;
+        }
+    }
+
+    private final Dependency dependency;
+
+    private final int maxConcurrentCalls;
+
+    private final long maxWaitInMillis;
+
+    private final int minimumNumberOfCalls;
+
+    private final double failureRateThreshold;
+
+    private final long slowCallThresholdInNanos;
+
+    private final long openDurationInNanos;
+
+    private final int halfOpenProbes;
+
+    private final Semaphore bulkhead;
+
+    // the results of the last calls, in a ring (true is a failure)
+    private final boolean[] lastCallsFailures;
+
+    private int nextCallIndex;
+
+    private int numberOfCalls;
+
+    private int numberOfFailures;
+
+    private State state;
+
+    private long openUntilInNanos;
+
+    private int halfOpenProbesInFlight;
+
+    private int halfOpenSucceededProbes;
+
+    private final AtomicLong rejectedCalls;
+
+    /**
+     * @param maxConcurrentCalls        the bulkhead, the maximum number of calls to the dependency at the same time
+     * @param maxWaitInMillis           the maximum time a call waits for the bulkhead, before it is rejected
+     * @param slidingWindowSize         the number of last calls the failure rate is calculated on
+     * @param minimumNumberOfCalls      the circuit is not opened before this number of calls
+     * @param failureRateThreshold      the circuit is opened when the failure rate of the last calls reaches it, e.g. 0.5
+     * @param slowCallThresholdInMillis a call that is slower than this is a failure too
+     * @param openDurationInMillis      the time the circuit stays open, before the probes
+     * @param halfOpenProbes            the number of probes that should succeed to close the circuit
+     */
+    public DependencyGuard(Dependency dependency, int maxConcurrentCalls, long maxWaitInMillis, int slidingWindowSize, int minimumNumberOfCalls,
+                           double failureRateThreshold, long slowCallThresholdInMillis, long openDurationInMillis, int halfOpenProbes) {
+        this.dependency = dependency;
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.maxWaitInMillis = maxWaitInMillis;
+        this.minimumNumberOfCalls = Math.min(minimumNumberOfCalls, slidingWindowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallThresholdInNanos = TimeUnit.MILLISECONDS.toNanos(slowCallThresholdInMillis);
+        this.openDurationInNanos = TimeUnit.MILLISECONDS.toNanos(openDurationInMillis);
+        this.halfOpenProbes = Math.max(halfOpenProbes, 1);
+        this.bulkhead = new Semaphore(maxConcurrentCalls, true);
+        this.lastCallsFailures = new boolean[slidingWindowSize];
+        this.state = State.CLOSED;
+        this.rejectedCalls = new AtomicLong();
+    }
+
+    /**
+     * lets a call into the dependency, or fails fast if the circuit is open or the bulkhead stays full.
+     *
+     * @return the permit of the call, that should be released when the call ends
+     * @throws DependencyUnavailableException if the call is rejected
+     */
+    public Permit acquire() {
+        boolean isProbe = enterCircuit();
+
+        // waits for the bulkhead outside the lock, so the other calls can still be rejected fast
+        boolean isAcquired;
+        try {
+            // the wait is also bounded by the deadline of the current thread
+            Deadline deadline = Deadline.current();
+            long waitInMillis = deadline == null ? maxWaitInMillis : Math.max(0, Math.min(maxWaitInMillis, deadline.getRemainingInMillis()));
+            isAcquired = bulkhead.tryAcquire(waitInMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            isAcquired = false;
+        }
+
+        if (!isAcquired) {
+            if (isProbe) {
+                cancelProbe();
+            }
+            rejectedCalls.incrementAndGet();
+            throw new DependencyUnavailableException(dependency, "too many calls in progress", 1);
+        }
+
+        return new Permit(isProbe, true);
+    }
+
+    /**
+     * lets a call into the dependency through the circuit breaker only (used by the reactive pipeline).
+     * the bulkhead bounds the threads that wait for the dependency, and a reactive call holds no thread while it waits
+     * (its calls in flight are bounded by the {@link com.example.planit.engine.GoogleApiConcurrencyLimiter} instead).
+     *
+     * @return the permit of the call, that should be released when the call ends
+     * @throws DependencyUnavailableException if the circuit is open
+     */
+    public Permit acquireWithoutBulkhead() {
+        return new Permit(enterCircuit(), false);
+    }
+
+    public Dependency getDependency() {
+        return dependency;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public int getAvailableConcurrentCalls() {
+        return bulkhead.availablePermits();
+    }
+
+    public int getMaxConcurrentCalls() {
+        return maxConcurrentCalls;
+    }
+
+    public long getRejectedCalls() {
+        return rejectedCalls.get();
+    }
+
+    /**
+     * @return true if the call is a probe of a half-open circuit
+     * @throws DependencyUnavailableException if the circuit is open (or all the probes are already in progress)
+     */
+    private synchronized boolean enterCircuit() {
+        long now = System.nanoTime();
+
+        if (state == State.OPEN && now - openUntilInNanos >= 0) {
+            state = State.HALF_OPEN;
+            halfOpenProbesInFlight = 0;
+            halfOpenSucceededProbes = 0;
+        }
+
+        if (state == State.OPEN) {
+            rejectedCalls.incrementAndGet();
+            throw new DependencyUnavailableException(dependency, "the circuit is open", Math.max(1, TimeUnit.NANOSECONDS.toSeconds(openUntilInNanos - now)));
+        }
+
+        if (state == State.HALF_OPEN) {
+            if (halfOpenProbesInFlight + halfOpenSucceededProbes >= halfOpenProbes) {
+                rejectedCalls.incrementAndGet();
+                throw new DependencyUnavailableException(dependency, "the circuit is half-open", 1);
+            }
+
+            halfOpenProbesInFlight++;
+            return true;
+        }
+
+        return false;
+    }
+
+    private synchronized void cancelProbe() {
+        if (state == State.HALF_OPEN) {
+            halfOpenProbesInFlight--;
+        }
+    }
+
+    /**
+     * updates the circuit by the result of a single call
+     */
+    private synchronized void onCallEnd(boolean isProbe, boolean isFailure) {
+        if (isProbe) {
+            if (state != State.HALF_OPEN) {
+                return;
+            }
+
+            halfOpenProbesInFlight--;
+            if (isFailure) {
+                open();
+            } else if (++halfOpenSucceededProbes >= halfOpenProbes) {
+                close();
+            }
+            return;
+        }
+
+        // calls that started before the circuit was opened do not count
+        if (state != State.CLOSED) {
+            return;
+        }
+
+        if (numberOfCalls == lastCallsFailures.length) {
+            if (lastCallsFailures[nextCallIndex]) {
+                numberOfFailures--;
+            }
+        } else {
+            numberOfCalls++;
+        }
+        lastCallsFailures[nextCallIndex] = isFailure;
+        if (isFailure) {
+            numberOfFailures++;
+        }
+        nextCallIndex = (nextCallIndex + 1) % lastCallsFailures.length;
+
+        if (numberOfCalls >= minimumNumberOfCalls && numberOfFailures >= failureRateThreshold * numberOfCalls) {
+            open();
+        }
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openUntilInNanos = System.nanoTime() + openDurationInNanos;
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        numberOfCalls = 0;
+        numberOfFailures = 0;
+        nextCallIndex = 0;
+    }
+
+    /**
+     * the permit of a single call to the dependency
+     */
+    public class Permit {
+
+        private final boolean isProbe;
+
+        private final boolean isInBulkhead;
+
+        private long startTimeInNanos;
+
+        private boolean isReleased;
+
+        private Permit(boolean isProbe, boolean isInBulkhead) {
+            this.isProbe = isProbe;
+            this.isInBulkhead = isInBulkhead;
+            this.startTimeInNanos = System.nanoTime();
+        }
+
+        /**
+         * marks the start of the call itself, so the time it waited for the other limits (e.g. the rate budget) is not counted as a slow call
+         */
+        public void startCall() {
+            startTimeInNanos = System.nanoTime();
+        }
+
+        /**
+         * @param isFailure true if the dependency failed (e.g. 5xx, 429 or no response), client errors (e.g. 404) are not failures
+         */
+        public void release(boolean isFailure) {
+            if (isReleased) {
+                return;
+            }
+
+            isReleased = true;
+            if (isInBulkhead) {
+                bulkhead.release();
+            }
+            onCallEnd(isProbe, isFailure || System.nanoTime() - startTimeInNanos > slowCallThresholdInNanos);
+        }
+
+        /**
+         * gives the permit back without a call to the dependency (e.g. the deadline expired before the call was sent)
+         */
+        public void cancel() {
+            if (isReleased) {
+                return;
+            }
+
+            isReleased = true;
+            if (isInBulkhead) {
+                bulkhead.release();
+            }
+            if (isProbe) {
+                cancelProbe();
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.planit.engine.resilience;
+
+/**
+ * thrown instead of calling a dependency, when its circuit is open or its bulkhead is full.
+ * the controllers answer it with 503 and a Retry-After header.
+ */
+public class DependencyUnavailableException extends RuntimeException {
+
+    private final Dependency dependency;
+
+    private final long retryAfterInSeconds;
+
+    public DependencyUnavailableException(Dependency dependency, String reason, long retryAfterInSeconds) {
+        super(dependency.getTagValue() + " is unavailable: " + reason);
+        this.dependency = dependency;
+        this.retryAfterInSeconds = retryAfterInSeconds;
+    }
+
+    public Dependency getDependency() {
+        return dependency;
+    }
+
+    public long getRetryAfterInSeconds() {
+        return retryAfterInSeconds;
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.planit.model.mongo.bulk;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+@Document("bulk_checkpoints")
+public class BulkCheckpoint {
+
+    @Id
+    private String id;
+
+    @Field(name = "last_user_ID")
+    private String lastUserID; // the last user that was processed, all the users before it are processed too
+
+    @Field(name = "start")
+    private String start;
+
+    @Field(name = "end")
+    private String end;
+
+    @Field(name = "processed_users")
+    private long processedUsers;
+
+    @Field(name = "succeeded_users")
+    private long succeededUsers;
+
+    @Field(name = "skipped_users")
+    private long skippedUsers;
+
+    @Field(name = "failed_users")
+    private long failedUsers;
+
+    @Field(name = "is_completed")
+    private boolean isCompleted;
+
+    // need empty ctor for mongo reflection stuff
+    public BulkCheckpoint() {
+    }
+
+    public BulkCheckpoint(String id, String start, String end) {
+        this.id = id;
+        this.start = start;
+        this.end = end;
+        this.lastUserID = null;
+        this.isCompleted = false;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getLastUserID() {
+        return lastUserID;
+    }
+
+    public void setLastUserID(String lastUserID) {
+        this.lastUserID = lastUserID;
+    }
+
+    public String getStart() {
+        return start;
+    }
+
+    public String getEnd() {
+        return end;
+    }
+
+    public long getProcessedUsers() {
+        return processedUsers;
+    }
+
+    public void setProcessedUsers(long processedUsers) {
+        this.processedUsers = processedUsers;
+    }
+
+    public long getSucceededUsers() {
+        return succeededUsers;
+    }
+
+    public void setSucceededUsers(long succeededUsers) {
+        this.succeededUsers = succeededUsers;
+    }
+
+    public long getSkippedUsers() {
+        return skippedUsers;
+    }
+
+    public void setSkippedUsers(long skippedUsers) {
+        this.skippedUsers = skippedUsers;
+    }
+
+    public long getFailedUsers() {
+        return failedUsers;
+    }
+
+    public void setFailedUsers(long failedUsers) {
+        this.failedUsers = failedUsers;
+    }
+
+    public boolean isCompleted() {
+        return isCompleted;
+    }
+
+    public void setCompleted(boolean completed) {
+        isCompleted = completed;
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.planit.model.mongo.bulk;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+public interface BulkCheckpointRepository extends MongoRepository<BulkCheckpoint, String> {
+
+}
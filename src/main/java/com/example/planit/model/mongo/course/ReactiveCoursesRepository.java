@@ -0,0 +1,12 @@
+package com.example.planit.model.mongo.course;
+
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Mono;
+
+/**
+ * the non-blocking twin of {@link CoursesRepository}, used by the reactive pipeline
+ */
+public interface ReactiveCoursesRepository extends ReactiveMongoRepository<Course, String> {
+
+    Mono<Course> findCourseByCourseName(String courseName);
+}
@@ -0,0 +1,88 @@
+package com.example.planit.model.mongo.exam;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * the events of the exams calendar of a user, so the scan detects the exams in them instead of listing the exams calendar on every request.
+ * it is refreshed in the background with the sync token of the calendar (only the events that changed since the last refresh are listed).
+ * the exams are detected on read, so a course added to the catalog (or a change of the exam sources) applies without listing all the events again.
+ */
+@Document("exam_indexes")
+public class ExamIndex {
+
+    @Id
+    private String email;
+
+    @Field(name = "exams_calendar_ID")
+    private String examsCalendarID; // the calendar of the indexed events
+
+    @Field(name = "exams_calendar_summary")
+    private String examsCalendarSummary; // the summary of the calendar, that decides the rules the exams are detected by (see ExamSource)
+
+    @Field(name = "sync_token")
+    private String syncToken; // the sync token of the exams calendar, null if the next refresh should list all of its events
+
+    @Field(name = "refreshed_at")
+    private long refreshedAtInMilliseconds;
+
+    @Field(name = "events")
+    private List<IndexedExamEvent> events; // ordered by start time, null in an index that was stored with its exams only, so it is listed again
+
+    // need empty ctor for mongo reflection stuff
+    public ExamIndex() {
+    }
+
+    public ExamIndex(String email) {
+        this.email = email;
+        this.events = new ArrayList<>();
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getExamsCalendarID() {
+        return examsCalendarID;
+    }
+
+    public void setExamsCalendarID(String examsCalendarID) {
+        this.examsCalendarID = examsCalendarID;
+    }
+
+    public String getExamsCalendarSummary() {
+        return examsCalendarSummary;
+    }
+
+    public void setExamsCalendarSummary(String examsCalendarSummary) {
+        this.examsCalendarSummary = examsCalendarSummary;
+    }
+
+    public String getSyncToken() {
+        return syncToken;
+    }
+
+    public void setSyncToken(String syncToken) {
+        this.syncToken = syncToken;
+    }
+
+    public long getRefreshedAtInMilliseconds() {
+        return refreshedAtInMilliseconds;
+    }
+
+    public void setRefreshedAtInMilliseconds(long refreshedAtInMilliseconds) {
+        this.refreshedAtInMilliseconds = refreshedAtInMilliseconds;
+    }
+
+    public List<IndexedExamEvent> getEvents() {
+        return events;
+    }
+
+    public void setEvents(List<IndexedExamEvent> events) {
+        this.events = events;
+    }
+}
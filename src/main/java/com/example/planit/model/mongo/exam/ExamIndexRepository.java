@@ -0,0 +1,14 @@
+package com.example.planit.model.mongo.exam;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import java.util.stream.Stream;
+
+public interface ExamIndexRepository extends MongoRepository<ExamIndex, String> {
+
+    /**
+     * @return the indexes that were not refreshed since the time, for the background refresh
+     */
+    Stream<ExamIndex> streamAllByRefreshedAtInMillisecondsLessThan(long refreshedAtInMilliseconds);
+
+}
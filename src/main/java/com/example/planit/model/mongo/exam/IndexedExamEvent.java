@@ -0,0 +1,58 @@
+package com.example.planit.model.mongo.exam;
+
+import org.springframework.data.mongodb.core.mapping.Field;
+
+/**
+ * a single event of the exams calendar in the {@link ExamIndex} of a user.
+ * every event is kept (not only the exams), so the exams are detected on read with the current courses catalog and exam sources.
+ */
+public class IndexedExamEvent {
+
+    @Field(name = "event_ID")
+    private String eventID;
+
+    // the etag of the event in Google, an event that is listed again with the same etag did not change
+    @Field(name = "etag")
+    private String etag;
+
+    @Field(name = "summary")
+    private String summary;
+
+    @Field(name = "start")
+    private long startInMilliseconds;
+
+    @Field(name = "end")
+    private long endInMilliseconds;
+
+    // need empty ctor for mongo reflection stuff
+    public IndexedExamEvent() {
+    }
+
+    public IndexedExamEvent(String eventID, String etag, String summary, long startInMilliseconds, long endInMilliseconds) {
+        this.eventID = eventID;
+        this.etag = etag;
+        this.summary = summary;
+        this.startInMilliseconds = startInMilliseconds;
+        this.endInMilliseconds = endInMilliseconds;
+    }
+
+    public String getEventID() {
+        return eventID;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public String getSummary() {
+        return summary;
+    }
+
+    public long getStartInMilliseconds() {
+        return startInMilliseconds;
+    }
+
+    public long getEndInMilliseconds() {
+        return endInMilliseconds;
+    }
+}
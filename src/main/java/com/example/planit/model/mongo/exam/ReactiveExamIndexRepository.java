@@ -0,0 +1,9 @@
+package com.example.planit.model.mongo.exam;
+
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+
+/**
+ * the non-blocking twin of {@link ExamIndexRepository}, used by the reactive pipeline
+ */
+public interface ReactiveExamIndexRepository extends ReactiveMongoRepository<ExamIndex, String> {
+}
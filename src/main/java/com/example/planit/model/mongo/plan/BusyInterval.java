@@ -0,0 +1,54 @@
+package com.example.planit.model.mongo.plan;
+
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.util.Objects;
+
+/**
+ * a busy interval (the start and end of a user's event) that a plan was generated around
+ */
+public class BusyInterval {
+
+    @Field(name = "start")
+    private long startInMilliseconds;
+
+    @Field(name = "end")
+    private long endInMilliseconds;
+
+    // need empty ctor for mongo reflection stuff
+    public BusyInterval() {
+    }
+
+    public BusyInterval(long startInMilliseconds, long endInMilliseconds) {
+        this.startInMilliseconds = startInMilliseconds;
+        this.endInMilliseconds = endInMilliseconds;
+    }
+
+    public long getStartInMilliseconds() {
+        return startInMilliseconds;
+    }
+
+    public long getEndInMilliseconds() {
+        return endInMilliseconds;
+    }
+
+    /**
+     * @return true if the interval overlaps the time between start and end
+     */
+    public boolean isOverlapping(long start, long end) {
+        return startInMilliseconds < end && start < endInMilliseconds;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        BusyInterval that = (BusyInterval) o;
+        return startInMilliseconds == that.startInMilliseconds && endInMilliseconds == that.endInMilliseconds;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(startInMilliseconds, endInMilliseconds);
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.planit.model.mongo.plan;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.util.List;
+
+@Document("plans")
+public class Plan {
+
+    public static final String INPUTS_FINGERPRINT_FIELD = "inputs_fingerprint";
+
+    public static final String GENERATED_AT_FIELD = "generated_at";
+
+    public static final String SESSIONS_FIELD = "sessions";
+
+    @Id
+    private String id;
+
+    @Field(name = "email")
+    private String email;
+
+    @Field(name = INPUTS_FINGERPRINT_FIELD)
+    private String inputsFingerprint; // fingerprint of all the inputs the plan was generated from
+
+    @Field(name = "base_inputs_fingerprint")
+    private String baseInputsFingerprint; // fingerprint of the inputs, except for the busy intervals and the PlanIt calendar
+
+    @Field(name = "busy_intervals")
+    private List<BusyInterval> busyIntervals; // the busy intervals the plan was generated around
+
+    @Field(name = GENERATED_AT_FIELD)
+    private long generatedAtInMilliseconds;
+
+    @Field(name = "planIt_calendar_ID")
+    private String planItCalendarID; // the calendar the sessions were written to
+
+    @Field(name = SESSIONS_FIELD)
+    private List<PlannedSession> sessions; // null if the PlanIt calendar was never written (or has to be read again) from Google
+
+    // need empty ctor for mongo reflection stuff
+    public Plan() {
+    }
+
+    public Plan(String email) {
+        this.email = email;
+        this.inputsFingerprint = null;
+        this.planItCalendarID = null;
+        this.sessions = null;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getInputsFingerprint() {
+        return inputsFingerprint;
+    }
+
+    public void setInputsFingerprint(String inputsFingerprint) {
+        this.inputsFingerprint = inputsFingerprint;
+    }
+
+    public long getGeneratedAtInMilliseconds() {
+        return generatedAtInMilliseconds;
+    }
+
+    public void setGeneratedAtInMilliseconds(long generatedAtInMilliseconds) {
+        this.generatedAtInMilliseconds = generatedAtInMilliseconds;
+    }
+
+    public String getPlanItCalendarID() {
+        return planItCalendarID;
+    }
+
+    public void setPlanItCalendarID(String planItCalendarID) {
+        this.planItCalendarID = planItCalendarID;
+    }
+
+    public List<PlannedSession> getSessions() {
+        return sessions;
+    }
+
+    public void setSessions(List<PlannedSession> sessions) {
+        this.sessions = sessions;
+    }
+
+    public String getBaseInputsFingerprint() {
+        return baseInputsFingerprint;
+    }
+
+    public void setBaseInputsFingerprint(String baseInputsFingerprint) {
+        this.baseInputsFingerprint = baseInputsFingerprint;
+    }
+
+    public List<BusyInterval> getBusyIntervals() {
+        return busyIntervals;
+    }
+
+    public void setBusyIntervals(List<BusyInterval> busyIntervals) {
+        this.busyIntervals = busyIntervals;
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.planit.model.mongo.plan;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * a plan that was generated without being written to the PlanIt calendar, so the user can try a few preferences for free.
+ * it holds the diff from the PlanIt calendar of the stored plan, and the commit writes exactly this diff.
+ * the previews expire (see {@link PlanPreviewRepositoryCustom#createIndexes}), and a preview is stale once the stored plan changed.
+ */
+@Document("plan_previews")
+public class PlanPreview {
+
+    public static final String EXPIRES_AT_FIELD = "expires_at";
+
+    @Id
+    private String id;
+
+    @Field(name = "email")
+    private String email;
+
+    @Field(name = "plan_inputs_fingerprint")
+    private String planInputsFingerprint; // the inputs fingerprint of the stored plan that the diff was calculated from
+
+    @Field(name = "plan_generated_at")
+    private long planGeneratedAtInMilliseconds; // the generation time of the stored plan that the diff was calculated from
+
+    @Field(name = "planIt_calendar_ID")
+    private String planItCalendarID; // the PlanIt calendar the diff is of, null if the user has none yet
+
+    @Field(name = "base_inputs_fingerprint")
+    private String baseInputsFingerprint; // stored in the plan on commit (see Plan)
+
+    @Field(name = "busy_intervals")
+    private List<BusyInterval> busyIntervals; // stored in the plan on commit (see Plan)
+
+    @Field(name = "sessions")
+    private List<PlannedSession> sessions; // the sessions of the new plan, sorted by start time. a session that is inserted on commit has no event ID
+
+    @Field(name = "deleted_event_IDs")
+    private List<String> deletedEventIDs; // the events of the PlanIt calendar that are deleted on commit
+
+    @Field(name = EXPIRES_AT_FIELD)
+    private Date expiresAt;
+
+    // need empty ctor for mongo reflection stuff
+    public PlanPreview() {
+    }
+
+    public PlanPreview(String email, Plan plan, String planItCalendarID, String baseInputsFingerprint, List<BusyInterval> busyIntervals,
+                       List<PlannedSession> sessions, List<String> deletedEventIDs, Date expiresAt) {
+        this.email = email;
+        this.planInputsFingerprint = plan.getInputsFingerprint();
+        this.planGeneratedAtInMilliseconds = plan.getGeneratedAtInMilliseconds();
+        this.planItCalendarID = planItCalendarID;
+        this.baseInputsFingerprint = baseInputsFingerprint;
+        this.busyIntervals = busyIntervals;
+        this.sessions = sessions;
+        this.deletedEventIDs = deletedEventIDs;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getPlanInputsFingerprint() {
+        return planInputsFingerprint;
+    }
+
+    public long getPlanGeneratedAtInMilliseconds() {
+        return planGeneratedAtInMilliseconds;
+    }
+
+    public String getPlanItCalendarID() {
+        return planItCalendarID;
+    }
+
+    public String getBaseInputsFingerprint() {
+        return baseInputsFingerprint;
+    }
+
+    public List<BusyInterval> getBusyIntervals() {
+        return busyIntervals;
+    }
+
+    public List<PlannedSession> getSessions() {
+        return sessions;
+    }
+
+    public List<String> getDeletedEventIDs() {
+        return deletedEventIDs;
+    }
+
+    public Date getExpiresAt() {
+        return expiresAt;
+    }
+
+    /**
+     * @return true if the preview was calculated from the current stored plan of the user (the plan did not change since)
+     */
+    public boolean isOf(Plan plan) {
+        return Objects.equals(planInputsFingerprint, plan.getInputsFingerprint()) && planGeneratedAtInMilliseconds == plan.getGeneratedAtInMilliseconds();
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.planit.model.mongo.plan;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+public interface PlanPreviewRepository extends MongoRepository<PlanPreview, String>, PlanPreviewRepositoryCustom {
+
+}
@@ -0,0 +1,10 @@
+package com.example.planit.model.mongo.plan;
+
+public interface PlanPreviewRepositoryCustom {
+
+    /**
+     * creates the index on the expiration time of the previews, which also deletes them when they expire
+     */
+    void createIndexes();
+
+}
@@ -0,0 +1,21 @@
+package com.example.planit.model.mongo.plan;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+
+import java.time.Duration;
+
+public class PlanPreviewRepositoryCustomImpl implements PlanPreviewRepositoryCustom {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public void createIndexes() {
+
+        // each preview holds its own expiration time, so it is deleted as soon as that time passes
+        mongoTemplate.indexOps(PlanPreview.class).ensureIndex(new Index(PlanPreview.EXPIRES_AT_FIELD, Sort.Direction.ASC).expire(Duration.ZERO));
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.planit.model.mongo.plan;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public interface PlanRepository extends MongoRepository<Plan, String>, PlanRepositoryCustom {
+
+    Optional<Plan> findPlanByEmail(String email);
+
+    Stream<Plan> streamAllBy();
+
+}
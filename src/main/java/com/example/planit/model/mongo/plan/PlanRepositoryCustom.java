@@ -0,0 +1,17 @@
+package com.example.planit.model.mongo.plan;
+
+import java.util.List;
+
+public interface PlanRepositoryCustom {
+
+    /**
+     * replaces the sessions of the plan with the sessions that were read from its PlanIt calendar, and clears its inputs fingerprint,
+     * only if the plan was not generated again since it was read (a conditional update, instead of a save over the new plan).
+     *
+     * @param generatedAtInMilliseconds the generation time of the plan, when it was read
+     * @param sessions                  the sessions of the PlanIt calendar, null if the calendar was deleted
+     * @return true if the plan was updated
+     */
+    boolean updateReconciledSessions(String planID, long generatedAtInMilliseconds, List<PlannedSession> sessions);
+
+}
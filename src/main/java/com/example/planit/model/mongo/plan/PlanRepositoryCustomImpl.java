@@ -0,0 +1,25 @@
+package com.example.planit.model.mongo.plan;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.List;
+
+public class PlanRepositoryCustomImpl implements PlanRepositoryCustom {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public boolean updateReconciledSessions(String planID, long generatedAtInMilliseconds, List<PlannedSession> sessions) {
+        return mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(planID).and(Plan.GENERATED_AT_FIELD).is(generatedAtInMilliseconds)),
+                        new Update()
+                                .set(Plan.SESSIONS_FIELD, sessions)
+                                .unset(Plan.INPUTS_FINGERPRINT_FIELD),
+                        Plan.class)
+                .getModifiedCount() > 0;
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.planit.model.mongo.plan;
+
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.util.Objects;
+
+/**
+ * a study session of a plan, as it was written to the PlanIt calendar
+ */
+public class PlannedSession {
+
+    @Field(name = "event_ID")
+    private String eventID; // the ID of the Google event in the PlanIt calendar
+
+    @Field(name = "start")
+    private long startInMilliseconds;
+
+    @Field(name = "end")
+    private long endInMilliseconds;
+
+    @Field(name = "summary")
+    private String summary;
+
+    @Field(name = "description")
+    private String description;
+
+    // need empty ctor for mongo reflection stuff
+    public PlannedSession() {
+    }
+
+    public PlannedSession(String eventID, long startInMilliseconds, long endInMilliseconds, String summary, String description) {
+        this.eventID = eventID;
+        this.startInMilliseconds = startInMilliseconds;
+        this.endInMilliseconds = endInMilliseconds;
+        this.summary = summary;
+        this.description = description;
+    }
+
+    public String getEventID() {
+        return eventID;
+    }
+
+    public long getStartInMilliseconds() {
+        return startInMilliseconds;
+    }
+
+    public long getEndInMilliseconds() {
+        return endInMilliseconds;
+    }
+
+    public String getSummary() {
+        return summary;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        PlannedSession that = (PlannedSession) o;
+        return startInMilliseconds == that.startInMilliseconds && endInMilliseconds == that.endInMilliseconds
+                && Objects.equals(eventID, that.eventID) && Objects.equals(summary, that.summary) && Objects.equals(description, that.description);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(eventID, startInMilliseconds, endInMilliseconds, summary, description);
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.planit.model.mongo.plan;
+
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Mono;
+
+/**
+ * the non-blocking twin of {@link PlanRepository}, used by the reactive pipeline
+ */
+public interface ReactivePlanRepository extends ReactiveMongoRepository<Plan, String> {
+
+    Mono<Plan> findPlanByEmail(String email);
+
+}
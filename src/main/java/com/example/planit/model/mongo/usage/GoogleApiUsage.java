@@ -0,0 +1,94 @@
+package com.example.planit.model.mongo.usage;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+/**
+ * the usage of the Google APIs by a single user, in a single flow, of a single API method, in a single day.
+ * the in-memory counters are added to it periodically (see {@link com.example.planit.engine.GoogleApiUsageAccounting}).
+ */
+@Document("google_api_usage")
+public class GoogleApiUsage {
+
+    @Id
+    private String id; // day|email|flow|method
+
+    @Field(name = "day")
+    private String day; // e.g. 2023-06-04 (UTC)
+
+    @Field(name = "email")
+    private String email;
+
+    @Field(name = "flow")
+    private String flow; // e.g. scan, generate, bulk
+
+    @Field(name = "method")
+    private String method; // e.g. events.list
+
+    @Field(name = "requests")
+    private long requests;
+
+    @Field(name = "request_bytes")
+    private long requestBytes;
+
+    @Field(name = "response_bytes")
+    private long responseBytes;
+
+    // need empty ctor for mongo reflection stuff
+    public GoogleApiUsage() {
+    }
+
+    public GoogleApiUsage(String day, String email, String flow, String method) {
+        this.id = toId(day, email, flow, method);
+        this.day = day;
+        this.email = email;
+        this.flow = flow;
+        this.method = method;
+    }
+
+    public static String toId(String day, String email, String flow, String method) {
+        return day + "|" + email + "|" + flow + "|" + method;
+    }
+
+    /**
+     * adds counters that were collected since the last flush
+     */
+    public void add(long requests, long requestBytes, long responseBytes) {
+        this.requests += requests;
+        this.requestBytes += requestBytes;
+        this.responseBytes += responseBytes;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getDay() {
+        return day;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getFlow() {
+        return flow;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public long getRequests() {
+        return requests;
+    }
+
+    public long getRequestBytes() {
+        return requestBytes;
+    }
+
+    public long getResponseBytes() {
+        return responseBytes;
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.planit.model.mongo.usage;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import java.util.stream.Stream;
+
+public interface GoogleApiUsageRepository extends MongoRepository<GoogleApiUsage, String> {
+
+    // the days are ISO dates, so they are ordered as strings
+    Stream<GoogleApiUsage> streamAllByDayGreaterThanEqual(String day);
+
+}
@@ -0,0 +1,13 @@
+package com.example.planit.model.mongo.user;
+
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Mono;
+
+/**
+ * the non-blocking twin of {@link UserRepository}, used by the reactive pipeline
+ */
+public interface ReactiveUserRepository extends ReactiveMongoRepository<User, String> {
+
+    Mono<User> findUserByEmail(String email);
+
+}
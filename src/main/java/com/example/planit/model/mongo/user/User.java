@@ -2,33 +2,48 @@ package com.example.planit.model.mongo.user;
 
 import com.example.planit.model.preferences.Preferences;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
 @Document("users")
 public class User {
 
+    // the names of the fields in the DB, for the queries and the partial updates (see UserRepositoryCustom)
+    public static final String EMAIL_FIELD = "email";
+    public static final String USER_PREFERENCES_FIELD = "user_preferences";
+    public static final String PLANIT_CALENDAR_ID_FIELD = "planIt_calendar_ID";
+    public static final String ACCESS_TOKEN_FIELD = "access_token";
+    public static final String EXPIRES_IN_FIELD = "expires_in";
+    public static final String SUBSCRIPTION_TOKEN_FIELD = "subscription_token";
+
     @Id
     private String id;
 
-    @Field(name = "email")
+    // the index is created at startup, see UserRepositoryCustom#createIndexes
+    @Indexed(unique = true)
+    @Field(name = EMAIL_FIELD)
     private String email;
 
-    @Field(name = "user_preferences")
+    @Field(name = USER_PREFERENCES_FIELD)
     private Preferences userPreferences;
 
-    @Field(name = "planIt_calendar_ID")
+    @Field(name = PLANIT_CALENDAR_ID_FIELD)
     private String planItCalendarID;
 
-    @Field(name = "access_token")
+    @Field(name = ACCESS_TOKEN_FIELD)
     private String accessToken;
 
-    @Field(name = "expires_in")
+    @Field(name = EXPIRES_IN_FIELD)
     private long expireTimeInMilliseconds;
 
     @Field(name = "refresh_token")
     private String refreshToken;
 
+    // the secret of the subscription URL of the plan, null when the user has no subscription (see UserRepositoryCustom#setSubscriptionToken)
+    @Field(name = SUBSCRIPTION_TOKEN_FIELD)
+    private String subscriptionToken;
+
     // need empty ctor for mongo reflection stuff
     public User() {
     }
@@ -42,6 +57,24 @@ public class User {
         this.planItCalendarID = null;
     }
 
+    /**
+     * a copy of the user, that can be changed without changing the original (the preferences are shared, the flows do not change them)
+     */
+    public User(User other) {
+        this.id = other.id;
+        this.email = other.email;
+        this.userPreferences = other.userPreferences;
+        this.planItCalendarID = other.planItCalendarID;
+        this.accessToken = other.accessToken;
+        this.expireTimeInMilliseconds = other.expireTimeInMilliseconds;
+        this.refreshToken = other.refreshToken;
+        this.subscriptionToken = other.subscriptionToken;
+    }
+
+    public String getId() {
+        return id;
+    }
+
     public String getEmail() {
         return email;
     }
@@ -85,4 +118,8 @@ public class User {
     public void setExpireTimeInMilliseconds(long expireTimeInMilliseconds) {
         this.expireTimeInMilliseconds = expireTimeInMilliseconds;
     }
+
+    public String getSubscriptionToken() {
+        return subscriptionToken;
+    }
 }
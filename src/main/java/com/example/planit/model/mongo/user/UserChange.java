@@ -0,0 +1,52 @@
+package com.example.planit.model.mongo.user;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.util.Date;
+
+/**
+ * the last change of a user, so the nodes of the service know which of their cached users are stale
+ * (see {@link com.example.planit.engine.UserCache}).
+ * the changes expire after a day, so the collection holds only the recently changed users.
+ */
+@Document("user_changes")
+public class UserChange {
+
+    public static final String VERSION_FIELD = "version";
+    public static final String CHANGED_AT_FIELD = "changed_at";
+    public static final String NODE_FIELD = "node";
+
+    @Id
+    private String email;
+
+    @Field(name = VERSION_FIELD)
+    private long version; // incremented by every change of the user
+
+    @Field(name = CHANGED_AT_FIELD)
+    private Date changedAt; // the time of the DB server, so the clocks of the nodes do not matter
+
+    @Field(name = NODE_FIELD)
+    private String node; // the node that made the last change
+
+    // need empty ctor for mongo reflection stuff
+    public UserChange() {
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Date getChangedAt() {
+        return changedAt;
+    }
+
+    public String getNode() {
+        return node;
+    }
+}
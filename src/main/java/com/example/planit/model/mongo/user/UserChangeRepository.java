@@ -0,0 +1,15 @@
+package com.example.planit.model.mongo.user;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+public interface UserChangeRepository extends MongoRepository<UserChange, String>, UserChangeRepositoryCustom {
+
+    List<UserChange> findAllByChangedAtGreaterThanEqual(Date changedAt);
+
+    Optional<UserChange> findFirstByOrderByChangedAtDesc();
+
+}
@@ -0,0 +1,20 @@
+package com.example.planit.model.mongo.user;
+
+import java.util.Collection;
+
+public interface UserChangeRepositoryCustom {
+
+    /**
+     * increments the versions of the users, in a single bulk write
+     *
+     * @param emails the users that changed
+     * @param node   the node that changed them
+     */
+    void bumpVersions(Collection<String> emails, String node);
+
+    /**
+     * creates the index on the time of the changes, which also expires them
+     */
+    void createIndexes();
+
+}
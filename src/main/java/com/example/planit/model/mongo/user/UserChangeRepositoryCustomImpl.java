@@ -0,0 +1,44 @@
+package com.example.planit.model.mongo.user;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Duration;
+import java.util.Collection;
+
+public class UserChangeRepositoryCustomImpl implements UserChangeRepositoryCustom {
+
+    // the changes are needed only until all the nodes polled them
+    private static final Duration CHANGE_EXPIRATION = Duration.ofDays(1);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public void bumpVersions(Collection<String> emails, String node) {
+        if (emails.isEmpty()) {
+            return;
+        }
+
+        BulkOperations bulkOperations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, UserChange.class);
+        for (String email : emails) {
+            bulkOperations.upsert(Query.query(Criteria.where("_id").is(email)), new Update()
+                    .inc(UserChange.VERSION_FIELD, 1)
+                    .currentDate(UserChange.CHANGED_AT_FIELD)
+                    .set(UserChange.NODE_FIELD, node));
+        }
+
+        bulkOperations.execute();
+    }
+
+    @Override
+    public void createIndexes() {
+        mongoTemplate.indexOps(UserChange.class).ensureIndex(new Index(UserChange.CHANGED_AT_FIELD, Sort.Direction.ASC).expire(CHANGE_EXPIRATION));
+    }
+}
@@ -1,11 +1,30 @@
 package com.example.planit.model.mongo.user;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 
+import java.util.List;
 import java.util.Optional;
 
-public interface UserRepository extends MongoRepository<User, String> {
+public interface UserRepository extends MongoRepository<User, String>, UserRepositoryCustom {
 
     Optional<User> findUserByEmail(String email);
 
+    // the user without their preferences, for the flows that only call Google on their behalf
+    @Query(value = "{ 'email' : ?0 }", fields = "{ 'user_preferences' : 0 }")
+    Optional<User> findTokensByEmail(String email);
+
+    // only the email of the user, for the subscription URL of their plan
+    @Query(value = "{ 'subscription_token' : ?0 }", fields = "{ 'email' : 1 }")
+    Optional<User> findEmailBySubscriptionToken(String subscriptionToken);
+
+    // reads only the ID of the user from the index
+    boolean existsByEmail(String email);
+
+    // a page of the users ordered by ID, the next page is read after the ID of the last user (so no DB cursor is kept between the pages)
+    List<User> findAllByOrderByIdAsc(Pageable pageable);
+
+    List<User> findAllByIdGreaterThanOrderByIdAsc(String id, Pageable pageable);
+
 }
@@ -0,0 +1,30 @@
+package com.example.planit.model.mongo.user;
+
+import java.util.Collection;
+
+/**
+ * the writes of single fields of users, so they do not rewrite the whole documents
+ * (e.g. a refresh of the access token can not undo an edit of the preferences that happened in the meantime)
+ */
+public interface UserRepositoryCustom {
+
+    /**
+     * sets only the changed fields of the users, in a single bulk write.
+     * an access token is not set over a token that expires later (e.g. an older update that was written late).
+     */
+    void updateStates(Collection<UserStateUpdate> updates);
+
+    /**
+     * sets the token of the subscription URL of the plan of the user, which revokes the previous token.
+     * a null token removes it, so the subscription URL of the user is revoked.
+     *
+     * @return true if the user exists
+     */
+    boolean setSubscriptionToken(String email, String subscriptionToken);
+
+    /**
+     * creates the unique indexes on the email and on the subscription token of the users, if they do not exist yet
+     */
+    void createIndexes();
+
+}
@@ -0,0 +1,59 @@
+package com.example.planit.model.mongo.user;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Collection;
+
+public class UserRepositoryCustomImpl implements UserRepositoryCustom {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public void updateStates(Collection<UserStateUpdate> updates) {
+        if (updates.isEmpty()) {
+            return;
+        }
+
+        // the updates of different users do not depend on each other, so they are not ordered
+        BulkOperations bulkOperations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, User.class);
+        for (UserStateUpdate update : updates) {
+            if (update.hasAccessToken()) {
+                bulkOperations.updateOne(Query.query(Criteria.where(User.EMAIL_FIELD).is(update.email())
+                                .and(User.EXPIRES_IN_FIELD).lt(update.expireTimeInMilliseconds())),
+                        new Update()
+                                .set(User.ACCESS_TOKEN_FIELD, update.accessToken())
+                                .set(User.EXPIRES_IN_FIELD, update.expireTimeInMilliseconds()));
+            }
+            if (update.hasPlanItCalendarID()) {
+                bulkOperations.updateOne(Query.query(Criteria.where(User.EMAIL_FIELD).is(update.email())),
+                        new Update().set(User.PLANIT_CALENDAR_ID_FIELD, update.planItCalendarID()));
+            }
+        }
+
+        bulkOperations.execute();
+    }
+
+    @Override
+    public boolean setSubscriptionToken(String email, String subscriptionToken) {
+        Update update = subscriptionToken == null
+                ? new Update().unset(User.SUBSCRIPTION_TOKEN_FIELD)
+                : new Update().set(User.SUBSCRIPTION_TOKEN_FIELD, subscriptionToken);
+
+        return mongoTemplate.updateFirst(Query.query(Criteria.where(User.EMAIL_FIELD).is(email)), update, User.class).getMatchedCount() > 0;
+    }
+
+    @Override
+    public void createIndexes() {
+        mongoTemplate.indexOps(User.class).ensureIndex(new Index(User.EMAIL_FIELD, Sort.Direction.ASC).unique());
+        // sparse, since most of the users have no subscription token
+        mongoTemplate.indexOps(User.class).ensureIndex(new Index(User.SUBSCRIPTION_TOKEN_FIELD, Sort.Direction.ASC).unique().sparse());
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.planit.model.mongo.user;
+
+/**
+ * the fields of a user that changed during the flows, and were not written to the DB yet (null fields did not change)
+ *
+ * @param email                    the user
+ * @param accessToken              the new access token, with its expiration time
+ * @param expireTimeInMilliseconds the expiration time of the new access token
+ * @param planItCalendarID         the ID of the new PlanIt calendar
+ */
+public record UserStateUpdate(String email, String accessToken, Long expireTimeInMilliseconds, String planItCalendarID) {
+
+    public static UserStateUpdate ofAccessToken(String email, String accessToken, long expireTimeInMilliseconds) {
+        return new UserStateUpdate(email, accessToken, expireTimeInMilliseconds, null);
+    }
+
+    public static UserStateUpdate ofPlanItCalendarID(String email, String planItCalendarID) {
+        return new UserStateUpdate(email, null, null, planItCalendarID);
+    }
+
+    public boolean hasAccessToken() {
+        return accessToken != null;
+    }
+
+    public boolean hasPlanItCalendarID() {
+        return planItCalendarID != null;
+    }
+
+    /**
+     * @param newer a later update of the same user
+     * @return a single update with the latest value of each field
+     */
+    public UserStateUpdate merge(UserStateUpdate newer) {
+        boolean isNewerToken = newer.hasAccessToken() && (!hasAccessToken() || newer.expireTimeInMilliseconds >= expireTimeInMilliseconds);
+        return new UserStateUpdate(email,
+                isNewerToken ? newer.accessToken : accessToken,
+                isNewerToken ? newer.expireTimeInMilliseconds : expireTimeInMilliseconds,
+                newer.hasPlanItCalendarID() ? newer.planItCalendarID : planItCalendarID);
+    }
+
+    /**
+     * sets the fields of the update on a user that was read from the DB before the update was written
+     */
+    public void applyTo(User user) {
+        if (hasAccessToken() && expireTimeInMilliseconds > user.getExpireTimeInMilliseconds()) {
+            user.setAccessToken(accessToken);
+            user.setExpireTimeInMilliseconds(expireTimeInMilliseconds);
+        }
+        if (hasPlanItCalendarID()) {
+            user.setPlanItCalendarID(planItCalendarID);
+        }
+    }
+}
@@ -10,6 +10,8 @@ public class Constants {
 
     public static final long MINUTES_TO_MILLIS = 60000;
 
+    public static final int MILLIS_TO_MINUTE = 60000;
+
     /**
      * Application name.
      */
@@ -19,6 +21,10 @@ public class Constants {
 
     public static final String EVENT_SUMMERY_PREFIX = "למידה ל";
 
+    public static final String EXAMS_CALENDAR_SUMMERY_NAME = "יומן אישי מתחנת המידע";
+
+    public static final String EXAM_SUMMERY_KEYWORD = "מבחן";
+
     public static final String EVENT_DESCRIPTION_PRACTISE_PREV_EXAMS = "תרגול מבחנים";
 
     public static final String ISRAEL_HOLIDAYS_CODE = "il";
@@ -29,7 +35,37 @@ public class Constants {
 
     public static final String NO_PROBLEM = "No Problem Found";
 
+    public static final String PLAN_IS_UP_TO_DATE = "Nothing Changed, The Plan Is Up To Date";
+
     public static final String UNHANDLED_FULL_DAY_EVENTS = "Unhandled Full Days Events.";
 
     public static final String ERROR_USER_NOT_FOUND = "The User Is Not Found";
+
+    public static final String BULK_REGENERATION_STARTED = "Bulk Regeneration Started";
+
+    public static final String ERROR_BULK_REGENERATION_ALREADY_RUNNING = "Bulk Regeneration Is Already Running";
+
+    public static final String FLIGHT_RECORDING_STARTED = "Flight Recording Started, It Will Be Saved To ";
+
+    public static final String ERROR_FLIGHT_RECORDING_ALREADY_RUNNING = "Flight Recording Is Already Running";
+
+    public static final String ERROR_DEPENDENCY_UNAVAILABLE = "A Service PlanIt Depends On Is Unavailable, Please Try Again Later: ";
+
+    public static final String ERROR_DEADLINE_EXCEEDED = "The Request Took Too Long, Please Try Again Later";
+
+    public static final String PLAN_PREVIEWED = "The Plan Was Previewed, Commit It To Write It To The PlanIt Calendar";
+
+    public static final String ERROR_PREVIEW_NOT_FOUND = "The Preview Is Not Found Or Has Expired";
+
+    public static final String ERROR_PREVIEW_IS_STALE = "The Plan Changed Since The Preview, Please Preview Again";
+
+    public static final String PLAN_EXPORTED = "The Plan Was Exported";
+
+    public static final String ERROR_PLAN_NOT_FOUND = "There Is No Plan Yet, Please Generate One First";
+
+    public static final String SUBSCRIPTION_TOKEN_CREATED = "A New Subscription URL Was Created, The Previous One Stopped Working";
+
+    public static final String SUBSCRIPTION_TOKEN_REVOKED = "The Subscription URL Was Revoked";
+
+    public static final String ERROR_SUBSCRIPTION_TOKEN_NOT_FOUND = "The Subscription URL Is Not Valid Or Was Revoked";
 }
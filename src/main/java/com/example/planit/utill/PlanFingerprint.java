@@ -0,0 +1,144 @@
+package com.example.planit.utill;
+
+import com.example.planit.model.exam.Exam;
+import com.example.planit.model.mongo.course.Course;
+import com.example.planit.model.mongo.plan.BusyInterval;
+import com.example.planit.model.preferences.Preferences;
+import com.google.api.services.calendar.model.Event;
+import com.google.api.services.calendar.model.EventDateTime;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * calculates a SHA-256 fingerprint of the inputs a plan is generated from.
+ * two generations with the same fingerprint produce the same plan, so the second one can be skipped.
+ */
+public class PlanFingerprint {
+
+    private static final byte SEPARATOR = 0;
+
+    private final MessageDigest digest;
+
+    public PlanFingerprint() {
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public PlanFingerprint add(String value) {
+        if (value != null) {
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+        }
+        digest.update(SEPARATOR);
+        return this;
+    }
+
+    public PlanFingerprint add(long value) {
+        return add(Long.toString(value));
+    }
+
+    /**
+     * adds the busy intervals of the user's events (start and end of each event)
+     */
+    public PlanFingerprint addBusyIntervals(List<BusyInterval> busyIntervals) {
+        add(busyIntervals.size());
+        for (BusyInterval busyInterval : busyIntervals) {
+            add(busyInterval.getStartInMilliseconds());
+            add(busyInterval.getEndInMilliseconds());
+        }
+        return this;
+    }
+
+    /**
+     * adds the events of the PlanIt calendar (as they are known from Google or from the stored plan)
+     */
+    public PlanFingerprint addPlanItEvents(List<Event> planItEvents) {
+        add(planItEvents.size());
+        for (Event planItEvent : planItEvents) {
+            add(planItEvent.getId());
+            add(toFingerprintValue(planItEvent.getStart()));
+            add(toFingerprintValue(planItEvent.getEnd()));
+            add(planItEvent.getSummary());
+            add(planItEvent.getDescription());
+        }
+        return this;
+    }
+
+    /**
+     * adds the exams, including the current content (version) of each exam's course
+     */
+    public PlanFingerprint addExams(List<Exam> exams) {
+        add(exams.size());
+        for (Exam exam : exams) {
+            add(exam.getDateTime().getValue());
+            addCourse(exam.getCourse());
+        }
+        return this;
+    }
+
+    public PlanFingerprint addPreferences(Preferences preferences) {
+        return add(preferences.getUserStudyStartTime())
+                .add(preferences.getUserStudyEndTime())
+                .add(preferences.getUserBreakTime())
+                .add(preferences.getStudySessionTime())
+                .add(Boolean.toString(preferences.isStudyOnHolyDays()))
+                .add(Boolean.toString(preferences.isStudyOnWeekends()));
+    }
+
+    /**
+     * adds a set of values, regardless of its iteration order
+     */
+    public PlanFingerprint addUnordered(Collection<String> values) {
+        List<String> sortedValues = new ArrayList<>(values);
+        sortedValues.sort(null);
+
+        add(sortedValues.size());
+        for (String value : sortedValues) {
+            add(value);
+        }
+        return this;
+    }
+
+    /**
+     * @return the fingerprint as a hex string
+     */
+    public String calculate() {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private void addCourse(Course course) {
+        add(course.getCourseName())
+                .add(course.getDifficultyLevel())
+                .add(course.getCredits())
+                .add(course.getRecommendedStudyTime())
+                .add(course.getSubjectsPracticePercentage());
+
+        String[] subjects = course.getCourseSubjects();
+        add(subjects == null ? 0 : subjects.length);
+        if (subjects != null) {
+            for (String subject : subjects) {
+                add(subject);
+            }
+        }
+    }
+
+    /**
+     * full day events have a date, and other events have a date-time
+     */
+    private static String toFingerprintValue(EventDateTime eventDateTime) {
+        if (eventDateTime == null) {
+            return null;
+        }
+        return eventDateTime.getDateTime() != null
+                ? Long.toString(eventDateTime.getDateTime().getValue())
+                : eventDateTime.getDate().toStringRfc3339();
+    }
+}
@@ -9,4 +9,82 @@ public class Defaults {
     public static final int DEFAULT_USER_BREAK_TIME = 30; // in minutes
 
     public static final int DEFAULT_USER_STUDY_SESSION_TIME = 120; // in minutes
+
+    public static final int DEFAULT_BULK_PARALLELISM = 4; // number of users that are regenerated at the same time
+
+    public static final int DEFAULT_BULK_CHECKPOINT_INTERVAL = 50; // number of users between two checkpoints
+
+    public static final int DEFAULT_BULK_WINDOW_IN_DAYS = 120; // the bulk regeneration plans from now until now + window
+
+    public static final double DEFAULT_GOOGLE_MAX_REQUESTS_PER_SECOND = 0; // 0 means unlimited
+
+    public static final int DEFAULT_GOOGLE_CONCURRENCY_INITIAL_LIMIT = 20; // requests to Google in flight, before the limit adapts
+
+    public static final int DEFAULT_GOOGLE_CONCURRENCY_MIN_LIMIT = 1;
+
+    public static final int DEFAULT_GOOGLE_CONCURRENCY_MAX_LIMIT = 200;
+
+    public static final double DEFAULT_GOOGLE_CONCURRENCY_BACKOFF_RATIO = 0.9; // the limit is multiplied by it when Google is overloaded
+
+    public static final double DEFAULT_GOOGLE_CONCURRENCY_LATENCY_TOLERANCE = 2; // a latency above 2 times the usual latency is a spike
+
+    public static final int DEFAULT_GOOGLE_CONNECT_TIMEOUT_IN_MILLIS = 20000; // the timeouts of a single request to Google (cut to the deadline of the request)
+
+    public static final int DEFAULT_GOOGLE_READ_TIMEOUT_IN_MILLIS = 20000;
+
+    public static final long DEFAULT_REQUEST_TIMEOUT_IN_MILLIS = 60000; // the deadline of a /scan or /generate, including the time in the queue, 0 means no deadline
+
+    public static final long DEFAULT_OPTIONAL_WORK_MIN_REMAINING_IN_MILLIS = 5000; // optional calls to Google are skipped when less time is left
+
+    public static final int DEFAULT_GOOGLE_CALENDAR_MAX_CONCURRENT_CALLS = 100; // the bulkhead of Google Calendar, threads that can wait for it at the same time
+
+    public static final int DEFAULT_GOOGLE_OAUTH_MAX_CONCURRENT_CALLS = 16; // the bulkhead of the Google OAuth token server
+
+    public static final int DEFAULT_CALENDARIFIC_MAX_CONCURRENT_CALLS = 2; // the bulkhead of "calendarific"
+
+    public static final long DEFAULT_RESILIENCE_MAX_WAIT_IN_MILLIS = 2000; // a call that waits longer for a full bulkhead fails fast
+
+    public static final int DEFAULT_RESILIENCE_SLIDING_WINDOW_SIZE = 20; // the circuit breaker decides by the last 20 calls
+
+    public static final int DEFAULT_RESILIENCE_MINIMUM_NUMBER_OF_CALLS = 10; // the circuit is not opened before 10 calls
+
+    public static final double DEFAULT_RESILIENCE_FAILURE_RATE_THRESHOLD = 0.5; // the circuit is opened when half of the last calls failed
+
+    public static final long DEFAULT_RESILIENCE_SLOW_CALL_THRESHOLD_IN_MILLIS = 15000; // a slower call is a failure
+
+    public static final long DEFAULT_RESILIENCE_OPEN_DURATION_IN_MILLIS = 30000; // the calls fail fast for 30 seconds, then the circuit is probed
+
+    public static final int DEFAULT_RESILIENCE_HALF_OPEN_PROBES = 3; // the probes that should succeed to close the circuit
+
+    public static final String DEFAULT_GOOGLE_ROOT_URL = "https://www.googleapis.com/";
+
+    public static final String DEFAULT_GOOGLE_TOKEN_SERVER_URL = "https://oauth2.googleapis.com/token";
+
+    public static final int DEFAULT_GENERATION_WORKERS = 8; // number of scan/generate jobs that run at the same time
+
+    public static final long DEFAULT_GENERATION_AGING_RATE = 1440; // a minute in the queue brings the deadline a day closer
+
+    public static final int DEFAULT_UNKNOWN_EXAM_DISTANCE_IN_DAYS = 14; // assumed days until the first exam of a user that was not scanned yet
+
+    public static final int DEFAULT_MAX_REPAIRED_SESSIONS = 10; // above this number of conflicting sessions, the plan is generated from scratch
+
+    public static final String DEFAULT_GOOGLE_IO_EXECUTOR = "auto"; // virtual threads on Java 21+, otherwise platform threads
+
+    public static final int DEFAULT_GOOGLE_IO_PLATFORM_THREADS = 64; // the pool of the parallel calls to Google, when virtual threads are not used
+
+    public static final int DEFAULT_WRITE_BATCH_SIZE = 25; // events that a single task writes to the PlanIt calendar
+
+    public static final long DEFAULT_PLAN_PREVIEW_TTL_IN_MILLIS = 900000; // a preview can be committed within 15 minutes
+
+    public static final long DEFAULT_USER_CACHE_TTL_IN_MILLIS = 30000; // a cached user is read from the DB again after 30 seconds, 0 disables the cache
+
+    public static final int DEFAULT_USER_CACHE_MAX_SIZE = 10000; // above this number of cached users, the least recently used is evicted
+
+    public static final long DEFAULT_EXAM_INDEX_MAX_AGE_IN_MILLIS = 1800000; // an older exam index is not used by the scans (30 minutes), 0 disables the index
+
+    public static final String DEFAULT_EXAM_COURSE_NAME_EXTRACTION = "suffix"; // the course name is the last words of the summary of the exam
+
+    public static final long DEFAULT_JFR_MAX_DURATION_IN_SECONDS = 600; // a flight recording can not be longer than this
+
+    public static final long DEFAULT_JFR_MAX_SIZE_IN_MB = 256; // above this size, the oldest data of a flight recording is dropped
 }
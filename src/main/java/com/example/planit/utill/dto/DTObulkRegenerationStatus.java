@@ -0,0 +1,52 @@
+package com.example.planit.utill.dto;
+
+/**
+ * DTO that holds the progress of a bulk regeneration run.
+ */
+public class DTObulkRegenerationStatus {
+    private final boolean isRunning;
+    private final long processedUsers;
+    private final long succeededUsers;
+    private final long skippedUsers;
+    private final long failedUsers;
+    private final double usersPerMinute;
+    private final String lastUserID;
+
+    public DTObulkRegenerationStatus(boolean isRunning, long processedUsers, long succeededUsers, long skippedUsers, long failedUsers, double usersPerMinute, String lastUserID) {
+        this.isRunning = isRunning;
+        this.processedUsers = processedUsers;
+        this.succeededUsers = succeededUsers;
+        this.skippedUsers = skippedUsers;
+        this.failedUsers = failedUsers;
+        this.usersPerMinute = usersPerMinute;
+        this.lastUserID = lastUserID;
+    }
+
+    public boolean isRunning() {
+        return isRunning;
+    }
+
+    public long getProcessedUsers() {
+        return processedUsers;
+    }
+
+    public long getSucceededUsers() {
+        return succeededUsers;
+    }
+
+    public long getSkippedUsers() {
+        return skippedUsers;
+    }
+
+    public long getFailedUsers() {
+        return failedUsers;
+    }
+
+    public double getUsersPerMinute() {
+        return usersPerMinute;
+    }
+
+    public String getLastUserID() {
+        return lastUserID;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.planit.utill.dto;
+
+import com.example.planit.model.mongo.plan.PlannedSession;
+import org.springframework.http.HttpStatus;
+
+import java.util.List;
+
+public class DTOexportResponseToController extends DTOstatus {
+    private HttpStatus httpStatus;
+    private List<PlannedSession> sessions;
+    private long generatedAtInMilliseconds;
+    private String eTag; // null if the plan is not stored (so it can not be cached)
+
+    public DTOexportResponseToController(boolean isSucceed, String details, HttpStatus httpStatus, List<PlannedSession> sessions,
+                                         long generatedAtInMilliseconds, String eTag) {
+        super(isSucceed, details);
+        this.httpStatus = httpStatus;
+        this.sessions = sessions;
+        this.generatedAtInMilliseconds = generatedAtInMilliseconds;
+        this.eTag = eTag;
+    }
+
+    public HttpStatus getHttpStatus() {
+        return httpStatus;
+    }
+
+    public List<PlannedSession> getSessions() {
+        return sessions;
+    }
+
+    public long getGeneratedAtInMilliseconds() {
+        return generatedAtInMilliseconds;
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+}
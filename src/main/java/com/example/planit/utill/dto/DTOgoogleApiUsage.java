@@ -0,0 +1,49 @@
+package com.example.planit.utill.dto;
+
+import java.util.Map;
+
+/**
+ * DTO that holds the usage of the Google APIs by a single user, over the requested number of days.
+ * the requests are also split by flow (scan/generate/bulk/reconcile) and by API method, to find what to optimize.
+ */
+public class DTOgoogleApiUsage {
+    private final String email;
+    private final long requests;
+    private final long requestBytes;
+    private final long responseBytes;
+    private final Map<String, Long> requestsPerFlow;
+    private final Map<String, Long> requestsPerMethod;
+
+    public DTOgoogleApiUsage(String email, long requests, long requestBytes, long responseBytes, Map<String, Long> requestsPerFlow, Map<String, Long> requestsPerMethod) {
+        this.email = email;
+        this.requests = requests;
+        this.requestBytes = requestBytes;
+        this.responseBytes = responseBytes;
+        this.requestsPerFlow = requestsPerFlow;
+        this.requestsPerMethod = requestsPerMethod;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public long getRequests() {
+        return requests;
+    }
+
+    public long getRequestBytes() {
+        return requestBytes;
+    }
+
+    public long getResponseBytes() {
+        return responseBytes;
+    }
+
+    public Map<String, Long> getRequestsPerFlow() {
+        return requestsPerFlow;
+    }
+
+    public Map<String, Long> getRequestsPerMethod() {
+        return requestsPerMethod;
+    }
+}
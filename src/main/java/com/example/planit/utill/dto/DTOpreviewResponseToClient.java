@@ -0,0 +1,52 @@
+package com.example.planit.utill.dto;
+
+import com.example.planit.model.mongo.plan.PlannedSession;
+
+import java.util.List;
+
+/**
+ * DTO that holds a previewed plan: its sessions, and the writes to the PlanIt calendar that its commit would make.
+ */
+public class DTOpreviewResponseToClient extends DTOstatus {
+    private String previewID; // null if nothing is to be committed (e.g. the plan is up-to-date)
+    private long expiresAtInMilliseconds;
+    private List<PlannedSession> sessions;
+    private int numberOfInsertedSessions;
+    private int numberOfDeletedSessions;
+    private int numberOfUnchangedSessions;
+
+    public DTOpreviewResponseToClient(boolean isSucceed, String details, String previewID, long expiresAtInMilliseconds,
+                                      List<PlannedSession> sessions, int numberOfInsertedSessions, int numberOfDeletedSessions) {
+        super(isSucceed, details);
+        this.previewID = previewID;
+        this.expiresAtInMilliseconds = expiresAtInMilliseconds;
+        this.sessions = sessions;
+        this.numberOfInsertedSessions = numberOfInsertedSessions;
+        this.numberOfDeletedSessions = numberOfDeletedSessions;
+        this.numberOfUnchangedSessions = sessions.size() - numberOfInsertedSessions;
+    }
+
+    public String getPreviewID() {
+        return previewID;
+    }
+
+    public long getExpiresAtInMilliseconds() {
+        return expiresAtInMilliseconds;
+    }
+
+    public List<PlannedSession> getSessions() {
+        return sessions;
+    }
+
+    public int getNumberOfInsertedSessions() {
+        return numberOfInsertedSessions;
+    }
+
+    public int getNumberOfDeletedSessions() {
+        return numberOfDeletedSessions;
+    }
+
+    public int getNumberOfUnchangedSessions() {
+        return numberOfUnchangedSessions;
+    }
+}
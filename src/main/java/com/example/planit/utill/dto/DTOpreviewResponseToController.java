@@ -0,0 +1,20 @@
+package com.example.planit.utill.dto;
+
+import com.example.planit.model.mongo.plan.PlannedSession;
+import org.springframework.http.HttpStatus;
+
+import java.util.List;
+
+public class DTOpreviewResponseToController extends DTOpreviewResponseToClient {
+    private HttpStatus httpStatus;
+
+    public DTOpreviewResponseToController(boolean isSucceed, String details, HttpStatus httpStatus, String previewID, long expiresAtInMilliseconds,
+                                          List<PlannedSession> sessions, int numberOfInsertedSessions, int numberOfDeletedSessions) {
+        super(isSucceed, details, previewID, expiresAtInMilliseconds, sessions, numberOfInsertedSessions, numberOfDeletedSessions);
+        this.httpStatus = httpStatus;
+    }
+
+    public HttpStatus getHttpStatus() {
+        return httpStatus;
+    }
+}
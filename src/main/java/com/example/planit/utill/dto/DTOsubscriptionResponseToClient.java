@@ -0,0 +1,17 @@
+package com.example.planit.utill.dto;
+
+/**
+ * DTO that holds the token of the subscription URL of the plan of a user (GET /plan.ics?token=...).
+ */
+public class DTOsubscriptionResponseToClient extends DTOstatus {
+    private String subscriptionToken; // null if the token was revoked, or could not be created
+
+    public DTOsubscriptionResponseToClient(boolean isSucceed, String details, String subscriptionToken) {
+        super(isSucceed, details);
+        this.subscriptionToken = subscriptionToken;
+    }
+
+    public String getSubscriptionToken() {
+        return subscriptionToken;
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.planit.utill.dto;
+
+import org.springframework.http.HttpStatus;
+
+public class DTOsubscriptionResponseToController extends DTOsubscriptionResponseToClient {
+    private HttpStatus httpStatus;
+
+    public DTOsubscriptionResponseToController(boolean isSucceed, String details, HttpStatus httpStatus, String subscriptionToken) {
+        super(isSucceed, details, subscriptionToken);
+        this.httpStatus = httpStatus;
+    }
+
+    public HttpStatus getHttpStatus() {
+        return httpStatus;
+    }
+}
@@ -1,13 +1,14 @@
 package com.example.planit.utill.dto;
 
 import com.example.planit.model.exam.Exam;
+import com.example.planit.model.mongo.plan.Plan;
 import com.google.api.services.calendar.Calendar;
 import com.google.api.services.calendar.model.Event;
 
 import java.util.List;
 
 /**
- * DTO that holds of the events the user have + the user exams that were found + full day events + Calendar Service.
+ * DTO that holds of the events the user have + the user exams that were found + full day events + Calendar Service + the user's last plan.
  * is using to help us in scan, generate function.
  */
 public class DTOuserCalendarsInformation {
@@ -17,13 +18,15 @@ public class DTOuserCalendarsInformation {
     private final List<Exam> examsFound;
     private final List<Event> events;
     private final Calendar calendarService;
+    private final Plan plan;
 
-    public DTOuserCalendarsInformation(List<Event> fullDayEvents, List<Event> planItCalendarOldEvents, List<Exam> examsFound, List<Event> events, Calendar calendarService) {
+    public DTOuserCalendarsInformation(List<Event> fullDayEvents, List<Event> planItCalendarOldEvents, List<Exam> examsFound, List<Event> events, Calendar calendarService, Plan plan) {
         this.fullDayEvents = fullDayEvents;
         this.planItCalendarOldEvents = planItCalendarOldEvents;
         this.examsFound = examsFound;
         this.events = events;
         this.calendarService = calendarService;
+        this.plan = plan;
     }
 
     public List<Event> getFullDayEvents() {
@@ -45,4 +48,8 @@ public class DTOuserCalendarsInformation {
     public Calendar getCalendarService() {
         return calendarService;
     }
+
+    public Plan getPlan() {
+        return plan;
+    }
 }
@@ -0,0 +1,24 @@
+package com.example.planit;
+
+import com.example.planit.engine.reactive.ReactiveCalendarEngine;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(properties = "planit.reactive.enabled=true")
+class LamivhanApplicationReactiveTests {
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Test
+    void reactivePipelineIsConfiguredWhenEnabled() {
+        assertEquals(1, context.getBeanNamesForType(ReactiveMongoTemplate.class).length);
+        assertEquals(1, context.getBeanNamesForType(ReactiveCalendarEngine.class).length);
+    }
+
+}
@@ -0,0 +1,181 @@
+package com.example.planit.benchmark;
+
+import com.example.planit.engine.CalendarEngine;
+import com.example.planit.engine.CalendarEngineSettings;
+import com.example.planit.engine.EngineMetrics;
+import com.example.planit.engine.GoogleApiConcurrencyLimiter;
+import com.example.planit.engine.GoogleApiRateLimiter;
+import com.example.planit.engine.GoogleApiUsageAccounting;
+import com.example.planit.engine.GoogleIoExecutor;
+import com.example.planit.engine.UserCache;
+import com.example.planit.engine.UserStateWriteBuffer;
+import com.example.planit.engine.exams.ExamDetector;
+import com.example.planit.engine.exams.ExamSource;
+import com.example.planit.engine.resilience.Dependency;
+import com.example.planit.engine.resilience.DependencyGuard;
+import com.example.planit.fakegoogle.FakeGoogleCalendarServer;
+import com.example.planit.fixtures.SyntheticCalendarGenerator;
+import com.example.planit.fixtures.SyntheticDataset;
+import com.example.planit.model.mongo.course.CoursesRepository;
+import com.example.planit.model.mongo.exam.ExamIndexRepository;
+import com.example.planit.model.mongo.plan.Plan;
+import com.example.planit.model.mongo.plan.PlanPreviewRepository;
+import com.example.planit.model.mongo.plan.PlanRepository;
+import com.example.planit.model.mongo.usage.GoogleApiUsageRepository;
+import com.example.planit.model.mongo.user.User;
+import com.example.planit.model.mongo.user.UserChangeRepository;
+import com.example.planit.model.mongo.user.UserRepository;
+import com.example.planit.model.preferences.Preferences;
+import com.example.planit.utill.dto.DTOscanResponseToController;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.*;
+
+import static com.example.planit.utill.defaults.Defaults.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+/**
+ * measures many concurrent scans against the fake Google server (see {@link FakeGoogleCalendarServer}), with each mode of {@link GoogleIoExecutor}.
+ * the scan threads play the request threads of Tomcat: a pool of platform threads in the "platform" mode,
+ * and a virtual thread per scan in the "virtual" mode (which needs Java 21+).
+ * the plans of the users are up-to-date, so a scan only reads from Google and the time is the time of the blocking I/O.
+ * the latency of the fake server is configurable with the JMH params (e.g. -p googleLatencyInMillis=200), run it with:
+ * mvn -P benchmark -DskipTests test -Djmh.include=GoogleIoBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GoogleIoBenchmark {
+
+    @Param({"platform", "virtual"})
+    private String executorMode;
+
+    @Param({"1000"})
+    private int concurrentScans;
+
+    @Param({"50"})
+    private long googleLatencyInMillis;
+
+    // the default max threads of Tomcat
+    @Param({"200"})
+    private int requestThreads;
+
+    private FakeGoogleCalendarServer server;
+    private GoogleIoExecutor googleIoExecutor;
+    private ExecutorService scanExecutor;
+    private CalendarEngine calendarEngine;
+    private String start;
+    private String end;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, GeneralSecurityException {
+        GoogleIoExecutor.Mode mode = GoogleIoExecutor.Mode.valueOf(executorMode.toUpperCase());
+        if (mode == GoogleIoExecutor.Mode.VIRTUAL && !GoogleIoExecutor.isVirtualThreadsSupported()) {
+            throw new IllegalStateException("the virtual mode needs Java 21 or later, the JVM is " + Runtime.version());
+        }
+
+        SyntheticDataset dataset = new SyntheticCalendarGenerator(42).setStartDate(LocalDate.now().plusDays(1)).generate();
+        start = dataset.getStart().toString();
+        end = dataset.getEnd().toString();
+        server = new FakeGoogleCalendarServer(0).start();
+
+        // all the users have the calendars of the same dataset
+        Map<String, User> users = new ConcurrentHashMap<>();
+        for (int i = 0; i < concurrentScans; i++) {
+            server.addUser(dataset, "access-token-" + i, "refresh-token-" + i);
+
+            Preferences preferences = new Preferences();
+            preferences.setStudyOnHolyDays(true);
+            User user = new User("user" + i + "@planit.com", "access-token-" + i, Long.MAX_VALUE, "refresh-token-" + i);
+            user.setUserPreferences(preferences);
+            user.setPlanItCalendarID(dataset.getPlanItCalendarID());
+            users.put(user.getEmail(), user);
+        }
+
+        Map<String, Plan> plans = new ConcurrentHashMap<>();
+        UserRepository userRepo = Mockito.mock(UserRepository.class);
+        when(userRepo.findUserByEmail(anyString())).thenAnswer(invocation -> Optional.ofNullable(users.get((String) invocation.getArgument(0))));
+        CoursesRepository courseRepo = Mockito.mock(CoursesRepository.class);
+        when(courseRepo.findAll()).thenReturn(dataset.getCourses());
+        PlanRepository planRepo = Mockito.mock(PlanRepository.class);
+        when(planRepo.findPlanByEmail(anyString())).thenAnswer(invocation -> Optional.ofNullable(plans.get((String) invocation.getArgument(0))));
+        when(planRepo.save(any())).thenAnswer(invocation -> {
+            Plan plan = invocation.getArgument(0);
+            plans.put(plan.getEmail(), plan);
+            return plan;
+        });
+
+        UserCache userCache = new UserCache(userRepo, Mockito.mock(UserChangeRepository.class), DEFAULT_USER_CACHE_TTL_IN_MILLIS, DEFAULT_USER_CACHE_MAX_SIZE);
+        EngineMetrics engineMetrics = new EngineMetrics(new SimpleMeterRegistry());
+        GoogleApiUsageAccounting googleApiUsageAccounting = new GoogleApiUsageAccounting(Mockito.mock(GoogleApiUsageRepository.class));
+        googleIoExecutor = new GoogleIoExecutor(mode, DEFAULT_GOOGLE_IO_PLATFORM_THREADS, googleApiUsageAccounting);
+
+        // the bulkhead does not reject the scans, so both modes run the same requests
+        DependencyGuard googleCalendarGuard = new DependencyGuard(Dependency.GOOGLE_CALENDAR, concurrentScans * 10, DEFAULT_RESILIENCE_MAX_WAIT_IN_MILLIS,
+                DEFAULT_RESILIENCE_SLIDING_WINDOW_SIZE, DEFAULT_RESILIENCE_MINIMUM_NUMBER_OF_CALLS, DEFAULT_RESILIENCE_FAILURE_RATE_THRESHOLD,
+                DEFAULT_RESILIENCE_SLOW_CALL_THRESHOLD_IN_MILLIS, DEFAULT_RESILIENCE_OPEN_DURATION_IN_MILLIS, DEFAULT_RESILIENCE_HALF_OPEN_PROBES);
+        DependencyGuard googleOAuthGuard = new DependencyGuard(Dependency.GOOGLE_OAUTH, DEFAULT_GOOGLE_OAUTH_MAX_CONCURRENT_CALLS, DEFAULT_RESILIENCE_MAX_WAIT_IN_MILLIS,
+                DEFAULT_RESILIENCE_SLIDING_WINDOW_SIZE, DEFAULT_RESILIENCE_MINIMUM_NUMBER_OF_CALLS, DEFAULT_RESILIENCE_FAILURE_RATE_THRESHOLD,
+                DEFAULT_RESILIENCE_SLOW_CALL_THRESHOLD_IN_MILLIS, DEFAULT_RESILIENCE_OPEN_DURATION_IN_MILLIS, DEFAULT_RESILIENCE_HALF_OPEN_PROBES);
+
+        CalendarEngineSettings settings = new CalendarEngineSettings()
+                .setClientCredentials("client-id", "client-secret")
+                .setGoogleUrls(server.getRootUrl(), server.getTokenServerUrl());
+        calendarEngine = new CalendarEngine(settings, userRepo, courseRepo, planRepo, Mockito.mock(ExamIndexRepository.class), Mockito.mock(PlanPreviewRepository.class),
+                dataset.getHolidaysDates(), dataset.getHolidaysDates(), new GoogleApiRateLimiter(DEFAULT_GOOGLE_MAX_REQUESTS_PER_SECOND),
+                new GoogleApiConcurrencyLimiter(DEFAULT_GOOGLE_CONCURRENCY_INITIAL_LIMIT, DEFAULT_GOOGLE_CONCURRENCY_MIN_LIMIT, DEFAULT_GOOGLE_CONCURRENCY_MAX_LIMIT,
+                        DEFAULT_GOOGLE_CONCURRENCY_BACKOFF_RATIO, DEFAULT_GOOGLE_CONCURRENCY_LATENCY_TOLERANCE),
+                googleCalendarGuard, googleOAuthGuard, googleIoExecutor, new ExamDetector(List.of(ExamSource.DEFAULT)), engineMetrics, googleApiUsageAccounting,
+                userCache, new UserStateWriteBuffer(userCache));
+
+        // the plan of the first user is generated once, and copied to all the users (they have the same calendars)
+        calendarEngine.scanUserEvents("user0@planit.com", start, end);
+        Plan plan = plans.get("user0@planit.com");
+        for (String email : users.keySet()) {
+            plans.put(email, plan);
+        }
+
+        server.setLatency(googleLatencyInMillis, 0);
+        scanExecutor = googleIoExecutor.isVirtual() ? GoogleIoExecutor.newVirtualThreadPerTaskExecutor() : Executors.newFixedThreadPool(requestThreads);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        scanExecutor.shutdownNow();
+        googleIoExecutor.shutdown();
+        server.stop();
+    }
+
+    /**
+     * all the scans start at the same time, and the time is until the last of them ends
+     */
+    @Benchmark
+    public List<DTOscanResponseToController> concurrentScans() throws InterruptedException, ExecutionException {
+        List<Future<DTOscanResponseToController>> futures = new ArrayList<>();
+        for (int i = 0; i < concurrentScans; i++) {
+            String email = "user" + i + "@planit.com";
+            futures.add(scanExecutor.submit(() -> calendarEngine.scanUserEvents(email, start, end)));
+        }
+
+        List<DTOscanResponseToController> results = new ArrayList<>();
+        for (Future<DTOscanResponseToController> future : futures) {
+            results.add(future.get());
+        }
+
+        return results;
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.planit.benchmark;
+
+import com.example.planit.engine.PlanningEngine;
+import com.example.planit.fixtures.SyntheticCalendarGenerator;
+import com.example.planit.fixtures.SyntheticDataset;
+import com.example.planit.model.exam.Exam;
+import com.example.planit.model.mongo.user.User;
+import com.example.planit.model.studysession.StudySession;
+import com.example.planit.model.timeslot.TimeSlot;
+import com.example.planit.utill.Constants;
+import com.example.planit.utill.dto.DTOfreetime;
+import com.google.api.client.util.DateTime;
+import com.google.api.services.calendar.model.Event;
+import com.google.api.services.calendar.model.EventDateTime;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * measures the pure planning stages of {@link PlanningEngine} on a synthetic calendar (see {@link SyntheticCalendarGenerator}).
+ * the size of the calendar is configurable with the JMH params (e.g. -p numberOfEvents=2000).
+ * run it with the GC profiler to see the allocation rate: mvn -P benchmark -DskipTests test
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlanningBenchmark {
+
+    @Param({"500"})
+    private int numberOfEvents;
+
+    @Param({"5"})
+    private int numberOfCalendars;
+
+    @Param({"4"})
+    private int numberOfExams;
+
+    @Param({"60"})
+    private int numberOfDays;
+
+    private User user;
+    private String start;
+    private List<Event> events;
+    private List<Exam> exams;
+    private List<TimeSlot> rawFreeSlots;
+    private List<TimeSlot> freeSlots;
+    private List<StudySession> sessions;
+    private Map<Exam, Integer> exams2numberOfSessions;
+    private Map<Exam, Integer> exam2Index;
+    private List<StudySession> embeddedSessions;
+    private List<Event> planItOldEvents;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SyntheticDataset dataset = new SyntheticCalendarGenerator(42)
+                .setNumberOfDays(numberOfDays)
+                .setNumberOfPersonalCalendars(numberOfCalendars - 1)
+                .setNumberOfEventsPerCalendar(numberOfEvents / numberOfCalendars)
+                .setNumberOfExams(numberOfExams)
+                .generate();
+
+        user = new User(dataset.getEmail(), "access-token", Long.MAX_VALUE, "refresh-token");
+        start = dataset.getStart().toString();
+        events = dataset.getTimedEvents();
+        exams = dataset.getExams();
+
+        // the inputs of each stage are the outputs of the previous stages
+        rawFreeSlots = getRawFreeSlots(events);
+        freeSlots = PlanningEngine.getFreeSlots(events, user, exams, start).getFreeTimeSlots();
+        sessions = PlanningEngine.separateSlotsToSessions(user, freeSlots);
+        exams2numberOfSessions = PlanningEngine.distributeNumberOfSessionsToCourses(PlanningEngine.getExamsProportions(exams), sessions.size());
+
+        exam2Index = new HashMap<>();
+        for (int i = 0; i < exams.size(); i++) {
+            exam2Index.put(exams.get(i), i);
+        }
+
+        embeddedSessions = copySessions(sessions);
+        PlanningEngine.embedCoursesNamesInSessions(new HashMap<>(exams2numberOfSessions), embeddedSessions, exams);
+        PlanningEngine.embedCoursesSubjectsInSessions(exam2Index, embeddedSessions, exams);
+
+        // the old PlanIt calendar has the same sessions, but every third one is stale (moved by 30 minutes)
+        planItOldEvents = new ArrayList<>();
+        for (int i = 0; i < embeddedSessions.size(); i++) {
+            StudySession session = embeddedSessions.get(i);
+            long shift = i % 3 == 0 ? TimeUnit.MINUTES.toMillis(30) : 0;
+            planItOldEvents.add(new Event()
+                    .setStart(new EventDateTime().setDateTime(new DateTime(session.getStart().getValue() + shift)))
+                    .setEnd(new EventDateTime().setDateTime(new DateTime(session.getEnd().getValue() + shift)))
+                    .setSummary(Constants.EVENT_SUMMERY_PREFIX + session.getCourseName())
+                    .setDescription(session.getDescription()));
+        }
+    }
+
+    @Benchmark
+    public DTOfreetime getFreeSlots() {
+        return PlanningEngine.getFreeSlots(events, user, exams, start);
+    }
+
+    @Benchmark
+    public DTOfreetime adjustFreeSlotsList() {
+        return PlanningEngine.adjustFreeSlotsList(rawFreeSlots, user);
+    }
+
+    @Benchmark
+    public List<StudySession> separateSlotsToSessions() {
+        return PlanningEngine.separateSlotsToSessions(user, freeSlots);
+    }
+
+    /**
+     * the stage removes sessions and updates the map, so it works on copies (the copies are part of the measurement)
+     */
+    @Benchmark
+    public List<StudySession> embedCoursesNamesInSessions() {
+        List<StudySession> sessionsCopy = new ArrayList<>(sessions);
+        PlanningEngine.embedCoursesNamesInSessions(new HashMap<>(exams2numberOfSessions), sessionsCopy, exams);
+        return sessionsCopy;
+    }
+
+    @Benchmark
+    public List<StudySession> embedCoursesSubjectsInSessions() {
+        PlanningEngine.embedCoursesSubjectsInSessions(exam2Index, embeddedSessions, exams);
+        return embeddedSessions;
+    }
+
+    /**
+     * the stage removes the unchanged sessions from the list, so it works on a copy (the copy is part of the measurement)
+     */
+    @Benchmark
+    public List<Event> getOverlapOldEventsPlanItCalendar() {
+        return PlanningEngine.getOverlapOldEventsPlanItCalendar(new ArrayList<>(embeddedSessions), planItOldEvents);
+    }
+
+    /**
+     * the free slots between the events, before they are adjusted to the user's preferences
+     */
+    private static List<TimeSlot> getRawFreeSlots(List<Event> events) {
+        List<TimeSlot> rawFreeSlots = new ArrayList<>();
+        for (int i = 0; i < events.size() - 1; i++) {
+            long endOfCurrentEvent = events.get(i).getEnd().getDateTime().getValue();
+            long startOfNextEvent = events.get(i + 1).getStart().getDateTime().getValue();
+            if (endOfCurrentEvent < startOfNextEvent) {
+                rawFreeSlots.add(new TimeSlot(new DateTime(endOfCurrentEvent), new DateTime(startOfNextEvent)));
+            }
+        }
+        return rawFreeSlots;
+    }
+
+    private static List<StudySession> copySessions(List<StudySession> sessions) {
+        List<StudySession> copies = new ArrayList<>();
+        for (StudySession session : sessions) {
+            copies.add(new StudySession(session.getStart(), session.getEnd()));
+        }
+        return copies;
+    }
+}
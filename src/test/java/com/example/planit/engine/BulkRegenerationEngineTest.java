@@ -0,0 +1,139 @@
+package com.example.planit.engine;
+
+import com.example.planit.model.mongo.bulk.BulkCheckpoint;
+import com.example.planit.model.mongo.bulk.BulkCheckpointRepository;
+import com.example.planit.model.mongo.course.CoursesRepository;
+import com.example.planit.model.mongo.usage.GoogleApiUsageRepository;
+import com.example.planit.model.mongo.user.User;
+import com.example.planit.model.mongo.user.UserRepository;
+import com.example.planit.utill.dto.DTOscanResponseToController;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class BulkRegenerationEngineTest {
+
+    private static final int CHECKPOINT_INTERVAL = 2;
+
+    private final TreeMap<String, User> id2User = new TreeMap<>();
+
+    private final Map<String, BulkCheckpoint> checkpoints = new HashMap<>();
+
+    private CalendarEngine calendarEngine;
+
+    private UserRepository userRepo;
+
+    private BulkRegenerationEngine bulkRegenerationEngine;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 1; i <= 5; i++) {
+            User user = new User("user" + i + "@planit.com", "access-token", Long.MAX_VALUE, "refresh-token");
+            ReflectionTestUtils.setField(user, "id", "id-" + i);
+            id2User.put(user.getId(), user);
+        }
+
+        userRepo = Mockito.mock(UserRepository.class);
+        when(userRepo.findAllByOrderByIdAsc(any())).thenAnswer(invocation -> getPage(null, invocation.getArgument(0)));
+        when(userRepo.findAllByIdGreaterThanOrderByIdAsc(anyString(), any())).thenAnswer(invocation -> getPage(invocation.getArgument(0), invocation.getArgument(1)));
+
+        BulkCheckpointRepository checkpointRepo = Mockito.mock(BulkCheckpointRepository.class);
+        when(checkpointRepo.findById(anyString())).thenAnswer(invocation -> Optional.ofNullable(checkpoints.get((String) invocation.getArgument(0))));
+        when(checkpointRepo.save(any())).thenAnswer(invocation -> {
+            BulkCheckpoint checkpoint = invocation.getArgument(0);
+            checkpoints.put(checkpoint.getId(), checkpoint);
+            return checkpoint;
+        });
+
+        calendarEngine = Mockito.mock(CalendarEngine.class);
+        bulkRegenerationEngine = new BulkRegenerationEngine(calendarEngine, new GoogleApiUsageAccounting(Mockito.mock(GoogleApiUsageRepository.class)),
+                userRepo, Mockito.mock(CoursesRepository.class), checkpointRepo, 2, CHECKPOINT_INTERVAL, 120);
+    }
+
+    @AfterEach
+    void tearDown() {
+        bulkRegenerationEngine.shutdown();
+    }
+
+    @Test
+    void everyUserIsRegeneratedChunkByChunk() throws Exception {
+        when(calendarEngine.scanUserEvents(any(User.class), anyString(), anyString(), anyList()))
+                .thenReturn(new DTOscanResponseToController(true, "", HttpStatus.OK, List.of()));
+
+        assertTrue(bulkRegenerationEngine.regenerateAllUsers(false));
+        awaitRunEnd();
+
+        assertEquals(5, bulkRegenerationEngine.getStatus().getProcessedUsers());
+        assertEquals(5, bulkRegenerationEngine.getStatus().getSucceededUsers());
+        assertEquals("id-5", bulkRegenerationEngine.getStatus().getLastUserID());
+
+        // the first chunk from the start, and every next chunk after the last user of the previous one
+        verify(userRepo).findAllByOrderByIdAsc(any());
+        verify(userRepo).findAllByIdGreaterThanOrderByIdAsc(eq("id-2"), any());
+        verify(userRepo).findAllByIdGreaterThanOrderByIdAsc(eq("id-4"), any());
+        verify(userRepo).findAllByIdGreaterThanOrderByIdAsc(eq("id-5"), any());
+    }
+
+    @Test
+    void onlyOneRunIsActive() throws Exception {
+        CountDownLatch isScanStarted = new CountDownLatch(1);
+        CountDownLatch isScanReleased = new CountDownLatch(1);
+        when(calendarEngine.scanUserEvents(any(User.class), anyString(), anyString(), anyList())).thenAnswer(invocation -> {
+            isScanStarted.countDown();
+            isScanReleased.await();
+            return new DTOscanResponseToController(true, "", HttpStatus.OK, List.of());
+        });
+
+        assertTrue(bulkRegenerationEngine.regenerateAllUsers(false));
+        assertTrue(isScanStarted.await(5, TimeUnit.SECONDS));
+        assertFalse(bulkRegenerationEngine.regenerateAllUsers(false));
+        assertTrue(bulkRegenerationEngine.getStatus().isRunning());
+
+        isScanReleased.countDown();
+        awaitRunEnd();
+        assertTrue(bulkRegenerationEngine.regenerateAllUsers(false));
+    }
+
+    @Test
+    void stoppedRunIsResumedAfterItsLastChunk() throws Exception {
+        BulkCheckpoint checkpoint = new BulkCheckpoint("bulk-regeneration", "2023-01-01T00:00:00Z", "2023-05-01T00:00:00Z");
+        checkpoint.setLastUserID("id-2");
+        checkpoint.setProcessedUsers(2);
+        checkpoints.put(checkpoint.getId(), checkpoint);
+        when(calendarEngine.scanUserEvents(any(User.class), anyString(), anyString(), anyList()))
+                .thenReturn(new DTOscanResponseToController(false, "", HttpStatus.OK, List.of()));
+
+        assertTrue(bulkRegenerationEngine.regenerateAllUsers(true));
+        awaitRunEnd();
+
+        assertEquals(5, bulkRegenerationEngine.getStatus().getProcessedUsers());
+        assertEquals(3, bulkRegenerationEngine.getStatus().getSkippedUsers());
+        verify(userRepo, never()).findAllByOrderByIdAsc(any());
+        verify(calendarEngine, never()).scanUserEvents(eq(id2User.get("id-1")), anyString(), anyString(), anyList());
+    }
+
+    private List<User> getPage(String afterID, Pageable pageable) {
+        Collection<User> users = afterID == null ? id2User.values() : id2User.tailMap(afterID, false).values();
+        return users.stream().limit(pageable.getPageSize()).toList();
+    }
+
+    private void awaitRunEnd() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (bulkRegenerationEngine.getStatus().isRunning() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertFalse(bulkRegenerationEngine.getStatus().isRunning());
+    }
+}
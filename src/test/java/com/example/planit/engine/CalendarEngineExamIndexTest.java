@@ -0,0 +1,113 @@
+package com.example.planit.engine;
+
+import com.example.planit.fakegoogle.CalendarEngineTestBed;
+import com.example.planit.fixtures.SyntheticCalendarGenerator;
+import com.example.planit.fixtures.SyntheticDataset;
+import com.example.planit.model.exam.Exam;
+import com.example.planit.model.mongo.course.Course;
+import com.example.planit.model.mongo.exam.ExamIndex;
+import com.example.planit.model.mongo.exam.IndexedExamEvent;
+import com.google.api.client.util.DateTime;
+import com.google.api.services.calendar.model.Event;
+import com.google.api.services.calendar.model.EventDateTime;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CalendarEngineExamIndexTest {
+
+    private static final long HOUR = 60 * 60 * 1000;
+
+    @Test
+    void examsOfCoursesAddedAfterTheRefreshAreDetected() throws Exception {
+        SyntheticDataset dataset = new SyntheticCalendarGenerator(7).setStartDate(LocalDate.now().plusDays(1)).generate();
+        try (CalendarEngineTestBed testBed = new CalendarEngineTestBed(dataset, new CalendarEngineSettings())) {
+            String email = testBed.addUser("student");
+            DateTime start = new DateTime(dataset.getStart().toEpochMilli());
+            DateTime end = new DateTime(dataset.getEnd().toEpochMilli());
+
+            // the index is refreshed while a course of an exam is not in the catalog yet
+            Course newCourse = dataset.getExams().get(0).getCourse();
+            List<Course> oldCourses = dataset.getCourses().stream().filter(course -> !course.getCourseName().equals(newCourse.getCourseName())).toList();
+            CalendarEngine calendarEngine = testBed.getCalendarEngine();
+            assertEquals(Optional.empty(), calendarEngine.getIndexedExams(email, Optional.empty(), dataset.getCalendarList(), oldCourses, start, end));
+            calendarEngine.refreshExamIndexes();
+
+            ExamIndex examIndex = testBed.getExamIndexes().get(email);
+            assertNotNull(examIndex);
+            List<Exam> oldExams = calendarEngine.getIndexedExams(email, Optional.of(examIndex), dataset.getCalendarList(), oldCourses, start, end).orElseThrow();
+            assertTrue(oldExams.stream().noneMatch(exam -> exam.getCourse().getCourseName().equals(newCourse.getCourseName())));
+
+            // the same index, with the course in the catalog
+            List<Exam> exams = calendarEngine.getIndexedExams(email, Optional.of(examIndex), dataset.getCalendarList(), dataset.getCourses(), start, end).orElseThrow();
+            assertEquals(toNamesAndTimes(dataset.getExams()), toNamesAndTimes(exams));
+        }
+    }
+
+    @Test
+    void indexOfTheExamsOnlyIsListedAgain() throws Exception {
+        SyntheticDataset dataset = new SyntheticCalendarGenerator(7).setStartDate(LocalDate.now().plusDays(1)).generate();
+        try (CalendarEngineTestBed testBed = new CalendarEngineTestBed(dataset, new CalendarEngineSettings())) {
+            String email = testBed.addUser("student");
+            DateTime start = new DateTime(dataset.getStart().toEpochMilli());
+            DateTime end = new DateTime(dataset.getEnd().toEpochMilli());
+            CalendarEngine calendarEngine = testBed.getCalendarEngine();
+            calendarEngine.getIndexedExams(email, Optional.empty(), dataset.getCalendarList(), dataset.getCourses(), start, end);
+            calendarEngine.refreshExamIndexes();
+
+            // an index as it was stored before the events were kept: a sync token, and no events
+            ExamIndex examIndex = testBed.getExamIndexes().get(email);
+            examIndex.setEvents(null);
+            examIndex.setRefreshedAtInMilliseconds(0);
+            assertEquals(Optional.empty(), calendarEngine.getIndexedExams(email, Optional.of(examIndex), dataset.getCalendarList(), dataset.getCourses(), start, end));
+
+            calendarEngine.refreshExamIndexes();
+            List<Exam> exams = calendarEngine.getIndexedExams(email, Optional.of(testBed.getExamIndexes().get(email)), dataset.getCalendarList(),
+                    dataset.getCourses(), start, end).orElseThrow();
+            assertEquals(toNamesAndTimes(dataset.getExams()), toNamesAndTimes(exams));
+        }
+    }
+
+    @Test
+    void changedEventIsIndexedWithItsNewEtag() throws Exception {
+        SyntheticDataset dataset = new SyntheticCalendarGenerator(7).setStartDate(LocalDate.now().plusDays(1)).generate();
+        try (CalendarEngineTestBed testBed = new CalendarEngineTestBed(dataset, new CalendarEngineSettings())) {
+            String email = testBed.addUser("student");
+            String accessToken = testBed.getUser(email).getAccessToken();
+            CalendarEngine calendarEngine = testBed.getCalendarEngine();
+            calendarEngine.getIndexedExams(email, Optional.empty(), dataset.getCalendarList(), dataset.getCourses(),
+                    new DateTime(dataset.getStart().toEpochMilli()), new DateTime(dataset.getEnd().toEpochMilli()));
+            calendarEngine.refreshExamIndexes();
+
+            ExamIndex examIndex = testBed.getExamIndexes().get(email);
+            Map<String, String> eventID2Etag = testBed.getServer().getEvents(accessToken, examIndex.getExamsCalendarID()).stream()
+                    .collect(Collectors.toMap(Event::getId, Event::getEtag));
+            assertEquals(eventID2Etag, examIndex.getEvents().stream().collect(Collectors.toMap(IndexedExamEvent::getEventID, IndexedExamEvent::getEtag)));
+
+            // the user moves an exam by an hour
+            IndexedExamEvent movedEvent = examIndex.getEvents().get(0);
+            Event event = testBed.getServer().getEvents(accessToken, examIndex.getExamsCalendarID()).stream()
+                    .filter(examEvent -> examEvent.getId().equals(movedEvent.getEventID())).findFirst().orElseThrow();
+            testBed.getServer().putEvent(accessToken, examIndex.getExamsCalendarID(), event.clone()
+                    .setStart(new EventDateTime().setDateTime(new DateTime(movedEvent.getStartInMilliseconds() + HOUR)))
+                    .setEnd(new EventDateTime().setDateTime(new DateTime(movedEvent.getEndInMilliseconds() + HOUR))));
+            examIndex.setRefreshedAtInMilliseconds(0);
+            calendarEngine.refreshExamIndexes();
+
+            IndexedExamEvent indexedEvent = testBed.getExamIndexes().get(email).getEvents().stream()
+                    .filter(examEvent -> examEvent.getEventID().equals(movedEvent.getEventID())).findFirst().orElseThrow();
+            assertNotEquals(movedEvent.getEtag(), indexedEvent.getEtag());
+            assertEquals(movedEvent.getStartInMilliseconds() + HOUR, indexedEvent.getStartInMilliseconds());
+        }
+    }
+
+    private static List<String> toNamesAndTimes(List<Exam> exams) {
+        return exams.stream().map(exam -> exam.getCourse().getCourseName() + " " + exam.getDateTime().getValue()).sorted().toList();
+    }
+}
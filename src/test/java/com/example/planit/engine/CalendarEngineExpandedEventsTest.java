@@ -0,0 +1,86 @@
+package com.example.planit.engine;
+
+import com.example.planit.fakegoogle.CalendarEngineTestBed;
+import com.example.planit.fixtures.SyntheticCalendarGenerator;
+import com.example.planit.model.mongo.plan.PlannedSession;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * the scan that lists the masters of the recurring events and expands them locally (planit.google.expand-recurring-events-locally)
+ */
+class CalendarEngineExpandedEventsTest {
+
+    private static SyntheticCalendarGenerator createGenerator() {
+        return new SyntheticCalendarGenerator(42).setStartDate(LocalDate.now().plusDays(1));
+    }
+
+    @Test
+    void expandedScanPlansLikeTheScanOfTheInstances() throws Exception {
+        List<String> expandedSessions;
+        try (CalendarEngineTestBed testBed = new CalendarEngineTestBed(createGenerator().generate(),
+                new CalendarEngineSettings().setRecurringEventsExpandedLocally(true))) {
+            expandedSessions = generate(testBed);
+        }
+
+        List<String> singleSessions;
+        try (CalendarEngineTestBed testBed = new CalendarEngineTestBed(createGenerator().generate(),
+                new CalendarEngineSettings().setRecurringEventsExpandedLocally(false))) {
+            singleSessions = generate(testBed);
+        }
+
+        assertEquals(singleSessions, expandedSessions);
+    }
+
+    @Test
+    void expandedScanKeepsTheDescriptionsOfThePlanItCalendar() throws Exception {
+        try (CalendarEngineTestBed testBed = new CalendarEngineTestBed(createGenerator().generate(),
+                new CalendarEngineSettings().setRecurringEventsExpandedLocally(true))) {
+            String email = testBed.addUser("student");
+            testBed.getCalendarEngine().generateStudyEvents(email, testBed.getStart(), testBed.getEnd(), new boolean[0]);
+
+            // without a stored plan, the sessions are diffed against the PlanIt calendar as the expanded scan listed it
+            testBed.getPlans().clear();
+            testBed.getCalendarEngine().generateStudyEvents(email, testBed.getStart(), testBed.getEnd(), new boolean[0]);
+
+            List<PlannedSession> sessions = testBed.getPlans().get(email).getSessions();
+            assertFalse(sessions.isEmpty());
+            sessions.forEach(session -> assertNotNull(session.getDescription(), session.getSummary()));
+            testBed.getPlanItEvents(email).forEach(event -> assertNotNull(event.getDescription(), event.getSummary()));
+        }
+    }
+
+    @Test
+    void expandedScanReadsAllThePages() throws Exception {
+        List<String> sessionsFromOnePage;
+        try (CalendarEngineTestBed testBed = new CalendarEngineTestBed(createGenerator().generate(),
+                new CalendarEngineSettings().setRecurringEventsExpandedLocally(true))) {
+            sessionsFromOnePage = generate(testBed);
+        }
+
+        // every calendar is listed in a few pages
+        List<String> sessionsFromPages;
+        try (CalendarEngineTestBed testBed = new CalendarEngineTestBed(createGenerator().generate(),
+                new CalendarEngineSettings().setRecurringEventsExpandedLocally(true))) {
+            testBed.getServer().setEventsPageSize(7);
+            sessionsFromPages = generate(testBed);
+            assertTrue(testBed.getRequests("GET calendars/{id}/events") > testBed.getDataset().getCalendarList().size());
+        }
+
+        assertEquals(sessionsFromOnePage, sessionsFromPages);
+    }
+
+    private static List<String> generate(CalendarEngineTestBed testBed) throws Exception {
+        String email = testBed.addUser("student");
+        testBed.getCalendarEngine().generateStudyEvents(email, testBed.getStart(), testBed.getEnd(), new boolean[0]);
+
+        return testBed.getPlans().get(email).getSessions().stream()
+                .map(session -> session.getStartInMilliseconds() + " " + session.getEndInMilliseconds() + " " + session.getDescription())
+                .sorted()
+                .toList();
+    }
+}
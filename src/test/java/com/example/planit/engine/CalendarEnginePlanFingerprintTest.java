@@ -0,0 +1,54 @@
+package com.example.planit.engine;
+
+import com.example.planit.fakegoogle.CalendarEngineTestBed;
+import com.example.planit.fixtures.SyntheticCalendarGenerator;
+import com.example.planit.utill.Constants;
+import com.example.planit.utill.dto.DTOgenerateResponseToController;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * the fingerprint of the inputs of the stored plan, that tells the generation the plan is still up-to-date
+ */
+class CalendarEnginePlanFingerprintTest {
+
+    @Test
+    void laterRequestOnTheSameDayDoesNotGenerateThePlanAgain() throws Exception {
+        try (CalendarEngineTestBed testBed = new CalendarEngineTestBed(new SyntheticCalendarGenerator(42).setStartDate(LocalDate.now().plusDays(1)).generate(),
+                new CalendarEngineSettings())) {
+            String email = testBed.addUser("student");
+            testBed.getCalendarEngine().generateStudyEvents(email, testBed.getStart(), testBed.getEnd(), new boolean[0]);
+            String inputsFingerprint = testBed.getPlans().get(email).getInputsFingerprint();
+            long planItWrites = testBed.getPlanItWrites();
+
+            // the clients send the time of the request as the start, before any event of the day
+            String laterStart = Instant.parse(testBed.getStart()).plus(Duration.ofMinutes(90)).toString();
+            DTOgenerateResponseToController generateResponse = testBed.getCalendarEngine().generateStudyEvents(email, laterStart, testBed.getEnd(), new boolean[0]);
+
+            assertEquals(Constants.PLAN_IS_UP_TO_DATE, generateResponse.getDetails());
+            assertEquals(inputsFingerprint, testBed.getPlans().get(email).getInputsFingerprint());
+            assertEquals(planItWrites, testBed.getPlanItWrites());
+        }
+    }
+
+    @Test
+    void requestOnTheNextDayGeneratesThePlanAgain() throws Exception {
+        try (CalendarEngineTestBed testBed = new CalendarEngineTestBed(new SyntheticCalendarGenerator(42).setStartDate(LocalDate.now().plusDays(1)).generate(),
+                new CalendarEngineSettings())) {
+            String email = testBed.addUser("student");
+            testBed.getCalendarEngine().generateStudyEvents(email, testBed.getStart(), testBed.getEnd(), new boolean[0]);
+            String baseInputsFingerprint = testBed.getPlans().get(email).getBaseInputsFingerprint();
+
+            String nextDayStart = Instant.parse(testBed.getStart()).plus(Duration.ofDays(1)).toString();
+            DTOgenerateResponseToController generateResponse = testBed.getCalendarEngine().generateStudyEvents(email, nextDayStart, testBed.getEnd(), new boolean[0]);
+
+            assertNotEquals(Constants.PLAN_IS_UP_TO_DATE, generateResponse.getDetails());
+            assertNotEquals(baseInputsFingerprint, testBed.getPlans().get(email).getBaseInputsFingerprint());
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.planit.engine;
+
+import com.example.planit.fakegoogle.CalendarEngineTestBed;
+import com.example.planit.fixtures.SyntheticCalendarGenerator;
+import com.example.planit.model.mongo.plan.Plan;
+import com.example.planit.model.mongo.plan.PlannedSession;
+import com.example.planit.utill.Constants;
+import com.example.planit.utill.dto.DTOgenerateResponseToController;
+import com.example.planit.utill.dto.DTOpreviewResponseToController;
+import com.google.api.services.calendar.model.Event;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * a preview is committed only while the plan it was previewed from is still the plan of the user
+ */
+class CalendarEnginePreviewTest {
+
+    @Test
+    void previewIsCommittedAsPreviewed() throws Exception {
+        try (CalendarEngineTestBed testBed = createTestBed()) {
+            String email = testBed.addUser("student");
+            CalendarEngine calendarEngine = testBed.getCalendarEngine();
+
+            DTOpreviewResponseToController previewResponse = calendarEngine.previewStudyEvents(email, testBed.getStart(), testBed.getEnd(), new boolean[0]);
+            assertEquals(HttpStatus.OK, previewResponse.getHttpStatus());
+            assertNotNull(previewResponse.getPreviewID());
+            assertNull(testBed.getPlans().get(email));
+
+            assertEquals(HttpStatus.CREATED, calendarEngine.commitPreviewedPlan(email, previewResponse.getPreviewID()).getHttpStatus());
+            assertEquals(toTimes(previewResponse.getSessions()), toTimes(testBed.getPlans().get(email).getSessions()));
+            assertEquals(previewResponse.getSessions().size(), testBed.getPlanItEvents(email).size());
+
+            // the preview can not be committed twice
+            assertEquals(HttpStatus.NOT_FOUND, calendarEngine.commitPreviewedPlan(email, previewResponse.getPreviewID()).getHttpStatus());
+        }
+    }
+
+    @Test
+    void previewIsStaleAfterAGeneration() throws Exception {
+        try (CalendarEngineTestBed testBed = createTestBed()) {
+            String email = testBed.addUser("student");
+            CalendarEngine calendarEngine = testBed.getCalendarEngine();
+            String previewID = calendarEngine.previewStudyEvents(email, testBed.getStart(), testBed.getEnd(), new boolean[0]).getPreviewID();
+
+            assertEquals(HttpStatus.CREATED, calendarEngine.generateStudyEvents(email, testBed.getStart(), testBed.getEnd(), new boolean[0]).getHttpStatus());
+            Plan generatedPlan = testBed.getPlans().get(email);
+            List<String> generatedEventIDs = testBed.getPlanItEvents(email).stream().map(Event::getId).sorted().toList();
+
+            DTOgenerateResponseToController commitResponse = calendarEngine.commitPreviewedPlan(email, previewID);
+            assertEquals(HttpStatus.CONFLICT, commitResponse.getHttpStatus());
+            assertEquals(Constants.ERROR_PREVIEW_IS_STALE, commitResponse.getDetails());
+
+            // neither the plan nor the PlanIt calendar were changed by the stale preview
+            assertSame(generatedPlan, testBed.getPlans().get(email));
+            assertEquals(generatedEventIDs, testBed.getPlanItEvents(email).stream().map(Event::getId).sorted().toList());
+        }
+    }
+
+    @Test
+    void previewIsStaleAfterAnotherPreviewIsCommitted() throws Exception {
+        try (CalendarEngineTestBed testBed = createTestBed()) {
+            String email = testBed.addUser("student");
+            CalendarEngine calendarEngine = testBed.getCalendarEngine();
+            String firstPreviewID = calendarEngine.previewStudyEvents(email, testBed.getStart(), testBed.getEnd(), new boolean[0]).getPreviewID();
+            String secondPreviewID = calendarEngine.previewStudyEvents(email, testBed.getStart(), testBed.getEnd(), new boolean[0]).getPreviewID();
+
+            assertEquals(HttpStatus.CREATED, calendarEngine.commitPreviewedPlan(email, secondPreviewID).getHttpStatus());
+            assertEquals(HttpStatus.CONFLICT, calendarEngine.commitPreviewedPlan(email, firstPreviewID).getHttpStatus());
+        }
+    }
+
+    private static CalendarEngineTestBed createTestBed() throws IOException {
+        return new CalendarEngineTestBed(new SyntheticCalendarGenerator(42).setStartDate(LocalDate.now().plusDays(1)).generate(), new CalendarEngineSettings());
+    }
+
+    private static List<String> toTimes(List<PlannedSession> sessions) {
+        return sessions.stream().map(session -> session.getStartInMilliseconds() + "-" + session.getEndInMilliseconds()).sorted().toList();
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.planit.engine;
+
+import com.example.planit.fakegoogle.CalendarEngineTestBed;
+import com.example.planit.fixtures.SyntheticCalendarGenerator;
+import com.example.planit.model.mongo.plan.Plan;
+import com.example.planit.model.mongo.plan.PlannedSession;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CalendarEngineReconcileTest {
+
+    @Test
+    void driftedPlanIsReplacedWithThePlanItCalendar() throws Exception {
+        try (CalendarEngineTestBed testBed = new CalendarEngineTestBed(new SyntheticCalendarGenerator(42).setStartDate(LocalDate.now().plusDays(1)).generate(),
+                new CalendarEngineSettings())) {
+            String email = testBed.addUser("student");
+            testBed.getCalendarEngine().generateStudyEvents(email, testBed.getStart(), testBed.getEnd(), new boolean[0]);
+            Plan plan = testBed.getPlans().get(email);
+            List<PlannedSession> sessions = plan.getSessions();
+
+            // the stored plan lost a session that is in the PlanIt calendar
+            plan.setSessions(new ArrayList<>(sessions.subList(1, sessions.size())));
+            testBed.getCalendarEngine().reconcileAllPlans();
+
+            assertEquals(new HashSet<>(sessions), new HashSet<>(plan.getSessions()));
+            assertNull(plan.getInputsFingerprint());
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.planit.engine;
+
+import com.example.planit.fakegoogle.CalendarEngineTestBed;
+import com.example.planit.fixtures.SyntheticCalendarGenerator;
+import com.example.planit.model.mongo.plan.Plan;
+import com.example.planit.model.mongo.plan.PlannedSession;
+import com.example.planit.model.mongo.user.User;
+import com.example.planit.utill.Constants;
+import com.google.api.client.util.DateTime;
+import com.google.api.services.calendar.model.Event;
+import com.google.api.services.calendar.model.EventDateTime;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * the incremental repair of the plan, when only the events of the user changed since the last plan
+ */
+class CalendarEngineRepairTest {
+
+    @Test
+    void onlyTheConflictingSessionIsMoved() throws Exception {
+        try (CalendarEngineTestBed testBed = new CalendarEngineTestBed(new SyntheticCalendarGenerator(42).setStartDate(LocalDate.now().plusDays(1)).generate(),
+                new CalendarEngineSettings().setIncrementalRepairEnabled(true))) {
+            String email = testBed.addUser("student");
+            CalendarEngine calendarEngine = testBed.getCalendarEngine();
+            calendarEngine.generateStudyEvents(email, testBed.getStart(), testBed.getEnd(), new boolean[0]);
+            Plan plan = testBed.getPlans().get(email);
+
+            // the user deleted a session, so there is a free slot to move a session to (the plan fills all the free time)
+            List<PlannedSession> separateSessions = getSeparateSessions(plan.getSessions());
+            PlannedSession deletedSession = separateSessions.get(separateSessions.size() / 2 - 1);
+            testBed.getServer().deleteEvent(testBed.getUser(email).getAccessToken(), plan.getPlanItCalendarID(), deletedSession.getEventID());
+            plan.getSessions().remove(deletedSession);
+            List<PlannedSession> sessions = new ArrayList<>(plan.getSessions());
+            long planItWrites = testBed.getPlanItWrites();
+
+            // the user added a meeting at the time of a later session
+            PlannedSession conflictingSession = separateSessions.get(separateSessions.size() / 2);
+            addBusyEvent(testBed, email, conflictingSession.getStartInMilliseconds(), conflictingSession.getEndInMilliseconds());
+            assertTrue(calendarEngine.generateStudyEvents(email, testBed.getStart(), testBed.getEnd(), new boolean[0]).isSucceed());
+
+            // a delete of the conflicting session and an insert of the moved one
+            assertEquals(planItWrites + 2, testBed.getPlanItWrites());
+            assertEquals(sessions.size(), plan.getSessions().size());
+            Set<PlannedSession> keptSessions = new HashSet<>(sessions);
+            keptSessions.remove(conflictingSession);
+            assertTrue(plan.getSessions().containsAll(keptSessions));
+
+            PlannedSession movedSession = plan.getSessions().stream().filter(session -> !keptSessions.contains(session)).findFirst().orElseThrow();
+            assertEquals(conflictingSession.getSummary(), movedSession.getSummary());
+            assertTrue(movedSession.getEndInMilliseconds() <= conflictingSession.getStartInMilliseconds()
+                    || movedSession.getStartInMilliseconds() >= conflictingSession.getEndInMilliseconds());
+            assertEquals(new HashSet<>(plan.getSessions()), new HashSet<>(toPlannedSessions(testBed.getPlanItEvents(email))));
+
+            // the repaired plan is up-to-date with the new events
+            assertEquals(Constants.PLAN_IS_UP_TO_DATE, calendarEngine.generateStudyEvents(email, testBed.getStart(), testBed.getEnd(), new boolean[0]).getDetails());
+        }
+    }
+
+    @Test
+    void eventThatTouchesNoSessionWritesNothing() throws Exception {
+        try (CalendarEngineTestBed testBed = new CalendarEngineTestBed(new SyntheticCalendarGenerator(42).setStartDate(LocalDate.now().plusDays(1)).generate(),
+                new CalendarEngineSettings().setIncrementalRepairEnabled(true))) {
+            String email = testBed.addUser("student");
+            CalendarEngine calendarEngine = testBed.getCalendarEngine();
+            calendarEngine.generateStudyEvents(email, testBed.getStart(), testBed.getEnd(), new boolean[0]);
+            List<PlannedSession> sessions = new ArrayList<>(testBed.getPlans().get(email).getSessions());
+            long planItWrites = testBed.getPlanItWrites();
+
+            // a meeting in the break between two sessions
+            PlannedSession session = sessions.get(0);
+            long startOfMeeting = session.getEndInMilliseconds() + 1;
+            long endOfMeeting = startOfMeeting + 60 * 1000;
+            assertTrue(sessions.stream().noneMatch(other -> other.getStartInMilliseconds() < endOfMeeting && other.getEndInMilliseconds() > startOfMeeting));
+            addBusyEvent(testBed, email, startOfMeeting, endOfMeeting);
+            calendarEngine.generateStudyEvents(email, testBed.getStart(), testBed.getEnd(), new boolean[0]);
+
+            assertEquals(planItWrites, testBed.getPlanItWrites());
+            assertEquals(sessions, testBed.getPlans().get(email).getSessions());
+            assertEquals(Constants.PLAN_IS_UP_TO_DATE, calendarEngine.generateStudyEvents(email, testBed.getStart(), testBed.getEnd(), new boolean[0]).getDetails());
+        }
+    }
+
+    @Test
+    void tooManyConflictsGenerateTheWholePlan() throws Exception {
+        try (CalendarEngineTestBed testBed = new CalendarEngineTestBed(new SyntheticCalendarGenerator(42).setStartDate(LocalDate.now().plusDays(1)).generate(),
+                new CalendarEngineSettings().setIncrementalRepairEnabled(true).setMaxRepairedSessions(1))) {
+            String email = testBed.addUser("student");
+            CalendarEngine calendarEngine = testBed.getCalendarEngine();
+            calendarEngine.generateStudyEvents(email, testBed.getStart(), testBed.getEnd(), new boolean[0]);
+            List<PlannedSession> sessions = new ArrayList<>(testBed.getPlans().get(email).getSessions());
+            long planItWrites = testBed.getPlanItWrites();
+
+            // a meeting over two sessions, the new plan is generated from scratch
+            addBusyEvent(testBed, email, sessions.get(0).getStartInMilliseconds(), sessions.get(1).getEndInMilliseconds());
+            calendarEngine.generateStudyEvents(email, testBed.getStart(), testBed.getEnd(), new boolean[0]);
+
+            Plan plan = testBed.getPlans().get(email);
+            assertTrue(testBed.getPlanItWrites() > planItWrites + 2);
+            assertEquals(new HashSet<>(plan.getSessions()), new HashSet<>(toPlannedSessions(testBed.getPlanItEvents(email))));
+        }
+    }
+
+    /**
+     * @return the sessions that no other session overlaps
+     */
+    private static List<PlannedSession> getSeparateSessions(List<PlannedSession> sessions) {
+        return sessions.stream()
+                .filter(session -> sessions.stream().noneMatch(other -> other != session
+                        && other.getStartInMilliseconds() < session.getEndInMilliseconds() && other.getEndInMilliseconds() > session.getStartInMilliseconds()))
+                .toList();
+    }
+
+    /**
+     * adds a meeting to the primary calendar of the user
+     */
+    private static void addBusyEvent(CalendarEngineTestBed testBed, String email, long startInMilliseconds, long endInMilliseconds) {
+        User user = testBed.getUser(email);
+        testBed.getServer().putEvent(user.getAccessToken(), testBed.getDataset().getEmail(), new Event()
+                .setId("meeting" + startInMilliseconds)
+                .setSummary("meeting")
+                .setStart(new EventDateTime().setDateTime(new DateTime(startInMilliseconds)).setTimeZone(Constants.ISRAEL_TIME_ZONE))
+                .setEnd(new EventDateTime().setDateTime(new DateTime(endInMilliseconds)).setTimeZone(Constants.ISRAEL_TIME_ZONE)));
+    }
+
+    private static List<PlannedSession> toPlannedSessions(List<Event> events) {
+        return events.stream().map(event -> new PlannedSession(event.getId(), event.getStart().getDateTime().getValue(), event.getEnd().getDateTime().getValue(),
+                event.getSummary(), event.getDescription())).toList();
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.planit.engine;
+
+import com.example.planit.fakegoogle.CalendarEngineTestBed;
+import com.example.planit.fixtures.SyntheticCalendarGenerator;
+import com.example.planit.utill.dto.DTOexportResponseToController;
+import com.example.planit.utill.dto.DTOsubscriptionResponseToController;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * the subscription URL of the stored plan, that is keyed by a secret token of the user (and not by their email)
+ */
+class CalendarEngineSubscriptionTest {
+
+    @Test
+    void planIsServedOnlyByTheCurrentToken() throws Exception {
+        try (CalendarEngineTestBed testBed = new CalendarEngineTestBed(new SyntheticCalendarGenerator(42).setStartDate(LocalDate.now().plusDays(1)).generate(),
+                new CalendarEngineSettings())) {
+            String email = testBed.addUser("student");
+            CalendarEngine calendarEngine = testBed.getCalendarEngine();
+            calendarEngine.generateStudyEvents(email, testBed.getStart(), testBed.getEnd(), new boolean[0]);
+
+            // the email is not a token
+            assertEquals(HttpStatus.UNAUTHORIZED, calendarEngine.getStoredStudyEvents(email).getHttpStatus());
+
+            String token = calendarEngine.createSubscriptionToken(email).getSubscriptionToken();
+            DTOexportResponseToController exportResponse = calendarEngine.getStoredStudyEvents(token);
+            assertEquals(HttpStatus.OK, exportResponse.getHttpStatus());
+            assertEquals(testBed.getPlans().get(email).getSessions(), exportResponse.getSessions());
+
+            // a new token replaces the previous one
+            String newToken = calendarEngine.createSubscriptionToken(email).getSubscriptionToken();
+            assertNotEquals(token, newToken);
+            assertEquals(HttpStatus.UNAUTHORIZED, calendarEngine.getStoredStudyEvents(token).getHttpStatus());
+            assertEquals(HttpStatus.OK, calendarEngine.getStoredStudyEvents(newToken).getHttpStatus());
+
+            assertTrue(calendarEngine.revokeSubscriptionToken(email).isSucceed());
+            assertEquals(HttpStatus.UNAUTHORIZED, calendarEngine.getStoredStudyEvents(newToken).getHttpStatus());
+        }
+    }
+
+    @Test
+    void tokenOfUserWithoutPlanFindsNoPlan() throws Exception {
+        try (CalendarEngineTestBed testBed = new CalendarEngineTestBed(new SyntheticCalendarGenerator(42).setStartDate(LocalDate.now().plusDays(1)).generate(),
+                new CalendarEngineSettings())) {
+            String email = testBed.addUser("student");
+            CalendarEngine calendarEngine = testBed.getCalendarEngine();
+
+            DTOsubscriptionResponseToController subscriptionResponse = calendarEngine.createSubscriptionToken(email);
+            assertTrue(subscriptionResponse.isSucceed());
+            assertEquals(HttpStatus.NOT_FOUND, calendarEngine.getStoredStudyEvents(subscriptionResponse.getSubscriptionToken()).getHttpStatus());
+            assertEquals(HttpStatus.UNAUTHORIZED, calendarEngine.createSubscriptionToken("unknown@planit.com").getHttpStatus());
+        }
+    }
+}
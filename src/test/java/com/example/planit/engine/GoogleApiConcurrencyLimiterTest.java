@@ -0,0 +1,142 @@
+package com.example.planit.engine;
+
+import com.example.planit.engine.resilience.Deadline;
+import com.example.planit.engine.resilience.DeadlineExceededException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GoogleApiConcurrencyLimiterTest {
+
+    // a latency never counts as a spike, so only the overloaded responses cut the limit
+    private static final double NO_LATENCY_SPIKES = Double.MAX_VALUE;
+
+    @Test
+    void limitGrowsWhileItIsInUse() {
+        GoogleApiConcurrencyLimiter limiter = new GoogleApiConcurrencyLimiter(2, 1, 4, 0.5, NO_LATENCY_SPIKES);
+
+        // about 1 per round trip of all the requests in flight
+        sendRoundTrip(limiter);
+        assertEquals(2, limiter.getLimit());
+        sendRoundTrip(limiter);
+        assertEquals(3, limiter.getLimit());
+
+        for (int i = 0; i < 10; i++) {
+            sendRoundTrip(limiter);
+        }
+        assertEquals(4, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void limitDoesNotGrowWhileItIsNotInUse() {
+        GoogleApiConcurrencyLimiter limiter = new GoogleApiConcurrencyLimiter(10, 1, 20, 0.5, NO_LATENCY_SPIKES);
+
+        for (int i = 0; i < 100; i++) {
+            limiter.acquire().release(false);
+        }
+
+        assertEquals(10, limiter.getLimit());
+    }
+
+    @Test
+    void overloadCutsTheLimitOncePerRoundTrip() throws InterruptedException {
+        GoogleApiConcurrencyLimiter limiter = new GoogleApiConcurrencyLimiter(10, 2, 20, 0.5, NO_LATENCY_SPIKES);
+        Thread.sleep(1);
+        List<GoogleApiConcurrencyLimiter.Permit> permits = acquire(limiter, 3);
+
+        permits.get(0).release(true);
+        assertEquals(5, limiter.getLimit());
+
+        // these were sent with the old limit
+        permits.get(1).release(true);
+        permits.get(2).release(true);
+        assertEquals(5, limiter.getLimit());
+
+        // never below the minimum
+        for (int i = 0; i < 5; i++) {
+            Thread.sleep(1);
+            limiter.acquire().release(true);
+        }
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    void latencySpikeCutsTheLimit() throws InterruptedException {
+        GoogleApiConcurrencyLimiter limiter = new GoogleApiConcurrencyLimiter(10, 1, 20, 0.5, 2);
+        for (int i = 0; i < 3; i++) {
+            GoogleApiConcurrencyLimiter.Permit permit = limiter.acquire();
+            Thread.sleep(5);
+            permit.release(false);
+        }
+        assertEquals(10, limiter.getLimit());
+
+        GoogleApiConcurrencyLimiter.Permit slowPermit = limiter.acquire();
+        Thread.sleep(150);
+        slowPermit.release(false);
+
+        assertEquals(5, limiter.getLimit());
+    }
+
+    @Test
+    void acquireWaitsForRoomUntilTheDeadline() throws Exception {
+        GoogleApiConcurrencyLimiter limiter = new GoogleApiConcurrencyLimiter(1, 1, 1, 0.5, NO_LATENCY_SPIKES);
+        GoogleApiConcurrencyLimiter.Permit permit = limiter.acquire();
+
+        try (Deadline.Scope ignored = Deadline.after(50).bind()) {
+            assertThrows(DeadlineExceededException.class, limiter::acquire);
+        }
+
+        CompletableFuture<GoogleApiConcurrencyLimiter.Permit> waitingPermit = CompletableFuture.supplyAsync(limiter::acquire);
+        Thread.sleep(50);
+        assertFalse(waitingPermit.isDone());
+
+        permit.release(false);
+        waitingPermit.get(5, TimeUnit.SECONDS).release(false);
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void asyncWaitersAreLetInInOrder() {
+        GoogleApiConcurrencyLimiter limiter = new GoogleApiConcurrencyLimiter(1, 1, 1, 0.5, NO_LATENCY_SPIKES);
+        GoogleApiConcurrencyLimiter.Permit permit = limiter.acquireAsync().join();
+        CompletableFuture<GoogleApiConcurrencyLimiter.Permit> gaveUpWaiter = limiter.acquireAsync();
+        CompletableFuture<GoogleApiConcurrencyLimiter.Permit> firstWaiter = limiter.acquireAsync();
+        CompletableFuture<GoogleApiConcurrencyLimiter.Permit> secondWaiter = limiter.acquireAsync();
+        assertFalse(firstWaiter.isDone());
+
+        // the waiter that gave up is skipped
+        gaveUpWaiter.cancel(false);
+        permit.release(false);
+        assertTrue(firstWaiter.isDone());
+        assertFalse(secondWaiter.isDone());
+        assertEquals(1, limiter.getInFlight());
+
+        // a permit of a request that was not sent lets the next one in as well
+        firstWaiter.join().cancel();
+        assertTrue(secondWaiter.isDone());
+        secondWaiter.join().release(false);
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    /**
+     * sends as many requests as the limit, and releases all of them
+     */
+    private static void sendRoundTrip(GoogleApiConcurrencyLimiter limiter) {
+        acquire(limiter, limiter.getLimit()).forEach(permit -> permit.release(false));
+    }
+
+    private static List<GoogleApiConcurrencyLimiter.Permit> acquire(GoogleApiConcurrencyLimiter limiter, int count) {
+        List<GoogleApiConcurrencyLimiter.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            permits.add(limiter.acquire());
+        }
+
+        return permits;
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.planit.engine;
+
+import com.example.planit.engine.resilience.Deadline;
+import com.example.planit.engine.resilience.DeadlineExceededException;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GoogleApiRateLimiterTest {
+
+    // a slot every 100 milliseconds
+    private static final double MAX_REQUESTS_PER_SECOND = 10;
+
+    private static final long INTERVAL_IN_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    @Test
+    void requestsAreSpacedByTheInterval() {
+        GoogleApiRateLimiter limiter = new GoogleApiRateLimiter(MAX_REQUESTS_PER_SECOND);
+
+        assertEquals(0, limiter.reserve());
+        long secondWaitTimeInNanos = limiter.reserve();
+        long thirdWaitTimeInNanos = limiter.reserve();
+
+        assertTrue(secondWaitTimeInNanos > 0 && secondWaitTimeInNanos <= INTERVAL_IN_NANOS, String.valueOf(secondWaitTimeInNanos));
+        assertTrue(thirdWaitTimeInNanos > INTERVAL_IN_NANOS && thirdWaitTimeInNanos <= 2 * INTERVAL_IN_NANOS, String.valueOf(thirdWaitTimeInNanos));
+    }
+
+    @Test
+    void requestBeyondItsDeadlineDoesNotTakeASlot() {
+        GoogleApiRateLimiter limiter = new GoogleApiRateLimiter(MAX_REQUESTS_PER_SECOND);
+        limiter.acquire();
+
+        try (Deadline.Scope ignored = Deadline.after(50).bind()) {
+            DeadlineExceededException exception = assertThrows(DeadlineExceededException.class, limiter::acquire);
+            assertEquals("the request would wait for the Google rate budget beyond its deadline", exception.getMessage());
+        }
+
+        // the next request gets the slot the rejected request would have taken
+        long waitTimeInNanos = limiter.reserve();
+        assertTrue(waitTimeInNanos > 0 && waitTimeInNanos <= INTERVAL_IN_NANOS, String.valueOf(waitTimeInNanos));
+    }
+
+    @Test
+    void unlimitedBudgetDoesNotWait() {
+        GoogleApiRateLimiter limiter = new GoogleApiRateLimiter(0);
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(0, limiter.reserve());
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.planit.engine;
+
+import com.google.api.client.util.DateTime;
+import com.google.api.services.calendar.model.Event;
+import com.google.api.services.calendar.model.EventDateTime;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecurringEventsExpanderTest {
+
+    private static final String TIME_ZONE = "Asia/Jerusalem";
+
+    private static final ZoneId ZONE = ZoneId.of(TIME_ZONE);
+
+    // a scan of all the instances of the tests
+    private static final DateTime START = toDateTime(LocalDateTime.of(1997, 1, 1, 0, 0));
+
+    private static final DateTime END = toDateTime(LocalDateTime.of(2030, 1, 1, 0, 0));
+
+    @Test
+    void weeklyRuleWithCount() {
+        Event master = createMaster("lecture", LocalDateTime.of(2023, 1, 1, 10, 0), "RRULE:FREQ=WEEKLY;COUNT=3");
+
+        assertEquals(List.of(LocalDateTime.of(2023, 1, 1, 10, 0), LocalDateTime.of(2023, 1, 8, 10, 0), LocalDateTime.of(2023, 1, 15, 10, 0)),
+                expandStarts(List.of(master), START, END));
+    }
+
+    @Test
+    void untilIncludesTheInstanceThatStartsAtIt() {
+        // 08:00Z is 10:00 in Israel in the winter
+        Event master = createMaster("lecture", LocalDateTime.of(2023, 1, 1, 10, 0), "RRULE:FREQ=WEEKLY;UNTIL=20230115T080000Z");
+
+        assertEquals(List.of(LocalDateTime.of(2023, 1, 1, 10, 0), LocalDateTime.of(2023, 1, 8, 10, 0), LocalDateTime.of(2023, 1, 15, 10, 0)),
+                expandStarts(List.of(master), START, END));
+    }
+
+    @Test
+    void untilOfDateIncludesAllOfItsDay() {
+        Event master = createMaster("lecture", LocalDateTime.of(2023, 1, 1, 22, 0), "RRULE:FREQ=DAILY;INTERVAL=2;UNTIL=20230105");
+
+        assertEquals(List.of(LocalDateTime.of(2023, 1, 1, 22, 0), LocalDateTime.of(2023, 1, 3, 22, 0), LocalDateTime.of(2023, 1, 5, 22, 0)),
+                expandStarts(List.of(master), START, END));
+    }
+
+    @Test
+    void weeklyRuleWithDaysOfWeek() {
+        // Sunday and Tuesday
+        Event master = createMaster("lecture", LocalDateTime.of(2023, 1, 1, 10, 0), "RRULE:FREQ=WEEKLY;COUNT=4;BYDAY=TU,SU");
+
+        assertEquals(List.of(LocalDateTime.of(2023, 1, 1, 10, 0), LocalDateTime.of(2023, 1, 3, 10, 0),
+                        LocalDateTime.of(2023, 1, 8, 10, 0), LocalDateTime.of(2023, 1, 10, 10, 0)),
+                expandStarts(List.of(master), START, END));
+    }
+
+    @Test
+    void weekStartChangesTheInstancesOfEveryOtherWeek() {
+        // the examples of WKST in RFC 5545
+        Event weekOfMonday = createMaster("lecture", LocalDateTime.of(1997, 8, 5, 9, 0), "RRULE:FREQ=WEEKLY;INTERVAL=2;COUNT=4;BYDAY=TU,SU;WKST=MO");
+        Event weekOfSunday = createMaster("lecture", LocalDateTime.of(1997, 8, 5, 9, 0), "RRULE:FREQ=WEEKLY;INTERVAL=2;COUNT=4;BYDAY=TU,SU;WKST=SU");
+
+        assertEquals(List.of(LocalDateTime.of(1997, 8, 5, 9, 0), LocalDateTime.of(1997, 8, 10, 9, 0),
+                        LocalDateTime.of(1997, 8, 19, 9, 0), LocalDateTime.of(1997, 8, 24, 9, 0)),
+                expandStarts(List.of(weekOfMonday), START, END));
+        assertEquals(List.of(LocalDateTime.of(1997, 8, 5, 9, 0), LocalDateTime.of(1997, 8, 17, 9, 0),
+                        LocalDateTime.of(1997, 8, 19, 9, 0), LocalDateTime.of(1997, 8, 31, 9, 0)),
+                expandStarts(List.of(weekOfSunday), START, END));
+    }
+
+    @Test
+    void excludedDatesAreNotExpanded() {
+        Event master = createMaster("lecture", LocalDateTime.of(2023, 1, 1, 10, 0), "RRULE:FREQ=WEEKLY;COUNT=4",
+                "EXDATE;TZID=Asia/Jerusalem:20230108T100000,20230115T100000");
+
+        assertEquals(List.of(LocalDateTime.of(2023, 1, 1, 10, 0), LocalDateTime.of(2023, 1, 22, 10, 0)),
+                expandStarts(List.of(master), START, END));
+    }
+
+    @Test
+    void instancesKeepTheirLocalTimeAcrossDaylightSavingTime() {
+        // the daylight saving time of Israel started on Friday, March 24 2023
+        Event master = createMaster("lecture", LocalDateTime.of(2023, 3, 16, 10, 0), "RRULE:FREQ=WEEKLY;COUNT=3");
+
+        List<Event> instances = RecurringEventsExpander.expand(List.of(master), START, END, TIME_ZONE).orElseThrow();
+
+        assertEquals(List.of(Instant.parse("2023-03-16T08:00:00Z"), Instant.parse("2023-03-23T08:00:00Z"), Instant.parse("2023-03-30T07:00:00Z")),
+                instances.stream().map(instance -> Instant.ofEpochMilli(instance.getStart().getDateTime().getValue())).toList());
+        instances.forEach(instance -> assertEquals(2 * 60 * 60 * 1000, instance.getEnd().getDateTime().getValue() - instance.getStart().getDateTime().getValue()));
+    }
+
+    @Test
+    void movedAndCancelledInstancesReplaceTheInstancesOfTheRule() {
+        Event master = createMaster("lecture", LocalDateTime.of(2023, 1, 1, 10, 0), "RRULE:FREQ=WEEKLY;COUNT=3");
+        Event moved = createEvent("lecture_moved", "lecture", LocalDateTime.of(2023, 1, 9, 12, 0))
+                .setRecurringEventId(master.getId())
+                .setOriginalStartTime(toEventDateTime(LocalDateTime.of(2023, 1, 8, 10, 0)));
+        Event cancelled = new Event().setId("lecture_cancelled").setStatus("cancelled")
+                .setRecurringEventId(master.getId())
+                .setOriginalStartTime(toEventDateTime(LocalDateTime.of(2023, 1, 15, 10, 0)));
+
+        assertEquals(List.of(LocalDateTime.of(2023, 1, 1, 10, 0), LocalDateTime.of(2023, 1, 9, 12, 0)),
+                expandStarts(List.of(master, moved, cancelled), START, END));
+    }
+
+    @Test
+    void onlyTheInstancesInTheScanAreExpanded() {
+        Event master = createMaster("lecture", LocalDateTime.of(2023, 1, 1, 10, 0), "RRULE:FREQ=DAILY");
+        Event single = createEvent("single", "meeting", LocalDateTime.of(2023, 1, 3, 15, 0));
+
+        List<Event> events = RecurringEventsExpander.expand(List.of(master, single),
+                toDateTime(LocalDateTime.of(2023, 1, 3, 0, 0)), toDateTime(LocalDateTime.of(2023, 1, 5, 0, 0)), TIME_ZONE).orElseThrow();
+
+        assertEquals(List.of("lecture_20230103T080000Z", "single", "lecture_20230104T080000Z"), events.stream().map(Event::getId).toList());
+    }
+
+    @Test
+    void unsupportedRulesAreNotExpanded() {
+        List<String> rules = List.of("RRULE:FREQ=MONTHLY;COUNT=3", "RRULE:FREQ=WEEKLY;BYDAY=2MO", "RRULE:FREQ=WEEKLY;BYMONTH=1");
+
+        for (String rule : rules) {
+            Event master = createMaster("lecture", LocalDateTime.of(2023, 1, 1, 10, 0), rule);
+            assertEquals(Optional.empty(), RecurringEventsExpander.expand(List.of(master), START, END, TIME_ZONE), rule);
+        }
+        Event masterWithDates = createMaster("lecture", LocalDateTime.of(2023, 1, 1, 10, 0), "RRULE:FREQ=WEEKLY;COUNT=3", "RDATE:20230104T100000");
+        assertEquals(Optional.empty(), RecurringEventsExpander.expand(List.of(masterWithDates), START, END, TIME_ZONE));
+    }
+
+    private static List<LocalDateTime> expandStarts(List<Event> events, DateTime start, DateTime end) {
+        return RecurringEventsExpander.expand(events, start, end, TIME_ZONE).orElseThrow().stream()
+                .map(event -> LocalDateTime.ofInstant(Instant.ofEpochMilli(event.getStart().getDateTime().getValue()), ZONE))
+                .toList();
+    }
+
+    /**
+     * a recurring event of 2 hours, in the time zone of the calendar
+     */
+    private static Event createMaster(String id, LocalDateTime start, String... recurrence) {
+        return createEvent(id, id, start).setRecurrence(new ArrayList<>(List.of(recurrence)));
+    }
+
+    private static Event createEvent(String id, String summary, LocalDateTime start) {
+        return new Event()
+                .setId(id)
+                .setSummary(summary)
+                .setStart(toEventDateTime(start))
+                .setEnd(toEventDateTime(start.plusHours(2)));
+    }
+
+    private static EventDateTime toEventDateTime(LocalDateTime localDateTime) {
+        return new EventDateTime().setDateTime(toDateTime(localDateTime));
+    }
+
+    private static DateTime toDateTime(LocalDateTime localDateTime) {
+        return new DateTime(localDateTime.atZone(ZONE).toInstant().toEpochMilli());
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.planit.engine.exams;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AhoCorasickAutomatonTest {
+
+    @Test
+    void overlappingPatternsAreAllFound() {
+        List<String> patterns = List.of("he", "she", "his", "hers");
+
+        assertEquals(List.of("she 1-4", "he 2-4", "hers 2-6"), match(patterns, "ushers"));
+    }
+
+    @Test
+    void patternsInsideOtherPatternsAreFound() {
+        List<String> patterns = List.of("מבני נתונים", "נתונים", "נ");
+
+        assertEquals(List.of("נ 2-3", "נ 5-6", "נ 8-9", "מבני נתונים 0-11", "נתונים 5-11"), match(patterns, "מבני נתונים"));
+    }
+
+    @Test
+    void repeatedAndEmptyPatterns() {
+        List<String> patterns = List.of("aa", "", "aa");
+
+        // each index of a repeated pattern is reported, the empty pattern is never found
+        assertEquals(List.of("aa 0-2", "aa 0-2", "aa 1-3", "aa 1-3"), match(patterns, "aaa"));
+        assertEquals(List.of(), match(List.of(), "aaa"));
+    }
+
+    @Test
+    void sameMatchesAsSearchingEachPattern() {
+        Random random = new Random(7);
+        for (int round = 0; round < 200; round++) {
+            List<String> patterns = new ArrayList<>();
+            for (int i = 0; i < 1 + random.nextInt(8); i++) {
+                patterns.add(randomText(random, 1 + random.nextInt(4)));
+            }
+            String text = randomText(random, random.nextInt(40));
+
+            List<String> expected = new ArrayList<>();
+            for (int end = 1; end <= text.length(); end++) {
+                for (int patternIndex = 0; patternIndex < patterns.size(); patternIndex++) {
+                    String pattern = patterns.get(patternIndex);
+                    if (text.startsWith(pattern, end - pattern.length())) {
+                        expected.add(patternIndex + " " + (end - pattern.length()) + "-" + end);
+                    }
+                }
+            }
+
+            List<String> actual = new ArrayList<>();
+            new AhoCorasickAutomaton(patterns).match(text, (patternIndex, start, end) -> actual.add(patternIndex + " " + start + "-" + end));
+
+            // the order of the patterns that end at the same char is not defined
+            assertEquals(expected.stream().sorted().toList(), actual.stream().sorted().toList(), patterns + " in " + text);
+        }
+    }
+
+    private static List<String> match(List<String> patterns, String text) {
+        List<String> matches = new ArrayList<>();
+        new AhoCorasickAutomaton(patterns).match(text, (patternIndex, start, end) -> {
+            assertEquals(patterns.get(patternIndex), text.substring(start, end));
+            matches.add(patterns.get(patternIndex) + " " + start + "-" + end);
+        });
+
+        return matches;
+    }
+
+    /**
+     * a text of a small alphabet, so the patterns overlap often
+     */
+    private static String randomText(Random random, int length) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            text.append("abא".charAt(random.nextInt(3)));
+        }
+
+        return text.toString();
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.planit.engine.exams;
+
+import com.example.planit.model.exam.Exam;
+import com.example.planit.model.mongo.course.Course;
+import com.google.api.client.util.DateTime;
+import com.google.api.services.calendar.model.Event;
+import com.google.api.services.calendar.model.EventDateTime;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+import static com.example.planit.utill.Constants.EXAMS_CALENDAR_SUMMERY_NAME;
+import static com.example.planit.utill.Constants.EXAM_SUMMERY_KEYWORD;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExamDetectorTest {
+
+    // names that are suffixes of other names, so the shortest suffix must be chosen
+    private static final List<Course> COURSES = List.of(createCourse("חישוביות"), createCourse("מבני נתונים"), createCourse("נתונים"),
+            createCourse("אלגוריתמים 1"), createCourse("1"), createCourse("מערכות הפעלה"));
+
+    private static final String[] OTHER_WORDS = {"מועד", "ציון", "בחינה", "-", "פרונטלי", "גב'", "אריאן", "מבני", "אלגוריתמים", "מערכות", "הרצאה"};
+
+    @Test
+    void suffixExtractionFindsTheSameCoursesAsTheOriginalScan() {
+        ExamDetector examDetector = new ExamDetector(List.of(ExamSource.DEFAULT));
+        Random random = new Random(3);
+
+        List<Event> events = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            events.add(createEvent(randomSummary(random), i));
+        }
+
+        List<Exam> expected = new ArrayList<>();
+        for (Event event : events) {
+            if (event.getSummary().contains(EXAM_SUMMERY_KEYWORD)) {
+                originalExtractCourseFromExam(event.getSummary(), COURSES).ifPresent(course -> expected.add(new Exam(course, event.getStart().getDateTime())));
+            }
+        }
+
+        List<Exam> exams = examDetector.findExams(EXAMS_CALENDAR_SUMMERY_NAME, events, COURSES);
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, exams);
+    }
+
+    @Test
+    void suffixIsMadeOfWholeWords() {
+        ExamDetector examDetector = new ExamDetector(List.of(ExamSource.DEFAULT));
+
+        // the shortest suffix, like the original scan ("נתונים" and not "מבני נתונים")
+        assertEquals(List.of("חישוביות", "1", "נתונים", "מערכות הפעלה"), findCourseNames(examDetector, EXAMS_CALENDAR_SUMMERY_NAME,
+                "מבחן מועד 1 ציון בחינה - פרונטלי גב' אריאן שלומית חישוביות",
+                "מבחן אלגוריתמים 1",
+                "מבחן מבני נתונים",
+                "מבחן מערכות הפעלה ",
+                "מבחן אבחישוביות",
+                "מבחן חישוביות מועד",
+                "הרצאה חישוביות"));
+    }
+
+    @Test
+    void anywhereExtractionFindsTheLongestName() {
+        ExamSource source = new ExamSource(List.of("exams"), null, List.of("exam"), List.of(), ExamSource.CourseNameExtraction.ANYWHERE);
+        ExamDetector examDetector = new ExamDetector(List.of(source));
+
+        assertEquals(List.of("מבני נתונים", "חישוביות"), findCourseNames(examDetector, "exams",
+                "exam מבני נתונים moed 1",
+                "חישוביות exam",
+                "exam nothing"));
+    }
+
+    @Test
+    void regexGroupExtraction() {
+        ExamSource source = new ExamSource(List.of(), "exams( .*)?", List.of(), List.of("^Exam: (?<course>.+) \\(moed [AB]\\)$"),
+                ExamSource.CourseNameExtraction.REGEX_GROUP);
+        ExamDetector examDetector = new ExamDetector(List.of(source));
+
+        assertEquals(List.of("מבני נתונים"), findCourseNames(examDetector, "exams 2023",
+                "Exam: מבני נתונים (moed A)",
+                "Exam: unknown course (moed B)",
+                "Exam: חישוביות"));
+    }
+
+    @Test
+    void onlyTheSourcesOfTheCalendarAreUsed() {
+        ExamSource otherSource = new ExamSource(List.of("exams"), null, List.of("exam"), List.of(), ExamSource.CourseNameExtraction.ANYWHERE);
+        ExamDetector examDetector = new ExamDetector(List.of(ExamSource.DEFAULT, otherSource));
+
+        assertTrue(examDetector.isExamsCalendar(EXAMS_CALENDAR_SUMMERY_NAME));
+        assertTrue(examDetector.isExamsCalendar("exams"));
+        assertFalse(examDetector.isExamsCalendar("calendar"));
+        assertEquals(List.of(), findCourseNames(examDetector, EXAMS_CALENDAR_SUMMERY_NAME, "exam חישוביות"));
+        assertEquals(List.of(), findCourseNames(examDetector, "calendar", "מבחן חישוביות"));
+        assertEquals(List.of("חישוביות"), findCourseNames(examDetector, "exams", "exam חישוביות"));
+    }
+
+    @Test
+    void coursesAddedToTheCatalogAreFound() {
+        ExamDetector examDetector = new ExamDetector(List.of(ExamSource.DEFAULT));
+        List<Event> events = List.of(createEvent("מבחן תורת הקומפילציה", 0));
+
+        assertEquals(List.of(), examDetector.findExams(EXAMS_CALENDAR_SUMMERY_NAME, events, COURSES));
+
+        List<Course> newCourses = new ArrayList<>(COURSES);
+        newCourses.add(createCourse("תורת הקומפילציה"));
+        List<Exam> exams = examDetector.findExams(EXAMS_CALENDAR_SUMMERY_NAME, events, newCourses);
+        assertEquals(List.of("תורת הקומפילציה"), exams.stream().map(exam -> exam.getCourse().getCourseName()).toList());
+    }
+
+    /**
+     * the extraction of the course of an exam before {@link ExamDetector}: the shortest sequence of words at the end of the summary that is a course name
+     */
+    private static Optional<Course> originalExtractCourseFromExam(String summary, List<Course> courses) {
+        String courseName = "";
+        String[] summeryInWords = summary.split(" ");
+        for (int i = summeryInWords.length - 1; i >= 0; i--) {
+            courseName = (summeryInWords[i] + " " + courseName).trim();
+            String currentCourseName = courseName;
+            Optional<Course> maybeFoundCourse = courses.stream().filter(course -> course.getCourseName().equals(currentCourseName)).findFirst();
+            if (maybeFoundCourse.isPresent()) {
+                return maybeFoundCourse;
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    /**
+     * a summary of words of the course names and of other words, with the exam keyword in most of them
+     */
+    private static String randomSummary(Random random) {
+        List<String> words = new ArrayList<>();
+        if (random.nextInt(4) != 0) {
+            words.add(EXAM_SUMMERY_KEYWORD);
+        }
+        for (int i = 0; i < 1 + random.nextInt(6); i++) {
+            words.add(random.nextBoolean()
+                    ? COURSES.get(random.nextInt(COURSES.size())).getCourseName()
+                    : OTHER_WORDS[random.nextInt(OTHER_WORDS.length)]);
+        }
+
+        return String.join(" ", words);
+    }
+
+    private static List<String> findCourseNames(ExamDetector examDetector, String calendarSummary, String... summaries) {
+        List<Event> events = new ArrayList<>();
+        for (int i = 0; i < summaries.length; i++) {
+            events.add(createEvent(summaries[i], i));
+        }
+
+        return examDetector.findExams(calendarSummary, events, COURSES).stream().map(exam -> exam.getCourse().getCourseName()).toList();
+    }
+
+    private static Event createEvent(String summary, int day) {
+        return new Event()
+                .setSummary(summary)
+                .setStart(new EventDateTime().setDateTime(new DateTime(1_672_560_000_000L + day * 24L * 60 * 60 * 1000)));
+    }
+
+    private static Course createCourse(String courseName) {
+        return new Course(courseName, 1, 3, 2, new String[]{"subject"}, 50);
+    }
+}
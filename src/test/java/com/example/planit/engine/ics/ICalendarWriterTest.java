@@ -0,0 +1,119 @@
+package com.example.planit.engine.ics;
+
+import com.example.planit.model.mongo.plan.PlannedSession;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ICalendarWriterTest {
+
+    // 2023-01-01T08:00:00Z
+    private static final long START = 1_672_560_000_000L;
+
+    private static final long HOUR = 60 * 60 * 1000;
+
+    @Test
+    void calendarOfSessions() throws IOException {
+        List<PlannedSession> sessions = List.of(new PlannedSession("event1", START, START + HOUR, "PlanIt - חישוביות", "subject 1"),
+                new PlannedSession(null, START + 2 * HOUR, START + 3 * HOUR, null, null));
+
+        List<String> lines = unfold(write(sessions));
+
+        assertEquals(List.of("BEGIN:VCALENDAR", "VERSION:2.0", "PRODID:-//PlanIt//PlanIt Calendar//EN", "CALSCALE:GREGORIAN", "METHOD:PUBLISH",
+                "X-WR-CALNAME:PlanIt", "X-WR-TIMEZONE:Asia/Jerusalem",
+                "BEGIN:VEVENT", "UID:event1@planit", "DTSTAMP:20230101T080000Z", "DTSTART:20230101T080000Z", "DTEND:20230101T090000Z",
+                "SUMMARY:PlanIt - חישוביות", "DESCRIPTION:subject 1", "TRANSP:OPAQUE", "END:VEVENT",
+                "BEGIN:VEVENT", "UID:" + (START + 2 * HOUR) + "-" + (START + 3 * HOUR) + "-" + Integer.toHexString("null".hashCode()) + "@planit",
+                "DTSTAMP:20230101T080000Z", "DTSTART:20230101T100000Z", "DTEND:20230101T110000Z", "TRANSP:OPAQUE", "END:VEVENT",
+                "END:VCALENDAR"), lines);
+    }
+
+    @Test
+    void textIsEscaped() throws IOException {
+        List<PlannedSession> sessions = List.of(new PlannedSession("event1", START, START + HOUR, "a,b;c\\d", "line 1\r\nline 2\nline 3"));
+
+        List<String> lines = unfold(write(sessions));
+
+        assertTrue(lines.contains("SUMMARY:a\\,b\\;c\\\\d"), lines.toString());
+        assertTrue(lines.contains("DESCRIPTION:line 1\\nline 2\\nline 3"), lines.toString());
+    }
+
+    @Test
+    void longLinesAreFoldedAt75OctetsBetweenChars() throws IOException {
+        // 2 octets for each Hebrew char, 4 octets for each emoji (a surrogate pair)
+        String description = "מבני נתונים - פרק 1, ".repeat(10) + "📚".repeat(30) + "x".repeat(100);
+        List<PlannedSession> sessions = List.of(new PlannedSession("event1", START, START + HOUR, "PlanIt - מבני נתונים", description));
+
+        byte[] document = write(sessions);
+
+        List<byte[]> physicalLines = splitLines(document);
+        assertTrue(physicalLines.stream().filter(physicalLine -> physicalLine[0] == ' ').count() > 5);
+        for (byte[] physicalLine : physicalLines) {
+            assertTrue(physicalLine.length <= 75, physicalLine.length + " octets");
+
+            // a fold inside a char would leave a malformed UTF-8 sequence at the end of the line
+            assertDoesNotThrow(() -> StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT)
+                    .decode(ByteBuffer.wrap(physicalLine)));
+        }
+
+        assertTrue(unfold(document).contains("DESCRIPTION:" + description.replace(",", "\\,")));
+    }
+
+    @Test
+    void lineOf75OctetsIsNotFolded() throws IOException {
+        // "SUMMARY:" is 8 octets
+        String summary = "x".repeat(67);
+
+        String document = new String(write(List.of(new PlannedSession("event1", START, START + HOUR, summary, null))), StandardCharsets.UTF_8);
+
+        assertTrue(document.contains("\r\nSUMMARY:" + summary + "\r\nTRANSP:OPAQUE\r\n"));
+        String longerDocument = new String(write(List.of(new PlannedSession("event1", START, START + HOUR, summary + "x", null))), StandardCharsets.UTF_8);
+        assertTrue(longerDocument.contains("\r\nSUMMARY:" + summary + "\r\n x\r\n"));
+    }
+
+    private static byte[] write(List<PlannedSession> sessions) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        new ICalendarWriter(outputStream).writeCalendar("PlanIt", "Asia/Jerusalem", START, sessions);
+
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * @return the content lines of the document, after the folded lines are joined
+     */
+    private static List<String> unfold(byte[] document) {
+        String text = new String(document, StandardCharsets.UTF_8);
+        assertTrue(text.endsWith("\r\n"));
+
+        return Arrays.asList(text.replace("\r\n ", "").split("\r\n"));
+    }
+
+    /**
+     * @return the octets of each physical line, without the line breaks
+     */
+    private static List<byte[]> splitLines(byte[] document) {
+        List<byte[]> lines = new ArrayList<>();
+        int lineStart = 0;
+        for (int i = 0; i + 1 < document.length; i++) {
+            if (document[i] == '\r' && document[i + 1] == '\n') {
+                lines.add(Arrays.copyOfRange(document, lineStart, i));
+                lineStart = i + 2;
+                i++;
+            }
+        }
+        assertEquals(document.length, lineStart);
+
+        return lines;
+    }
+}
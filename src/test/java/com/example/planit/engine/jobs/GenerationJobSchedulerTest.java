@@ -0,0 +1,204 @@
+package com.example.planit.engine.jobs;
+
+import com.example.planit.engine.CalendarEngine;
+import com.example.planit.engine.EngineMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+class GenerationJobSchedulerTest {
+
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    private final Map<String, Long> email2FirstExamTime = new ConcurrentHashMap<>();
+
+    private final List<String> executionOrder = Collections.synchronizedList(new ArrayList<>());
+
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private GenerationJobScheduler scheduler;
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    void jobsOfCloserExamsRunFirst() throws Exception {
+        scheduler = createScheduler(0);
+        long now = System.currentTimeMillis();
+        email2FirstExamTime.put("later@planit.com", now + 30 * DAY);
+        email2FirstExamTime.put("soon@planit.com", now + 10 * DAY);
+        email2FirstExamTime.put("urgent@planit.com", now + DAY);
+
+        // the unknown user is assumed to have an exam in 7 days
+        runWhileWorkerIsBusy("later@planit.com", "unknown@planit.com", "soon@planit.com", "urgent@planit.com");
+
+        assertEquals(List.of("urgent@planit.com", "unknown@planit.com", "soon@planit.com", "later@planit.com"), executionOrder);
+    }
+
+    @Test
+    void jobsOfTheSameExamKeepTheirOrder() throws Exception {
+        scheduler = createScheduler(0);
+        long examTime = System.currentTimeMillis() + 5 * DAY;
+        List<String> emails = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            emails.add("student" + i + "@planit.com");
+            email2FirstExamTime.put(emails.get(i), examTime);
+        }
+
+        runWhileWorkerIsBusy(emails.toArray(new String[0]));
+
+        assertEquals(emails, executionOrder);
+    }
+
+    @Test
+    void waitingJobAgesBeforeJobsOfCloserExams() throws Exception {
+        // every millisecond in the queue is a day closer to the exam
+        scheduler = createScheduler(DAY);
+        long now = System.currentTimeMillis();
+        email2FirstExamTime.put("later@planit.com", now + 30 * DAY);
+        email2FirstExamTime.put("urgent@planit.com", now + DAY);
+
+        // the job of the later exam waited 50 milliseconds (50 days) before the urgent job was submitted
+        runWhileWorkerIsBusy(() -> Thread.sleep(50), "later@planit.com", "urgent@planit.com");
+
+        assertEquals(List.of("later@planit.com", "urgent@planit.com"), executionOrder);
+    }
+
+    @Test
+    void latencyIsRecordedByPriority() throws Exception {
+        scheduler = createScheduler(0);
+        long now = System.currentTimeMillis();
+        email2FirstExamTime.put("urgent@planit.com", now + DAY);
+        email2FirstExamTime.put("later@planit.com", now + 30 * DAY);
+
+        assertEquals("done", scheduler.submitAndWait("urgent@planit.com", () -> "done"));
+        assertEquals("done", scheduler.submitAndWait("later@planit.com", () -> "done"));
+        assertEquals("done", scheduler.submitAndWait("unknown@planit.com", () -> "done"));
+
+        for (String timerName : List.of("planit.jobs.queue", "planit.jobs.duration")) {
+            assertEquals(1, meterRegistry.get(timerName).tag("priority", "urgent").timer().count());
+            assertEquals(0, meterRegistry.get(timerName).tag("priority", "soon").timer().count());
+            assertEquals(1, meterRegistry.get(timerName).tag("priority", "later").timer().count());
+            assertEquals(1, meterRegistry.get(timerName).tag("priority", "unknown").timer().count());
+        }
+    }
+
+    @Test
+    void priorityByTheTimeUntilTheFirstExam() {
+        assertEquals(JobPriority.UNKNOWN, JobPriority.of(null));
+        assertEquals(JobPriority.URGENT, JobPriority.of(3 * DAY));
+        assertEquals(JobPriority.SOON, JobPriority.of(3 * DAY + 1));
+        assertEquals(JobPriority.SOON, JobPriority.of(14 * DAY));
+        assertEquals(JobPriority.LATER, JobPriority.of(14 * DAY + 1));
+    }
+
+    @Test
+    void failureOfTheWorkIsThrownToTheCaller() {
+        scheduler = createScheduler(0);
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () -> scheduler.submitAndWait("student@planit.com", () -> {
+            throw new IllegalStateException("failed");
+        }));
+        assertEquals("failed", exception.getMessage());
+    }
+
+    @Test
+    void waitingJobsAreCancelledOnShutdown() throws Exception {
+        scheduler = createScheduler(0);
+        CountDownLatch isWorkerBusy = new CountDownLatch(1);
+        Future<?> runningJob = callers.submit(() -> scheduler.submitAndWait("blocker@planit.com", () -> {
+            isWorkerBusy.countDown();
+            try {
+                return new CountDownLatch(1).await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+
+                // the running job is interrupted by the shutdown
+                throw new RuntimeException(e);
+            }
+        }));
+        assertTrue(isWorkerBusy.await(5, TimeUnit.SECONDS));
+        Future<?> waitingJob = callers.submit(() -> scheduler.submitAndWait("student@planit.com", () -> executionOrder.add("student@planit.com")));
+        BlockingQueue<?> queue = ((ThreadPoolExecutor) ReflectionTestUtils.getField(scheduler, "workers")).getQueue();
+        while (queue.isEmpty()) {
+            Thread.sleep(1);
+        }
+
+        scheduler.shutdown();
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> waitingJob.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(RejectedExecutionException.class, exception.getCause());
+        assertThrows(ExecutionException.class, () -> runningJob.get(5, TimeUnit.SECONDS));
+        assertTrue(executionOrder.isEmpty());
+        assertThrows(RejectedExecutionException.class, () -> scheduler.submitAndWait("late@planit.com", () -> "done"));
+    }
+
+    private GenerationJobScheduler createScheduler(long agingRate) {
+        CalendarEngine calendarEngine = Mockito.mock(CalendarEngine.class);
+        when(calendarEngine.getFirstExamTimeOfLastScan(anyString())).thenAnswer(invocation -> Optional.ofNullable(email2FirstExamTime.get((String) invocation.getArgument(0))));
+
+        // a single worker, so the jobs run one after the other
+        return new GenerationJobScheduler(calendarEngine, new EngineMetrics(meterRegistry), 1, agingRate, 7 * DAY, 0);
+    }
+
+    private void runWhileWorkerIsBusy(String... emails) throws Exception {
+        runWhileWorkerIsBusy(() -> {
+        }, emails);
+    }
+
+    /**
+     * submits the jobs of the users one after the other while the single worker is busy, and then releases the worker
+     *
+     * @param betweenSubmits runs after each job is in the queue
+     */
+    private void runWhileWorkerIsBusy(QueueStep betweenSubmits, String... emails) throws Exception {
+        CountDownLatch isWorkerBusy = new CountDownLatch(1);
+        CountDownLatch isWorkerReleased = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        results.add(callers.submit(() -> scheduler.submitAndWait("blocker@planit.com", () -> {
+            isWorkerBusy.countDown();
+            try {
+                return isWorkerReleased.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        })));
+        assertTrue(isWorkerBusy.await(5, TimeUnit.SECONDS));
+
+        BlockingQueue<?> queue = ((ThreadPoolExecutor) ReflectionTestUtils.getField(scheduler, "workers")).getQueue();
+        for (String email : emails) {
+            int queueSize = queue.size();
+            results.add(callers.submit(() -> scheduler.submitAndWait(email, () -> executionOrder.add(email))));
+            while (queue.size() == queueSize) {
+                Thread.sleep(1);
+            }
+            betweenSubmits.run();
+        }
+
+        isWorkerReleased.countDown();
+        for (Future<?> result : results) {
+            result.get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @FunctionalInterface
+    private interface QueueStep {
+        void run() throws Exception;
+    }
+}
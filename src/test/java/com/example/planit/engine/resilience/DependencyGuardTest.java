@@ -0,0 +1,159 @@
+package com.example.planit.engine.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DependencyGuardTest {
+
+    private static final long OPEN_DURATION_IN_MILLIS = 50;
+
+    @Test
+    void circuitOpensWhenTheFailureRateIsReached() {
+        DependencyGuard guard = createGuard(10, 4, 2);
+
+        // 3 of 3 calls failed, but the minimum number of calls was not reached yet
+        for (int i = 0; i < 3; i++) {
+            guard.acquire().release(true);
+        }
+        assertEquals(DependencyGuard.State.CLOSED, guard.getState());
+
+        // 4 calls, 3 failures
+        guard.acquire().release(false);
+        assertEquals(DependencyGuard.State.OPEN, guard.getState());
+
+        DependencyUnavailableException exception = assertThrows(DependencyUnavailableException.class, guard::acquire);
+        assertEquals(Dependency.GOOGLE_CALENDAR, exception.getDependency());
+        assertEquals(1, guard.getRejectedCalls());
+        assertEquals(1, guard.getAvailableConcurrentCalls());
+    }
+
+    @Test
+    void onlyTheLastCallsAreCounted() {
+        // opens when 3 of the last 4 calls failed
+        DependencyGuard guard = new DependencyGuard(Dependency.GOOGLE_CALENDAR, 1, 0, 4, 4, 0.75, 10_000, OPEN_DURATION_IN_MILLIS, 1);
+
+        guard.acquire().release(true);
+        guard.acquire().release(true);
+        guard.acquire().release(false);
+        guard.acquire().release(false);
+        guard.acquire().release(true);
+        guard.acquire().release(true);
+        assertEquals(DependencyGuard.State.CLOSED, guard.getState());
+
+        // 5 of the 7 calls failed (less than 75%), but the last 4 calls have 3 failures
+        guard.acquire().release(true);
+        assertEquals(DependencyGuard.State.OPEN, guard.getState());
+    }
+
+    @Test
+    void succeededProbesCloseTheCircuit() throws InterruptedException {
+        DependencyGuard guard = openGuard(2);
+
+        Thread.sleep(OPEN_DURATION_IN_MILLIS + 10);
+        DependencyGuard.Permit firstProbe = guard.acquire();
+        DependencyGuard.Permit secondProbe = guard.acquire();
+        assertEquals(DependencyGuard.State.HALF_OPEN, guard.getState());
+
+        // only the probes are let in
+        assertThrows(DependencyUnavailableException.class, guard::acquire);
+
+        firstProbe.release(false);
+        assertEquals(DependencyGuard.State.HALF_OPEN, guard.getState());
+        secondProbe.release(false);
+        assertEquals(DependencyGuard.State.CLOSED, guard.getState());
+
+        // the failures before the circuit was opened are forgotten
+        guard.acquire().release(true);
+        assertEquals(DependencyGuard.State.CLOSED, guard.getState());
+    }
+
+    @Test
+    void failedProbeOpensTheCircuitAgain() throws InterruptedException {
+        DependencyGuard guard = openGuard(2);
+
+        Thread.sleep(OPEN_DURATION_IN_MILLIS + 10);
+        guard.acquire().release(true);
+
+        assertEquals(DependencyGuard.State.OPEN, guard.getState());
+        assertThrows(DependencyUnavailableException.class, guard::acquire);
+    }
+
+    @Test
+    void cancelledProbeLetsAnotherProbeIn() throws InterruptedException {
+        DependencyGuard guard = openGuard(1);
+
+        Thread.sleep(OPEN_DURATION_IN_MILLIS + 10);
+        guard.acquire().cancel();
+        assertEquals(DependencyGuard.State.HALF_OPEN, guard.getState());
+
+        guard.acquire().release(false);
+        assertEquals(DependencyGuard.State.CLOSED, guard.getState());
+    }
+
+    @Test
+    void callsThatStartedBeforeTheCircuitOpenedDoNotCount() throws InterruptedException {
+        DependencyGuard guard = createGuard(2, 2, 1);
+        DependencyGuard.Permit earlyCall = guard.acquireWithoutBulkhead();
+
+        guard.acquire().release(true);
+        guard.acquire().release(true);
+        assertEquals(DependencyGuard.State.OPEN, guard.getState());
+
+        Thread.sleep(OPEN_DURATION_IN_MILLIS + 10);
+        DependencyGuard.Permit probe = guard.acquire();
+
+        // the early call is not a probe, so it does not close (or open) the half-open circuit
+        earlyCall.release(false);
+        assertEquals(DependencyGuard.State.HALF_OPEN, guard.getState());
+        probe.release(false);
+        assertEquals(DependencyGuard.State.CLOSED, guard.getState());
+    }
+
+    @Test
+    void slowCallIsAFailure() throws InterruptedException {
+        DependencyGuard guard = new DependencyGuard(Dependency.GOOGLE_CALENDAR, 1, 0, 1, 1, 1.0, 10, OPEN_DURATION_IN_MILLIS, 1);
+
+        DependencyGuard.Permit permit = guard.acquire();
+        Thread.sleep(20);
+        permit.release(false);
+
+        assertEquals(DependencyGuard.State.OPEN, guard.getState());
+    }
+
+    @Test
+    void fullBulkheadRejectsTheCall() {
+        DependencyGuard guard = createGuard(10, 10, 1);
+
+        DependencyGuard.Permit permit = guard.acquire();
+        assertEquals(0, guard.getAvailableConcurrentCalls());
+        DependencyUnavailableException exception = assertThrows(DependencyUnavailableException.class, guard::acquire);
+        assertEquals(1, exception.getRetryAfterInSeconds());
+
+        // a reactive call does not wait for the bulkhead
+        guard.acquireWithoutBulkhead().release(false);
+
+        permit.release(false);
+        assertEquals(1, guard.getAvailableConcurrentCalls());
+        guard.acquire().release(false);
+        assertEquals(DependencyGuard.State.CLOSED, guard.getState());
+        assertEquals(1, guard.getRejectedCalls());
+    }
+
+    /**
+     * a guard with a single concurrent call, that does not wait for the bulkhead, and opens at a failure rate of 50%
+     */
+    private static DependencyGuard createGuard(int slidingWindowSize, int minimumNumberOfCalls, int halfOpenProbes) {
+        return new DependencyGuard(Dependency.GOOGLE_CALENDAR, 1, 0, slidingWindowSize, minimumNumberOfCalls, 0.5, 10_000,
+                OPEN_DURATION_IN_MILLIS, halfOpenProbes);
+    }
+
+    private static DependencyGuard openGuard(int halfOpenProbes) {
+        DependencyGuard guard = new DependencyGuard(Dependency.GOOGLE_CALENDAR, 2, 0, 2, 2, 0.5, 10_000, OPEN_DURATION_IN_MILLIS, halfOpenProbes);
+        guard.acquire().release(true);
+        guard.acquire().release(true);
+        assertEquals(DependencyGuard.State.OPEN, guard.getState());
+
+        return guard;
+    }
+}
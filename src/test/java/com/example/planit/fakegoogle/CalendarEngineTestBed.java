@@ -0,0 +1,228 @@
+package com.example.planit.fakegoogle;
+
+import com.example.planit.engine.*;
+import com.example.planit.engine.exams.ExamDetector;
+import com.example.planit.engine.exams.ExamSource;
+import com.example.planit.engine.resilience.Dependency;
+import com.example.planit.engine.resilience.DependencyGuard;
+import com.example.planit.fixtures.SyntheticDataset;
+import com.example.planit.model.mongo.course.CoursesRepository;
+import com.example.planit.model.mongo.exam.ExamIndex;
+import com.example.planit.model.mongo.exam.ExamIndexRepository;
+import com.example.planit.model.mongo.plan.Plan;
+import com.example.planit.model.mongo.plan.PlanPreview;
+import com.example.planit.model.mongo.plan.PlanPreviewRepository;
+import com.example.planit.model.mongo.plan.PlanRepository;
+import com.example.planit.model.mongo.usage.GoogleApiUsageRepository;
+import com.example.planit.model.mongo.user.User;
+import com.example.planit.model.mongo.user.UserChangeRepository;
+import com.example.planit.model.mongo.user.UserRepository;
+import com.example.planit.model.preferences.Preferences;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.example.planit.utill.defaults.Defaults.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+/**
+ * a {@link CalendarEngine} against the fake Google server (see {@link FakeGoogleCalendarServer}), for the tests of the engine.
+ * the users, the plans, the previews and the exam indexes are kept in memory instead of in Mongo.
+ * every user has the calendars of the same dataset, so two users can be compared (e.g. a generated plan and a committed preview).
+ */
+public class CalendarEngineTestBed implements AutoCloseable {
+
+    private final SyntheticDataset dataset;
+
+    private final FakeGoogleCalendarServer server;
+
+    private final Map<String, User> users = new ConcurrentHashMap<>();
+
+    private final Map<String, Plan> plans = new ConcurrentHashMap<>();
+
+    private final Map<String, PlanPreview> previews = new ConcurrentHashMap<>();
+
+    private final Map<String, ExamIndex> examIndexes = new ConcurrentHashMap<>();
+
+    private final GoogleIoExecutor googleIoExecutor;
+
+    private final CalendarEngine calendarEngine;
+
+    /**
+     * @param settings the settings of the engine, its Google URLs are set to the fake server
+     */
+    public CalendarEngineTestBed(SyntheticDataset dataset, CalendarEngineSettings settings) throws IOException {
+        this.dataset = dataset;
+        this.server = new FakeGoogleCalendarServer(0).start();
+
+        UserRepository userRepo = Mockito.mock(UserRepository.class);
+        when(userRepo.findUserByEmail(anyString())).thenAnswer(invocation -> Optional.ofNullable(users.get((String) invocation.getArgument(0))));
+        when(userRepo.findTokensByEmail(anyString())).thenAnswer(invocation -> Optional.ofNullable(users.get((String) invocation.getArgument(0))));
+        when(userRepo.findEmailBySubscriptionToken(anyString())).thenAnswer(invocation -> users.values().stream()
+                .filter(user -> invocation.getArgument(0).equals(user.getSubscriptionToken()))
+                .findFirst());
+        when(userRepo.setSubscriptionToken(anyString(), any())).thenAnswer(invocation -> {
+            User user = users.get((String) invocation.getArgument(0));
+            if (user != null) {
+                ReflectionTestUtils.setField(user, "subscriptionToken", invocation.getArgument(1));
+            }
+            return user != null;
+        });
+        CoursesRepository courseRepo = Mockito.mock(CoursesRepository.class);
+        when(courseRepo.findAll()).thenReturn(dataset.getCourses());
+
+        PlanRepository planRepo = Mockito.mock(PlanRepository.class);
+        when(planRepo.findPlanByEmail(anyString())).thenAnswer(invocation -> Optional.ofNullable(plans.get((String) invocation.getArgument(0))));
+        when(planRepo.findById(anyString())).thenAnswer(invocation -> plans.values().stream()
+                .filter(plan -> invocation.getArgument(0).equals(plan.getId()))
+                .findFirst());
+        when(planRepo.streamAllBy()).thenAnswer(invocation -> new ArrayList<>(plans.values()).stream());
+        when(planRepo.save(any())).thenAnswer(invocation -> {
+            Plan plan = invocation.getArgument(0);
+            if (plan.getId() == null) {
+                ReflectionTestUtils.setField(plan, "id", plan.getEmail());
+            }
+            plans.put(plan.getEmail(), plan);
+            return plan;
+        });
+        when(planRepo.updateReconciledSessions(anyString(), anyLong(), any())).thenAnswer(invocation -> {
+            Optional<Plan> maybePlan = plans.values().stream().filter(plan -> invocation.getArgument(0).equals(plan.getId())).findFirst();
+            if (maybePlan.isEmpty() || maybePlan.get().getGeneratedAtInMilliseconds() != (long) invocation.getArgument(1)) {
+                return false;
+            }
+            maybePlan.get().setSessions(invocation.getArgument(2));
+            maybePlan.get().setInputsFingerprint(null);
+            return true;
+        });
+
+        PlanPreviewRepository planPreviewRepo = Mockito.mock(PlanPreviewRepository.class);
+        when(planPreviewRepo.save(any())).thenAnswer(invocation -> {
+            PlanPreview planPreview = invocation.getArgument(0);
+            ReflectionTestUtils.setField(planPreview, "id", UUID.randomUUID().toString());
+            previews.put(planPreview.getId(), planPreview);
+            return planPreview;
+        });
+        when(planPreviewRepo.findById(anyString())).thenAnswer(invocation -> Optional.ofNullable(previews.get((String) invocation.getArgument(0))));
+        doAnswer(invocation -> previews.remove((String) invocation.getArgument(0))).when(planPreviewRepo).deleteById(anyString());
+
+        ExamIndexRepository examIndexRepo = Mockito.mock(ExamIndexRepository.class);
+        when(examIndexRepo.findById(anyString())).thenAnswer(invocation -> Optional.ofNullable(examIndexes.get((String) invocation.getArgument(0))));
+        when(examIndexRepo.save(any())).thenAnswer(invocation -> {
+            ExamIndex examIndex = invocation.getArgument(0);
+            examIndexes.put(examIndex.getEmail(), examIndex);
+            return examIndex;
+        });
+        when(examIndexRepo.streamAllByRefreshedAtInMillisecondsLessThan(anyLong())).thenAnswer(invocation -> {
+            long refreshedAt = invocation.getArgument(0);
+            List<ExamIndex> staleIndexes = examIndexes.values().stream().filter(examIndex -> examIndex.getRefreshedAtInMilliseconds() < refreshedAt).toList();
+            return staleIndexes.stream();
+        });
+
+        UserCache userCache = new UserCache(userRepo, Mockito.mock(UserChangeRepository.class), 0, DEFAULT_USER_CACHE_MAX_SIZE);
+        EngineMetrics engineMetrics = new EngineMetrics(new SimpleMeterRegistry());
+        GoogleApiUsageAccounting googleApiUsageAccounting = new GoogleApiUsageAccounting(Mockito.mock(GoogleApiUsageRepository.class));
+        googleIoExecutor = new GoogleIoExecutor(GoogleIoExecutor.Mode.PLATFORM, DEFAULT_GOOGLE_IO_PLATFORM_THREADS, googleApiUsageAccounting);
+
+        calendarEngine = new CalendarEngine(settings.setGoogleUrls(server.getRootUrl(), server.getTokenServerUrl()), userRepo, courseRepo, planRepo,
+                examIndexRepo, planPreviewRepo, dataset.getHolidaysDates(), dataset.getHolidaysDates(), new GoogleApiRateLimiter(DEFAULT_GOOGLE_MAX_REQUESTS_PER_SECOND),
+                new GoogleApiConcurrencyLimiter(DEFAULT_GOOGLE_CONCURRENCY_INITIAL_LIMIT, DEFAULT_GOOGLE_CONCURRENCY_MIN_LIMIT, DEFAULT_GOOGLE_CONCURRENCY_MAX_LIMIT,
+                        DEFAULT_GOOGLE_CONCURRENCY_BACKOFF_RATIO, DEFAULT_GOOGLE_CONCURRENCY_LATENCY_TOLERANCE),
+                createGuard(Dependency.GOOGLE_CALENDAR), createGuard(Dependency.GOOGLE_OAUTH), googleIoExecutor, new ExamDetector(List.of(ExamSource.DEFAULT)),
+                engineMetrics, googleApiUsageAccounting, userCache, new UserStateWriteBuffer(userCache));
+    }
+
+    private static DependencyGuard createGuard(Dependency dependency) {
+        return new DependencyGuard(dependency, 1000, DEFAULT_RESILIENCE_MAX_WAIT_IN_MILLIS, DEFAULT_RESILIENCE_SLIDING_WINDOW_SIZE,
+                DEFAULT_RESILIENCE_MINIMUM_NUMBER_OF_CALLS, DEFAULT_RESILIENCE_FAILURE_RATE_THRESHOLD, DEFAULT_RESILIENCE_SLOW_CALL_THRESHOLD_IN_MILLIS,
+                DEFAULT_RESILIENCE_OPEN_DURATION_IN_MILLIS, DEFAULT_RESILIENCE_HALF_OPEN_PROBES);
+    }
+
+    /**
+     * adds a user with the calendars of the dataset, the PlanIt calendar of the dataset is the PlanIt calendar of the user
+     *
+     * @return the email of the user
+     */
+    public String addUser(String name) {
+        String accessToken = "access-token-" + name;
+        String refreshToken = "refresh-token-" + name;
+        server.addUser(dataset, accessToken, refreshToken);
+
+        Preferences preferences = new Preferences();
+        preferences.setStudyOnHolyDays(true);
+        User user = new User(name + "@planit.com", accessToken, Long.MAX_VALUE, refreshToken);
+        user.setUserPreferences(preferences);
+        user.setPlanItCalendarID(dataset.getPlanItCalendarID());
+        users.put(user.getEmail(), user);
+
+        return user.getEmail();
+    }
+
+    public CalendarEngine getCalendarEngine() {
+        return calendarEngine;
+    }
+
+    public FakeGoogleCalendarServer getServer() {
+        return server;
+    }
+
+    public SyntheticDataset getDataset() {
+        return dataset;
+    }
+
+    public String getStart() {
+        return dataset.getStart().toString();
+    }
+
+    public String getEnd() {
+        return dataset.getEnd().toString();
+    }
+
+    public User getUser(String email) {
+        return users.get(email);
+    }
+
+    public Map<String, Plan> getPlans() {
+        return plans;
+    }
+
+    public Map<String, PlanPreview> getPreviews() {
+        return previews;
+    }
+
+    public Map<String, ExamIndex> getExamIndexes() {
+        return examIndexes;
+    }
+
+    /**
+     * @return the number of requests to the endpoint since the server started, e.g. "POST calendars/{id}/events"
+     */
+    public long getRequests(String endpoint) {
+        return server.getRequestsPerEndpoint().getOrDefault(endpoint, 0L);
+    }
+
+    /**
+     * @return the number of events written to the PlanIt calendars (inserted or deleted) since the server started
+     */
+    public long getPlanItWrites() {
+        return getRequests("POST calendars/{id}/events") + getRequests("DELETE calendars/{id}/events/{id}");
+    }
+
+    /**
+     * @return the events of the PlanIt calendar of the user, as Google has them now
+     */
+    public List<com.google.api.services.calendar.model.Event> getPlanItEvents(String email) {
+        User user = users.get(email);
+        return server.getEvents(user.getAccessToken(), user.getPlanItCalendarID());
+    }
+
+    @Override
+    public void close() {
+        googleIoExecutor.shutdown();
+        server.stop();
+    }}
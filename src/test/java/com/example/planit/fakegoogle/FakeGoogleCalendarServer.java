@@ -0,0 +1,732 @@
+package com.example.planit.fakegoogle;
+
+import com.example.planit.fixtures.SyntheticCalendarGenerator;
+import com.example.planit.fixtures.SyntheticDataset;
+import com.google.api.client.json.GenericJson;
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.client.util.DateTime;
+import com.google.api.services.calendar.model.*;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * an in-process fake of the Google Calendar v3 API, for end-to-end load tests of /scan and /generate.
+ * it serves the subset of the API that {@link com.example.planit.engine.CalendarEngine} uses:
+ * calendarList, events list (with sync tokens and etags)/get/insert/delete/patch, calendars get/insert, batch, freeBusy and the OAuth token refresh.
+ * the calendars are kept in memory, and each request can be delayed, failed (500) or rate limited (429) on purpose.
+ * <p>
+ * point the app at it with:
+ * --planit.google.root-url=http://localhost:8089/ --planit.google.token-server-url=http://localhost:8089/token
+ */
+public class FakeGoogleCalendarServer {
+
+    private static final Logger logger = LoggerFactory.getLogger(FakeGoogleCalendarServer.class);
+
+    private static final JsonFactory JSON_FACTORY = GsonFactory.getDefaultInstance();
+
+    private static final String SERVICE_PATH = "/calendar/v3/";
+
+    private static final String BATCH_PATH = "/batch/calendar/v3";
+
+    private static final String TOKEN_PATH = "/token";
+
+    private static final int DEFAULT_MAX_RESULTS = 250;
+
+    private static final long ACCESS_TOKEN_EXPIRATION_IN_SECONDS = 3600;
+
+    private final HttpServer server;
+
+    private final ExecutorService workers;
+
+    // access token -> the calendars of the user
+    private final Map<String, FakeUserCalendars> accessToken2User;
+
+    // refresh token -> the access token of the user
+    private final Map<String, String> refreshToken2AccessToken;
+
+    // endpoint (e.g. "GET calendars/{id}/events") -> number of requests
+    private final Map<String, LongAdder> endpoint2Requests;
+
+    private final AtomicLong nextID;
+
+    private final Random random;
+
+    private volatile long latencyInMillis;
+
+    private volatile long latencyJitterInMillis;
+
+    private volatile double errorRate;
+
+    private volatile double rateLimitRate;
+
+    private volatile int eventsPageSize = DEFAULT_MAX_RESULTS;
+
+    /**
+     * a response to a single API request
+     */
+    private record FakeResponse(int statusCode, String json) {
+    }
+
+    /**
+     * @param port the port to listen on, 0 for any free port
+     */
+    public FakeGoogleCalendarServer(int port) throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        this.workers = Executors.newCachedThreadPool();
+        this.accessToken2User = new ConcurrentHashMap<>();
+        this.refreshToken2AccessToken = new ConcurrentHashMap<>();
+        this.endpoint2Requests = new ConcurrentHashMap<>();
+        this.nextID = new AtomicLong();
+        this.random = new Random(0);
+
+        server.createContext("/", this::handle);
+        server.setExecutor(workers);
+    }
+
+    public FakeGoogleCalendarServer start() {
+        server.start();
+        return this;
+    }
+
+    public void stop() {
+        server.stop(0);
+        workers.shutdownNow();
+    }
+
+    /**
+     * @return the root URL to set in the Google client (planit.google.root-url)
+     */
+    public String getRootUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + "/";
+    }
+
+    /**
+     * @return the URL of the token server (planit.google.token-server-url)
+     */
+    public String getTokenServerUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + TOKEN_PATH;
+    }
+
+    /**
+     * delays every HTTP request by latency + a random value in [0, jitter)
+     */
+    public FakeGoogleCalendarServer setLatency(long latencyInMillis, long latencyJitterInMillis) {
+        this.latencyInMillis = latencyInMillis;
+        this.latencyJitterInMillis = latencyJitterInMillis;
+        return this;
+    }
+
+    /**
+     * @param errorRate the part of the API requests that fail with 500 (0 to 1)
+     */
+    public FakeGoogleCalendarServer setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+        return this;
+    }
+
+    /**
+     * @param rateLimitRate the part of the API requests that fail with 429 rateLimitExceeded (0 to 1)
+     */
+    public FakeGoogleCalendarServer setRateLimitRate(double rateLimitRate) {
+        this.rateLimitRate = rateLimitRate;
+        return this;
+    }
+
+    /**
+     * @param eventsPageSize the number of events in a page of a list of events, when the request has no maxResults
+     */
+    public FakeGoogleCalendarServer setEventsPageSize(int eventsPageSize) {
+        this.eventsPageSize = eventsPageSize;
+        return this;
+    }
+
+    /**
+     * adds a user with the calendars of the dataset.
+     * the user must be stored in the DB with the same access token and refresh token.
+     */
+    public FakeGoogleCalendarServer addUser(SyntheticDataset dataset, String accessToken, String refreshToken) {
+        accessToken2User.put(accessToken, new FakeUserCalendars(dataset));
+        refreshToken2AccessToken.put(refreshToken, accessToken);
+        return this;
+    }
+
+    /**
+     * @return the current events of a calendar of a user (including the events that were inserted by the app)
+     */
+    public List<Event> getEvents(String accessToken, String calendarID) {
+        return accessToken2User.get(accessToken).getEvents(calendarID, null, null, true);
+    }
+
+    /**
+     * adds (or replaces) an event of a calendar of a user, as if the user changed the calendar in Google
+     */
+    public void putEvent(String accessToken, String calendarID, Event event) {
+        accessToken2User.get(accessToken).putEvent(calendarID, event.clone());
+    }
+
+    /**
+     * deletes an event of a calendar of a user, as if the user deleted it in Google
+     */
+    public void deleteEvent(String accessToken, String calendarID, String eventID) {
+        accessToken2User.get(accessToken).deleteEvent(calendarID, eventID);
+    }
+
+    /**
+     * makes the next incremental sync of the calendars of a user fail with 410 (e.g. to test the full sync after a sync token expired)
+     */
+    public void invalidateSyncTokens(String accessToken) {
+        accessToken2User.get(accessToken).invalidateSyncTokens();
+    }
+
+    /**
+     * @return the number of requests to each endpoint since the server started
+     */
+    public Map<String, Long> getRequestsPerEndpoint() {
+        Map<String, Long> requestsPerEndpoint = new TreeMap<>();
+        endpoint2Requests.forEach((endpoint, requests) -> requestsPerEndpoint.put(endpoint, requests.sum()));
+        return requestsPerEndpoint;
+    }
+
+    /**
+     * handles a single HTTP request: the token refresh, a batch, or a single API request
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            sleepLatency();
+
+            String method = getMethod(exchange.getRequestMethod(), exchange.getRequestHeaders().getFirst("X-HTTP-Method-Override"));
+            String path = exchange.getRequestURI().getRawPath();
+            String body = readBody(exchange);
+
+            if (path.equals(TOKEN_PATH)) {
+                countRequest("POST token");
+                FakeResponse response = refreshToken(body);
+                sendResponse(exchange, response.statusCode(), "application/json; charset=UTF-8", response.json());
+                return;
+            }
+
+            // the user is identified by the access token (of the batch, or of each of its parts)
+            String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+
+            if (path.equals(BATCH_PATH)) {
+                countRequest("POST batch");
+                handleBatch(exchange, authorization, body);
+                return;
+            }
+
+            FakeResponse response = dispatch(getUser(authorization), method, exchange.getRequestURI(), body);
+            sendResponse(exchange, response.statusCode(), "application/json; charset=UTF-8", response.json());
+        } catch (RuntimeException | IOException e) {
+            logger.error("the fake Google server failed to handle {} {}", exchange.getRequestMethod(), exchange.getRequestURI(), e);
+            FakeResponse response = createError(500, "backendError", String.valueOf(e.getMessage()));
+            sendResponse(exchange, response.statusCode(), "application/json; charset=UTF-8", response.json());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * handles a single API request, and injects the configured errors
+     */
+    private FakeResponse dispatch(FakeUserCalendars user, String method, URI uri, String body) throws IOException {
+        String path = uri.getRawPath();
+
+        if (user == null) {
+            return createError(401, "authError", "Invalid Credentials");
+        }
+
+        if (!path.startsWith(SERVICE_PATH)) {
+            return createError(404, "notFound", "Not Found");
+        }
+
+        // e.g. calendars/{id}/events/{id} -> [calendars, {id}, events, {id}]
+        List<String> segments = new ArrayList<>();
+        for (String segment : path.substring(SERVICE_PATH.length()).split("/")) {
+            segments.add(URLDecoder.decode(segment, StandardCharsets.UTF_8));
+        }
+        Map<String, String> query = parseQuery(uri.getRawQuery());
+
+        String endpoint = method + " " + getEndpointPattern(segments);
+        countRequest(endpoint);
+
+        double chance = random.nextDouble();
+        if (chance < rateLimitRate) {
+            return createError(429, "rateLimitExceeded", "Rate Limit Exceeded");
+        }
+        if (chance < rateLimitRate + errorRate) {
+            return createError(500, "backendError", "Backend Error");
+        }
+
+        return switch (endpoint) {
+            case "GET users/me/calendarList" -> listCalendars(user, query);
+            case "POST calendars" -> insertCalendar(user, body);
+            case "GET calendars/{id}" -> getCalendar(user, segments.get(1));
+            case "GET calendars/{id}/events" -> listEvents(user, segments.get(1), query);
+            case "POST calendars/{id}/events" -> insertEvent(user, segments.get(1), body);
+            case "GET calendars/{id}/events/{id}" -> getEvent(user, segments.get(1), segments.get(3));
+            case "PATCH calendars/{id}/events/{id}", "PUT calendars/{id}/events/{id}" ->
+                    updateEvent(user, segments.get(1), segments.get(3), body, method.equals("PATCH"));
+            case "DELETE calendars/{id}/events/{id}" -> deleteEvent(user, segments.get(1), segments.get(3));
+            case "POST freeBusy" -> getFreeBusy(user, body);
+            default -> createError(404, "notFound", "Not Found");
+        };
+    }
+
+    /**
+     * Calendar API
+     */
+
+    private FakeResponse listCalendars(FakeUserCalendars user, Map<String, String> query) throws IOException {
+        List<CalendarListEntry> calendarList = user.getCalendarList();
+        int offset = query.containsKey("pageToken") ? Integer.parseInt(query.get("pageToken")) : 0;
+        int maxResults = query.containsKey("maxResults") ? Integer.parseInt(query.get("maxResults")) : DEFAULT_MAX_RESULTS;
+        int endOfPage = Math.min(offset + maxResults, calendarList.size());
+
+        CalendarList page = new CalendarList()
+                .setKind("calendar#calendarList")
+                .setItems(calendarList.subList(offset, endOfPage))
+                .setNextPageToken(endOfPage < calendarList.size() ? Integer.toString(endOfPage) : null);
+        return createResponse(200, page);
+    }
+
+    private FakeResponse insertCalendar(FakeUserCalendars user, String body) throws IOException {
+        com.google.api.services.calendar.model.Calendar calendar = JSON_FACTORY.fromString(body, com.google.api.services.calendar.model.Calendar.class);
+        calendar.setId("fake-" + nextID.incrementAndGet() + "@group.calendar.google.com");
+
+        user.addCalendar(new CalendarListEntry()
+                .setId(calendar.getId())
+                .setSummary(calendar.getSummary())
+                .setTimeZone(calendar.getTimeZone())
+                .setAccessRole("owner"));
+        return createResponse(200, calendar);
+    }
+
+    private FakeResponse getCalendar(FakeUserCalendars user, String calendarID) throws IOException {
+        Optional<CalendarListEntry> maybeCalendar = user.getCalendar(calendarID);
+        if (maybeCalendar.isEmpty()) {
+            return createError(404, "notFound", "Not Found");
+        }
+
+        CalendarListEntry calendar = maybeCalendar.get();
+        return createResponse(200, new com.google.api.services.calendar.model.Calendar()
+                .setKind("calendar#calendar")
+                .setId(calendar.getId())
+                .setSummary(calendar.getSummary())
+                .setTimeZone(calendar.getTimeZone()));
+    }
+
+    private FakeResponse listEvents(FakeUserCalendars user, String calendarID, Map<String, String> query) throws IOException {
+        Optional<CalendarListEntry> maybeCalendar = user.getCalendar(calendarID);
+        if (maybeCalendar.isEmpty()) {
+            return createError(404, "notFound", "Not Found");
+        }
+
+        // an incremental sync lists the changed events (with the deleted ones) and ignores the time interval, as Google does
+        String syncToken = user.getSyncToken();
+        List<Event> events;
+        if (query.containsKey("syncToken")) {
+            Optional<List<Event>> maybeChangedEvents = user.getChangedEvents(calendarID, query.get("syncToken"));
+            if (maybeChangedEvents.isEmpty()) {
+                return createError(410, "fullSyncRequired", "Sync token is no longer valid, a full sync is required.");
+            }
+            events = maybeChangedEvents.get();
+        } else {
+            Long timeMin = query.containsKey("timeMin") ? DateTime.parseRfc3339(query.get("timeMin")).getValue() : null;
+            Long timeMax = query.containsKey("timeMax") ? DateTime.parseRfc3339(query.get("timeMax")).getValue() : null;
+            boolean isSingleEvents = Boolean.parseBoolean(query.get("singleEvents"));
+            events = user.getEvents(calendarID, timeMin, timeMax, isSingleEvents);
+        }
+
+        int offset = query.containsKey("pageToken") ? Integer.parseInt(query.get("pageToken")) : 0;
+        int maxResults = query.containsKey("maxResults") ? Integer.parseInt(query.get("maxResults")) : eventsPageSize;
+        int endOfPage = Math.min(offset + maxResults, events.size());
+
+        Events page = new Events()
+                .setKind("calendar#events")
+                .setSummary(maybeCalendar.get().getSummary())
+                .setTimeZone(maybeCalendar.get().getTimeZone())
+                .setItems(events.subList(offset, endOfPage))
+                .setNextPageToken(endOfPage < events.size() ? Integer.toString(endOfPage) : null)
+                .setNextSyncToken(endOfPage < events.size() ? null : syncToken);
+        return createResponse(200, query.containsKey("fields") ? selectFields(page, query.get("fields")) : page);
+    }
+
+    /**
+     * a partial response, as Google sends it: only the fields of the page and of its items that are in the mask,
+     * e.g. "nextPageToken,items(id,summary,start)". only the top level fields of the items are selected.
+     */
+    private static Events selectFields(Events page, String fields) {
+        Set<String> pageFields = new HashSet<>();
+        Set<String> itemFields = new HashSet<>();
+        int itemsStart = fields.indexOf("items(");
+        if (itemsStart >= 0) {
+            int itemsEnd = fields.indexOf(')', itemsStart);
+            itemFields.addAll(Arrays.asList(fields.substring(itemsStart + "items(".length(), itemsEnd).split(",")));
+            fields = fields.substring(0, itemsStart) + "items" + fields.substring(itemsEnd + 1);
+        }
+        pageFields.addAll(Arrays.asList(fields.split(",")));
+
+        Events partialPage = new Events();
+        for (String field : pageFields) {
+            if (!field.equals("items") && page.get(field) != null) {
+                partialPage.set(field, page.get(field));
+            }
+        }
+        if (pageFields.contains("items")) {
+            List<Event> partialItems = new ArrayList<>();
+            for (Event event : page.getItems()) {
+                Event partialEvent = new Event();
+                for (String field : itemFields) {
+                    if (event.get(field) != null) {
+                        partialEvent.set(field, event.get(field));
+                    }
+                }
+                partialItems.add(partialEvent);
+            }
+            partialPage.setItems(partialItems);
+        }
+
+        return partialPage;
+    }
+
+    private FakeResponse insertEvent(FakeUserCalendars user, String calendarID, String body) throws IOException {
+        if (user.getCalendar(calendarID).isEmpty()) {
+            return createError(404, "notFound", "Not Found");
+        }
+
+        Event event = JSON_FACTORY.fromString(body, Event.class)
+                .setId(String.format("fk%010d", nextID.incrementAndGet()))
+                .setStatus("confirmed")
+                .setUpdated(new DateTime(System.currentTimeMillis()));
+        user.putEvent(calendarID, event);
+        return createResponse(200, event);
+    }
+
+    private FakeResponse getEvent(FakeUserCalendars user, String calendarID, String eventID) throws IOException {
+        if (user.getCalendar(calendarID).isEmpty()) {
+            return createError(404, "notFound", "Not Found");
+        }
+
+        Optional<Event> maybeEvent = user.getEvent(calendarID, eventID);
+        return maybeEvent.isPresent() ? createResponse(200, maybeEvent.get()) : createError(404, "notFound", "Not Found");
+    }
+
+    /**
+     * @param isPatch true to update only the fields of the body (PATCH), false to replace the event (PUT)
+     */
+    private FakeResponse updateEvent(FakeUserCalendars user, String calendarID, String eventID, String body, boolean isPatch) throws IOException {
+        if (user.getCalendar(calendarID).isEmpty()) {
+            return createError(404, "notFound", "Not Found");
+        }
+
+        Optional<Event> maybeEvent = user.getEvent(calendarID, eventID);
+        if (maybeEvent.isEmpty()) {
+            return createError(404, "notFound", "Not Found");
+        }
+
+        // the stored event is replaced, and not changed in place, since it may be serialized by another thread
+        Event changes = JSON_FACTORY.fromString(body, Event.class);
+        Event updatedEvent = isPatch ? maybeEvent.get().clone() : new Event();
+        for (Map.Entry<String, Object> field : changes.entrySet()) {
+            updatedEvent.set(field.getKey(), field.getValue());
+        }
+        updatedEvent.setId(eventID).setUpdated(new DateTime(System.currentTimeMillis()));
+
+        user.putEvent(calendarID, updatedEvent);
+        return createResponse(200, updatedEvent);
+    }
+
+    private FakeResponse deleteEvent(FakeUserCalendars user, String calendarID, String eventID) {
+        if (user.getCalendar(calendarID).isEmpty() || !user.deleteEvent(calendarID, eventID)) {
+            return createError(404, "notFound", "Not Found");
+        }
+        return new FakeResponse(204, null);
+    }
+
+    /**
+     * the busy intervals of the requested calendars (every event is busy, there are no transparent events)
+     */
+    private FakeResponse getFreeBusy(FakeUserCalendars user, String body) throws IOException {
+        FreeBusyRequest request = JSON_FACTORY.fromString(body, FreeBusyRequest.class);
+        long timeMin = request.getTimeMin().getValue();
+        long timeMax = request.getTimeMax().getValue();
+
+        Map<String, FreeBusyCalendar> calendars = new HashMap<>();
+        for (FreeBusyRequestItem item : request.getItems()) {
+            List<TimePeriod> busy = new ArrayList<>();
+
+            if (user.getCalendar(item.getId()).isPresent()) {
+                for (Event event : user.getEvents(item.getId(), timeMin, timeMax, true)) {
+                    busy.add(new TimePeriod()
+                            .setStart(new DateTime(Math.max(FakeUserCalendars.getStartInMillis(event), timeMin)))
+                            .setEnd(new DateTime(Math.min(FakeUserCalendars.getEndInMillis(event), timeMax))));
+                }
+            }
+            calendars.put(item.getId(), new FreeBusyCalendar().setBusy(busy));
+        }
+
+        return createResponse(200, new FreeBusyResponse()
+                .setKind("calendar#freeBusy")
+                .setTimeMin(request.getTimeMin())
+                .setTimeMax(request.getTimeMax())
+                .setCalendars(calendars));
+    }
+
+    /**
+     * OAuth
+     */
+
+    /**
+     * gives the registered access token of the user, for its refresh token
+     */
+    private FakeResponse refreshToken(String body) throws IOException {
+        String accessToken = refreshToken2AccessToken.get(parseQuery(body).get("refresh_token"));
+
+        if (accessToken == null) {
+            GenericJson error = new GenericJson();
+            error.put("error", "invalid_grant");
+            return new FakeResponse(400, JSON_FACTORY.toString(error));
+        }
+
+        GenericJson tokenResponse = new GenericJson();
+        tokenResponse.put("access_token", accessToken);
+        tokenResponse.put("expires_in", ACCESS_TOKEN_EXPIRATION_IN_SECONDS);
+        tokenResponse.put("token_type", "Bearer");
+        return new FakeResponse(200, JSON_FACTORY.toString(tokenResponse));
+    }
+
+    /**
+     * Batch
+     */
+
+    /**
+     * handles a multipart/mixed batch, each part is an API request and gets its own response part (in the same order)
+     */
+    private void handleBatch(HttpExchange exchange, String batchAuthorization, String body) throws IOException {
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        String boundary = contentType.substring(contentType.indexOf("boundary=") + "boundary=".length()).replace("\"", "");
+        String responseBoundary = "batch_" + nextID.incrementAndGet();
+
+        StringBuilder responseBody = new StringBuilder();
+        int partNumber = 0;
+
+        for (String part : body.split("--" + java.util.regex.Pattern.quote(boundary))) {
+
+            // skips the preamble and the closing "--"
+            if (part.isBlank() || part.startsWith("--")) {
+                continue;
+            }
+            partNumber++;
+
+            // a part has its own headers, then the HTTP request: a request line, headers and a body
+            String[] partSections = part.split("\r\n\r\n", 3);
+            String[] requestLines = partSections[1].split("\r\n");
+            String[] requestLine = requestLines[0].trim().split(" ");
+            String requestBody = partSections.length > 2 ? partSections[2].strip() : "";
+
+            String method = requestLine[0];
+            String authorization = batchAuthorization;
+            for (String header : requestLines) {
+                String headerValue = header.substring(header.indexOf(':') + 1).trim();
+                if (header.toLowerCase().startsWith("x-http-method-override:")) {
+                    method = headerValue;
+                } else if (header.toLowerCase().startsWith("authorization:")) {
+                    authorization = headerValue;
+                }
+            }
+
+            FakeResponse response = dispatch(getUser(authorization), method, URI.create(requestLine[1]), requestBody);
+
+            responseBody.append("--").append(responseBoundary).append("\r\n")
+                    .append("Content-Type: application/http\r\n")
+                    .append("Content-ID: response-").append(partNumber).append("\r\n\r\n")
+                    .append("HTTP/1.1 ").append(response.statusCode()).append(" ").append(getReasonPhrase(response.statusCode())).append("\r\n");
+            if (response.json() != null) {
+                byte[] json = response.json().getBytes(StandardCharsets.UTF_8);
+                responseBody.append("Content-Type: application/json; charset=UTF-8\r\n")
+                        .append("Content-Length: ").append(json.length).append("\r\n\r\n")
+                        .append(response.json()).append("\r\n");
+            } else {
+                responseBody.append("\r\n");
+            }
+        }
+        responseBody.append("--").append(responseBoundary).append("--\r\n");
+
+        sendResponse(exchange, 200, "multipart/mixed; boundary=" + responseBoundary, responseBody.toString());
+    }
+
+    /**
+     * Utilities
+     */
+
+    private FakeUserCalendars getUser(String authorization) {
+        if (authorization == null || !authorization.startsWith("Bearer ")) {
+            return null;
+        }
+        return accessToken2User.get(authorization.substring("Bearer ".length()));
+    }
+
+    private void sleepLatency() {
+        long jitter = latencyJitterInMillis > 0 ? (long) (random.nextDouble() * latencyJitterInMillis) : 0;
+        if (latencyInMillis + jitter > 0) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(latencyInMillis + jitter);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * the Google client compresses the content of its requests with gzip
+     */
+    private static String readBody(HttpExchange exchange) throws IOException {
+        InputStream requestBody = exchange.getRequestBody();
+        if ("gzip".equalsIgnoreCase(exchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+            requestBody = new GZIPInputStream(requestBody);
+        }
+        return new String(requestBody.readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    private void countRequest(String endpoint) {
+        endpoint2Requests.computeIfAbsent(endpoint, key -> new LongAdder()).increment();
+    }
+
+    /**
+     * the Google client sends PATCH as a POST with the X-HTTP-Method-Override header
+     */
+    private static String getMethod(String method, String methodOverride) {
+        return methodOverride != null ? methodOverride.toUpperCase() : method.toUpperCase();
+    }
+
+    /**
+     * replaces the IDs in the path with {id}, e.g. [calendars, abc, events] -> "calendars/{id}/events"
+     */
+    private static String getEndpointPattern(List<String> segments) {
+        if (segments.size() >= 1 && segments.get(0).equals("users")) {
+            return String.join("/", segments);
+        }
+
+        StringJoiner pattern = new StringJoiner("/");
+        for (int i = 0; i < segments.size(); i++) {
+            pattern.add(i % 2 == 0 ? segments.get(i) : "{id}");
+        }
+        return pattern.toString();
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> parameters = new HashMap<>();
+        if (query == null || query.isBlank()) {
+            return parameters;
+        }
+
+        for (String parameter : query.split("&")) {
+            int indexOfEquals = parameter.indexOf('=');
+            if (indexOfEquals > 0) {
+                parameters.put(URLDecoder.decode(parameter.substring(0, indexOfEquals), StandardCharsets.UTF_8),
+                        URLDecoder.decode(parameter.substring(indexOfEquals + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return parameters;
+    }
+
+    private static FakeResponse createResponse(int statusCode, Object content) throws IOException {
+        return new FakeResponse(statusCode, JSON_FACTORY.toString(content));
+    }
+
+    /**
+     * an error in the format of the Google APIs, e.g. {"error": {"code": 429, "message": "...", "errors": [{"reason": "rateLimitExceeded"}]}}
+     */
+    private static FakeResponse createError(int statusCode, String reason, String message) {
+        GenericJson errorItem = new GenericJson();
+        errorItem.put("domain", "global");
+        errorItem.put("reason", reason);
+        errorItem.put("message", message);
+
+        GenericJson error = new GenericJson();
+        error.put("code", statusCode);
+        error.put("message", message);
+        error.put("errors", List.of(errorItem));
+
+        GenericJson response = new GenericJson();
+        response.put("error", error);
+
+        try {
+            return new FakeResponse(statusCode, JSON_FACTORY.toString(response));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String getReasonPhrase(int statusCode) {
+        return switch (statusCode) {
+            case 200 -> "OK";
+            case 204 -> "No Content";
+            case 401 -> "Unauthorized";
+            case 404 -> "Not Found";
+            case 410 -> "Gone";
+            case 429 -> "Too Many Requests";
+            default -> "Internal Server Error";
+        };
+    }
+
+    private static void sendResponse(HttpExchange exchange, int statusCode, String contentType, String body) throws IOException {
+        if (body == null) {
+            exchange.sendResponseHeaders(statusCode, -1);
+            return;
+        }
+
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(statusCode, bytes.length);
+        try (OutputStream responseBody = exchange.getResponseBody()) {
+            responseBody.write(bytes);
+        }
+    }
+
+    /**
+     * starts a standalone fake Google with synthetic users, for a load test of a running app.
+     * the users are student{i}@planit.com with the tokens access-token-{i} and refresh-token-{i}.
+     * <p>
+     * args: [port (8089)] [number of users (100)] [latency in millis (50)] [jitter in millis (100)] [error rate (0)] [rate limit rate (0)]
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8089;
+        int numberOfUsers = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+
+        FakeGoogleCalendarServer server = new FakeGoogleCalendarServer(port)
+                .setLatency(args.length > 2 ? Long.parseLong(args[2]) : 50, args.length > 3 ? Long.parseLong(args[3]) : 100)
+                .setErrorRate(args.length > 4 ? Double.parseDouble(args[4]) : 0)
+                .setRateLimitRate(args.length > 5 ? Double.parseDouble(args[5]) : 0);
+
+        for (int i = 0; i < numberOfUsers; i++) {
+            SyntheticDataset dataset = new SyntheticCalendarGenerator(i).setEmail("student" + i + "@planit.com").generate();
+            server.addUser(dataset, "access-token-" + i, "refresh-token-" + i);
+        }
+
+        server.start();
+        System.out.println("fake Google is listening with " + numberOfUsers + " users: --planit.google.root-url=" + server.getRootUrl()
+                + " --planit.google.token-server-url=" + server.getTokenServerUrl());
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> System.out.println("requests per endpoint: " + server.getRequestsPerEndpoint())));
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.planit.fakegoogle;
+
+import com.example.planit.fixtures.SyntheticDataset;
+import com.google.api.services.calendar.model.CalendarListEntry;
+import com.google.api.services.calendar.model.Event;
+import com.google.api.services.calendar.model.EventDateTime;
+
+import java.util.*;
+
+/**
+ * the in-memory calendars of a single user of {@link FakeGoogleCalendarServer}.
+ * every method is synchronized, since the same user can be served by many threads at the same time.
+ */
+class FakeUserCalendars {
+
+    private final String email;
+
+    // calendar ID -> the calendar, in the order of the calendar list
+    private final Map<String, CalendarListEntry> calendarID2Calendar;
+
+    // calendar ID -> event ID -> the single events of the calendar (recurring events are expanded)
+    private final Map<String, Map<String, Event>> calendarID2Events;
+
+    // calendar ID -> event ID -> the recurring events of the calendar (with their RRULE)
+    private final Map<String, Map<String, Event>> calendarID2RecurringEvents;
+
+    // calendar ID -> event ID -> the deleted single events of the calendar, listed as cancelled events by an incremental sync
+    private final Map<String, Map<String, Event>> calendarID2DeletedEvents;
+
+    // the number of the last change of the events of the user, it is the etag of the changed event and the sync token of a list of the events
+    private long lastChangeNumber;
+
+    // the sync tokens of older changes are rejected (410), as Google does when a sync token expires
+    private long minValidSyncToken;
+
+    FakeUserCalendars(SyntheticDataset dataset) {
+        this.email = dataset.getEmail();
+        this.calendarID2Calendar = new LinkedHashMap<>();
+        this.calendarID2Events = new HashMap<>();
+        this.calendarID2RecurringEvents = new HashMap<>();
+        this.calendarID2DeletedEvents = new HashMap<>();
+
+        for (CalendarListEntry calendar : dataset.getCalendarList()) {
+            addCalendar(calendar.clone());
+            for (Event event : dataset.getCalendarID2Events().get(calendar.getId())) {
+                calendarID2Events.get(calendar.getId()).put(event.getId(), event.clone().setEtag(toEtag(++lastChangeNumber)));
+            }
+        }
+
+        dataset.getCalendarID2RecurringEvents().forEach((calendarID, recurringEvents) -> {
+            for (Event recurringEvent : recurringEvents) {
+                calendarID2RecurringEvents.get(calendarID).put(recurringEvent.getId(), recurringEvent.clone());
+            }
+        });
+    }
+
+    String getEmail() {
+        return email;
+    }
+
+    synchronized List<CalendarListEntry> getCalendarList() {
+        return new ArrayList<>(calendarID2Calendar.values());
+    }
+
+    synchronized Optional<CalendarListEntry> getCalendar(String calendarID) {
+        return Optional.ofNullable(calendarID2Calendar.get(calendarID));
+    }
+
+    synchronized void addCalendar(CalendarListEntry calendar) {
+        calendarID2Calendar.put(calendar.getId(), calendar);
+        calendarID2Events.put(calendar.getId(), new LinkedHashMap<>());
+        calendarID2RecurringEvents.put(calendar.getId(), new LinkedHashMap<>());
+        calendarID2DeletedEvents.put(calendar.getId(), new LinkedHashMap<>());
+    }
+
+    /**
+     * @param isSingleEvents true to get the instances of the recurring events, false to get the recurring events themselves
+     * @return the events of the calendar that overlap [timeMin, timeMax), sorted by start time
+     */
+    synchronized List<Event> getEvents(String calendarID, Long timeMin, Long timeMax, boolean isSingleEvents) {
+        List<Event> events = new ArrayList<>();
+
+        for (Event event : calendarID2Events.get(calendarID).values()) {
+            // the instances of a recurring event are listed only with singleEvents=true
+            if (!isSingleEvents && event.getRecurringEventId() != null) {
+                continue;
+            }
+            if ((timeMin == null || getEndInMillis(event) > timeMin) && (timeMax == null || getStartInMillis(event) < timeMax)) {
+                events.add(event);
+            }
+        }
+
+        if (!isSingleEvents) {
+            events.addAll(calendarID2RecurringEvents.get(calendarID).values());
+        }
+
+        events.sort(Comparator.comparingLong(FakeUserCalendars::getStartInMillis));
+        return events;
+    }
+
+    /**
+     * @param syncToken the sync token of a previous list of the events
+     * @return the single events of the calendar that changed after the sync token (deleted events are cancelled), or empty if the sync token is not valid
+     */
+    synchronized Optional<List<Event>> getChangedEvents(String calendarID, String syncToken) {
+        long changeNumber;
+        try {
+            changeNumber = Long.parseLong(syncToken);
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+        if (changeNumber < minValidSyncToken || changeNumber > lastChangeNumber) {
+            return Optional.empty();
+        }
+
+        List<Event> changedEvents = new ArrayList<>();
+        for (Event event : calendarID2Events.get(calendarID).values()) {
+            if (getChangeNumber(event) > changeNumber) {
+                changedEvents.add(event);
+            }
+        }
+        for (Event deletedEvent : calendarID2DeletedEvents.get(calendarID).values()) {
+            if (getChangeNumber(deletedEvent) > changeNumber) {
+                changedEvents.add(deletedEvent);
+            }
+        }
+
+        changedEvents.sort(Comparator.comparingLong(FakeUserCalendars::getChangeNumber));
+        return Optional.of(changedEvents);
+    }
+
+    /**
+     * @return the sync token of the current events of the user
+     */
+    synchronized String getSyncToken() {
+        return Long.toString(lastChangeNumber);
+    }
+
+    /**
+     * makes the next incremental sync of every calendar of the user fail with 410, so a full sync is needed
+     */
+    synchronized void invalidateSyncTokens() {
+        minValidSyncToken = lastChangeNumber + 1;
+    }
+
+    synchronized Optional<Event> getEvent(String calendarID, String eventID) {
+        return Optional.ofNullable(calendarID2Events.get(calendarID).get(eventID));
+    }
+
+    synchronized void putEvent(String calendarID, Event event) {
+        calendarID2DeletedEvents.get(calendarID).remove(event.getId());
+        calendarID2Events.get(calendarID).put(event.getId(), event.setEtag(toEtag(++lastChangeNumber)));
+    }
+
+    /**
+     * @return true if the event was deleted, false if it was not found
+     */
+    synchronized boolean deleteEvent(String calendarID, String eventID) {
+        Event deletedEvent = calendarID2Events.get(calendarID).remove(eventID);
+        if (deletedEvent == null) {
+            return false;
+        }
+
+        calendarID2DeletedEvents.get(calendarID).put(eventID, new Event().setId(eventID).setStatus("cancelled").setEtag(toEtag(++lastChangeNumber)));
+        return true;
+    }
+
+    static long getStartInMillis(Event event) {
+        return toMillis(event.getStart());
+    }
+
+    static long getEndInMillis(Event event) {
+        return toMillis(event.getEnd());
+    }
+
+    private static String toEtag(long changeNumber) {
+        return "\"" + changeNumber + "\"";
+    }
+
+    private static long getChangeNumber(Event event) {
+        return Long.parseLong(event.getEtag().substring(1, event.getEtag().length() - 1));
+    }
+
+    /**
+     * full day events have a date, and other events have a date-time
+     */
+    private static long toMillis(EventDateTime eventDateTime) {
+        return eventDateTime.getDateTime() != null ? eventDateTime.getDateTime().getValue() : eventDateTime.getDate().getValue();
+    }
+}
@@ -0,0 +1,349 @@
+package com.example.planit.fixtures;
+
+import com.example.planit.model.exam.Exam;
+import com.example.planit.model.mongo.course.Course;
+import com.google.api.client.util.DateTime;
+import com.google.api.services.calendar.model.CalendarListEntry;
+import com.google.api.services.calendar.model.Event;
+import com.google.api.services.calendar.model.EventDateTime;
+
+import java.time.*;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+import static com.example.planit.utill.Constants.*;
+
+/**
+ * generates a reproducible synthetic user: a week of classes that repeats, one-time events, full day holidays,
+ * an exams calendar with exams of courses from the catalog, and a PlanIt calendar with stale study sessions.
+ * the same seed and the same scale always generate the same dataset, so it can be shared by the benchmarks and the load tests.
+ * <p>
+ * e.g. new SyntheticCalendarGenerator(7).setNumberOfDays(120).setNumberOfExams(6).generate()
+ */
+public class SyntheticCalendarGenerator {
+
+    private static final ZoneId ZONE = ZoneId.of(ISRAEL_TIME_ZONE);
+
+    private static final DateTimeFormatter RRULE_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+
+    private static final String EXAM_SUMMERY_FORMAT = EXAM_SUMMERY_KEYWORD + " מועד 1 ציון בחינה - פרונטלי %s";
+
+    private static final String[] COURSES_NAMES = {"חישוביות", "מבני נתונים", "אלגוריתמים 1", "מערכות הפעלה", "תכנות מונחה עצמים",
+            "אלגברה לינארית", "חדו\"א 1", "מתמטיקה בדידה", "רשתות תקשורת", "מסדי נתונים", "הסתברות", "קומפילציה"};
+
+    private final long seed;
+
+    private String email = "student@planit.com";
+
+    private LocalDate startDate = LocalDate.of(2023, 6, 4);
+
+    private int numberOfDays = 60;
+
+    private int numberOfPersonalCalendars = 2;
+
+    private int numberOfWeeklyClasses = 12;
+
+    private int numberOfEventsPerCalendar = 40;
+
+    private int numberOfCourses = 20;
+
+    private int numberOfExams = 4;
+
+    private int numberOfHolidays = 2;
+
+    private int numberOfStalePlanItEvents = 30;
+
+    private boolean isPlanItCalendarGenerated = true;
+
+    private Random random;
+
+    private int nextEventNumber;
+
+    /**
+     * @param seed the seed of the random values, the same seed generates the same dataset
+     */
+    public SyntheticCalendarGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    public SyntheticCalendarGenerator setEmail(String email) {
+        this.email = email;
+        return this;
+    }
+
+    public SyntheticCalendarGenerator setStartDate(LocalDate startDate) {
+        this.startDate = startDate;
+        return this;
+    }
+
+    public SyntheticCalendarGenerator setNumberOfDays(int numberOfDays) {
+        this.numberOfDays = numberOfDays;
+        return this;
+    }
+
+    public SyntheticCalendarGenerator setNumberOfPersonalCalendars(int numberOfPersonalCalendars) {
+        this.numberOfPersonalCalendars = numberOfPersonalCalendars;
+        return this;
+    }
+
+    public SyntheticCalendarGenerator setNumberOfWeeklyClasses(int numberOfWeeklyClasses) {
+        this.numberOfWeeklyClasses = numberOfWeeklyClasses;
+        return this;
+    }
+
+    public SyntheticCalendarGenerator setNumberOfEventsPerCalendar(int numberOfEventsPerCalendar) {
+        this.numberOfEventsPerCalendar = numberOfEventsPerCalendar;
+        return this;
+    }
+
+    public SyntheticCalendarGenerator setNumberOfCourses(int numberOfCourses) {
+        this.numberOfCourses = numberOfCourses;
+        return this;
+    }
+
+    public SyntheticCalendarGenerator setNumberOfExams(int numberOfExams) {
+        this.numberOfExams = numberOfExams;
+        return this;
+    }
+
+    public SyntheticCalendarGenerator setNumberOfHolidays(int numberOfHolidays) {
+        this.numberOfHolidays = numberOfHolidays;
+        return this;
+    }
+
+    public SyntheticCalendarGenerator setNumberOfStalePlanItEvents(int numberOfStalePlanItEvents) {
+        this.numberOfStalePlanItEvents = numberOfStalePlanItEvents;
+        return this;
+    }
+
+    public SyntheticCalendarGenerator setPlanItCalendarGenerated(boolean isPlanItCalendarGenerated) {
+        this.isPlanItCalendarGenerated = isPlanItCalendarGenerated;
+        return this;
+    }
+
+    /**
+     * @return a new dataset, generated from the seed
+     */
+    public SyntheticDataset generate() {
+        random = new Random(seed);
+        nextEventNumber = 0;
+
+        Instant start = startDate.atStartOfDay(ZONE).toInstant();
+        Instant end = startDate.plusDays(numberOfDays).atStartOfDay(ZONE).toInstant();
+
+        // the exams are in the last third of the window, and the other events are before them
+        int firstExamDay = numberOfDays * 2 / 3;
+
+        List<CalendarListEntry> calendarList = new ArrayList<>();
+        Map<String, List<Event>> calendarID2Events = new LinkedHashMap<>();
+        Map<String, List<Event>> calendarID2RecurringEvents = new LinkedHashMap<>();
+
+        List<Course> courses = generateCourses();
+
+        // the primary calendar has one-time events and the holidays
+        Set<String> holidaysDates = new TreeSet<>();
+        List<Event> primaryEvents = generateOneTimeEvents(firstExamDay);
+        primaryEvents.addAll(generateHolidays(firstExamDay, holidaysDates));
+        addCalendar(calendarList, calendarID2Events, new CalendarListEntry().setId(email).setSummary(email).setPrimary(true), primaryEvents);
+
+        // the classes calendar has a week of classes that repeats until the exams period
+        Instant endOfClasses = startDate.plusDays(firstExamDay).atStartOfDay(ZONE).toInstant();
+        List<Event> recurringClasses = generateWeeklyClasses(courses, endOfClasses);
+        String classesCalendarID = "classes-" + seed + "@group.calendar.google.com";
+        addCalendar(calendarList, calendarID2Events, new CalendarListEntry().setId(classesCalendarID).setSummary("מערכת שעות"),
+                expandWeeklyClasses(recurringClasses, endOfClasses));
+        calendarID2RecurringEvents.put(classesCalendarID, recurringClasses);
+
+        for (int i = 0; i < numberOfPersonalCalendars; i++) {
+            addCalendar(calendarList, calendarID2Events,
+                    new CalendarListEntry().setId("personal-" + seed + "-" + i + "@group.calendar.google.com").setSummary("calendar " + i),
+                    generateOneTimeEvents(firstExamDay));
+        }
+
+        List<Exam> exams = new ArrayList<>();
+        addCalendar(calendarList, calendarID2Events,
+                new CalendarListEntry().setId("exams-" + seed + "@group.calendar.google.com").setSummary(EXAMS_CALENDAR_SUMMERY_NAME),
+                generateExams(courses, firstExamDay, exams));
+
+        if (isPlanItCalendarGenerated) {
+            addCalendar(calendarList, calendarID2Events,
+                    new CalendarListEntry().setId("planit-" + seed + "@group.calendar.google.com").setSummary(PLANIT_CALENDAR_SUMMERY_NAME),
+                    generateStalePlanItEvents(exams, firstExamDay));
+        }
+
+        calendarID2Events.values().forEach(events -> events.sort(Comparator.comparingLong(SyntheticCalendarGenerator::getStartInMillis)));
+
+        return new SyntheticDataset(email, start, end, calendarList, calendarID2Events, calendarID2RecurringEvents, courses, exams, holidaysDates);
+    }
+
+    /**
+     * the courses catalog, with a different content for each course
+     */
+    private List<Course> generateCourses() {
+        List<Course> courses = new ArrayList<>();
+
+        for (int i = 0; i < numberOfCourses; i++) {
+            String courseName = i < COURSES_NAMES.length ? COURSES_NAMES[i] : COURSES_NAMES[i % COURSES_NAMES.length] + " " + (i / COURSES_NAMES.length + 1);
+
+            String[] subjects = new String[4 + random.nextInt(9)];
+            for (int j = 0; j < subjects.length; j++) {
+                subjects[j] = "נושא " + (j + 1);
+            }
+
+            courses.add(new Course(courseName, 1 + random.nextInt(5), 2 + random.nextInt(4), 2 + random.nextInt(6), subjects, 40 + random.nextInt(5) * 10));
+        }
+
+        return courses;
+    }
+
+    /**
+     * one-time events in the days before the first exam, between 08:00 and 22:00
+     */
+    private List<Event> generateOneTimeEvents(int lastDay) {
+        List<Event> events = new ArrayList<>();
+
+        for (int i = 0; i < numberOfEventsPerCalendar; i++) {
+            ZonedDateTime startOfEvent = startDate.plusDays(random.nextInt(lastDay)).atTime(8, 0).atZone(ZONE)
+                    .plusMinutes(random.nextInt(12 * 4) * 15L);
+            ZonedDateTime endOfEvent = startOfEvent.plusMinutes(30 + random.nextInt(7) * 15L);
+
+            events.add(createTimedEvent(nextEventID(), "event " + i, startOfEvent, endOfEvent));
+        }
+
+        return events;
+    }
+
+    /**
+     * full day events on random days, their dates are the known holidays
+     */
+    private List<Event> generateHolidays(int lastDay, Set<String> holidaysDates) {
+        List<Event> holidays = new ArrayList<>();
+
+        for (int i = 0; i < numberOfHolidays; i++) {
+            LocalDate date = startDate.plusDays(random.nextInt(lastDay));
+            holidaysDates.add(date.toString());
+
+            holidays.add(new Event()
+                    .setId(nextEventID())
+                    .setSummary("חג " + (i + 1))
+                    .setStart(new EventDateTime().setDate(new DateTime(date.toString())))
+                    .setEnd(new EventDateTime().setDate(new DateTime(date.plusDays(1).toString()))));
+        }
+
+        return holidays;
+    }
+
+    /**
+     * the recurring classes, on Sunday to Thursday between 08:00 and 20:00, as they are stored in Google
+     */
+    private List<Event> generateWeeklyClasses(List<Course> courses, Instant endOfClasses) {
+        List<Event> classes = new ArrayList<>();
+        String until = RRULE_TIME_FORMAT.format(endOfClasses);
+
+        for (int i = 0; i < numberOfWeeklyClasses; i++) {
+            LocalDate firstDate = startDate.plusDays(random.nextInt(5));
+            ZonedDateTime startOfClass = firstDate.atTime(8 + random.nextInt(10), random.nextBoolean() ? 0 : 30).atZone(ZONE);
+            ZonedDateTime endOfClass = startOfClass.plusMinutes(60 + random.nextInt(3) * 30L);
+            String summary = "הרצאה - " + courses.get(random.nextInt(courses.size())).getCourseName();
+
+            classes.add(createTimedEvent(nextEventID(), summary, startOfClass, endOfClass)
+                    .setRecurrence(new ArrayList<>(List.of("RRULE:FREQ=WEEKLY;UNTIL=" + until))));
+        }
+
+        return classes;
+    }
+
+    /**
+     * expands the recurring classes to their instances, as Google lists them with singleEvents=true
+     */
+    private List<Event> expandWeeklyClasses(List<Event> recurringClasses, Instant endOfClasses) {
+        List<Event> instances = new ArrayList<>();
+
+        for (Event recurringClass : recurringClasses) {
+            ZonedDateTime startOfInstance = Instant.ofEpochMilli(getStartInMillis(recurringClass)).atZone(ZONE);
+            Duration duration = Duration.ofMillis(recurringClass.getEnd().getDateTime().getValue() - getStartInMillis(recurringClass));
+
+            while (startOfInstance.toInstant().isBefore(endOfClasses)) {
+                String instanceID = recurringClass.getId() + "_" + RRULE_TIME_FORMAT.format(startOfInstance);
+
+                instances.add(createTimedEvent(instanceID, recurringClass.getSummary(), startOfInstance, startOfInstance.plus(duration))
+                        .setRecurringEventId(recurringClass.getId())
+                        .setOriginalStartTime(toEventDateTime(startOfInstance)));
+
+                startOfInstance = startOfInstance.plusWeeks(1);
+            }
+        }
+
+        return instances;
+    }
+
+    /**
+     * the exams of random courses, spread over the last third of the window.
+     * every exam has an assignment event next to it, that is not an exam.
+     */
+    private List<Event> generateExams(List<Course> courses, int firstExamDay, List<Exam> exams) {
+        List<Event> events = new ArrayList<>();
+        List<Course> examsCourses = new ArrayList<>(courses);
+        Collections.shuffle(examsCourses, random);
+
+        for (int i = 0; i < numberOfExams; i++) {
+            Course course = examsCourses.get(i % examsCourses.size());
+            int examDay = firstExamDay + (numberOfDays - firstExamDay) * i / Math.max(numberOfExams, 1);
+            ZonedDateTime startOfExam = startDate.plusDays(examDay).atTime(9, 0).atZone(ZONE);
+
+            events.add(createTimedEvent(nextEventID(), String.format(EXAM_SUMMERY_FORMAT, course.getCourseName()), startOfExam, startOfExam.plusHours(3)));
+            events.add(createTimedEvent(nextEventID(), "הגשת עבודה - " + course.getCourseName(), startOfExam.minusDays(1), startOfExam.minusDays(1).plusHours(1)));
+
+            exams.add(new Exam(course, new DateTime(startOfExam.toInstant().toEpochMilli())));
+        }
+
+        return events;
+    }
+
+    /**
+     * study sessions from an older plan, that do not match the user's current calendar
+     */
+    private List<Event> generateStalePlanItEvents(List<Exam> exams, int lastDay) {
+        List<Event> events = new ArrayList<>();
+
+        for (int i = 0; exams.size() > 0 && i < numberOfStalePlanItEvents; i++) {
+            Exam exam = exams.get(random.nextInt(exams.size()));
+            ZonedDateTime startOfSession = startDate.plusDays(random.nextInt(lastDay)).atTime(8 + random.nextInt(12), 0).atZone(ZONE);
+
+            events.add(createTimedEvent(nextEventID(), EVENT_SUMMERY_PREFIX + exam.getCourse().getCourseName(), startOfSession, startOfSession.plusHours(2))
+                    .setDescription(EVENT_DESCRIPTION_PRACTISE_PREV_EXAMS));
+        }
+
+        return events;
+    }
+
+    private static void addCalendar(List<CalendarListEntry> calendarList, Map<String, List<Event>> calendarID2Events, CalendarListEntry calendar, List<Event> events) {
+        calendarList.add(calendar.setTimeZone(ISRAEL_TIME_ZONE).setAccessRole("owner"));
+        calendarID2Events.put(calendar.getId(), events);
+    }
+
+    private static Event createTimedEvent(String id, String summary, ZonedDateTime start, ZonedDateTime end) {
+        return new Event()
+                .setId(id)
+                .setSummary(summary)
+                .setStart(toEventDateTime(start))
+                .setEnd(toEventDateTime(end));
+    }
+
+    private static EventDateTime toEventDateTime(ZonedDateTime dateTime) {
+        return new EventDateTime()
+                .setDateTime(new DateTime(dateTime.toInstant().toEpochMilli()))
+                .setTimeZone(ISRAEL_TIME_ZONE);
+    }
+
+    private static long getStartInMillis(Event event) {
+        return event.getStart().getDateTime() != null ? event.getStart().getDateTime().getValue() : event.getStart().getDate().getValue();
+    }
+
+    /**
+     * Google event IDs use the characters a-v and 0-9
+     */
+    private String nextEventID() {
+        return String.format("ev%08d", nextEventNumber++);
+    }
+}
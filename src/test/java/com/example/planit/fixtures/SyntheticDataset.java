@@ -0,0 +1,141 @@
+package com.example.planit.fixtures;
+
+import com.example.planit.model.exam.Exam;
+import com.example.planit.model.mongo.course.Course;
+import com.google.api.services.calendar.model.CalendarListEntry;
+import com.google.api.services.calendar.model.Event;
+
+import java.time.Instant;
+import java.util.*;
+
+import static com.example.planit.utill.Constants.PLANIT_CALENDAR_SUMMERY_NAME;
+
+/**
+ * a synthetic user's calendars, as they are returned from Google, and the courses catalog, as it is stored in the DB.
+ * created by {@link SyntheticCalendarGenerator}.
+ */
+public class SyntheticDataset {
+
+    private final String email;
+
+    private final Instant start;
+
+    private final Instant end;
+
+    private final List<CalendarListEntry> calendarList;
+
+    // calendar ID -> the events of the calendar, as they are listed with singleEvents=true (recurring events are expanded)
+    private final Map<String, List<Event>> calendarID2Events;
+
+    // calendar ID -> the recurring events of the calendar, as they are stored in Google (with their RRULE)
+    private final Map<String, List<Event>> calendarID2RecurringEvents;
+
+    private final List<Course> courses;
+
+    private final List<Exam> exams;
+
+    private final Set<String> holidaysDates;
+
+    public SyntheticDataset(String email, Instant start, Instant end, List<CalendarListEntry> calendarList,
+                            Map<String, List<Event>> calendarID2Events, Map<String, List<Event>> calendarID2RecurringEvents,
+                            List<Course> courses, List<Exam> exams, Set<String> holidaysDates) {
+        this.email = email;
+        this.start = start;
+        this.end = end;
+        this.calendarList = calendarList;
+        this.calendarID2Events = calendarID2Events;
+        this.calendarID2RecurringEvents = calendarID2RecurringEvents;
+        this.courses = courses;
+        this.exams = exams;
+        this.holidaysDates = holidaysDates;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public Instant getStart() {
+        return start;
+    }
+
+    public Instant getEnd() {
+        return end;
+    }
+
+    public List<CalendarListEntry> getCalendarList() {
+        return calendarList;
+    }
+
+    public Map<String, List<Event>> getCalendarID2Events() {
+        return calendarID2Events;
+    }
+
+    public Map<String, List<Event>> getCalendarID2RecurringEvents() {
+        return calendarID2RecurringEvents;
+    }
+
+    public List<Course> getCourses() {
+        return courses;
+    }
+
+    /**
+     * @return the exams of the exams calendar, sorted by their time
+     */
+    public List<Exam> getExams() {
+        return exams;
+    }
+
+    /**
+     * @return the dates (yyyy-MM-dd) of the full day holiday events
+     */
+    public Set<String> getHolidaysDates() {
+        return holidaysDates;
+    }
+
+    /**
+     * @return the ID of the PlanIt calendar, or null if the user has no PlanIt calendar
+     */
+    public String getPlanItCalendarID() {
+        return calendarList.stream()
+                .filter(calendar -> PLANIT_CALENDAR_SUMMERY_NAME.equals(calendar.getSummary()))
+                .map(CalendarListEntry::getId)
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * @return the stale events of the PlanIt calendar
+     */
+    public List<Event> getPlanItEvents() {
+        String planItCalendarID = getPlanItCalendarID();
+        return planItCalendarID == null ? new ArrayList<>() : new ArrayList<>(calendarID2Events.get(planItCalendarID));
+    }
+
+    /**
+     * the user's timed events from all the calendars except the PlanIt calendar, sorted by start time.
+     * this is the list the planning stages get, after the full day events were handled.
+     */
+    public List<Event> getTimedEvents() {
+        String planItCalendarID = getPlanItCalendarID();
+        List<Event> timedEvents = new ArrayList<>();
+
+        for (CalendarListEntry calendar : calendarList) {
+            if (calendar.getId().equals(planItCalendarID)) {
+                continue;
+            }
+            calendarID2Events.get(calendar.getId()).stream()
+                    .filter(event -> event.getStart().getDateTime() != null)
+                    .forEach(timedEvents::add);
+        }
+
+        timedEvents.sort(Comparator.comparingLong(event -> event.getStart().getDateTime().getValue()));
+        return timedEvents;
+    }
+
+    /**
+     * @return the number of the listed events in all the calendars
+     */
+    public int getNumberOfEvents() {
+        return calendarID2Events.values().stream().mapToInt(List::size).sum();
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.planit.utill;
+
+import com.example.planit.model.exam.Exam;
+import com.example.planit.model.mongo.course.Course;
+import com.example.planit.model.mongo.plan.BusyInterval;
+import com.example.planit.model.preferences.Preferences;
+import com.google.api.client.util.DateTime;
+import com.google.api.services.calendar.model.Event;
+import com.google.api.services.calendar.model.EventDateTime;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlanFingerprintTest {
+
+    // 2023-01-01T08:00:00Z
+    private static final long START = 1_672_560_000_000L;
+
+    private static final long HOUR = 60 * 60 * 1000;
+
+    @Test
+    void sameInputsHaveTheSameFingerprint() {
+        assertEquals(fingerprint(fingerprint -> addInputs(fingerprint, createCourse("subject 1"), new Preferences(), START + HOUR)),
+                fingerprint(fingerprint -> addInputs(fingerprint, createCourse("subject 1"), new Preferences(), START + HOUR)));
+        assertEquals(64, fingerprint(fingerprint -> fingerprint.add("value")).length());
+    }
+
+    @Test
+    void everyInputChangesTheFingerprint() {
+        Preferences otherPreferences = new Preferences();
+        otherPreferences.setStudyOnWeekends(!otherPreferences.isStudyOnWeekends());
+        String inputsFingerprint = fingerprint(fingerprint -> addInputs(fingerprint, createCourse("subject 1"), new Preferences(), START + HOUR));
+
+        // a busy interval that ends a millisecond later
+        assertNotEquals(inputsFingerprint, fingerprint(fingerprint -> addInputs(fingerprint, createCourse("subject 1"), new Preferences(), START + HOUR + 1)));
+        // a new version of the course of an exam
+        assertNotEquals(inputsFingerprint, fingerprint(fingerprint -> addInputs(fingerprint, createCourse("subject 2"), new Preferences(), START + HOUR)));
+        assertNotEquals(inputsFingerprint, fingerprint(fingerprint -> addInputs(fingerprint, createCourse("subject 1"), otherPreferences, START + HOUR)));
+    }
+
+    @Test
+    void valuesAreSeparated() {
+        assertNotEquals(fingerprint(fingerprint -> fingerprint.add("ab").add("c")), fingerprint(fingerprint -> fingerprint.add("a").add("bc")));
+        assertNotEquals(fingerprint(fingerprint -> fingerprint.add(12).add(3)), fingerprint(fingerprint -> fingerprint.add(1).add(23)));
+
+        // the number of the values is added before them, so the values of a list can not move to the next one
+        assertNotEquals(fingerprint(fingerprint -> fingerprint.addUnordered(List.of("a", "b")).addUnordered(List.of())),
+                fingerprint(fingerprint -> fingerprint.addUnordered(List.of("a")).addUnordered(List.of("b"))));
+    }
+
+    @Test
+    void unorderedValuesIgnoreTheirOrder() {
+        assertEquals(fingerprint(fingerprint -> fingerprint.addUnordered(List.of("b", "a", "c"))),
+                fingerprint(fingerprint -> fingerprint.addUnordered(Set.of("c", "b", "a"))));
+        assertNotEquals(fingerprint(fingerprint -> fingerprint.addUnordered(List.of("a", "b"))),
+                fingerprint(fingerprint -> fingerprint.addUnordered(List.of("a", "b", "b"))));
+    }
+
+    @Test
+    void fullDayEventsAreNotTimedEvents() {
+        Event timedEvent = new Event().setId("event1").setSummary("PlanIt")
+                .setStart(new EventDateTime().setDateTime(new DateTime(START)))
+                .setEnd(new EventDateTime().setDateTime(new DateTime(START + HOUR)));
+        Event fullDayEvent = new Event().setId("event1").setSummary("PlanIt")
+                .setStart(new EventDateTime().setDate(new DateTime(true, START, 0)))
+                .setEnd(new EventDateTime().setDate(new DateTime(true, START + 24 * HOUR, 0)));
+
+        assertNotEquals(fingerprint(fingerprint -> fingerprint.addPlanItEvents(List.of(timedEvent))),
+                fingerprint(fingerprint -> fingerprint.addPlanItEvents(List.of(fullDayEvent))));
+        assertNotEquals(fingerprint(fingerprint -> fingerprint.addPlanItEvents(List.of(timedEvent))),
+                fingerprint(fingerprint -> fingerprint.addPlanItEvents(List.of(timedEvent.clone().setDescription("subject 1")))));
+    }
+
+    private static void addInputs(PlanFingerprint fingerprint, Course course, Preferences preferences, long endOfBusyInterval) {
+        fingerprint.add(START)
+                .addBusyIntervals(List.of(new BusyInterval(START, endOfBusyInterval)))
+                .addExams(List.of(new Exam(course, new DateTime(START + 48 * HOUR))))
+                .addPreferences(preferences);
+    }
+
+    private static String fingerprint(Consumer<PlanFingerprint> inputs) {
+        PlanFingerprint fingerprint = new PlanFingerprint();
+        inputs.accept(fingerprint);
+
+        return fingerprint.calculate();
+    }
+
+    private static Course createCourse(String subject) {
+        return new Course("חישוביות", 3, 4, 2, new String[]{subject}, 50);
+    }
+}